@@ -0,0 +1,89 @@
+package ca.xef5000.ultimateLogger.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of stored logs per log type, UTC day and archived flag, as counted by the storage backend
+ * while it writes and deletes. Reading totals from it never touches the logs themselves.
+ */
+public final class LogCounts {
+
+    public static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    public static final LogCounts EMPTY = new LogCounts(Map.of());
+
+    /**
+     * @param day The capture day, in days since the epoch (UTC).
+     */
+    public record Key(@NotNull String logType, long day, boolean archived) {
+
+        public static @NotNull Key of(@NotNull String logType, long timestamp, boolean archived) {
+            return new Key(logType, Math.floorDiv(timestamp, DAY_MILLIS), archived);
+        }
+    }
+
+    private final Map<Key, Long> counts;
+
+    public LogCounts(@NotNull Map<Key, Long> counts) {
+        this.counts = Map.copyOf(counts);
+    }
+
+    /**
+     * @param logType Only logs of this type, or null for every type.
+     */
+    public long total(@Nullable String logType) {
+        long total = 0;
+        for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+            if (logType == null || entry.getKey().logType().equals(logType)) total += entry.getValue();
+        }
+        return total;
+    }
+
+    /**
+     * @param logType Only logs of this type, or null for every type.
+     */
+    public long archived(@Nullable String logType) {
+        long archived = 0;
+        for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+            if (entry.getKey().archived() && (logType == null || entry.getKey().logType().equals(logType))) archived += entry.getValue();
+        }
+        return archived;
+    }
+
+    /**
+     * Counts the logs captured in the inclusive time range. Days wholly inside it are counted exactly,
+     * the days it cuts through in proportion to the part of the day it covers.
+     * @param logType Only logs of this type, or null for every type.
+     */
+    public double estimate(@Nullable String logType, long from, long to) {
+        if (from > to) return 0;
+        double total = 0;
+        for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+            if (logType != null && !entry.getKey().logType().equals(logType)) continue;
+            long dayStart = entry.getKey().day() * DAY_MILLIS;
+            long start = Math.max(from, dayStart);
+            long end = Math.min(to, dayStart + DAY_MILLIS - 1);
+            if (start > end) continue;
+            total += entry.getValue() * (double) (end - start + 1) / DAY_MILLIS;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of logs of each type, sorted by type.
+     */
+    public @NotNull Map<String, Long> byType() {
+        Map<String, Long> byType = new TreeMap<>();
+        counts.forEach((key, count) -> byType.merge(key.logType(), count, Long::sum));
+        return byType;
+    }
+
+    public @NotNull Map<Key, Long> asMap() {
+        return counts;
+    }
+}
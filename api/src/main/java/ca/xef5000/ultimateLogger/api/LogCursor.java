@@ -0,0 +1,44 @@
+package ca.xef5000.ultimateLogger.api;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Where a page of logs starts: past a log ID, going towards older or newer logs. Pages are found
+ * through the ID index, so a deep page costs the same as the first one.
+ */
+public record LogCursor(long id, @NotNull Direction direction) {
+
+    /**
+     * The newest logs.
+     */
+    public static final LogCursor FIRST = new LogCursor(Long.MAX_VALUE, Direction.OLDER);
+
+    public enum Direction {
+        OLDER, NEWER
+    }
+
+    /**
+     * @return A cursor on the logs older than the log with this ID.
+     */
+    public static @NotNull LogCursor olderThan(long id) {
+        return new LogCursor(id, Direction.OLDER);
+    }
+
+    /**
+     * @return A cursor on the logs newer than the log with this ID.
+     */
+    public static @NotNull LogCursor newerThan(long id) {
+        return new LogCursor(id, Direction.NEWER);
+    }
+
+    public boolean isOlder() {
+        return direction == Direction.OLDER;
+    }
+
+    /**
+     * @return true if the log with this ID lies past the cursor.
+     */
+    public boolean admits(long logId) {
+        return isOlder() ? logId < id : logId > id;
+    }
+}
@@ -7,16 +7,43 @@ import javax.annotation.Nullable;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.BiConsumer;
 
+/**
+ * The values captured for one log.
+ * <p>
+ * When created with a {@link LogSchema} (see {@link LogDefinition#newLogData()}), values for the
+ * schema's keys are stored in primitive slots, so capturing a log does not allocate a map or box numbers.
+ * Keys outside the schema, or values that do not fit their slot's type, go to a fallback map.
+ */
 public class LogData {
 
     private static final Gson GSON = new Gson();
 
-    private final LinkedHashMap<String, Object> data = new LinkedHashMap<>();
+    private static final long[] NO_LONGS = new long[0];
+    private static final double[] NO_DOUBLES = new double[0];
+    private static final String[] NO_STRINGS = new String[0];
+
+    private final LogSchema schema;
+    private final long[] longs;
+    private final double[] doubles;
+    private final String[] strings;
+    private long present; // One bit per schema slot
+
+    // Values without a slot
+    private LinkedHashMap<String, Object> data;
 
     private long id;
 
     public LogData() {
+        this(LogSchema.EMPTY);
+    }
+
+    public LogData(@NotNull LogSchema schema) {
+        this.schema = schema;
+        this.longs = schema.longCount() == 0 ? NO_LONGS : new long[schema.longCount()];
+        this.doubles = schema.doubleCount() == 0 ? NO_DOUBLES : new double[schema.doubleCount()];
+        this.strings = schema.stringCount() == 0 ? NO_STRINGS : new String[schema.stringCount()];
     }
 
     /**
@@ -26,12 +53,102 @@ public class LogData {
      * @return The LogData instance for chaining.
      */
     public LogData put(@NotNull String key, @NotNull Object value) {
-        data.put(key, value);
-        return this;
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            switch (schema.typeAt(slot)) {
+                case INTEGER -> {
+                    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                        return setLong(slot, ((Number) value).longValue());
+                    }
+                    // Numbers parsed back from JSON arrive as doubles
+                    if (value instanceof Double d && d == Math.rint(d) && Math.abs(d) < 0x1p53) {
+                        return setLong(slot, d.longValue());
+                    }
+                }
+                case DOUBLE -> {
+                    if (value instanceof Number number) return setDouble(slot, number.doubleValue());
+                }
+                case BOOLEAN -> {
+                    if (value instanceof Boolean bool) return setLong(slot, bool ? 1 : 0);
+                }
+                case STRING, UUID -> {
+                    if (value instanceof String || value instanceof UUID) return setString(slot, value.toString());
+                }
+            }
+        }
+        return putInMap(key, value);
+    }
+
+    public LogData put(@NotNull String key, int value) {
+        int slot = slotOf(key);
+        return slot >= 0 && schema.typeAt(slot) == ParameterType.INTEGER ? setLong(slot, value) : putInMap(key, value);
     }
 
+    public LogData put(@NotNull String key, long value) {
+        int slot = slotOf(key);
+        return slot >= 0 && schema.typeAt(slot) == ParameterType.INTEGER ? setLong(slot, value) : putInMap(key, value);
+    }
+
+    public LogData put(@NotNull String key, double value) {
+        int slot = slotOf(key);
+        return slot >= 0 && schema.typeAt(slot) == ParameterType.DOUBLE ? setDouble(slot, value) : putInMap(key, value);
+    }
+
+    public LogData put(@NotNull String key, boolean value) {
+        int slot = slotOf(key);
+        return slot >= 0 && schema.typeAt(slot) == ParameterType.BOOLEAN ? setLong(slot, value ? 1 : 0) : putInMap(key, value);
+    }
+
+    public LogData put(@NotNull String key, @NotNull String value) {
+        int slot = slotOf(key);
+        if (slot >= 0 && (schema.typeAt(slot) == ParameterType.STRING || schema.typeAt(slot) == ParameterType.UUID)) {
+            return setString(slot, value);
+        }
+        return putInMap(key, value);
+    }
+
+    /**
+     * Returns a copy of all values. Kept for compatibility: it boxes every value into a new map and
+     * changing the map does not change the log, so prefer {@link #get}, {@link #forEach} or the typed getters.
+     * Logs are shared between reader threads once stored, so reading them never modifies them.
+     */
     public LinkedHashMap<String, Object> getData() {
-        return data;
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * @return The value for the key, or null if not set.
+     */
+    @Nullable
+    public Object get(@NotNull String key) {
+        int slot = slotOf(key);
+        if (slot >= 0 && isSet(slot)) {
+            return boxed(slot);
+        }
+        return data != null ? data.get(key) : null;
+    }
+
+    public boolean has(@NotNull String key) {
+        int slot = slotOf(key);
+        return (slot >= 0 && isSet(slot)) || (data != null && data.containsKey(key));
+    }
+
+    /**
+     * Visits every value, schema slots first, in schema order.
+     */
+    public void forEach(@NotNull BiConsumer<String, Object> action) {
+        forEachSlot(action);
+        if (data != null) data.forEach(action);
+    }
+
+    public boolean isEmpty() {
+        return present == 0 && (data == null || data.isEmpty());
+    }
+
+    public LogSchema getSchema() {
+        return schema;
     }
 
     public void setId(long id) {
@@ -44,7 +161,17 @@ public class LogData {
 
     @Nullable
     public String getString(@NotNull String key) {
-        Object val = data.get(key);
+        int slot = slotOf(key);
+        if (slot >= 0 && isSet(slot)) {
+            int index = schema.indexAt(slot);
+            return switch (schema.typeAt(slot)) {
+                case INTEGER -> Long.toString(longs[index]);
+                case DOUBLE -> Double.toString(doubles[index]);
+                case BOOLEAN -> Boolean.toString(longs[index] != 0);
+                case STRING, UUID -> strings[index];
+            };
+        }
+        Object val = data != null ? data.get(key) : null;
         return val != null ? val.toString() : null;
     }
 
@@ -59,6 +186,10 @@ public class LogData {
 
     @Nullable
     public Integer getInteger(@NotNull String key) {
+        int slot = slotOf(key);
+        if (slot >= 0 && isSet(slot) && schema.typeAt(slot) == ParameterType.INTEGER) {
+            return (int) longs[schema.indexAt(slot)];
+        }
         try {
             return Integer.parseInt(getString(key));
         } catch (NumberFormatException | NullPointerException e) {
@@ -68,6 +199,11 @@ public class LogData {
 
     @Nullable
     public Double getDouble(@NotNull String key) {
+        int slot = slotOf(key);
+        if (slot >= 0 && isSet(slot)) {
+            if (schema.typeAt(slot) == ParameterType.DOUBLE) return doubles[schema.indexAt(slot)];
+            if (schema.typeAt(slot) == ParameterType.INTEGER) return (double) longs[schema.indexAt(slot)];
+        }
         try {
             return Double.parseDouble(getString(key));
         } catch (NumberFormatException | NullPointerException e) {
@@ -76,12 +212,117 @@ public class LogData {
     }
 
     /**
-     * A very flexible way to store data is to serialize this object to JSON.
-     * This method is a placeholder; you would use a library like Gson for the real implementation.
+     * Serializes the data to a JSON object. Slot values are written directly, without Gson.
      * @return A JSON representation of the data map.
      */
     public String toJson() {
-        // Use Gson to create a valid JSON string
-        return GSON.toJson(this.data);
+        StringBuilder json = new StringBuilder(32 + schema.size() * 24);
+        json.append('{');
+        boolean first = true;
+        for (int slot = 0; slot < schema.size(); slot++) {
+            if (!isSet(slot)) continue;
+            if (!first) json.append(',');
+            first = false;
+            appendString(json, schema.keyAt(slot));
+            json.append(':');
+            int index = schema.indexAt(slot);
+            switch (schema.typeAt(slot)) {
+                case INTEGER -> json.append(longs[index]);
+                case DOUBLE -> {
+                    double value = doubles[index];
+                    if (Double.isFinite(value)) json.append(value);
+                    else appendString(json, Double.toString(value)); // JSON has no NaN or Infinity
+                }
+                case BOOLEAN -> json.append(longs[index] != 0);
+                case STRING, UUID -> appendString(json, strings[index]);
+            }
+        }
+        if (data != null) {
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                appendString(json, entry.getKey());
+                json.append(':').append(GSON.toJson(entry.getValue()));
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private int slotOf(String key) {
+        return schema.slotOf(key);
+    }
+
+    private boolean isSet(int slot) {
+        return (present & (1L << slot)) != 0;
+    }
+
+    private LogData setLong(int slot, long value) {
+        longs[schema.indexAt(slot)] = value;
+        return markSet(slot);
+    }
+
+    private LogData setDouble(int slot, double value) {
+        doubles[schema.indexAt(slot)] = value;
+        return markSet(slot);
+    }
+
+    private LogData setString(int slot, String value) {
+        strings[schema.indexAt(slot)] = value;
+        return markSet(slot);
+    }
+
+    private LogData markSet(int slot) {
+        present |= 1L << slot;
+        if (data != null) data.remove(schema.keyAt(slot));
+        return this;
+    }
+
+    private LogData putInMap(String key, Object value) {
+        if (data == null) data = new LinkedHashMap<>();
+        data.put(key, value);
+        int slot = slotOf(key);
+        if (slot >= 0) present &= ~(1L << slot); // The map value replaces the slot value
+        return this;
+    }
+
+    private Object boxed(int slot) {
+        int index = schema.indexAt(slot);
+        return switch (schema.typeAt(slot)) {
+            case INTEGER -> {
+                long value = longs[index];
+                yield value == (int) value ? (Object) (int) value : (Object) value;
+            }
+            case DOUBLE -> doubles[index];
+            case BOOLEAN -> longs[index] != 0;
+            case STRING, UUID -> strings[index];
+        };
+    }
+
+    private void forEachSlot(BiConsumer<String, Object> action) {
+        for (int slot = 0; slot < schema.size(); slot++) {
+            if (isSet(slot)) action.accept(schema.keyAt(slot), boxed(slot));
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
     }
 }
@@ -6,13 +6,44 @@ import java.util.List;
 
 public abstract class LogDefinition<T extends Event> {
 
+    // Built on first use, since getFilterableParameters() may depend on subclass fields
+    private volatile LogSchema schema;
+
     public abstract String getId();
 
     public abstract Class<T> getEventClass();
 
+    /**
+     * @return true to skip cancelled events before {@link #shouldLog} is even called.
+     * Cancelled events are then filtered out by Bukkit itself.
+     */
+    public boolean ignoreCancelled() {
+        return false;
+    }
+
     public abstract boolean shouldLog(T event);
 
     public abstract LogData captureData(T event);
 
     public abstract List<ParameterDefinition> getFilterableParameters();
+
+    /**
+     * @return The slot layout derived from {@link #getFilterableParameters()}.
+     */
+    public LogSchema getSchema() {
+        LogSchema current = schema;
+        if (current == null) {
+            current = LogSchema.of(getFilterableParameters());
+            schema = current;
+        }
+        return current;
+    }
+
+    /**
+     * Creates an empty LogData laid out for this definition. Use it in {@link #captureData}
+     * instead of {@code new LogData()} so values are stored without boxing.
+     */
+    public LogData newLogData() {
+        return new LogData(getSchema());
+    }
 }
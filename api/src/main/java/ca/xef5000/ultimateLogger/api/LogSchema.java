@@ -0,0 +1,102 @@
+package ca.xef5000.ultimateLogger.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fixed layout of the values captured by one log definition, derived from its filterable parameters.
+ * Every parameter gets a typed slot, so {@link LogData} can store values in primitive arrays
+ * instead of a map of boxed objects. Keys outside the schema are still accepted by LogData.
+ */
+public final class LogSchema {
+
+    /** A schema without slots; every value goes to the fallback map. */
+    public static final LogSchema EMPTY = new LogSchema(List.of());
+
+    // The presence of each slot is tracked with one bit of a long
+    static final int MAX_SLOTS = 64;
+
+    private final String[] keys;
+    private final ParameterType[] types;
+    private final int[] indexes; // Index into the storage array for the slot's type
+    private final Map<String, Integer> slotsByKey;
+
+    private final int longCount;
+    private final int doubleCount;
+    private final int stringCount;
+
+    private LogSchema(List<ParameterDefinition> parameters) {
+        int size = (int) Math.min(MAX_SLOTS, parameters.stream().map(ParameterDefinition::key).distinct().count());
+        this.keys = new String[size];
+        this.types = new ParameterType[size];
+        this.indexes = new int[size];
+        this.slotsByKey = new HashMap<>(size * 2);
+
+        int longs = 0, doubles = 0, strings = 0;
+        int slot = 0;
+        for (ParameterDefinition parameter : parameters) {
+            if (slot == size) break;
+            if (slotsByKey.containsKey(parameter.key())) continue;
+
+            keys[slot] = parameter.key();
+            types[slot] = parameter.type();
+            indexes[slot] = switch (parameter.type()) {
+                case INTEGER, BOOLEAN -> longs++;
+                case DOUBLE -> doubles++;
+                case STRING, UUID -> strings++;
+            };
+            slotsByKey.put(parameter.key(), slot);
+            slot++;
+        }
+
+        this.longCount = longs;
+        this.doubleCount = doubles;
+        this.stringCount = strings;
+    }
+
+    /**
+     * Creates a schema for the given parameters. Only the first 64 distinct keys get a slot.
+     */
+    public static LogSchema of(@NotNull List<ParameterDefinition> parameters) {
+        return parameters.isEmpty() ? EMPTY : new LogSchema(parameters);
+    }
+
+    /**
+     * @return The slot of the key, or -1 if the key is not part of this schema.
+     */
+    public int slotOf(@NotNull String key) {
+        Integer slot = slotsByKey.get(key);
+        return slot != null ? slot : -1;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public ParameterType typeAt(int slot) {
+        return types[slot];
+    }
+
+    int indexAt(int slot) {
+        return indexes[slot];
+    }
+
+    int longCount() {
+        return longCount;
+    }
+
+    int doubleCount() {
+        return doubleCount;
+    }
+
+    int stringCount() {
+        return stringCount;
+    }
+}
@@ -0,0 +1,103 @@
+package ca.xef5000.ultimateLogger.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntPredicate;
+
+/**
+ * Where logs are kept. The plugin captures, queues, batches and caches logs; a backend only stores
+ * and finds them. Methods are called off the main thread, and writes come from one thread at a time.
+ * <p>
+ * Filters use the same {@link FilterCondition}s as the log viewer. A condition on {@code timestamp}
+ * compares the capture time in epoch millis; any other key compares the log's value of that key.
+ * Conditions are combined with AND.
+ */
+public interface StorageBackend {
+
+    /**
+     * Prepares the storage, e.g. creates or migrates tables. Called once before anything else.
+     */
+    void open() throws StorageException;
+
+    /**
+     * Releases the storage, once every queued log was written.
+     */
+    void close();
+
+    /**
+     * @return false while the storage is down, which pauses writing until it is back.
+     */
+    default boolean isReachable() {
+        return true;
+    }
+
+    /**
+     * Called for each log type when it is registered, before its logs are written.
+     */
+    default void registerLogType(@NotNull LogDefinition<?> definition) {
+    }
+
+    /**
+     * Saves the logs, either all of them or none. Logs whose ID is already stored are skipped.
+     * @param retentionMillis How long the logs are kept, 0 or less to keep them forever.
+     * @return For each log, whether it was newly stored.
+     */
+    boolean[] write(@NotNull List<LogEntry> logs, long retentionMillis) throws StorageException;
+
+    /**
+     * Reads a page of logs past the cursor, seeking by ID rather than skipping the logs before it.
+     * @param logType Only logs of this type, or null for every type.
+     * @return Up to {@code limit} matching logs past the cursor, nearest to it first: newest first
+     *         for an {@link LogCursor.Direction#OLDER} cursor, oldest first for a {@link LogCursor.Direction#NEWER} one.
+     */
+    @NotNull List<LogEntry> query(@Nullable String logType, @NotNull List<FilterCondition> conditions, @NotNull LogCursor cursor, int limit) throws StorageException;
+
+    @NotNull Optional<LogEntry> get(long id) throws StorageException;
+
+    /**
+     * Deletes every matching log, possibly in several steps.
+     * @param logType Only logs of this type, or null for every type.
+     * @param progress Told the number deleted so far after each step; returning false stops the deletion.
+     * @return The number of logs deleted.
+     */
+    int delete(@Nullable String logType, @NotNull List<FilterCondition> conditions, @NotNull IntPredicate progress) throws StorageException;
+
+    /**
+     * @return true if the log existed.
+     */
+    boolean delete(long id) throws StorageException;
+
+    /**
+     * Archives the log, so it never expires, or unarchives it, so it expires {@code retentionMillis} from now.
+     * @return true if the log exists.
+     */
+    boolean setArchived(long id, boolean archived, long retentionMillis) throws StorageException;
+
+    /**
+     * Deletes every log that is not archived and expired before {@code now}, possibly in several steps.
+     * @param progress Told the number deleted so far after each step; returning false stops the deletion.
+     * @return The number of logs deleted.
+     */
+    int expire(long now, @NotNull IntPredicate progress) throws StorageException;
+
+    /**
+     * Reads the number of stored logs per type, day and archived flag. Backends keep these counts up to
+     * date with every write and deletion, so this never counts the logs themselves.
+     * @return The counts, or null if the backend does not keep them.
+     */
+    default @Nullable LogCounts counts() throws StorageException {
+        return null;
+    }
+
+    /**
+     * Housekeeping after many logs were deleted, such as returning freed space. Only called while the
+     * server is idle, and again until it returns false.
+     * @return true if there is more to do.
+     */
+    default boolean optimize() throws StorageException {
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package ca.xef5000.ultimateLogger.api;
+
+/**
+ * Thrown by a {@link StorageBackend} when logs cannot be read or written.
+ */
+public class StorageException extends Exception {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,55 @@
+package ca.xef5000.ultimateLogger.api.events;
+
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Called on the log writer thread right before a batch of logs is saved.
+ * Listeners may enrich the {@link LogEntry#getData()} of each log, remove logs from
+ * {@link #getLogs()} to skip them, or cancel the event to skip the whole batch.
+ * Only fired when at least one listener is registered.
+ */
+public class AsyncLogBatchSaveEvent extends Event implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private boolean cancelled;
+
+    private final List<LogEntry> logs;
+
+    public AsyncLogBatchSaveEvent(List<LogEntry> logs) {
+        super(true);
+        this.logs = logs;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancel) {
+        this.cancelled = cancel;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    /**
+     * @return The logs about to be saved. Removing a log keeps it from being saved.
+     */
+    public List<LogEntry> getLogs() {
+        return logs;
+    }
+}
@@ -6,6 +6,11 @@ import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Called for every captured log before it is queued for saving, on the thread that captured it.
+ * This is asynchronous when the log comes from an asynchronous event (e.g. chat).
+ * Only fired when at least one listener is registered.
+ */
 public class LogQueuedEvent extends Event implements Cancellable {
 
     private static final HandlerList HANDLERS = new HandlerList();
@@ -16,6 +21,11 @@ public class LogQueuedEvent extends Event implements Cancellable {
     private final LogData data;
 
     public LogQueuedEvent(String logType, LogData data) {
+        this(logType, data, false);
+    }
+
+    public LogQueuedEvent(String logType, LogData data, boolean async) {
+        super(async);
         this.logType = logType;
         this.data = data;
     }
@@ -0,0 +1,109 @@
+package ca.xef5000.ultimateLogger.api;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LogDataTest {
+
+    private static final LogSchema SCHEMA = LogSchema.of(List.of(
+            new ParameterDefinition("player", "Player", ParameterType.STRING),
+            new ParameterDefinition("amount", "Amount", ParameterType.INTEGER),
+            new ParameterDefinition("price", "Price", ParameterType.DOUBLE),
+            new ParameterDefinition("creative", "Creative", ParameterType.BOOLEAN)));
+
+    private static LogData sample() {
+        return new LogData(SCHEMA)
+                .put("note", "extra")
+                .put("creative", true)
+                .put("amount", 64)
+                .put("player", "Steve")
+                .put("price", 2.5);
+    }
+
+    @Test
+    void valuesComeBackInSchemaOrderThenExtraKeys() {
+        Map<String, Object> values = sample().getData();
+
+        assertEquals(List.of("player", "amount", "price", "creative", "note"), new ArrayList<>(values.keySet()));
+        // Whole numbers that fit an int come back as Integer, as they were put
+        assertEquals(List.of("Steve", 64, 2.5, true, "extra"), new ArrayList<>(values.values()));
+    }
+
+    @Test
+    void valuesThatDoNotFitTheirSlotAreKept() {
+        LogData data = new LogData(SCHEMA).put("amount", "lots").put("creative", "yes");
+
+        assertEquals("lots", data.get("amount"));
+        assertEquals("yes", data.get("creative"));
+        Object parsed = 3.0; // As numbers parsed back from JSON arrive
+        assertEquals(3, new LogData(SCHEMA).put("amount", parsed).get("amount"));
+    }
+
+    @Test
+    void getDataReturnsACopyAndLeavesTheLogAsItWas() {
+        LogData data = sample();
+        String json = data.toJson();
+
+        Map<String, Object> copy = data.getData();
+        copy.put("amount", 1L);
+        copy.put("added", "x");
+        copy.remove("note");
+
+        assertNotSame(copy, data.getData());
+        assertEquals(json, data.toJson());
+        assertEquals(64, data.get("amount"));
+        assertNull(data.get("added"));
+        // Still written to its slot, not to the fallback map
+        data.put("amount", 65L);
+        assertEquals(List.of("player", "amount", "price", "creative", "note"), new ArrayList<>(data.getData().keySet()));
+    }
+
+    @Test
+    void concurrentReadersSeeTheSameValues() throws Exception {
+        LogData data = sample();
+        Map<String, Object> expected = data.getData();
+        String json = data.toJson();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(pool.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        assertEquals(expected, data.getData());
+                        assertEquals(json, data.toJson());
+                    }
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void toJsonIsValidJson() {
+        LogData data = sample().put("quote", "a\"b\\c\n");
+        JsonObject json = JsonParser.parseString(data.toJson()).getAsJsonObject();
+
+        assertEquals("Steve", json.get("player").getAsString());
+        assertEquals(64, json.get("amount").getAsLong());
+        assertEquals(2.5, json.get("price").getAsDouble());
+        assertEquals(true, json.get("creative").getAsBoolean());
+        assertEquals("a\"b\\c\n", json.get("quote").getAsString());
+    }
+}
@@ -55,6 +55,9 @@ public final class UltimateLogger extends JavaPlugin {
     @Override
     public void onDisable() {
         // Plugin shutdown logic
+        if (this.logManager != null) {
+            this.logManager.shutdown(); // Save queued logs while the database is still open
+        }
 
         if (this.databaseManager != null) {
             this.databaseManager.close();
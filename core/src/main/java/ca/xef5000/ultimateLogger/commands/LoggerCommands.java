@@ -2,12 +2,18 @@ package ca.xef5000.ultimateLogger.commands;
 
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCounts;
+import ca.xef5000.ultimateLogger.api.LogCursor;
 import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageException;
 import ca.xef5000.ultimateLogger.frontend.GuiManager;
 import ca.xef5000.ultimateLogger.frontend.LogsViewGui;
 import ca.xef5000.ultimateLogger.frontend.SingleLogViewGui;
+import ca.xef5000.ultimateLogger.managers.LogDeleter;
 import ca.xef5000.ultimateLogger.managers.LogManager;
+import ca.xef5000.ultimateLogger.managers.LogPage;
 import ca.xef5000.ultimateLogger.utils.FilterSerializer;
+import com.google.common.cache.CacheStats;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -19,6 +25,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class LoggerCommands implements CommandExecutor, TabCompleter {
@@ -29,6 +36,12 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
 
     private final Map<String, ClearOperation> pendingClearOperations = new HashMap<>();
 
+    // Clears still deleting, by sender; completed from the deleter thread
+    private final Map<String, LogDeleter.Job> runningClears = new ConcurrentHashMap<>();
+
+    // The page of /logger view each sender is on, to move to the pages around it
+    private final Map<String, ViewPosition> viewPositions = new ConcurrentHashMap<>();
+
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     public LoggerCommands(UltimateLogger plugin) {
@@ -48,7 +61,7 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
                 sender.sendMessage(ChatColor.RED + "This command can only be used by players.");
                 return true;
             }
-            guiManager.openGui(player, new LogsViewGui(plugin, 1, null, null));
+            guiManager.openGui(player, new LogsViewGui(plugin, null, null));
             return true;
         }
 
@@ -73,7 +86,7 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
                 handleClearCommand(sender, args);
                 break;
             case "confirmclear":
-                handleConfirmClear(sender);
+                handleConfirmClear(sender, args);
                 break;
             case "help":
             default:
@@ -90,35 +103,63 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
             return;
         }
 
-        int page = 1;
         int pageSize = 10;
-
-        if (args.length > 1) {
+        ViewPosition position = viewPositions.get(sender.getName());
+        String argument = args.length > 1 ? args[1].toLowerCase() : "1";
+
+        // Pages are reached through the cursors of the page shown before, so only nearby pages can be opened
+        int page;
+        LogCursor cursor;
+        if (argument.equals("next")) {
+            page = position != null ? position.number() + 1 : 1;
+        } else if (argument.equals("prev")) {
+            page = position != null ? position.number() - 1 : 1;
+        } else {
             try {
-                page = Integer.parseInt(args[1]);
+                page = Integer.parseInt(argument);
                 if (page < 1) {
                     sender.sendMessage(ChatColor.RED + "Page number must be 1 or greater.");
                     return;
                 }
             } catch (NumberFormatException e) {
-                sender.sendMessage(ChatColor.RED + "Invalid page number. Please use a number.");
+                sender.sendMessage(ChatColor.RED + "Invalid page number. Please use a number, next or prev.");
                 return;
             }
         }
 
+        if (page <= 1) {
+            page = 1;
+            cursor = LogCursor.FIRST;
+        } else if (position != null && page == position.number()) {
+            cursor = position.cursor();
+        } else if (position != null && page == position.number() + 1 && position.page().older() != null) {
+            cursor = position.page().older();
+        } else if (position != null && page == position.number() - 1 && position.page().newer() != null) {
+            cursor = position.page().newer();
+        } else if (position != null && (page == position.number() + 1 || page == position.number() - 1)) {
+            sender.sendMessage(ChatColor.GRAY + "There are no more logs in that direction.");
+            return;
+        } else {
+            sender.sendMessage(ChatColor.RED + "Only the pages next to the current one can be opened. Use /logger view next or prev.");
+            return;
+        }
+
         sender.sendMessage(ChatColor.YELLOW + "Loading logs for page " + page + "...");
 
         // Use the async future from LogManager
         int finalPage = page;
-        logManager.getLogsPage(page, pageSize, null, null).thenAccept(logs -> {
+        logManager.getLogsPage(cursor, pageSize, null, null).thenAccept(result -> {
             // We are in an async thread here, so we must schedule the message sending back to the main thread
             plugin.getServer().getScheduler().runTask(plugin, () -> {
+                List<LogEntry> logs = result.logs();
                 if (logs.isEmpty()) {
                     sender.sendMessage(ChatColor.GRAY + "No logs found for this page.");
                     return;
                 }
 
-                sender.sendMessage(ChatColor.GOLD + "--- " + ChatColor.WHITE + "Logs (Page " + finalPage + ")" + ChatColor.GOLD + " ---");
+                int shownPage = result.isFirst() ? 1 : finalPage;
+                viewPositions.put(sender.getName(), new ViewPosition(cursor, shownPage, result));
+                sender.sendMessage(ChatColor.GOLD + "--- " + ChatColor.WHITE + "Logs (Page " + shownPage + ")" + ChatColor.GOLD + " ---");
                 for (LogEntry entry : logs) {
                     String timestamp = DATE_FORMAT.format(entry.getTimestamp().atZone(java.time.ZoneId.systemDefault()));
                     sender.sendMessage(ChatColor.GRAY + "[" + entry.getId() + "] " +
@@ -142,8 +183,48 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
             return;
         }
         sender.sendMessage(ChatColor.GOLD + "--- " + ChatColor.WHITE + "UltimateLogger Stats" + ChatColor.GOLD + " ---");
-        sender.sendMessage(ChatColor.AQUA + "Logs in save queue: " + ChatColor.WHITE + logManager.getSaveQueueSize());
+        sender.sendMessage(ChatColor.AQUA + "Logs in save queue: " + ChatColor.WHITE + logManager.getSaveQueueSize() + "/" + logManager.getSaveQueueCapacity());
+        sender.sendMessage(ChatColor.AQUA + "Writer batch size: " + ChatColor.WHITE + logManager.getWriterBatchSize() + ChatColor.GRAY + " (last commit " + logManager.getLastCommitMillis() + "ms)");
+        sender.sendMessage(ChatColor.AQUA + "Dropped logs: " + ChatColor.WHITE + logManager.getDroppedLogCount());
+        sender.sendMessage(ChatColor.AQUA + "Spilled logs: " + ChatColor.WHITE + logManager.getSpilledLogCount());
+        long coalescedLogs = logManager.getCoalescedLogCount();
+        if (coalescedLogs >= 0) {
+            sender.sendMessage(ChatColor.AQUA + "Merged logs: " + ChatColor.WHITE + coalescedLogs);
+        }
+        Map<String, Long> shedLogs = logManager.getShedLogCounts();
+        if (!shedLogs.isEmpty()) {
+            sender.sendMessage(ChatColor.AQUA + "Shed logs:");
+            shedLogs.forEach((type, count) -> sender.sendMessage(ChatColor.GRAY + "  " + type + ": " + ChatColor.WHITE + count));
+        }
+        sender.sendMessage(ChatColor.AQUA + "Database: " + ChatColor.WHITE + logManager.getDatabaseState());
+        int journalSegments = logManager.getJournalSegmentCount();
+        if (journalSegments >= 0) {
+            sender.sendMessage(ChatColor.AQUA + "Journal segments: " + ChatColor.WHITE + journalSegments
+                    + (logManager.isReplayingJournal() ? ChatColor.YELLOW + " (replaying backlog)" : ""));
+        }
         sender.sendMessage(ChatColor.AQUA + "Pages in cache: " + ChatColor.WHITE + logManager.getCacheSize());
+        CacheStats cacheStats = logManager.getCacheStats();
+        sender.sendMessage(ChatColor.AQUA + "Cache hits: " + ChatColor.WHITE + cacheStats.hitCount() + "/" + cacheStats.requestCount()
+                + ChatColor.GRAY + String.format(" (%.1f%%, %d pages dropped by writes)", cacheStats.hitRate() * 100, logManager.getCacheDroppedPages()));
+        int hotLogs = logManager.getHotTierSize();
+        if (hotLogs >= 0) {
+            sender.sendMessage(ChatColor.AQUA + "Recent logs in memory: " + ChatColor.WHITE + hotLogs
+                    + ChatColor.GRAY + " (" + logManager.getHotTierBytes() / 1024 + " KB, answered "
+                    + logManager.getHotTierHits() + "/" + logManager.getHotTierReads() + " page reads)");
+        }
+        // The counters may live in the database, so they are read off the main thread
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                LogCounts counts = logManager.getLogCounts();
+                if (counts != null) {
+                    sender.sendMessage(ChatColor.AQUA + "Stored logs: " + ChatColor.WHITE + counts.total(null)
+                            + ChatColor.GRAY + " (" + counts.archived(null) + " archived)");
+                    counts.byType().forEach((type, count) -> sender.sendMessage(ChatColor.GRAY + "  " + type + ": " + ChatColor.WHITE + count));
+                }
+            } catch (StorageException e) {
+                sender.sendMessage(ChatColor.RED + "Could not read the log counts: " + e.getMessage());
+            }
+        });
     }
 
     private void handleReloadCommand(CommandSender sender) {
@@ -210,6 +291,14 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
             return;
         }
 
+        // An unknown key would otherwise not narrow the clear at all
+        try {
+            logManager.createFilter(filter, conditions);
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(ChatColor.RED + "Invalid filter: " + e.getMessage());
+            return;
+        }
+
         // Confirm with the user
         sender.sendMessage(ChatColor.YELLOW + "This will delete all logs matching your filter. Type '/logger confirmclear' within 10 seconds to confirm.");
 
@@ -222,12 +311,28 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
         }, 200L); // 200 ticks = 10 seconds
     }
 
-    private void handleConfirmClear(CommandSender sender) {
+    private void handleConfirmClear(CommandSender sender, String[] args) {
         if (!sender.hasPermission("ultimatelogger.clear")) {
             sender.sendMessage(ChatColor.RED + "You do not have permission to use this command.");
             return;
         }
 
+        LogDeleter.Job running = runningClears.get(sender.getName());
+        if (args.length > 1 && args[1].equalsIgnoreCase("cancel")) {
+            if (running == null) {
+                sender.sendMessage(ChatColor.RED + "You have no clear operation running.");
+                return;
+            }
+            running.cancel();
+            sender.sendMessage(ChatColor.YELLOW + "Cancelling the clear operation after " + running.getDeleted() + " logs...");
+            return;
+        }
+        if (running != null) {
+            sender.sendMessage(ChatColor.RED + "Your previous clear operation is still running (" + running.getDeleted()
+                    + " logs cleared). Type '/logger confirmclear cancel' to stop it.");
+            return;
+        }
+
         ClearOperation operation = pendingClearOperations.remove(sender.getName());
         if (operation == null) {
             sender.sendMessage(ChatColor.RED + "No pending clear operation or it has expired.");
@@ -240,14 +345,25 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
             return;
         }
 
-        sender.sendMessage(ChatColor.YELLOW + "Clearing logs, please wait...");
+        sender.sendMessage(ChatColor.YELLOW + "Clearing logs in the background. Type '/logger confirmclear cancel' to stop.");
 
         // Execute the clear operation
-        logManager.clearLogs(operation.filter, operation.conditions).thenAccept(count -> {
+        LogDeleter.Job job = logManager.clearLogs(operation.filter, operation.conditions, progress ->
+                Bukkit.getScheduler().runTask(plugin, () ->
+                        sender.sendMessage(ChatColor.GRAY + "Cleared " + progress.getDeleted() + " logs so far...")));
+        runningClears.put(sender.getName(), job);
+
+        job.getResult().thenAccept(count -> {
+            runningClears.remove(sender.getName(), job);
             Bukkit.getScheduler().runTask(plugin, () -> {
-                sender.sendMessage(ChatColor.GREEN + "Successfully cleared " + count + " logs.");
+                if (job.isCancelled()) {
+                    sender.sendMessage(ChatColor.YELLOW + "Clear operation cancelled after clearing " + count + " logs.");
+                } else {
+                    sender.sendMessage(ChatColor.GREEN + "Successfully cleared " + count + " logs.");
+                }
             });
         }).exceptionally(ex -> {
+            runningClears.remove(sender.getName(), job);
             Bukkit.getScheduler().runTask(plugin, () -> {
                 sender.sendMessage(ChatColor.RED + "An error occurred while clearing logs: " + ex.getMessage());
             });
@@ -258,13 +374,14 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
 
     private void sendHelp(CommandSender sender) {
         sender.sendMessage(ChatColor.GOLD + "--- " + ChatColor.WHITE + "UltimateLogger Help" + ChatColor.GOLD + " ---");
-        sender.sendMessage(ChatColor.AQUA + "/logger view <page>" + ChatColor.GRAY + " - View logs.");
+        sender.sendMessage(ChatColor.AQUA + "/logger view [next|prev]" + ChatColor.GRAY + " - View logs, page by page.");
         sender.sendMessage(ChatColor.AQUA + "/logger stats" + ChatColor.GRAY + " - View plugin statistics.");
         sender.sendMessage(ChatColor.AQUA + "/logger reload" + ChatColor.GRAY + " - Reload the config.");
         sender.sendMessage(ChatColor.AQUA + "/logger help" + ChatColor.GRAY + " - Shows this message.");
         sender.sendMessage(ChatColor.AQUA + "/logger log <id>" + ChatColor.GRAY + " - View a specific log by ID.");
         sender.sendMessage(ChatColor.AQUA + "/logger clean" + ChatColor.GRAY + " - Clean expired logs.");
         sender.sendMessage(ChatColor.AQUA + "/logger clear <filter>" + ChatColor.GRAY + " - Clear logs matching filter.");
+        sender.sendMessage(ChatColor.AQUA + "/logger confirmclear cancel" + ChatColor.GRAY + " - Stop a running clear.");
     }
 
 
@@ -274,6 +391,12 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
             return Arrays.asList("view", "stats", "reload", "help", "log", "clean",  "clear", "confirmclear").stream()
                     .filter(s -> s.startsWith(args[0].toLowerCase()))
                     .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("view")) {
+            return Arrays.asList("next", "prev").stream()
+                    .filter(s -> s.startsWith(args[1].toLowerCase()))
+                    .collect(Collectors.toList());
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("confirmclear")) {
+            return "cancel".startsWith(args[1].toLowerCase()) ? List.of("cancel") : Collections.emptyList();
         } else if (args.length == 2 && args[0].equalsIgnoreCase("clear")) {
             // Return available log types as suggestions
             return logManager.getDistinctLogTypes().stream()
@@ -284,6 +407,11 @@ public class LoggerCommands implements CommandExecutor, TabCompleter {
         return Collections.emptyList();
     }
 
+    /**
+     * A page of /logger view: the cursor it was read from, its number and its logs.
+     */
+    private record ViewPosition(LogCursor cursor, int number, LogPage page) {}
+
     private static class ClearOperation {
         final String filter;
         final List<FilterCondition> conditions;
@@ -65,7 +65,7 @@ public class AdvancedFilterGui extends Gui {
         setAction(48, event -> {
             Player p = (Player) event.getWhoClicked();
             p.closeInventory();
-            guiManager.openGui(p, new LogsViewGui(plugin, 1, baseLogType, currentConditions));
+            guiManager.openGui(p, new LogsViewGui(plugin, baseLogType, currentConditions));
         });
 
         // Remove All Filters button
@@ -31,7 +31,7 @@ public class FilterSelectionGui extends Gui {
             Player p = (Player) event.getWhoClicked();
             p.closeInventory();
             // Open the main logs view with a null filter
-            guiManager.openGui(p, new LogsViewGui(plugin, 1, null, null));
+            guiManager.openGui(p, new LogsViewGui(plugin, null, null));
         });
 
         // Fetch the distinct log types and populate the GUI
@@ -47,7 +47,7 @@ public class FilterSelectionGui extends Gui {
                     Player p = (Player) event.getWhoClicked();
                     p.closeInventory();
                     // Open the main logs view, passing the selected log type as the filter
-                    guiManager.openGui(p, new LogsViewGui(plugin, 1, logType, null));
+                    guiManager.openGui(p, new LogsViewGui(plugin, logType, null));
                 });
             }
         });
@@ -2,8 +2,11 @@ package ca.xef5000.ultimateLogger.frontend;
 
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
 import ca.xef5000.ultimateLogger.api.LogEntry;
 import ca.xef5000.ultimateLogger.managers.LogManager;
+import ca.xef5000.ultimateLogger.managers.LogPage;
+import ca.xef5000.ultimateLogger.managers.LogTotal;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -19,6 +22,7 @@ public class LogsViewGui extends Gui {
     private final UltimateLogger plugin;
     private final LogManager logManager;
     private final GuiManager guiManager;
+    private LogCursor cursor;
     private int currentPage;
     private final int pageSize = 45; // 5 rows of 9 for logs
     private final String currentFilter;
@@ -26,11 +30,20 @@ public class LogsViewGui extends Gui {
 
     private static DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public LogsViewGui(UltimateLogger plugin, int page, String filter, List<FilterCondition> advancedFilters) {
+    public LogsViewGui(UltimateLogger plugin, String filter, List<FilterCondition> advancedFilters) {
+        this(plugin, LogCursor.FIRST, 1, filter, advancedFilters);
+    }
+
+    /**
+     * @param cursor The cursor the page is read from.
+     * @param page The number of the page, for display.
+     */
+    public LogsViewGui(UltimateLogger plugin, LogCursor cursor, int page, String filter, List<FilterCondition> advancedFilters) {
         super(54, buildTitle(filter));
         this.plugin = plugin;
         this.logManager = plugin.getLogManager();
         this.guiManager = plugin.getGuiManager();
+        this.cursor = cursor;
         this.currentPage = page;
         this.currentFilter = filter;
         this.advancedFilters = (advancedFilters == null) ? new ArrayList<>() : advancedFilters;
@@ -52,15 +65,6 @@ public class LogsViewGui extends Gui {
             inventory.setItem(i, loadingItem);
         }
 
-        // Add navigation buttons
-        if (currentPage > 1) {
-            String name = ChatColor.YELLOW + "« Previous Page";
-            List<String> lore = Collections.singletonList(ChatColor.GRAY + "Click to go to page " + ChatColor.GREEN + (currentPage - 1));
-            ItemStack prevPage = createItem(Material.ARROW, name, lore);
-            inventory.setItem(45, prevPage);
-            setAction(45, event -> changePage(currentPage - 1));
-        }
-
         if (currentFilter != null) { // Only show if a log_type is being filtered
             ItemStack advFilterItem = createItem(Material.COMPARATOR, ChatColor.RED + "Advanced Filter", null);
             inventory.setItem(48, advFilterItem); // Set it in an empty control slot
@@ -87,7 +91,7 @@ public class LogsViewGui extends Gui {
             Player p = (Player) event.getWhoClicked();
             p.closeInventory();
             // Re-open the same view, forcing a database pull
-            guiManager.openGui(p, new LogsViewGui(plugin, currentPage, currentFilter, advancedFilters));
+            guiManager.openGui(p, new LogsViewGui(plugin, cursor, currentPage, currentFilter, advancedFilters));
         });
 
         ItemStack filterDataItem = createItem(Material.CLOCK, ChatColor.AQUA + "Filter by time", Collections.singletonList(ChatColor.GRAY + "Filter the logs by time."));
@@ -96,31 +100,79 @@ public class LogsViewGui extends Gui {
             Player p = (Player) event.getWhoClicked();
             p.closeInventory();
             // Open time filter GUI
-            guiManager.openGui(p, new TimeFilterGui(plugin, currentFilter, new ArrayList<>(advancedFilters), currentPage));
+            guiManager.openGui(p, new TimeFilterGui(plugin, currentFilter, new ArrayList<>(advancedFilters), cursor, currentPage));
         });
 
-        String nextName = ChatColor.YELLOW + "Next Page »";
-        List<String> nextLore = Collections.singletonList(ChatColor.GRAY + "Click to go to page " + ChatColor.GREEN + (currentPage + 1));
-        ItemStack nextPage = createItem(Material.ARROW, nextName, nextLore);
-        inventory.setItem(53, nextPage);
-        setAction(53, event -> changePage(currentPage + 1));
-
         // Asynchronously fetch and display the logs
-        logManager.getLogsPage(currentPage, pageSize, currentFilter, advancedFilters).thenAccept(logs ->
-            plugin.getServer().getScheduler().runTask(plugin, () -> populateLogs(logs))
+        LogCursor requested = cursor;
+        logManager.getLogsPage(requested, pageSize, currentFilter, advancedFilters).thenAccept(page ->
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (requested != cursor) return; // Another page was opened in the meantime
+                populateLogs(page.logs());
+                drawNavigation(page);
+                drawPageCount(requested);
+            })
+        ).exceptionally(ex -> {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (requested != cursor) return;
+                populateLogs(List.of());
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                inventory.setItem(22, createItem(Material.BARRIER, ChatColor.RED + "Could not load logs",
+                        Collections.singletonList(ChatColor.GRAY + String.valueOf(cause.getMessage()))));
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Adds the previous and next buttons once the page is loaded, as its cursors lead to the pages around it.
+     */
+    private void drawNavigation(LogPage page) {
+        if (page.isFirst()) {
+            currentPage = 1; // Newer logs were deleted, or this is where going back ends
+        } else {
+            String name = ChatColor.YELLOW + "« Previous Page";
+            List<String> lore = Collections.singletonList(ChatColor.GRAY + "Click to go to page " + ChatColor.GREEN + (currentPage - 1));
+            ItemStack prevPage = createItem(Material.ARROW, name, lore);
+            inventory.setItem(45, prevPage);
+            setAction(45, event -> changePage(page.newer(), currentPage - 1));
+        }
+
+        if (page.older() != null) {
+            String nextName = ChatColor.YELLOW + "Next Page »";
+            List<String> nextLore = Collections.singletonList(ChatColor.GRAY + "Click to go to page " + ChatColor.GREEN + (currentPage + 1));
+            ItemStack nextPage = createItem(Material.ARROW, nextName, nextLore);
+            inventory.setItem(53, nextPage);
+            setAction(53, event -> changePage(page.older(), currentPage + 1));
+        }
+    }
+
+    /**
+     * Shows how many pages there are, from the log counters. Nothing is shown if they cannot be read.
+     */
+    private void drawPageCount(LogCursor requested) {
+        logManager.countLogs(currentFilter, advancedFilters).thenAccept(total ->
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (total == null || requested != cursor) return;
+                // An estimate can be off, so the current page is never past the last one
+                int pages = Math.max(currentPage, total.pages(pageSize));
+                String count = total.exact() ? String.valueOf(pages) : "~" + pages;
+                List<String> lore = Collections.singletonList(ChatColor.GRAY + (total.exact() ? "" : "About ") + total.count() + " logs");
+                inventory.setItem(50, createItem(Material.BOOK, ChatColor.AQUA + "Page " + currentPage + " of " + count, lore));
+            })
         );
     }
 
     /**
      * Changes the current page of the GUI and redraws its contents
      * without closing and reopening the inventory.
+     * @param newCursor The cursor of the page to display, from the current page.
      * @param newPage The page number to display.
      */
-    public void changePage(int newPage) {
-        if (newPage < 1) return; // Don't go to page 0 or less
-
+    public void changePage(LogCursor newCursor, int newPage) {
         // Update the state
-        this.currentPage = newPage;
+        this.cursor = newCursor;
+        this.currentPage = Math.max(1, newPage);
 
         // Clear the inventory of old items and actions
         this.inventory.clear();
@@ -154,14 +206,8 @@ public class LogsViewGui extends Gui {
         lore.add(ChatColor.AQUA + "Type: " + ChatColor.WHITE + entry.getLogType());
         lore.add(ChatColor.AQUA + "Data: ");
         // A simple way to display map data
-        LinkedHashMap<String, Object> dataMap = entry.getData().getData();
-        if (dataMap != null && !dataMap.isEmpty()) {
-            for (Map.Entry<String, Object> dataEntry : dataMap.entrySet()) {
-                String formattedKey = formatKey(dataEntry.getKey());
-
-                lore.add(ChatColor.GOLD + formattedKey + ": " + ChatColor.WHITE + dataEntry.getValue());
-            }
-        }
+        entry.getData().forEach((key, value) ->
+                lore.add(ChatColor.GOLD + formatKey(key) + ": " + ChatColor.WHITE + value));
 
         ItemStack logItem = createItem(Material.PAPER, ChatColor.GOLD + "Log #" + entry.getId(), lore);
         return logItem;
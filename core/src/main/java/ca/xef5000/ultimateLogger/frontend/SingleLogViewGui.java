@@ -31,7 +31,7 @@ public class SingleLogViewGui extends Gui {
         setAction(0, event -> {
             Player p = (Player) event.getWhoClicked();
             p.closeInventory();
-            plugin.getGuiManager().openGui(p, new LogsViewGui(plugin, 1, null, null));
+            plugin.getGuiManager().openGui(p, new LogsViewGui(plugin, null, null));
         });
 
         plugin.getLogManager().getLogById(logId).thenAccept(optEntry -> {
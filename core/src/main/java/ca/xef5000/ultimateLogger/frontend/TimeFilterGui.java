@@ -2,6 +2,7 @@ package ca.xef5000.ultimateLogger.frontend;
 
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -20,18 +21,21 @@ public class TimeFilterGui extends Gui {
     private final GuiManager guiManager;
     private final String baseLogType; // can be null
     private final List<FilterCondition> currentConditions;
+    private final LogCursor returnCursor;
     private final int returnPage;
 
     private LocalDateTime selectedStart;
     private LocalDateTime selectedEnd;
     private String comparator; // "before", "after", or "between"
 
-    public TimeFilterGui(UltimateLogger plugin, String baseLogType, List<FilterCondition> currentConditions, int returnPage) {
+    public TimeFilterGui(UltimateLogger plugin, String baseLogType, List<FilterCondition> currentConditions,
+                         LogCursor returnCursor, int returnPage) {
         super(54, "Time Filter");
         this.plugin = plugin;
         this.guiManager = plugin.getGuiManager();
         this.baseLogType = baseLogType;
         this.currentConditions = (currentConditions == null) ? new ArrayList<>() : currentConditions;
+        this.returnCursor = returnCursor;
         this.returnPage = Math.max(1, returnPage);
 
         this.selectedStart = LocalDateTime.now();
@@ -90,7 +94,7 @@ public class TimeFilterGui extends Gui {
                 currentConditions.add(new FilterCondition("timestamp", comparator, ms));
             }
             p.closeInventory();
-            guiManager.openGui(p, new LogsViewGui(plugin, 1, baseLogType, currentConditions));
+            guiManager.openGui(p, new LogsViewGui(plugin, baseLogType, currentConditions));
         });
 
         ItemStack reset = createItem(Material.RED_STAINED_GLASS_PANE, ChatColor.RED + "Reset", List.of(ChatColor.GRAY + "Remove time filter and return."));
@@ -99,7 +103,7 @@ public class TimeFilterGui extends Gui {
             Player p = (Player) e.getWhoClicked();
             currentConditions.removeIf(c -> "timestamp".equalsIgnoreCase(c.key()));
             p.closeInventory();
-            guiManager.openGui(p, new LogsViewGui(plugin, returnPage, baseLogType, currentConditions));
+            guiManager.openGui(p, new LogsViewGui(plugin, returnCursor, returnPage, baseLogType, currentConditions));
         });
     }
 
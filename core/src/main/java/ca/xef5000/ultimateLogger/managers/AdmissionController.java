@@ -0,0 +1,113 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.utils.TokenBucket;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides which captured logs are kept when the plugin is under load.
+ * <ul>
+ *     <li>Protected types (e.g. chat, commands, kicks) are always kept.</li>
+ *     <li>Other logs are rate limited per player and per log type with token buckets.</li>
+ *     <li>Low-priority types are sampled once the save queue passes a threshold. Kept logs
+ *     get a {@code sample_rate} value so counts can be scaled back up.</li>
+ * </ul>
+ */
+public class AdmissionController {
+
+    public static final String SAMPLE_RATE_KEY = "sample_rate";
+
+    private final Set<String> protectedTypes;
+    private final Set<String> sampledTypes;
+    private final Map<String, ConfigManager.RateLimit> typeLimits;
+    private final ConfigManager.RateLimit playerLimit;
+    private final double sampleThreshold;
+    private final double minSampleRate;
+    private final DoubleSupplier queueLoad;
+
+    private final Map<String, TokenBucket> typeBuckets = new ConcurrentHashMap<>();
+    // Buckets of players that stopped logging are dropped after a while
+    private final Cache<String, TokenBucket> playerBuckets = CacheBuilder.newBuilder()
+            .expireAfterAccess(5, TimeUnit.MINUTES)
+            .build();
+    private final Map<String, LongAdder> shedCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param queueLoad How full the save queue is, from 0 to 1.
+     */
+    public AdmissionController(UltimateLogger plugin, DoubleSupplier queueLoad) {
+        ConfigManager config = plugin.getConfigManager();
+        this.protectedTypes = config.getAdmissionProtectedTypes();
+        this.sampledTypes = config.getAdmissionSampledTypes();
+        this.typeLimits = config.getAdmissionTypeLimits();
+        this.playerLimit = config.getAdmissionPlayerLimit();
+        this.sampleThreshold = Math.min(0.99, Math.max(0, config.getAdmissionSampleThreshold()));
+        this.minSampleRate = Math.min(1, Math.max(0.001, config.getAdmissionMinSampleRate()));
+        this.queueLoad = queueLoad;
+    }
+
+    /**
+     * @return true if the log should be kept. Sampled logs get their sample rate added to the data.
+     */
+    public boolean admit(String logType, LogData data) {
+        if (protectedTypes.contains(logType)) return true;
+
+        ConfigManager.RateLimit typeLimit = typeLimits.get(logType);
+        if (typeLimit != null && !typeBuckets.computeIfAbsent(logType, type -> typeLimit.newBucket()).tryAcquire()) {
+            return shed(logType);
+        }
+
+        String player = playerLimit != null ? data.getString("player_uuid") : null;
+        if (player != null && !playerBucket(player).tryAcquire()) {
+            return shed(logType);
+        }
+
+        if (sampledTypes.contains(logType)) {
+            double load = queueLoad.getAsDouble();
+            if (load > sampleThreshold) {
+                // Keep fewer logs the fuller the queue gets
+                double rate = Math.max(minSampleRate, (1 - load) / (1 - sampleThreshold));
+                if (ThreadLocalRandom.current().nextDouble() >= rate) {
+                    return shed(logType);
+                }
+                data.put(SAMPLE_RATE_KEY, rate);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of shed logs per log type, sorted by type.
+     */
+    public Map<String, Long> getShedCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        shedCounts.forEach((type, count) -> counts.put(type, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private boolean shed(String logType) {
+        shedCounts.computeIfAbsent(logType, type -> new LongAdder()).increment();
+        return false;
+    }
+
+    private TokenBucket playerBucket(String player) {
+        try {
+            return playerBuckets.get(player, playerLimit::newBucket);
+        } catch (ExecutionException e) {
+            return playerLimit.newBucket(); // Cannot happen, creating a bucket does not throw
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogData;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Writes each value as its key's ID from the {@link LogDictionary}, a type tag and the value, with
+ * integers as zig-zag varints and UUIDs as 16 bytes. Keys without an ID are written by name.
+ */
+public class BinaryPayloadCodec implements PayloadCodec {
+
+    public static final int ID = 1;
+
+    private static final int TYPE_LONG = 0;
+    private static final int TYPE_DOUBLE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_FALSE = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_UUID = 5;
+    private static final int TYPE_JSON = 6; // Anything else, such as lists or maps
+
+    // Key reference written before a key that has no ID
+    private static final int KEY_BY_NAME = 0;
+
+    private static final Gson GSON = new Gson();
+
+    private final LogDictionary dictionary;
+
+    public BinaryPayloadCodec(LogDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(LogData data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        data.forEach((key, value) -> {
+            Integer keyId = dictionary.idOf(LogDictionary.Kind.KEY, key);
+            if (keyId != null) {
+                writeVarint(out, keyId);
+            } else {
+                writeVarint(out, KEY_BY_NAME);
+                writeString(out, key);
+            }
+            writeValue(out, value);
+        });
+        return out.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] payload, LogData target, Connection conn) throws IOException {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            while (in.hasRemaining()) {
+                String key = readKey(in, conn);
+                Object value = readValue(in);
+                if (value instanceof Long number) {
+                    target.put(key, (long) number);
+                } else if (value != null) {
+                    target.put(key, value);
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt binary log payload", e);
+        }
+    }
+
+    @Override
+    public Object extract(byte[] payload, String key) throws IOException {
+        // Runs inside a SQL query, so keys are compared by ID rather than loading unknown IDs.
+        // Payloads only use IDs that were cached when they were written, and the cache keeps every ID it learns.
+        Integer wantedId = dictionary.idOf(LogDictionary.Kind.KEY, key);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            while (in.hasRemaining()) {
+                int keyId = (int) readVarint(in);
+                boolean match = keyId == KEY_BY_NAME ? key.equals(readString(in)) : wantedId != null && keyId == wantedId;
+                Object value = readValue(in);
+                if (!match) continue;
+                if (value instanceof Boolean bool) return bool ? 1L : 0L; // Like SQLite's JSON functions
+                return value;
+            }
+            return null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt binary log payload", e);
+        }
+    }
+
+    private void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.write(TYPE_LONG);
+            long number = ((Number) value).longValue();
+            writeVarint(out, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(TYPE_DOUBLE);
+            long bits = Double.doubleToRawLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof Boolean bool) {
+            out.write(bool ? TYPE_TRUE : TYPE_FALSE);
+        } else if (value instanceof String text && isUuid(text)) {
+            out.write(TYPE_UUID);
+            out.writeBytes(LogTable.toBytes(UUID.fromString(text)));
+        } else if (value instanceof String text) {
+            out.write(TYPE_STRING);
+            writeString(out, text);
+        } else {
+            out.write(TYPE_JSON);
+            writeString(out, GSON.toJson(value));
+        }
+    }
+
+    private Object readValue(ByteBuffer in) {
+        int type = in.get();
+        return switch (type) {
+            case TYPE_LONG -> {
+                long zigZag = readVarint(in);
+                yield (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+            case TYPE_DOUBLE -> in.getDouble();
+            case TYPE_TRUE -> true;
+            case TYPE_FALSE -> false;
+            case TYPE_STRING -> readString(in);
+            case TYPE_UUID -> new UUID(in.getLong(), in.getLong()).toString();
+            case TYPE_JSON -> GSON.fromJson(readString(in), Object.class);
+            default -> throw new IllegalArgumentException("Unknown value type " + type);
+        };
+    }
+
+    private String readKey(ByteBuffer in, Connection conn) throws IOException {
+        int keyId = (int) readVarint(in);
+        if (keyId == KEY_BY_NAME) return readString(in);
+        String key;
+        try {
+            key = dictionary.valueOf(conn, LogDictionary.Kind.KEY, keyId);
+        } catch (SQLException e) {
+            throw new IOException("Could not load log key " + keyId + " from the dictionary", e);
+        }
+        // Keys are committed before any log that uses them, so a missing one means the payload is corrupt
+        if (key == null) throw new IOException("Unknown log key " + keyId + " in binary log payload");
+        return key;
+    }
+
+    /**
+     * @return true if the text is a UUID in the form UUID.toString() writes, so it reads back unchanged.
+     */
+    private static boolean isUuid(String text) {
+        if (text.length() != 36) return false;
+        try {
+            return UUID.fromString(text).toString().equals(text);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readVarint(in);
+        if (length > in.remaining()) throw new IllegalArgumentException("String longer than the payload");
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
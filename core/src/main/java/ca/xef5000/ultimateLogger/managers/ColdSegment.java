@@ -0,0 +1,665 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.utils.BloomFilter;
+import com.google.gson.Gson;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * An immutable file holding old logs of one log type and day, stored column by column.
+ * <p>
+ * IDs, timestamps and expiry times are stored as deltas. Each value key gets its own column, encoded
+ * by the type of its values: integers as deltas, decimals and booleans as-is, and text as a dictionary
+ * of distinct values followed by runs of dictionary indexes.
+ * <p>
+ * The header is kept in memory so queries can skip the file without reading it. It holds the ID and time
+ * range, per-column min/max values and, for the configured keys, a bloom filter of the values.
+ * Logs deleted from a segment are listed in a side file next to it.
+ * <p>
+ * Layout: {@code int magic | byte version | int headerLength | header | id column | timestamp column | expiry column | value columns}
+ */
+final class ColdSegment {
+
+    static final String SUFFIX = ".col";
+    static final String TEMP_SUFFIX = ".tmp";
+    private static final String DELETED_SUFFIX = ".del";
+
+    private static final int MAGIC = 0x554C4353; // "ULCS"
+    private static final byte VERSION = 1;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final Gson GSON = new Gson();
+
+    // How the values of a column are encoded
+    private static final byte KIND_LONG = 0;
+    private static final byte KIND_DOUBLE = 1;
+    private static final byte KIND_BOOLEAN = 2;
+    private static final byte KIND_STRING = 3;
+    private static final byte KIND_JSON = 4; // Anything else, such as lists or maps
+
+    /**
+     * A log moved to the cold tier, with its expiry time or {@link Long#MAX_VALUE} if it never expires.
+     */
+    record Row(LogEntry entry, long expiresAt) {}
+
+    private final File file;
+    private final String logType;
+    private final int rows;
+    private final long minId;
+    private final long maxId;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final long maxExpiresAt;
+    private final int idsLength;
+    private final int timestampsLength;
+    private final int expiriesLength;
+    private final int dataOffset;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    private ColdSegment(File file, DataInputStream header, int dataOffset) throws IOException {
+        this.file = file;
+        this.logType = readString(header);
+        this.rows = header.readInt();
+        this.minId = header.readLong();
+        this.maxId = header.readLong();
+        this.minTimestamp = header.readLong();
+        this.maxTimestamp = header.readLong();
+        this.maxExpiresAt = header.readLong();
+        this.idsLength = header.readInt();
+        this.timestampsLength = header.readInt();
+        this.expiriesLength = header.readInt();
+        this.dataOffset = dataOffset;
+
+        int offset = dataOffset + idsLength + timestampsLength + expiriesLength;
+        int columnCount = header.readInt();
+        for (int i = 0; i < columnCount; i++) {
+            Column column = new Column(header, offset);
+            columns.put(column.key, column);
+            offset += column.length;
+        }
+    }
+
+    /**
+     * Writes the logs, all of one type and day, to a new segment in the directory.
+     */
+    static ColdSegment write(File directory, String logType, long day, List<Row> logs, Set<String> bloomKeys) throws IOException {
+        List<Row> sorted = new ArrayList<>(logs);
+        sorted.sort(Comparator.comparingLong(row -> row.entry().getId()));
+        int count = sorted.size();
+
+        long[] ids = new long[count];
+        long[] timestamps = new long[count];
+        long[] expiries = new long[count];
+        Map<String, Object[]> values = new LinkedHashMap<>();
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long maxExpiresAt = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            Row row = sorted.get(i);
+            int index = i;
+            ids[i] = row.entry().getId();
+            timestamps[i] = row.entry().getTimestamp().toEpochMilli();
+            expiries[i] = row.expiresAt();
+            minTimestamp = Math.min(minTimestamp, timestamps[i]);
+            maxTimestamp = Math.max(maxTimestamp, timestamps[i]);
+            maxExpiresAt = Math.max(maxExpiresAt, expiries[i]);
+            row.entry().getData().forEach((key, value) -> values.computeIfAbsent(key, k -> new Object[count])[index] = value);
+        }
+
+        List<byte[]> blocks = new ArrayList<>();
+        blocks.add(encodeDeltas(ids));
+        blocks.add(encodeDeltas(timestamps));
+        blocks.add(encodeDeltas(expiries));
+
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        writeString(header, logType);
+        header.writeInt(count);
+        header.writeLong(ids[0]);
+        header.writeLong(ids[count - 1]);
+        header.writeLong(minTimestamp);
+        header.writeLong(maxTimestamp);
+        header.writeLong(maxExpiresAt);
+        for (int i = 0; i < 3; i++) {
+            header.writeInt(blocks.get(i).length);
+        }
+        header.writeInt(values.size());
+        for (Map.Entry<String, Object[]> entry : values.entrySet()) {
+            byte kind = kindOf(entry.getValue());
+            byte[] block = encode(kind, entry.getValue());
+            Column.writeHeader(header, entry.getKey(), kind, entry.getValue(), block.length, bloomKeys.contains(entry.getKey()));
+            blocks.add(block);
+        }
+
+        String name = DAY_FORMAT.format(Instant.ofEpochMilli(day)) + "-" + logType.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + ids[0];
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            for (byte[] block : blocks) {
+                out.write(block);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        // Renamed once complete, so a crash never leaves a partial segment behind
+        File target = new File(directory, name + SUFFIX);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return load(target);
+    }
+
+    /**
+     * Reads the header of a segment file, and the list of its deleted logs.
+     */
+    static ColdSegment load(File file) throws IOException {
+        ColdSegment segment;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a cold log segment: " + file.getName());
+            if (in.readByte() != VERSION) throw new IOException("Unsupported cold log segment version: " + file.getName());
+            int headerLength = in.readInt();
+            segment = new ColdSegment(file, in, 4 + 1 + 4 + headerLength);
+        }
+
+        File deletedFile = segment.deletedFile();
+        if (deletedFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(deletedFile)))) {
+                while (true) {
+                    segment.deleted.add(in.readLong());
+                }
+            } catch (EOFException e) {
+                // End of the list; a torn last entry is ignored
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * @return false if no log in this segment can match, judging by the header alone.
+     */
+    boolean mightMatch(String type, List<FilterCondition> conditions, long[] range) {
+        if (type != null && !type.equals(logType)) return false;
+        if (maxTimestamp < range[0] || minTimestamp > range[1] || getLiveCount() <= 0) return false;
+        for (FilterCondition condition : conditions) {
+            if ("timestamp".equalsIgnoreCase(condition.key())) {
+                // Only rules out a segment whose logs all share the excluded time
+                if (minTimestamp == maxTimestamp && !MemoryStorageBackend.matchesTime(minTimestamp, condition)) return false;
+                continue;
+            }
+            Column column = columns.get(condition.key());
+            // A log without the value never matches
+            if (column == null || !column.mightMatch(condition)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Up to {@code limit} matching logs past the cursor, nearest to it first.
+     */
+    List<LogEntry> scan(List<FilterCondition> conditions, long[] range, LogCursor cursor, int limit,
+                        BiFunction<String, String, LogData> parser) throws IOException {
+        Data data = read();
+        List<LogEntry> found = new ArrayList<>();
+        // Rows are sorted by ID, so the scan starts right past the cursor
+        int index = Arrays.binarySearch(data.ids, cursor.id());
+        int start = index >= 0 ? index : -index - 1;
+        if (cursor.isOlder()) {
+            for (int row = start - 1; row >= 0 && found.size() < limit; row--) {
+                if (data.matches(row, conditions, range)) found.add(data.entry(row, parser));
+            }
+        } else {
+            for (int row = index >= 0 ? start + 1 : start; row < rows && found.size() < limit; row++) {
+                if (data.matches(row, conditions, range)) found.add(data.entry(row, parser));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return The IDs of every matching log that is not deleted yet.
+     */
+    List<Long> matchingIds(List<FilterCondition> conditions, long[] range) throws IOException {
+        Data data = read();
+        List<Long> found = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            if (data.matches(row, conditions, range)) found.add(data.ids[row]);
+        }
+        return found;
+    }
+
+    Optional<LogEntry> get(long id, BiFunction<String, String, LogData> parser) throws IOException {
+        if (id < minId || id > maxId || deleted.contains(id)) return Optional.empty();
+        Data data = read();
+        int row = Arrays.binarySearch(data.ids, id);
+        return row >= 0 ? Optional.of(data.entry(row, parser)) : Optional.empty();
+    }
+
+    /**
+     * Adds the logs to the segment's deleted list, on disk first.
+     */
+    synchronized void markDeleted(Collection<Long> ids) throws IOException {
+        try (FileOutputStream stream = new FileOutputStream(deletedFile(), true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        deleted.addAll(ids);
+    }
+
+    void deleteFiles() {
+        File deletedFile = deletedFile();
+        if (!file.delete() && file.exists()) file.deleteOnExit();
+        if (!deletedFile.delete() && deletedFile.exists()) deletedFile.deleteOnExit();
+    }
+
+    String getLogType() {
+        return logType;
+    }
+
+    /**
+     * @return The time of the segment's oldest log. Every log in a segment was captured on the same day.
+     */
+    long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    long getMinId() {
+        return minId;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    long getMaxExpiresAt() {
+        return maxExpiresAt;
+    }
+
+    int getLiveCount() {
+        return rows - deleted.size();
+    }
+
+    String getName() {
+        return file.getName();
+    }
+
+    private File deletedFile() {
+        return new File(file.getParentFile(), file.getName() + DELETED_SUFFIX);
+    }
+
+    private Data read() throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        long[] ids = decodeDeltas(ByteBuffer.wrap(bytes, dataOffset, idsLength), rows);
+        long[] timestamps = decodeDeltas(ByteBuffer.wrap(bytes, dataOffset + idsLength, timestampsLength), rows);
+        return new Data(bytes, ids, timestamps);
+    }
+
+    /**
+     * The decoded file, with value columns decoded as they are first needed.
+     */
+    private final class Data {
+        private final byte[] bytes;
+        private final long[] ids;
+        private final long[] timestamps;
+        private final Map<String, Object[]> values = new HashMap<>();
+
+        private Data(byte[] bytes, long[] ids, long[] timestamps) {
+            this.bytes = bytes;
+            this.ids = ids;
+            this.timestamps = timestamps;
+        }
+
+        boolean matches(int row, List<FilterCondition> conditions, long[] range) {
+            if (timestamps[row] < range[0] || timestamps[row] > range[1] || deleted.contains(ids[row])) return false;
+            for (FilterCondition condition : conditions) {
+                if ("timestamp".equalsIgnoreCase(condition.key())) {
+                    if (!MemoryStorageBackend.matchesTime(timestamps[row], condition)) return false;
+                    continue;
+                }
+                Object[] column = values(condition.key());
+                Object value = column != null ? column[row] : null;
+                if (!MemoryStorageBackend.matches(value != null ? value.toString() : null, condition)) return false;
+            }
+            return true;
+        }
+
+        LogEntry entry(int row, BiFunction<String, String, LogData> parser) {
+            LogData data = parser.apply(logType, null);
+            data.setId(ids[row]);
+            for (String key : columns.keySet()) {
+                Object value = values(key)[row];
+                if (value != null) data.put(key, value);
+            }
+            return new LogEntry(ids[row], logType, Instant.ofEpochMilli(timestamps[row]), false, data);
+        }
+
+        private Object[] values(String key) {
+            Column column = columns.get(key);
+            if (column == null) return null;
+            return values.computeIfAbsent(key, k -> decode(column.kind, ByteBuffer.wrap(bytes, column.offset, column.length), rows));
+        }
+    }
+
+    /**
+     * The header of one value column: its encoding, min/max values and bloom filter.
+     */
+    private static final class Column {
+        final String key;
+        final byte kind;
+        final int offset;
+        final int length;
+        // Bounds of numeric columns, in Double.compare order
+        final double min;
+        final double max;
+        // Bounds of text columns
+        final String minText;
+        final String maxText;
+        final BloomFilter bloom;
+
+        Column(DataInputStream in, int offset) throws IOException {
+            this.key = readString(in);
+            this.kind = in.readByte();
+            this.offset = offset;
+            this.length = in.readInt();
+            this.min = in.readDouble();
+            this.max = in.readDouble();
+            this.minText = in.readBoolean() ? readString(in) : null;
+            this.maxText = minText != null ? readString(in) : null;
+            int words = in.readInt();
+            if (words > 0) {
+                long[] bits = new long[words];
+                for (int i = 0; i < words; i++) {
+                    bits[i] = in.readLong();
+                }
+                this.bloom = new BloomFilter(bits, in.readInt());
+            } else {
+                this.bloom = null;
+            }
+        }
+
+        static void writeHeader(DataOutputStream out, String key, byte kind, Object[] values, int length, boolean bloomed) throws IOException {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            String minText = null;
+            String maxText = null;
+            Set<String> distinct = bloomed ? new HashSet<>() : null;
+            for (Object value : values) {
+                if (value == null) continue;
+                if (kind == KIND_LONG || kind == KIND_DOUBLE) {
+                    double number = ((Number) value).doubleValue();
+                    if (Double.compare(number, min) < 0) min = number;
+                    if (Double.compare(number, max) > 0) max = number;
+                } else if (kind == KIND_STRING) {
+                    String text = value.toString();
+                    if (minText == null || text.compareTo(minText) < 0) minText = text;
+                    if (maxText == null || text.compareTo(maxText) > 0) maxText = text;
+                }
+                if (distinct != null) distinct.add(value.toString());
+            }
+
+            writeString(out, key);
+            out.writeByte(kind);
+            out.writeInt(length);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            out.writeBoolean(minText != null);
+            if (minText != null) {
+                writeString(out, minText);
+                writeString(out, maxText);
+            }
+            if (distinct == null) {
+                out.writeInt(0);
+                return;
+            }
+            BloomFilter filter = new BloomFilter(distinct.size(), BLOOM_FALSE_POSITIVE_RATE);
+            distinct.forEach(filter::add);
+            out.writeInt(filter.toLongArray().length);
+            for (long word : filter.toLongArray()) {
+                out.writeLong(word);
+            }
+            out.writeInt(filter.getHashCount());
+        }
+
+        /**
+         * Follows {@link MemoryStorageBackend#matches(String, FilterCondition)}: numbers compare with
+         * Double.compare, and a value that is not a number matches no numeric comparison.
+         */
+        boolean mightMatch(FilterCondition condition) {
+            String expected = String.valueOf(condition.value());
+            boolean numeric = kind == KIND_LONG || kind == KIND_DOUBLE;
+            Double number = parseNumber(expected);
+            return switch (condition.comparator().toLowerCase(Locale.ROOT)) {
+                case "=" -> (bloom == null || bloom.mightContain(expected))
+                        && (!numeric || number != null && Double.compare(number, min) >= 0 && Double.compare(number, max) <= 0)
+                        && (minText == null || expected.compareTo(minText) >= 0 && expected.compareTo(maxText) <= 0);
+                case ">" -> number != null && (!numeric || Double.compare(max, number) > 0);
+                case "<" -> number != null && (!numeric || Double.compare(min, number) < 0);
+                case ">=" -> number != null && (!numeric || Double.compare(max, number) >= 0);
+                case "<=" -> number != null && (!numeric || Double.compare(min, number) <= 0);
+                case "startswith" -> minText == null || maxText.compareTo(expected) >= 0
+                        && (minText.startsWith(expected) || minText.compareTo(expected) < 0);
+                default -> true;
+            };
+        }
+
+        private static Double parseNumber(String text) {
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static byte kindOf(Object[] values) {
+        boolean longs = true;
+        boolean numbers = true;
+        boolean booleans = true;
+        boolean strings = true;
+        for (Object value : values) {
+            if (value == null) continue;
+            longs &= value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+            numbers &= value instanceof Number;
+            booleans &= value instanceof Boolean;
+            strings &= value instanceof String || value instanceof UUID;
+        }
+        if (longs) return KIND_LONG;
+        if (numbers) return KIND_DOUBLE;
+        if (booleans) return KIND_BOOLEAN;
+        return strings ? KIND_STRING : KIND_JSON;
+    }
+
+    private static byte[] encode(byte kind, Object[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (kind == KIND_STRING || kind == KIND_JSON) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int[] indexes = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) continue; // Index 0 means no value
+                String text = kind == KIND_STRING ? values[i].toString() : GSON.toJson(values[i]);
+                indexes[i] = dictionary.computeIfAbsent(text, t -> dictionary.size() + 1);
+            }
+            writeVarint(out, dictionary.size());
+            for (String text : dictionary.keySet()) {
+                byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, utf8.length);
+                out.writeBytes(utf8);
+            }
+            // Runs of the same value, so repeated values take a few bytes each
+            for (int i = 0; i < indexes.length; ) {
+                int end = i;
+                while (end < indexes.length && indexes[end] == indexes[i]) end++;
+                writeVarint(out, indexes[i]);
+                writeVarint(out, end - i);
+                i = end;
+            }
+            return out.toByteArray();
+        }
+
+        byte[] present = new byte[(values.length + 7) / 8];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) present[i >> 3] |= (byte) (1 << (i & 7));
+        }
+        out.writeBytes(present);
+        switch (kind) {
+            case KIND_LONG -> {
+                long previous = 0;
+                for (Object value : values) {
+                    if (value == null) continue;
+                    long number = ((Number) value).longValue();
+                    writeVarint(out, zigZag(number - previous));
+                    previous = number;
+                }
+            }
+            case KIND_DOUBLE -> {
+                ByteBuffer buffer = ByteBuffer.allocate(8);
+                for (Object value : values) {
+                    if (value == null) continue;
+                    out.writeBytes(buffer.putDouble(0, ((Number) value).doubleValue()).array());
+                }
+            }
+            default -> {
+                byte[] bits = new byte[present.length];
+                for (int i = 0; i < values.length; i++) {
+                    if (Boolean.TRUE.equals(values[i])) bits[i >> 3] |= (byte) (1 << (i & 7));
+                }
+                out.writeBytes(bits);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static Object[] decode(byte kind, ByteBuffer in, int rows) {
+        Object[] values = new Object[rows];
+        if (kind == KIND_STRING || kind == KIND_JSON) {
+            int size = (int) readVarint(in);
+            Object[] dictionary = new Object[size + 1];
+            for (int i = 1; i <= size; i++) {
+                byte[] utf8 = new byte[(int) readVarint(in)];
+                in.get(utf8);
+                String text = new String(utf8, StandardCharsets.UTF_8);
+                dictionary[i] = kind == KIND_STRING ? text : GSON.fromJson(text, Object.class);
+            }
+            for (int row = 0; row < rows; ) {
+                Object value = dictionary[(int) readVarint(in)];
+                int run = (int) readVarint(in);
+                Arrays.fill(values, row, row + run, value);
+                row += run;
+            }
+            return values;
+        }
+
+        byte[] present = new byte[(rows + 7) / 8];
+        in.get(present);
+        byte[] bits = kind == KIND_BOOLEAN ? new byte[present.length] : null;
+        if (bits != null) in.get(bits);
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            if ((present[row >> 3] & (1 << (row & 7))) == 0) continue;
+            values[row] = switch (kind) {
+                case KIND_LONG -> previous += unZigZag(readVarint(in));
+                case KIND_DOUBLE -> in.getDouble();
+                default -> (bits[row >> 3] & (1 << (row & 7))) != 0;
+            };
+        }
+        return values;
+    }
+
+    private static byte[] encodeDeltas(long[] values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(values.length * 2);
+        long previous = 0;
+        for (long value : values) {
+            writeVarint(out, zigZag(value - previous));
+            previous = value;
+        }
+        return out.toByteArray();
+    }
+
+    private static long[] decodeDeltas(ByteBuffer in, int count) {
+        long[] values = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += unZigZag(readVarint(in));
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[in.readInt()];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
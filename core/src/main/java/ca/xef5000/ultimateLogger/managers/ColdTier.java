@@ -0,0 +1,407 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Moves logs older than the configured number of days out of the database into {@link ColdSegment} files,
+ * one per log type and day (or several for busy days). Archived logs stay in the database.
+ * <p>
+ * Queries reaching into the cold tier skip every segment whose header rules out a match, and scan the
+ * others on a fork/join pool, newest segments first, stopping once older segments cannot make the page.
+ */
+public class ColdTier {
+
+    private static final long COMPACTION_INTERVAL_TICKS = 20L * 60 * 60; // One hour
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int ID_CHUNK = 500;
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+    private final BiFunction<String, String, LogData> parser;
+    private final Supplier<List<LogTable>> tables;
+    private final File directory;
+    private final int afterDays;
+    private final int rowsPerSegment;
+    private final Set<String> bloomKeys;
+    private final ForkJoinPool pool;
+
+    private final List<ColdSegment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile boolean running;
+    private BukkitTask task;
+
+    /**
+     * @param parser Turns a log type and its JSON values into LogData.
+     * @param tables The tables old logs are moved from.
+     */
+    public ColdTier(UltimateLogger plugin, DatabaseManager dbManager, BiFunction<String, String, LogData> parser,
+                    Supplier<List<LogTable>> tables) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.parser = parser;
+        this.tables = tables;
+        this.directory = new File(plugin.getDataFolder(), config.getColdTierDirectory());
+        this.afterDays = Math.max(1, config.getColdTierAfterDays());
+        this.rowsPerSegment = Math.max(1, config.getColdTierRowsPerSegment());
+        this.bloomKeys = config.getColdTierBloomKeys();
+        this.pool = new ForkJoinPool(Math.max(1, config.getColdTierScanThreads()));
+    }
+
+    /**
+     * Loads the existing segments and starts moving old logs every hour.
+     */
+    public void start() {
+        load();
+        running = true;
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!compacting.compareAndSet(false, true)) return; // Previous run still busy
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            }
+        }.runTaskTimerAsynchronously(plugin, 20L * 60, COMPACTION_INTERVAL_TICKS);
+    }
+
+    public void shutdown() {
+        running = false;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * @param logType Only logs of this type, or null for every type.
+     * @param range The inclusive time range, from {@link LogTable#timeRange}.
+     * @return Up to {@code limit} matching logs past the cursor, nearest to it first.
+     */
+    List<LogEntry> query(String logType, List<FilterCondition> conditions, long[] range, LogCursor cursor, int limit) {
+        if (limit <= 0) return List.of();
+        boolean older = cursor.isOlder();
+        List<ColdSegment> candidates = new ArrayList<>();
+        for (ColdSegment segment : segments) {
+            if (!cursor.admits(older ? segment.getMinId() : segment.getMaxId())) continue; // Wholly before the cursor
+            if (segment.mightMatch(logType, conditions, range)) candidates.add(segment);
+        }
+        // Segments nearest to the cursor first: by their newest log going older, by their oldest going newer
+        candidates.sort(older ? Comparator.comparingLong(ColdSegment::getMaxId).reversed()
+                : Comparator.comparingLong(ColdSegment::getMinId));
+
+        List<LogEntry> found = List.of();
+        int wave = pool.getParallelism();
+        for (int i = 0; i < candidates.size(); i += wave) {
+            // The remaining segments start past the last log of a full page, so they cannot make it
+            if (found.size() >= limit) {
+                long last = found.get(limit - 1).getId();
+                ColdSegment next = candidates.get(i);
+                if (older ? next.getMaxId() < last : next.getMinId() > last) break;
+            }
+            List<ColdSegment> batch = candidates.subList(i, Math.min(i + wave, candidates.size()));
+            found = merge(found, pool.invoke(new ScanTask(batch, conditions, range, cursor, limit)), limit, older);
+        }
+        return found;
+    }
+
+    Optional<LogEntry> get(long id) throws IOException {
+        for (ColdSegment segment : segments) {
+            Optional<LogEntry> log = segment.get(id, parser);
+            if (log.isPresent()) return log;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param removed Told the logs deleted.
+     * @return The number of logs deleted.
+     */
+    int delete(String logType, List<FilterCondition> conditions, LogCounter removed) throws IOException {
+        long[] range = LogTable.timeRange(conditions);
+        int deleted = 0;
+        for (ColdSegment segment : segments) {
+            if (!segment.mightMatch(logType, conditions, range)) continue;
+            List<Long> ids = segment.matchingIds(conditions, range);
+            if (ids.isEmpty()) continue;
+            deleted += ids.size();
+            removed.add(segment.getLogType(), segment.getMinTimestamp(), false, -ids.size());
+            if (ids.size() >= segment.getLiveCount()) {
+                drop(segment);
+            } else {
+                segment.markDeleted(ids);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @param removed Told the log deleted.
+     * @return true if the log was in the cold tier.
+     */
+    boolean delete(long id, LogCounter removed) throws IOException {
+        for (ColdSegment segment : segments) {
+            if (segment.get(id, parser).isEmpty()) continue;
+            removed.add(segment.getLogType(), segment.getMinTimestamp(), false, -1);
+            if (segment.getLiveCount() <= 1) {
+                drop(segment);
+            } else {
+                segment.markDeleted(List.of(id));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Deletes the segments in which every log expired before {@code now}.
+     * @param removed Told the logs deleted.
+     * @return The number of logs deleted.
+     */
+    int expire(long now, LogCounter removed) {
+        int deleted = 0;
+        for (ColdSegment segment : segments) {
+            if (segment.getMaxExpiresAt() >= now) continue;
+            deleted += segment.getLiveCount();
+            removed.add(segment.getLogType(), segment.getMinTimestamp(), false, -segment.getLiveCount());
+            drop(segment);
+        }
+        return deleted;
+    }
+
+    /**
+     * Adds the logs of every segment to the counter. Logs in the cold tier are never archived.
+     */
+    void tally(LogCounter counter) {
+        for (ColdSegment segment : segments) {
+            counter.add(segment.getLogType(), segment.getMinTimestamp(), false, segment.getLiveCount());
+        }
+    }
+
+    private void drop(ColdSegment segment) {
+        segments.remove(segment);
+        segment.deleteFiles();
+    }
+
+    private void load() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            plugin.getLogger().severe("Could not create the cold log directory " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().endsWith(ColdSegment.TEMP_SUFFIX)) {
+                file.delete(); // Left by a crash while writing; its logs are still in the database
+            } else if (file.getName().endsWith(ColdSegment.SUFFIX)) {
+                try {
+                    segments.add(ColdSegment.load(file));
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Ignoring unreadable cold log segment " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    void compact() {
+        // Whole days only, so each day's logs end up together
+        long cutoff = Math.floorDiv(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(afterDays), DAY_MILLIS) * DAY_MILLIS;
+        int moved = 0;
+        for (LogTable table : tables.get()) {
+            try {
+                int batch;
+                do {
+                    batch = compactBatch(table, cutoff);
+                    moved += batch;
+                } while (running && batch == rowsPerSegment);
+            } catch (SQLException | IOException e) {
+                plugin.getLogger().severe("Could not move old logs of " + table.getName() + " to the cold tier: " + e.getMessage());
+            }
+        }
+        if (moved > 0) {
+            plugin.getLogger().info("Moved " + moved + " logs older than " + afterDays + " days to the cold tier.");
+        }
+    }
+
+    /**
+     * Moves the oldest logs of the table captured before the cutoff.
+     * @return The number of logs moved.
+     */
+    private int compactBatch(LogTable table, long cutoff) throws SQLException, IOException {
+        String select = "SELECT " + table.selectColumns() + ", expires_at FROM " + table.getName()
+                + " WHERE is_archived = 0 AND timestamp < ? ORDER BY timestamp, id LIMIT " + rowsPerSegment;
+
+        List<ColdSegment.Row> rows = new ArrayList<>();
+        try (Connection conn = dbManager.getReadConnection(); PreparedStatement query = conn.prepareStatement(select)) {
+            query.setLong(1, cutoff);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    LogEntry entry = table.read(conn, rs, parser);
+                    long expiresAt = rs.getLong("expires_at");
+                    rows.add(new ColdSegment.Row(entry, rs.wasNull() ? Long.MAX_VALUE : expiresAt));
+                }
+            }
+        }
+        if (rows.isEmpty()) return 0;
+
+        Map<String, List<ColdSegment.Row>> groups = new LinkedHashMap<>();
+        for (ColdSegment.Row row : rows) {
+            String key = row.entry().getLogType() + "@" + dayOf(row);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        }
+        Map<ColdSegment, List<ColdSegment.Row>> written = new LinkedHashMap<>();
+        for (List<ColdSegment.Row> group : groups.values()) {
+            ColdSegment.Row first = group.get(0);
+            ColdSegment segment = ColdSegment.write(directory, first.entry().getLogType(), dayOf(first), group, bloomKeys);
+            segments.add(segment);
+            written.put(segment, group);
+        }
+
+        // Deleted only once the segments are on disk. A crash in between leaves both copies, which queries merge.
+        // Logs archived since they were read stay in the database, and are taken back out of their segment.
+        Set<Long> kept;
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + table.getName() + " WHERE id = ? AND is_archived = 0")) {
+                for (ColdSegment.Row row : rows) {
+                    delete.setLong(1, row.entry().getId());
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                kept = remainingIds(conn, table, rows);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        if (kept.isEmpty()) return rows.size();
+
+        for (Map.Entry<ColdSegment, List<ColdSegment.Row>> entry : written.entrySet()) {
+            List<Long> ids = new ArrayList<>();
+            for (ColdSegment.Row row : entry.getValue()) {
+                if (kept.contains(row.entry().getId())) ids.add(row.entry().getId());
+            }
+            if (ids.size() == entry.getValue().size()) {
+                drop(entry.getKey());
+            } else if (!ids.isEmpty()) {
+                entry.getKey().markDeleted(ids);
+            }
+        }
+        return rows.size() - kept.size();
+    }
+
+    /**
+     * @return The IDs of the rows still in the table.
+     */
+    private static Set<Long> remainingIds(Connection conn, LogTable table, List<ColdSegment.Row> rows) throws SQLException {
+        Set<Long> remaining = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += ID_CHUNK) {
+            List<ColdSegment.Row> chunk = rows.subList(from, Math.min(rows.size(), from + ID_CHUNK));
+            String sql = "SELECT id FROM " + table.getName() + " WHERE id IN (" + "?, ".repeat(chunk.size() - 1) + "?)";
+            try (PreparedStatement query = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    query.setLong(i + 1, chunk.get(i).entry().getId());
+                }
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        remaining.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return remaining;
+    }
+
+    private static long dayOf(ColdSegment.Row row) {
+        return Math.floorDiv(row.entry().getTimestamp().toEpochMilli(), DAY_MILLIS) * DAY_MILLIS;
+    }
+
+    /**
+     * Merges two lists of logs that are newest first, or oldest first if not {@code older}, keeping the first {@code limit}.
+     */
+    private static List<LogEntry> merge(List<LogEntry> a, List<LogEntry> b, int limit, boolean older) {
+        List<LogEntry> merged = new ArrayList<>(Math.min(limit, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < a.size() || j < b.size())) {
+            if (j >= b.size() || i < a.size() && (older ? a.get(i).getId() >= b.get(j).getId() : a.get(i).getId() <= b.get(j).getId())) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Scans segments by splitting them in halves until one is left, then merges the results.
+     */
+    private class ScanTask extends RecursiveTask<List<LogEntry>> {
+        private final List<ColdSegment> segments;
+        private final List<FilterCondition> conditions;
+        private final long[] range;
+        private final LogCursor cursor;
+        private final int limit;
+
+        ScanTask(List<ColdSegment> segments, List<FilterCondition> conditions, long[] range, LogCursor cursor, int limit) {
+            this.segments = segments;
+            this.conditions = conditions;
+            this.range = range;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+        @Override
+        protected List<LogEntry> compute() {
+            if (segments.size() == 1) {
+                ColdSegment segment = segments.get(0);
+                try {
+                    return segment.scan(conditions, range, cursor, limit, parser);
+                } catch (IOException e) {
+                    plugin.getLogger().warning("Could not read cold log segment " + segment.getName() + ": " + e.getMessage());
+                    return List.of();
+                }
+            }
+            int middle = segments.size() / 2;
+            ScanTask left = new ScanTask(segments.subList(0, middle), conditions, range, cursor, limit);
+            left.fork();
+            List<LogEntry> right = new ScanTask(segments.subList(middle, segments.size()), conditions, range, cursor, limit).compute();
+            return merge(left.join(), right, limit, cursor.isOlder());
+        }
+    }
+}
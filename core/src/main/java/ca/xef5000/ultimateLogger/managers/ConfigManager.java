@@ -3,6 +3,8 @@ package ca.xef5000.ultimateLogger.managers;
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import ca.xef5000.ultimateLogger.api.FilterCondition;
 import ca.xef5000.ultimateLogger.utils.FilterSerializer;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
+import ca.xef5000.ultimateLogger.utils.TokenBucket;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
@@ -21,11 +23,41 @@ public class ConfigManager {
         return config.getString("database.type", "SQLITE").toUpperCase();
     }
 
+    // Memory settings
+    public int getMemoryMaxLogs() {
+        return config.getInt("database.memory.max-logs", 100000);
+    }
+
+    // Segment store settings
+    public String getSegmentDirectory() {
+        return config.getString("database.segments.directory", "segments");
+    }
+
+    public int getSegmentSizeMb() {
+        return config.getInt("database.segments.segment-size-mb", 64);
+    }
+
+    public int getSegmentMaxAgeHours() {
+        return config.getInt("database.segments.max-age-hours", 24);
+    }
+
     // SQLite settings
     public String getSQLiteFileName() {
         return config.getString("database.sqlite.filename", "logs.db");
     }
 
+    public int getSQLiteBusyTimeoutMillis() {
+        return config.getInt("database.sqlite.busy-timeout-ms", 5000);
+    }
+
+    public int getSQLiteCacheSizeMb() {
+        return config.getInt("database.sqlite.cache-size-mb", 64);
+    }
+
+    public int getSQLiteMmapSizeMb() {
+        return config.getInt("database.sqlite.mmap-size-mb", 256);
+    }
+
     // MySQL settings
     public String getMySQLHost() {
         return config.getString("database.mysql.host");
@@ -52,6 +84,33 @@ public class ConfigManager {
         return config.getInt("database.pool.max-size", 10);
     }
 
+    public int getDatabaseRetrySeconds() {
+        return config.getInt("database.retry-seconds", 10);
+    }
+
+    /**
+     * @return true if each log type gets its own table with typed columns.
+     */
+    public boolean isTypedLayout() {
+        return config.getString("database.layout", "SHARED").equalsIgnoreCase("TYPED");
+    }
+
+    public int getTypedMigrationBatchSize() {
+        return config.getInt("database.migration-batch-size", 1000);
+    }
+
+    public boolean isPartitioningEnabled() {
+        return config.getBoolean("database.partitioning.enabled", false);
+    }
+
+    public String getPartitionPeriod() {
+        return config.getString("database.partitioning.period", "DAY").toUpperCase();
+    }
+
+    public int getPartitionsAhead() {
+        return config.getInt("database.partitioning.ahead", 2);
+    }
+
     // Log Manager cache settings
     public int getLogCacheMaxSize() {
         return config.getInt("logs.cache.max-size", 100);
@@ -61,13 +120,169 @@ public class ConfigManager {
         return config.getInt("logs.cache.expiry-minutes", 5);
     }
 
+    // Hot tier of recent logs
+    public boolean isHotTierEnabled() {
+        return config.getBoolean("logs.hot-tier.enabled", false);
+    }
+
+    public int getHotTierLogsPerType() {
+        return config.getInt("logs.hot-tier.logs-per-type", 500);
+    }
+
+    public int getHotTierMaxMemoryMb() {
+        return config.getInt("logs.hot-tier.max-memory-mb", 32);
+    }
+
     // Log Manager batch processing settings
     public int getLogBatchSize() {
         return config.getInt("logs.batch.size", 100);
     }
 
-    public int getLogBatchInterval() {
-        return config.getInt("logs.batch.interval", 100);
+    public int getLogBatchMaxSize() {
+        return config.getInt("logs.batch.max-size", 5000);
+    }
+
+    public int getLogBatchHighWaterMark() {
+        return config.getInt("logs.batch.high-water-mark", 500);
+    }
+
+    public long getLogBatchMaxLatencyMillis() {
+        // Older configs only have 'interval' (in ticks), so fall back to it
+        return config.getLong("logs.batch.max-latency-ms", config.getLong("logs.batch.interval", 20) * 50);
+    }
+
+    public long getLogBatchTargetCommitMillis() {
+        return config.getLong("logs.batch.target-commit-ms", 250);
+    }
+
+    public int getLogServerId() {
+        int serverId = config.getInt("logs.server-id", 0);
+        return Math.max(0, Math.min(LogIdGenerator.MAX_SERVER_ID, serverId));
+    }
+
+    // Log Manager save queue settings
+    public int getLogQueueCapacity() {
+        return config.getInt("logs.queue.capacity", 65536);
+    }
+
+    public LogQueue.OverflowPolicy getLogQueueOverflowPolicy() {
+        String policy = config.getString("logs.queue.overflow-policy", "DROP_NEWEST").toUpperCase().replace('-', '_');
+        try {
+            return LogQueue.OverflowPolicy.valueOf(policy);
+        } catch (IllegalArgumentException e) {
+            return LogQueue.OverflowPolicy.DROP_NEWEST;
+        }
+    }
+
+    public int getLogQueueSampleEvery() {
+        return config.getInt("logs.queue.sample-every", 10);
+    }
+
+    public String getLogQueueSpillFile() {
+        return config.getString("logs.queue.spill-file", "queue-spill.log");
+    }
+
+    public LogJournal.Durability getJournalDurability() {
+        String durability = config.getString("logs.journal.durability", "GROUP_COMMIT").toUpperCase().replace('-', '_');
+        try {
+            return LogJournal.Durability.valueOf(durability);
+        } catch (IllegalArgumentException e) {
+            return LogJournal.Durability.GROUP_COMMIT;
+        }
+    }
+
+    public int getJournalGroupCommitMillis() {
+        return config.getInt("logs.journal.group-commit-ms", 200);
+    }
+
+    public int getJournalSegmentSizeMb() {
+        return config.getInt("logs.journal.segment-size-mb", 16);
+    }
+
+    public String getJournalDirectory() {
+        return config.getString("logs.journal.directory", "journal");
+    }
+
+    public String getPayloadCodec() {
+        return config.getString("logs.payload.codec", "JSON").toUpperCase();
+    }
+
+    public int getPayloadCompressMinBytes() {
+        return config.getInt("logs.payload.compress-min-bytes", 96);
+    }
+
+    public boolean isCoalescingEnabled() {
+        return config.getBoolean("logs.coalescing.enabled", false);
+    }
+
+    public int getCoalescingWindowSeconds() {
+        return config.getInt("logs.coalescing.window-seconds", 5);
+    }
+
+    public int getCoalescingMaxGroups() {
+        return config.getInt("logs.coalescing.max-groups", 10000);
+    }
+
+    /**
+     * @return The key fields that group logs together, per log type.
+     */
+    public Map<String, List<String>> getCoalescingKeys() {
+        Map<String, List<String>> result = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("logs.coalescing.types");
+        if (section == null) return result;
+
+        for (String logType : section.getKeys(false)) {
+            result.put(logType, List.copyOf(section.getStringList(logType)));
+        }
+        return result;
+    }
+
+    public boolean isAdmissionEnabled() {
+        return config.getBoolean("logs.admission.enabled", false);
+    }
+
+    public Set<String> getAdmissionProtectedTypes() {
+        if (!config.contains("logs.admission.protected-types")) {
+            return Set.of("player_chat", "player_command", "player_kick");
+        }
+        return new HashSet<>(config.getStringList("logs.admission.protected-types"));
+    }
+
+    public Set<String> getAdmissionSampledTypes() {
+        return new HashSet<>(config.getStringList("logs.admission.sampling.types"));
+    }
+
+    public double getAdmissionSampleThreshold() {
+        return config.getDouble("logs.admission.sampling.queue-threshold", 0.5);
+    }
+
+    public double getAdmissionMinSampleRate() {
+        return config.getDouble("logs.admission.sampling.min-rate", 0.05);
+    }
+
+    /**
+     * @return The rate limit for each player, or null if players are not limited.
+     */
+    public RateLimit getAdmissionPlayerLimit() {
+        return readRateLimit("logs.admission.per-player");
+    }
+
+    public Map<String, RateLimit> getAdmissionTypeLimits() {
+        Map<String, RateLimit> result = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("logs.admission.per-type");
+        if (section == null) return result;
+
+        for (String logType : section.getKeys(false)) {
+            RateLimit limit = readRateLimit("logs.admission.per-type." + logType);
+            if (limit != null) result.put(logType, limit);
+        }
+        return result;
+    }
+
+    private RateLimit readRateLimit(String path) {
+        double rate = config.getDouble(path + ".rate", 0);
+        if (rate <= 0) return null;
+        return new RateLimit(rate, config.getDouble(path + ".burst", rate));
     }
 
     public Set<String> getDisabledLogTypes() {
@@ -137,5 +352,46 @@ public class ConfigManager {
         return config.getLong("logs.cleanup-interval-minutes", 60) * 60 * 20;
     }
 
+    public int getDeletionChunkSize() {
+        return config.getInt("logs.deletion.chunk-size", 1000);
+    }
+
+    public int getDeletionRowsPerSecond() {
+        return config.getInt("logs.deletion.rows-per-second", 5000);
+    }
+
+    public boolean isColdTierEnabled() {
+        return config.getBoolean("logs.cold-tier.enabled", false);
+    }
+
+    public int getColdTierAfterDays() {
+        return config.getInt("logs.cold-tier.after-days", 7);
+    }
+
+    public String getColdTierDirectory() {
+        return config.getString("logs.cold-tier.directory", "cold");
+    }
+
+    public int getColdTierRowsPerSegment() {
+        return config.getInt("logs.cold-tier.rows-per-segment", 50000);
+    }
+
+    public Set<String> getColdTierBloomKeys() {
+        if (!config.isList("logs.cold-tier.bloom-keys")) {
+            return Set.of("player_uuid", "player_name");
+        }
+        return new HashSet<>(config.getStringList("logs.cold-tier.bloom-keys"));
+    }
+
+    public int getColdTierScanThreads() {
+        return config.getInt("logs.cold-tier.scan-threads", 2);
+    }
+
     public record WebhookConfig(String url, List<FilterCondition> conditions, String type) {}
+
+    public record RateLimit(double ratePerSecond, double burst) {
+        public TokenBucket newBucket() {
+            return new TokenBucket(ratePerSecond, burst);
+        }
+    }
 }
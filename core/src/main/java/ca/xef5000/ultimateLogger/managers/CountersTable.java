@@ -0,0 +1,112 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogCounts;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ultimate_logs_counts} table, holding the number of logs per type, UTC day and archived flag.
+ * Whatever adds, deletes or archives logs changes the counts in the same transaction, so totals are read
+ * from a few rows instead of counting the logs.
+ */
+final class CountersTable {
+
+    static final String TABLE = "ultimate_logs_counts";
+
+    private final DatabaseManager dbManager;
+
+    CountersTable(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Adds the changes to the counts, within the connection's current transaction.
+     */
+    void apply(Connection conn, LogCounter changes) throws SQLException {
+        if (changes.isEmpty()) return;
+        String sql = dbManager.isMySql()
+                ? "INSERT INTO " + TABLE + " (log_type, day, is_archived, log_count) VALUES (?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE log_count = log_count + VALUES(log_count)"
+                : "INSERT INTO " + TABLE + " (log_type, day, is_archived, log_count) VALUES (?, ?, ?, ?) "
+                        + "ON CONFLICT (log_type, day, is_archived) DO UPDATE SET log_count = log_count + excluded.log_count";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<LogCounts.Key, Long> entry : changes.asMap().entrySet()) {
+                pstmt.setString(1, entry.getKey().logType());
+                pstmt.setLong(2, entry.getKey().day());
+                pstmt.setBoolean(3, entry.getKey().archived());
+                pstmt.setLong(4, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Adds the changes to the counts in a transaction of their own, for logs removed outside the database.
+     */
+    void apply(LogCounter changes) throws SQLException {
+        if (changes.isEmpty()) return;
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                apply(conn, changes);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Counts the logs of a table that the WHERE clause selects, by type, day and archived flag.
+     * @param source The table, or on MySQL a partition of one.
+     * @param logType The table's log type, or null if it has a {@code log_type} column.
+     * @param where Starts with {@code " WHERE "}.
+     * @param sign 1 to add the logs to the counter, -1 to subtract them.
+     */
+    void tally(Connection conn, String source, String logType, String where, List<Object> params, int sign, LogCounter counter) throws SQLException {
+        String day = dbManager.isMySql() ? "timestamp DIV " + LogCounts.DAY_MILLIS : "timestamp / " + LogCounts.DAY_MILLIS;
+        String sql = "SELECT " + (logType == null ? "log_type" : "NULL") + ", " + day + ", is_archived, COUNT(*) FROM "
+                + source + where + "GROUP BY 1, 2, 3";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = logType != null ? logType : rs.getString(1);
+                    counter.add(new LogCounts.Key(type, rs.getLong(2), rs.getBoolean(3)), sign * rs.getLong(4));
+                }
+            }
+        }
+    }
+
+    boolean isEmpty(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + TABLE + " LIMIT 1")) {
+            return !rs.next();
+        }
+    }
+
+    LogCounts read() throws SQLException {
+        Map<LogCounts.Key, Long> counts = new HashMap<>();
+        try (Connection conn = dbManager.getReadConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT log_type, day, is_archived, log_count FROM " + TABLE + " WHERE log_count <> 0")) {
+            while (rs.next()) {
+                counts.put(new LogCounts.Key(rs.getString(1), rs.getLong(2), rs.getBoolean(3)), rs.getLong(4));
+            }
+        }
+        return new LogCounts(counts);
+    }
+}
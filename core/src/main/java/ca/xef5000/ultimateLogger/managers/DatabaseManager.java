@@ -3,17 +3,31 @@ package ca.xef5000.ultimateLogger.managers;
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.sqlite.Function;
+import org.sqlite.SQLiteConnection;
 
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class DatabaseManager {
 
     private final UltimateLogger plugin;
     private final ConfigManager configManager;
     private HikariDataSource dataSource;
+    // Read-only pool for queries; the same pool as dataSource on MySQL
+    private HikariDataSource readDataSource;
+
+    // SQL functions added to every SQLite connection, and the connections that already have them
+    private final Map<String, Supplier<Function>> sqliteFunctions = new ConcurrentHashMap<>();
+    private final Set<SQLiteConnection> preparedConnections = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
     public DatabaseManager(UltimateLogger plugin, ConfigManager configManager) {
         this.plugin = plugin;
@@ -22,6 +36,12 @@ public class DatabaseManager {
     }
 
     private void setupDataSource() {
+        String type = configManager.getDatabaseType();
+        if (type.equals("MEMORY") || type.equals("SEGMENTS")) {
+            plugin.getLogger().info("Database type set to " + type + ". No database connection is used.");
+            return;
+        }
+
         HikariConfig config = new HikariConfig();
 
         if (configManager.getDatabaseType().equals("MYSQL")) {
@@ -29,6 +49,19 @@ public class DatabaseManager {
             config.setJdbcUrl("jdbc:mysql://" + configManager.getMySQLHost() + ":" + configManager.getMySQLPort() + "/" + configManager.getMySQLDatabase());
             config.setUsername(configManager.getMySQLUsername());
             config.setPassword(configManager.getMySQLPassword());
+            config.setMaximumPoolSize(configManager.getDatabasePoolMaxSize()); // Pool size from config
+            config.setConnectionTestQuery("SELECT 1");
+
+            // Send each log batch as multi-row inserts and reuse prepared statements. Rewritten batches
+            // report no per-row update counts, so the writer looks up already saved IDs before inserting.
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+
+            this.dataSource = new HikariDataSource(config);
+            this.readDataSource = dataSource;
         } else { // Default to SQLite
             plugin.getLogger().info("Database type set to SQLite. Creating file...");
             // Ensure the file exists
@@ -42,20 +75,95 @@ public class DatabaseManager {
                     return;
                 }
             }
+
+            // SQLite only allows one writer at a time, so all writes share a single connection
+            // and reads use their own pool, which WAL mode lets run alongside the writer.
             config.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
-        }
+            config.setPoolName("UltimateLogger-Writer");
+            config.setMaximumPoolSize(1);
+            config.setConnectionTestQuery("SELECT 1");
+            applySQLitePragmas(config);
+            config.addDataSourceProperty("journal_mode", "WAL");
+            config.addDataSourceProperty("synchronous", "NORMAL");
+            // Lets deleted space be returned to the OS in small steps; only takes effect on a new database
+            config.addDataSourceProperty("auto_vacuum", "INCREMENTAL");
+            this.dataSource = new HikariDataSource(config);
 
-        config.setMaximumPoolSize(configManager.getDatabasePoolMaxSize()); // Pool size from config
-        config.setConnectionTestQuery("SELECT 1");
+            HikariConfig readConfig = new HikariConfig();
+            readConfig.setJdbcUrl("jdbc:sqlite:" + dbFile.getAbsolutePath());
+            readConfig.setPoolName("UltimateLogger-Reader");
+            readConfig.setMaximumPoolSize(configManager.getDatabasePoolMaxSize()); // Pool size from config
+            readConfig.setMinimumIdle(1);
+            readConfig.setConnectionTestQuery("SELECT 1");
+            readConfig.setConnectionInitSql("PRAGMA query_only = ON");
+            applySQLitePragmas(readConfig);
+            this.readDataSource = new HikariDataSource(readConfig);
+        }
+    }
 
-        this.dataSource = new HikariDataSource(config);
+    /**
+     * Connection settings shared by the SQLite writer and readers. The SQLite driver applies
+     * these pragmas when it opens each connection.
+     */
+    private void applySQLitePragmas(HikariConfig config) {
+        config.addDataSourceProperty("busy_timeout", String.valueOf(configManager.getSQLiteBusyTimeoutMillis()));
+        // A negative cache_size is in KiB instead of pages
+        config.addDataSourceProperty("cache_size", String.valueOf(-configManager.getSQLiteCacheSizeMb() * 1024L));
+        config.addDataSourceProperty("mmap_size", String.valueOf(configManager.getSQLiteMmapSizeMb() * 1024L * 1024L));
+        config.addDataSourceProperty("temp_store", "MEMORY");
     }
 
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        if (dataSource == null) {
+            throw new SQLException("The database connection pool is not available.");
+        }
+        return prepare(dataSource.getConnection());
+    }
+
+    /**
+     * Gets a connection for queries. On SQLite it comes from a separate read-only pool,
+     * so reads do not wait for the writer.
+     */
+    public Connection getReadConnection() throws SQLException {
+        if (readDataSource == null) {
+            throw new SQLException("The database connection pool is not available.");
+        }
+        return prepare(readDataSource.getConnection());
+    }
+
+    /**
+     * Adds a Java function to every SQLite connection. Does nothing on MySQL.
+     * @param factory Creates the function for each connection, since a function instance is not thread-safe.
+     */
+    public void registerSQLiteFunction(String name, Supplier<Function> factory) {
+        if (!isMySql()) {
+            sqliteFunctions.put(name, factory);
+        }
+    }
+
+    private Connection prepare(Connection conn) throws SQLException {
+        if (sqliteFunctions.isEmpty()) return conn;
+
+        // Functions belong to the physical connection, so each one is set up once
+        SQLiteConnection sqlite = conn.unwrap(SQLiteConnection.class);
+        if (preparedConnections.add(sqlite)) {
+            try {
+                for (Map.Entry<String, Supplier<Function>> function : sqliteFunctions.entrySet()) {
+                    Function.create(sqlite, function.getKey(), function.getValue().get());
+                }
+            } catch (SQLException e) {
+                preparedConnections.remove(sqlite);
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
     }
 
     public void close() {
+        if (readDataSource != null && readDataSource != dataSource && !readDataSource.isClosed()) {
+            readDataSource.close();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             plugin.getLogger().info("Database connection pool closed.");
@@ -66,7 +174,23 @@ public class DatabaseManager {
         return dataSource;
     }
 
+    public boolean isMySql() {
+        return dataSource != null && dataSource.getJdbcUrl().contains("mysql");
+    }
+
     public boolean isOperational() {
         return dataSource != null && !dataSource.isClosed();
     }
+
+    /**
+     * Checks whether the database currently answers, as opposed to rejecting a particular statement.
+     */
+    public boolean isReachable() {
+        if (!isOperational()) return false;
+        try (Connection conn = dataSource.getConnection()) {
+            return conn.isValid(5);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The {@link BinaryPayloadCodec} format, deflated with a preset dictionary of text common in chat and
+ * command logs. Payloads below a minimum size, or that would not shrink, are stored uncompressed
+ * behind a one byte marker.
+ */
+public class DeflatePayloadCodec implements PayloadCodec {
+
+    public static final int ID = 2;
+
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+
+    // Rows written with this codec need the exact same bytes to be read back, so a new
+    // dictionary needs a new codec ID. The most common strings are at the end.
+    private static final byte[] DICTIONARY = ("world_the_end world_nether minecraft: "
+            + "DIAMOND IRON_INGOT GOLD_INGOT OAK_LOG OAK_PLANKS COBBLESTONE GRASS_BLOCK DIRT STONE "
+            + "/gamemode /give /ban /kick /mute /list /balance /pay /shop /sell /kit /warp /fly /heal "
+            + "/tpaccept /tpa /tp /msg /r /sethome /home /spawn /help "
+            + "anyone want trade please thanks what how can you are the and lol yes no ok hi hello ")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // zlib streams are expensive to create, so each thread keeps its own
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final BinaryPayloadCodec binary;
+    private final int minBytes;
+
+    public DeflatePayloadCodec(BinaryPayloadCodec binary, int minBytes) {
+        this.binary = binary;
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(LogData data) {
+        byte[] raw = binary.encode(data);
+        if (raw.length >= minBytes) {
+            byte[] packed = deflate(raw);
+            if (packed.length < raw.length) return packed;
+        }
+
+        byte[] stored = new byte[raw.length + 1];
+        stored[0] = STORED;
+        System.arraycopy(raw, 0, stored, 1, raw.length);
+        return stored;
+    }
+
+    @Override
+    public void decode(byte[] payload, LogData target, Connection conn) throws IOException {
+        binary.decode(unpack(payload), target, conn);
+    }
+
+    @Override
+    public Object extract(byte[] payload, String key) throws IOException {
+        return binary.extract(unpack(payload), key);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        out.write(DEFLATED);
+        byte[] buffer = new byte[256];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(buffer);
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] unpack(byte[] payload) throws IOException {
+        if (payload.length == 0) throw new IOException("Empty log payload");
+        if (payload[0] == STORED) return Arrays.copyOfRange(payload, 1, payload.length);
+
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setDictionary(DICTIONARY);
+        inflater.setInput(payload, 1, payload.length - 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 3);
+        byte[] buffer = new byte[256];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated log payload");
+                }
+                out.write(buffer, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed log payload", e);
+        }
+        return out.toByteArray();
+    }
+}
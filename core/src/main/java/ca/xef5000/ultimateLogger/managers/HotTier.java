@@ -0,0 +1,382 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the newest committed logs of each type in memory, so the first pages of a type are read without
+ * the backend. Each type has a ring of its most recent logs sorted by ID, which holds every log of the type
+ * above its floor: the newest log it dropped, or the first ID of this run. A page is answered from memory
+ * when it lies above the floor, and otherwise read from the backend.
+ * <p>
+ * Logs only enter through this server's write path, so no other server may write to the same backend.
+ * The tier is off by default, and never used with MySQL, which several servers may share.
+ */
+final class HotTier {
+
+    private static final Set<String> NUMERIC = Set.of(">", "<", ">=", "<=");
+
+    private final int logsPerType;
+    private final long maxBytes;
+    private final boolean matchesText;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Ring> rings = new HashMap<>();
+    // Every log with a higher ID was offered to the tier when committed
+    private long since;
+    private long highestId;
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxBytes The estimated memory all rings may use together.
+     * @param matchesText Whether text conditions match here as in the backend. When they do not, pages
+     *                    with such conditions are read from the backend.
+     */
+    HotTier(int logsPerType, long maxBytes, boolean matchesText) {
+        this.logsPerType = Math.max(1, logsPerType);
+        this.maxBytes = maxBytes;
+        this.matchesText = matchesText;
+        // Logs from before this run, such as ones replayed from the journal, are below it
+        this.since = LogIdGenerator.lowestIdAt(System.currentTimeMillis()) - 1;
+        this.highestId = since;
+    }
+
+    /**
+     * Adds logs once they are committed.
+     */
+    void add(List<LogEntry> logs) {
+        lock.writeLock().lock();
+        try {
+            for (LogEntry log : logs) {
+                highestId = Math.max(highestId, log.getId());
+                Ring ring = rings.computeIfAbsent(log.getLogType(), type -> new Ring(logsPerType, since));
+                if (log.getId() <= ring.floor || ring.search(log.getId()) >= 0) continue;
+                if (ring.size == ring.entries.length) {
+                    if (log.getId() < ring.get(0).getId()) {
+                        ring.floor = log.getId(); // Older than every log the full ring keeps
+                        continue;
+                    }
+                    bytes -= sizeOf(ring.evictOldest());
+                }
+                ring.insert(log);
+                bytes += sizeOf(log);
+            }
+
+            // Over the memory limit, the oldest logs of all types go first
+            while (bytes > maxBytes) {
+                Ring oldest = null;
+                for (Ring ring : rings.values()) {
+                    if (ring.size > 0 && (oldest == null || ring.get(0).getId() < oldest.get(0).getId())) oldest = ring;
+                }
+                if (oldest == null) break;
+                bytes -= sizeOf(oldest.evictOldest());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The logs past the cursor as {@link ca.xef5000.ultimateLogger.api.StorageBackend#query} returns them,
+     *         or null if logs past the cursor may be missing from memory, so the backend must be asked.
+     */
+    List<LogEntry> query(String logType, List<FilterCondition> conditions, LogCursor cursor, int limit) {
+        if (!canMatch(conditions)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        long[] range = LogTable.timeRange(conditions);
+
+        lock.readLock().lock();
+        try {
+            List<Ring> sources = new ArrayList<>();
+            long floor = since;
+            if (logType != null) {
+                Ring ring = rings.get(logType);
+                if (ring != null) {
+                    sources.add(ring);
+                    floor = ring.floor;
+                }
+            } else {
+                // Across types, only IDs above every ring's floor are complete
+                for (Ring ring : rings.values()) {
+                    sources.add(ring);
+                    floor = Math.max(floor, ring.floor);
+                }
+            }
+            // Newer pages need every log past the cursor
+            if (!cursor.isOlder() && cursor.id() < floor) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            List<LogEntry> page = new ArrayList<>();
+            for (Ring ring : sources) {
+                ring.collect(cursor, floor, range, conditions, limit, page);
+            }
+            // Older pages are only complete when full, as older logs may lie below the floor
+            if (cursor.isOlder() && page.size() < limit) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (sources.size() > 1) {
+                page.sort(cursor.isOlder() ? Comparator.comparingLong(LogEntry::getId).reversed() : Comparator.comparingLong(LogEntry::getId));
+                if (page.size() > limit) page.subList(limit, page.size()).clear();
+            }
+            hits.incrementAndGet();
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Optional<LogEntry> get(long id) {
+        lock.readLock().lock();
+        try {
+            for (Ring ring : rings.values()) {
+                int index = ring.search(id);
+                if (index >= 0) return Optional.of(ring.get(index));
+            }
+            return Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void setArchived(long id, boolean archived) {
+        lock.writeLock().lock();
+        try {
+            for (Ring ring : rings.values()) {
+                int index = ring.search(id);
+                if (index < 0) continue;
+                LogEntry log = ring.get(index);
+                ring.set(index, new LogEntry(log.getId(), log.getLogType(), log.getTimestamp(), archived, log.getData()));
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void delete(long id) {
+        lock.writeLock().lock();
+        try {
+            for (Ring ring : rings.values()) {
+                int index = ring.search(id);
+                if (index < 0) continue;
+                bytes -= sizeOf(ring.remove(index));
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the logs that may expire at the cutoff, before the backend deletes them.
+     * @param cutoff Logs with an older timestamp may expire.
+     */
+    void expire(long cutoff) {
+        lock.writeLock().lock();
+        try {
+            for (Ring ring : rings.values()) {
+                // Timestamps are not strictly in ID order, so everything up to the last expiring log goes
+                int last = -1;
+                for (int i = 0; i < ring.size; i++) {
+                    if (ring.get(i).getTimestamp().toEpochMilli() < cutoff) last = i;
+                }
+                for (int i = 0; i <= last; i++) {
+                    bytes -= sizeOf(ring.evictOldest());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every log, after logs were deleted in bulk. Logs committed afterwards are kept again.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            rings.clear();
+            since = highestId;
+            bytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            int size = 0;
+            for (Ring ring : rings.values()) size += ring.size;
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The estimated memory used by the logs, in bytes.
+     */
+    long getBytes() {
+        lock.readLock().lock();
+        try {
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Whether every condition matches in memory as it does in the backend.
+     */
+    private boolean canMatch(List<FilterCondition> conditions) {
+        if (matchesText) return true;
+        for (FilterCondition condition : conditions) {
+            if (!"timestamp".equals(condition.key()) && !NUMERIC.contains(condition.comparator())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A rough estimate of the memory a log takes, from its values.
+     */
+    private static long sizeOf(LogEntry log) {
+        long[] size = {96};
+        log.getData().forEach((key, value) -> size[0] += 32 + (value instanceof String text ? 40 + 2L * text.length() : 16));
+        return size[0];
+    }
+
+    /**
+     * The newest logs of one type, sorted by ID in a circular array.
+     */
+    private static final class Ring {
+        private final LogEntry[] entries;
+        private int head;
+        private int size;
+        private long floor;
+
+        private Ring(int capacity, long floor) {
+            this.entries = new LogEntry[capacity];
+            this.floor = floor;
+        }
+
+        private LogEntry get(int index) {
+            return entries[(head + index) % entries.length];
+        }
+
+        private void set(int index, LogEntry log) {
+            entries[(head + index) % entries.length] = log;
+        }
+
+        /**
+         * @return The index of the log with the ID, or {@code -(insertion point) - 1}.
+         */
+        private int search(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = get(middle).getId();
+                if (middleId < id) low = middle + 1;
+                else if (middleId > id) high = middle - 1;
+                else return middle;
+            }
+            return -low - 1;
+        }
+
+        /**
+         * Inserts a log that is not in the ring yet. The ring must not be full.
+         */
+        private void insert(LogEntry log) {
+            int index = search(log.getId());
+            int position = index >= 0 ? index : -index - 1;
+            // Logs mostly arrive in ID order, so this is usually an append
+            for (int i = size; i > position; i--) {
+                set(i, get(i - 1));
+            }
+            set(position, log);
+            size++;
+        }
+
+        private LogEntry evictOldest() {
+            LogEntry oldest = get(0);
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+            floor = oldest.getId();
+            return oldest;
+        }
+
+        private LogEntry remove(int index) {
+            LogEntry removed = get(index);
+            for (int i = index; i < size - 1; i++) {
+                set(i, get(i + 1));
+            }
+            set(size - 1, null);
+            size--;
+            return removed;
+        }
+
+        /**
+         * Adds up to {@code limit} matching logs past the cursor and above the floor, nearest to the cursor first.
+         */
+        private void collect(LogCursor cursor, long floor, long[] range, List<FilterCondition> conditions, int limit, List<LogEntry> page) {
+            int index = search(cursor.id());
+            int start = index >= 0 ? index : -index - 1;
+            int found = 0;
+            if (cursor.isOlder()) {
+                for (int i = start - 1; i >= 0 && found < limit; i--) {
+                    LogEntry log = get(i);
+                    if (log.getId() <= floor) break;
+                    if (matches(log, range, conditions)) {
+                        page.add(log);
+                        found++;
+                    }
+                }
+            } else {
+                for (int i = index >= 0 ? start + 1 : start; i < size && found < limit; i++) {
+                    LogEntry log = get(i);
+                    if (log.getId() <= floor) continue;
+                    if (matches(log, range, conditions)) {
+                        page.add(log);
+                        found++;
+                    }
+                }
+            }
+        }
+
+        private static boolean matches(LogEntry log, long[] range, List<FilterCondition> conditions) {
+            long timestamp = log.getTimestamp().toEpochMilli();
+            return timestamp >= range[0] && timestamp <= range[1] && MemoryStorageBackend.matches(log.getData(), timestamp, conditions);
+        }
+    }
+}
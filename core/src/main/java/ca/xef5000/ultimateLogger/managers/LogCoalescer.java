@@ -0,0 +1,203 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges repetitive logs before they are saved. Logs of a configured type that share the same
+ * key fields within one time window become a single log with a count, the first and last
+ * timestamp and the bounding box of their locations. Quantities such as {@code item_amount} are
+ * summed, and the sample rate is combined so that scaling the count back up stays correct.
+ * The merged log keeps the ID and the other values of the first log in the group.
+ */
+public class LogCoalescer {
+
+    /**
+     * Receives merged logs once their window has closed.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(String logType, LogData data, long timestamp);
+    }
+
+    private static final String[] LOCATION_KEYS = {"location_x", "location_y", "location_z"};
+    private static final String[] MIN_KEYS = {"min_x", "min_y", "min_z"};
+    private static final String[] MAX_KEYS = {"max_x", "max_y", "max_z"};
+    // Values that add up across the merged logs rather than being taken from the first one
+    private static final String[] SUMMED_KEYS = {"item_amount"};
+
+    private final UltimateLogger plugin;
+    private final Map<String, List<String>> keysByType;
+    private final long windowMillis;
+    private final int maxGroups;
+    private final Sink sink;
+
+    private final Map<GroupKey, Group> groups = new ConcurrentHashMap<>();
+    private final LongAdder mergedCount = new LongAdder();
+    private BukkitTask flushTask;
+
+    public LogCoalescer(UltimateLogger plugin, Sink sink) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.keysByType = config.getCoalescingKeys();
+        this.windowMillis = Math.max(1, config.getCoalescingWindowSeconds()) * 1000L;
+        this.maxGroups = Math.max(1, config.getCoalescingMaxGroups());
+        this.sink = sink;
+    }
+
+    public void start() {
+        flushTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                flush(false);
+            }
+        }.runTaskTimerAsynchronously(plugin, 20L, 20L);
+    }
+
+    /**
+     * Stops the flush task and emits every open group.
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush(true);
+    }
+
+    /**
+     * Adds a log to its group.
+     * @return true if the log was absorbed and will be emitted later, false if it should be saved as-is.
+     */
+    public boolean absorb(String logType, LogData data, long timestamp) {
+        List<String> keys = keysByType.get(logType);
+        if (keys == null) return false;
+
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.get(keys.get(i));
+        }
+        GroupKey key = new GroupKey(logType, timestamp / windowMillis, Arrays.asList(values));
+
+        Group existing = groups.get(key);
+        if (existing == null && groups.size() >= maxGroups) {
+            return false; // Too many open groups, save this one directly
+        }
+
+        // compute() keeps merges and the flush's remove() from racing on the same group
+        groups.compute(key, (groupKey, group) -> {
+            if (group == null) return new Group(data, timestamp, keys);
+            group.merge(data, timestamp);
+            mergedCount.increment();
+            return group;
+        });
+        return true;
+    }
+
+    /**
+     * @return The number of logs merged into another log so far.
+     */
+    public long getMergedCount() {
+        return mergedCount.sum();
+    }
+
+    public int getOpenGroupCount() {
+        return groups.size();
+    }
+
+    private void flush(boolean all) {
+        long currentWindowStart = System.currentTimeMillis() / windowMillis;
+        for (GroupKey key : new ArrayList<>(groups.keySet())) {
+            if (!all && key.window() >= currentWindowStart) continue; // Window still open
+            Group group = groups.remove(key);
+            if (group != null) {
+                sink.accept(key.logType(), group.toLogData(), group.firstTimestamp);
+            }
+        }
+    }
+
+    private record GroupKey(String logType, long window, List<Object> values) {}
+
+    private static final class Group {
+        private final LogData first;
+        private final long firstTimestamp;
+        private long lastTimestamp;
+        private int count = 1;
+        private int[] min; // Bounding box, null if the logs have no location
+        private int[] max;
+        private final long[] sums = new long[SUMMED_KEYS.length];
+        private final boolean[] summed = new boolean[SUMMED_KEYS.length];
+        private double weight; // The number of logs the group stands for, before sampling
+        private boolean sampled;
+
+        Group(LogData first, long timestamp, List<String> keys) {
+            this.first = first;
+            this.firstTimestamp = timestamp;
+            this.lastTimestamp = timestamp;
+            for (int i = 0; i < SUMMED_KEYS.length; i++) {
+                // A key field is the same for the whole group, so it stays as it is
+                summed[i] = !keys.contains(SUMMED_KEYS[i]);
+            }
+            include(first);
+        }
+
+        void merge(LogData data, long timestamp) {
+            count++;
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            include(data);
+        }
+
+        private void include(LogData data) {
+            for (int i = 0; i < SUMMED_KEYS.length; i++) {
+                Integer value = summed[i] ? data.getInteger(SUMMED_KEYS[i]) : null;
+                if (value != null) sums[i] += value;
+            }
+            Double rate = data.getDouble(AdmissionController.SAMPLE_RATE_KEY);
+            if (rate != null && rate > 0 && rate < 1) {
+                weight += 1 / rate;
+                sampled = true;
+            } else {
+                weight++;
+            }
+            for (int axis = 0; axis < LOCATION_KEYS.length; axis++) {
+                Integer value = data.getInteger(LOCATION_KEYS[axis]);
+                if (value == null) continue;
+                if (min == null) {
+                    min = new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+                    max = new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+                }
+                min[axis] = Math.min(min[axis], value);
+                max[axis] = Math.max(max[axis], value);
+            }
+        }
+
+        LogData toLogData() {
+            first.put("count", count)
+                    .put("first_timestamp", firstTimestamp)
+                    .put("last_timestamp", lastTimestamp);
+            for (int i = 0; i < SUMMED_KEYS.length; i++) {
+                if (summed[i] && (sums[i] != 0 || first.has(SUMMED_KEYS[i]))) first.put(SUMMED_KEYS[i], sums[i]);
+            }
+            if (sampled) {
+                // count / sample_rate gives back the number of logs before sampling
+                first.put(AdmissionController.SAMPLE_RATE_KEY, count / weight);
+            }
+            if (min != null) {
+                for (int axis = 0; axis < LOCATION_KEYS.length; axis++) {
+                    if (min[axis] > max[axis]) continue; // This axis was never set
+                    first.put(MIN_KEYS[axis], min[axis]).put(MAX_KEYS[axis], max[axis]);
+                }
+            }
+            return first;
+        }
+    }
+}
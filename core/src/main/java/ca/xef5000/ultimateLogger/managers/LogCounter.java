@@ -0,0 +1,51 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogCounts;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds up logs per type, day and archived flag: the live counts of the in-process backends, and the
+ * changes a SQL transaction makes to the counters table.
+ */
+final class LogCounter {
+
+    private final Map<LogCounts.Key, Long> counts = new ConcurrentHashMap<>();
+
+    void add(String logType, long timestamp, boolean archived, long delta) {
+        add(LogCounts.Key.of(logType, timestamp, archived), delta);
+    }
+
+    void add(LogCounts.Key key, long delta) {
+        if (delta == 0) return;
+        counts.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    /**
+     * Moves a log from one archived flag to the other.
+     */
+    void setArchived(String logType, long timestamp, boolean archived) {
+        add(logType, timestamp, !archived, -1);
+        add(logType, timestamp, archived, 1);
+    }
+
+    boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    void clear() {
+        counts.clear();
+    }
+
+    /**
+     * @return The counts by key, without keys that add up to zero.
+     */
+    Map<LogCounts.Key, Long> asMap() {
+        return counts;
+    }
+
+    LogCounts snapshot() {
+        return new LogCounts(counts);
+    }
+}
@@ -0,0 +1,216 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+import ca.xef5000.ultimateLogger.api.StorageException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * A background thread that runs large deletions one at a time. The storage backend deletes in steps
+ * (the SQL backend in committed ID-range chunks) and reports after each one, which is where the deleter
+ * paces the job to a rows-per-second budget, reports progress and stops cancelled jobs.
+ * <p>
+ * Once deletions are done and no logs are waiting to be saved, the backend gets to reclaim freed space.
+ */
+public class LogDeleter implements Runnable {
+
+    /**
+     * The work of a job: a backend deletion reporting to the given progress callback.
+     */
+    @FunctionalInterface
+    interface Deletion {
+        int run(IntPredicate progress) throws StorageException;
+    }
+
+    /**
+     * A queued or running deletion.
+     */
+    public static class Job {
+        private final String description;
+        private final Deletion deletion;
+        private final Consumer<Job> progressListener;
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private volatile int deleted;
+        private volatile boolean cancelled;
+
+        private Job(String description, Deletion deletion, Consumer<Job> progressListener) {
+            this.description = description;
+            this.deletion = deletion;
+            this.progressListener = progressListener;
+        }
+
+        /**
+         * Stops the job after the current step. Logs already deleted stay deleted.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return The number of logs deleted so far.
+         */
+        public int getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * @return Completes with the number of logs deleted once the job is done or cancelled.
+         */
+        public CompletableFuture<Integer> getResult() {
+            return result;
+        }
+    }
+
+    // How often a running job reports its progress
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // How often the thread checks whether the server is idle enough for maintenance
+    private static final long IDLE_CHECK_SECONDS = 30;
+
+    private final UltimateLogger plugin;
+    private final StorageBackend backend;
+    private final BooleanSupplier idle;
+    private final Runnable onDeleted;
+    private final int rowsPerSecond;
+
+    private final BlockingQueue<Job> jobs = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean maintenanceDue;
+
+    /**
+     * @param idle Tells whether the server is quiet enough for maintenance.
+     * @param onDeleted Called after each step that deleted logs.
+     */
+    public LogDeleter(UltimateLogger plugin, StorageBackend backend, BooleanSupplier idle, Runnable onDeleted) {
+        this.plugin = plugin;
+        this.backend = backend;
+        this.idle = idle;
+        this.onDeleted = onDeleted;
+        this.rowsPerSecond = plugin.getConfigManager().getDeletionRowsPerSecond();
+
+        this.thread = new Thread(this, "UltimateLogger-Deleter");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the running job and completes every queued one without deleting.
+     */
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Job queued; (queued = jobs.poll()) != null; ) {
+            queued.result.complete(0);
+        }
+    }
+
+    /**
+     * Queues a deletion; jobs run one at a time in order.
+     * @param progressListener Called on the deleter thread every few seconds while the job runs, or null.
+     */
+    Job submit(String description, Deletion deletion, Consumer<Job> progressListener) {
+        Job job = new Job(description, deletion, progressListener);
+        if (!running) {
+            job.result.complete(0);
+            return job;
+        }
+        jobs.add(job);
+        return job;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            Job job;
+            try {
+                job = jobs.poll(IDLE_CHECK_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                continue; // Stopping
+            }
+
+            if (job != null) {
+                execute(job);
+                maintenanceDue = true;
+            } else if (maintenanceDue && idle.getAsBoolean()) {
+                try {
+                    maintenanceDue = backend.optimize();
+                } catch (StorageException e) {
+                    plugin.getLogger().warning(e.getMessage());
+                    maintenanceDue = false;
+                }
+            }
+        }
+    }
+
+    private void execute(Job job) {
+        Pacer pacer = new Pacer(job);
+        try {
+            int deleted = job.deletion.run(pacer);
+            job.deleted = deleted;
+            if (job.cancelled || !running) {
+                plugin.getLogger().info("Stopped " + job.description + " after deleting " + deleted + " logs.");
+            }
+            job.result.complete(deleted);
+        } catch (StorageException e) {
+            plugin.getLogger().severe("Error during " + job.description + ": " + e.getMessage());
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Called by the backend after each step: keeps to the rows-per-second budget and reports progress.
+     */
+    private class Pacer implements IntPredicate {
+        private final Job job;
+        private long stepStarted = System.nanoTime();
+        private long lastProgress = System.nanoTime();
+
+        private Pacer(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public boolean test(int deleted) {
+            int step = deleted - job.deleted;
+            job.deleted = deleted;
+            if (step > 0) onDeleted.run();
+
+            if (job.progressListener != null && System.nanoTime() - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = System.nanoTime();
+                job.progressListener.accept(job);
+            }
+
+            if (rowsPerSecond > 0 && step > 0) {
+                long remaining = TimeUnit.SECONDS.toNanos(step) / rowsPerSecond - (System.nanoTime() - stepStarted);
+                if (remaining > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(remaining);
+                    } catch (InterruptedException e) {
+                        return false; // Stopping
+                    }
+                }
+            }
+            stepStarted = System.nanoTime();
+            return running && !job.cancelled;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.ParameterType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps values that repeat across many logs (players, worlds and materials) to small integer ids,
+ * so typed tables store a number instead of the same string in every row. Also numbers the value
+ * keys for binary payloads. Both directions are cached in memory; the caches are loaded at startup
+ * and filled as new values appear.
+ */
+public class LogDictionary {
+
+    public enum Kind {
+        PLAYER("ultimate_logs_dict_players"),
+        WORLD("ultimate_logs_dict_worlds"),
+        MATERIAL("ultimate_logs_dict_materials"),
+        KEY("ultimate_logs_dict_keys");
+
+        private final String table;
+
+        Kind(String table) {
+            this.table = table;
+        }
+
+        public String getTable() {
+            return table;
+        }
+    }
+
+    // Keys holding a material name; other *_type keys hold entity, inventory or recipe types
+    private static final Set<String> MATERIAL_KEYS = Set.of("block_type", "item_type", "bucket_type",
+            "crafted_item", "result_item", "input_item");
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+
+    private final Map<Kind, Map<String, Integer>> ids = new EnumMap<>(Kind.class);
+    private final Map<Kind, Map<Integer, String>> values = new EnumMap<>(Kind.class);
+    private final Map<Integer, String> playerNames = new ConcurrentHashMap<>();
+
+    public LogDictionary(UltimateLogger plugin, DatabaseManager dbManager) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        for (Kind kind : Kind.values()) {
+            ids.put(kind, new ConcurrentHashMap<>());
+            values.put(kind, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * @return The dictionary for values of the key, or null if they are stored as-is.
+     */
+    static Kind kindOf(String key, ParameterType type) {
+        if (type == ParameterType.UUID && key.endsWith("_uuid")) return Kind.PLAYER;
+        if (type == ParameterType.STRING && key.endsWith("world")) return Kind.WORLD;
+        if (type == ParameterType.STRING && MATERIAL_KEYS.contains(key)) return Kind.MATERIAL;
+        return null;
+    }
+
+    /**
+     * @return The form the value is stored in, or null if it cannot be stored in the dictionary.
+     */
+    static String normalize(Kind kind, Object value) {
+        if (value == null) return null;
+        String text = value.toString().trim();
+        if (kind != Kind.PLAYER) return text.isEmpty() ? null : text;
+        try {
+            return UUID.fromString(text).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Loads every dictionary into memory.
+     */
+    public void warm() {
+        try (Connection conn = dbManager.getReadConnection(); Statement stmt = conn.createStatement()) {
+            for (Kind kind : Kind.values()) {
+                String sql = kind == Kind.PLAYER ? "SELECT id, uuid, name FROM " + kind.getTable() : "SELECT id, name FROM " + kind.getTable();
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        cache(kind, rs);
+                    }
+                }
+            }
+            plugin.getLogger().info("Loaded " + ids.get(Kind.PLAYER).size() + " players, " + ids.get(Kind.WORLD).size()
+                    + " worlds, " + ids.get(Kind.MATERIAL).size() + " materials and " + ids.get(Kind.KEY).size()
+                    + " keys into the log dictionary.");
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not load the log dictionary: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param value A value in the form returned by {@link #normalize}.
+     * @return The cached id of the value, or null if it is not cached.
+     */
+    Integer idOf(Kind kind, String value) {
+        return value != null ? ids.get(kind).get(value) : null;
+    }
+
+    /**
+     * @return The value of the id, loaded from the database on a cache miss, or null if unknown.
+     */
+    String valueOf(Connection conn, Kind kind, int id) throws SQLException {
+        String value = values.get(kind).get(id);
+        if (value != null) return value;
+
+        String sql = kind == Kind.PLAYER ? "SELECT id, uuid, name FROM " + kind.getTable() + " WHERE id = ?"
+                : "SELECT id, name FROM " + kind.getTable() + " WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? cache(kind, rs) : null;
+            }
+        }
+    }
+
+    /**
+     * @return The last known name of the player, or null if unknown.
+     */
+    String playerName(int id) {
+        return playerNames.get(id);
+    }
+
+    /**
+     * @return true if the value, or the player's name, is not in the dictionary yet.
+     */
+    boolean isMissing(Kind kind, String value, String playerName) {
+        Integer id = idOf(kind, value);
+        return id == null || (playerName != null && !playerName.equals(playerNames.get(id)));
+    }
+
+    /**
+     * Adds the values to the dictionary and updates changed player names, in a transaction of their own so the
+     * ids are committed before any log refers to them. The connection must be in auto-commit mode.
+     * @param entries The values per dictionary, each with the player's name (null for worlds and materials).
+     */
+    void store(Connection conn, Map<Kind, Map<String, String>> entries) throws SQLException {
+        if (entries.isEmpty()) return;
+
+        boolean mySql = dbManager.isMySql();
+        String ignore = mySql ? "INSERT IGNORE" : "INSERT OR IGNORE";
+        Map<Kind, Map<String, Integer>> added = new EnumMap<>(Kind.class);
+
+        conn.setAutoCommit(false);
+        try {
+            for (Map.Entry<Kind, Map<String, String>> entry : entries.entrySet()) {
+                Kind kind = entry.getKey();
+                boolean player = kind == Kind.PLAYER;
+                String column = player ? "uuid" : "name";
+                Map<String, Integer> kindIds = new HashMap<>();
+
+                try (PreparedStatement insert = conn.prepareStatement(player
+                             ? ignore + " INTO " + kind.getTable() + " (uuid, name) VALUES (?, ?)"
+                             : ignore + " INTO " + kind.getTable() + " (name) VALUES (?)");
+                     PreparedStatement rename = player ? conn.prepareStatement("UPDATE " + kind.getTable() + " SET name = ? WHERE uuid = ?") : null;
+                     PreparedStatement select = conn.prepareStatement("SELECT id FROM " + kind.getTable() + " WHERE " + column + " = ?")) {
+
+                    for (Map.Entry<String, String> value : entry.getValue().entrySet()) {
+                        Object key = player ? LogTable.toBytes(UUID.fromString(value.getKey())) : value.getKey();
+                        insert.setObject(1, key);
+                        if (player) insert.setString(2, value.getValue());
+                        insert.executeUpdate();
+
+                        if (player && value.getValue() != null) {
+                            rename.setString(1, value.getValue());
+                            rename.setObject(2, key);
+                            rename.executeUpdate();
+                        }
+
+                        select.setObject(1, key);
+                        try (ResultSet rs = select.executeQuery()) {
+                            if (rs.next()) kindIds.put(value.getKey(), rs.getInt(1));
+                        }
+                    }
+                }
+                added.put(kind, kindIds);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        // Only cached once committed, so no log can refer to an id that was rolled back
+        added.forEach((kind, kindIds) -> kindIds.forEach((value, id) -> {
+            ids.get(kind).put(value, id);
+            values.get(kind).put(id, value);
+            String name = entries.get(kind).get(value);
+            if (name != null) playerNames.put(id, name);
+        }));
+    }
+
+    private String cache(Kind kind, ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String value;
+        if (kind == Kind.PLAYER) {
+            UUID uuid = LogTable.fromBytes(rs.getBytes("uuid"));
+            if (uuid == null) return null;
+            value = uuid.toString();
+            String name = rs.getString("name");
+            if (name != null) playerNames.put(id, name);
+        } else {
+            value = rs.getString("name");
+        }
+        ids.get(kind).put(value, id);
+        values.get(kind).put(id, value);
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogDefinition;
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The single listener for one Bukkit event class. Each event is type-checked once
+ * and then handed to every log definition registered for that class.
+ */
+class LogEventDispatcher<T extends Event> implements Listener, EventExecutor {
+
+    private final UltimateLogger plugin;
+    private final Class<T> eventClass;
+    private final BiConsumer<String, LogData> sink;
+
+    // Copy-on-write, definitions are registered rarely but read on every event
+    private volatile List<LogDefinition<T>> definitions = List.of();
+
+    LogEventDispatcher(UltimateLogger plugin, Class<T> eventClass, BiConsumer<String, LogData> sink) {
+        this.plugin = plugin;
+        this.eventClass = eventClass;
+        this.sink = sink;
+    }
+
+    /**
+     * Adds a definition, replacing any previous definition with the same ID.
+     */
+    synchronized void add(LogDefinition<T> definition) {
+        List<LogDefinition<T>> updated = new ArrayList<>(definitions);
+        updated.removeIf(existing -> existing.getId().equals(definition.getId()));
+        updated.add(definition);
+        definitions = List.copyOf(updated);
+    }
+
+    @Override
+    public void execute(Listener listener, Event event) {
+        // Bukkit also passes subclasses that share this handler list
+        if (!eventClass.isInstance(event)) return;
+        T typedEvent = eventClass.cast(event);
+
+        List<LogDefinition<T>> current = definitions;
+        for (int i = 0; i < current.size(); i++) {
+            LogDefinition<T> definition = current.get(i);
+            try {
+                if (definition.shouldLog(typedEvent)) {
+                    sink.accept(definition.getId(), definition.captureData(typedEvent));
+                }
+            } catch (RuntimeException e) {
+                // One broken definition must not stop the others
+                plugin.getLogger().severe("Error while logging " + eventClass.getSimpleName() + " for " + definition.getId() + "!");
+                e.printStackTrace();
+            }
+        }
+    }
+}
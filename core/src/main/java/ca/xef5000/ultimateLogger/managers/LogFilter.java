@@ -0,0 +1,215 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogDefinition;
+import ca.xef5000.ultimateLogger.api.ParameterDefinition;
+import ca.xef5000.ultimateLogger.api.ParameterType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * A log type and filter conditions in canonical form, so filters that select the same logs are equal.
+ * Time conditions are merged into one {@code >=}/{@code <=} range, values are converted to their
+ * parameter's type, and the conditions are sorted. Keys are checked against the log type's
+ * filterable parameters, so a key that would be ignored is rejected instead.
+ */
+public final class LogFilter {
+
+    private static final String TIMESTAMP = "timestamp";
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_]+");
+    private static final Set<String> COMPARATORS = Set.of("=", "!=", ">", "<", ">=", "<=", "startswith", "endswith", "contains");
+    private static final Set<String> NUMERIC = Set.of(">", "<", ">=", "<=");
+    private static final Set<String> TIME_COMPARATORS = Set.of("=", "!=", ">", "<", ">=", "<=", "before", "after", "between");
+
+    private static final Comparator<FilterCondition> ORDER = Comparator.comparing(FilterCondition::key)
+            .thenComparing(FilterCondition::comparator)
+            .thenComparing(condition -> String.valueOf(condition.value()))
+            .thenComparing(condition -> condition.value().getClass().getName());
+
+    private final String logType;
+    private final List<FilterCondition> conditions;
+    private final String shape;
+
+    private LogFilter(String logType, List<FilterCondition> conditions) {
+        this.logType = logType;
+        this.conditions = conditions;
+        StringBuilder shape = new StringBuilder(logType != null ? "type" : "all");
+        for (FilterCondition condition : conditions) {
+            shape.append(';').append(condition.key()).append(' ').append(condition.comparator());
+        }
+        this.shape = shape.toString();
+    }
+
+    /**
+     * @param logType Only logs of this type, or null or blank for every type.
+     * @param definitions The registered log definitions by ID, which keys are checked against. Keys of a type
+     *                    without a definition are only checked to be plain names.
+     * @throws IllegalArgumentException If a key, comparator or value cannot be filtered on.
+     */
+    public static LogFilter of(String logType, List<FilterCondition> conditions, Map<String, LogDefinition<?>> definitions) {
+        String type = logType != null && !logType.trim().isEmpty() ? logType : null;
+        Map<String, ParameterType> parameters = parametersOf(type, definitions);
+
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        TreeSet<FilterCondition> canonical = new TreeSet<>(ORDER);
+        for (FilterCondition condition : conditions != null ? conditions : List.<FilterCondition>of()) {
+            if (condition.key() == null || condition.comparator() == null || condition.value() == null) {
+                throw new IllegalArgumentException("Incomplete filter condition: " + condition);
+            }
+            String key = condition.key().trim();
+            String comparator = condition.comparator().trim().toLowerCase(Locale.ROOT);
+
+            if (key.equalsIgnoreCase(TIMESTAMP)) {
+                if (!TIME_COMPARATORS.contains(comparator)) {
+                    throw new IllegalArgumentException("Unknown comparator '" + comparator + "' for timestamp");
+                }
+                Object value = condition.value();
+                if (comparator.equals("between") ? LogTable.parseRange(value) == null : LogTable.parseLong(value) == null) {
+                    throw new IllegalArgumentException("Invalid time for timestamp: " + value);
+                }
+                if (comparator.equals("!=")) {
+                    canonical.add(new FilterCondition(TIMESTAMP, "!=", LogTable.parseLong(value)));
+                    continue;
+                }
+                long[] range = LogTable.timeRange(List.of(new FilterCondition(TIMESTAMP, comparator, value)));
+                from = Math.max(from, range[0]);
+                to = Math.min(to, range[1]);
+                continue;
+            }
+
+            if (!KEY.matcher(key).matches()) {
+                throw new IllegalArgumentException("Invalid filter key '" + key + "'");
+            }
+            if (parameters != null && !parameters.containsKey(key)) {
+                throw new IllegalArgumentException("Unknown filter key '" + key + "'" + (type != null ? " for log type " + type : ""));
+            }
+            if (!COMPARATORS.contains(comparator)) {
+                throw new IllegalArgumentException("Unknown comparator '" + comparator + "' for " + key);
+            }
+            ParameterType parameterType = parameters != null ? parameters.get(key) : null;
+            canonical.add(new FilterCondition(key, comparator, value(key, comparator, condition.value(), parameterType)));
+        }
+
+        if (from != Long.MIN_VALUE) canonical.add(new FilterCondition(TIMESTAMP, ">=", from));
+        if (to != Long.MAX_VALUE) canonical.add(new FilterCondition(TIMESTAMP, "<=", to));
+        return new LogFilter(type, List.copyOf(new ArrayList<>(canonical)));
+    }
+
+    /**
+     * @return The log type, or null for every type.
+     */
+    public String getLogType() {
+        return logType;
+    }
+
+    /**
+     * @return The canonical conditions, all combined with AND.
+     */
+    public List<FilterCondition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @return The filter without its values: whether it has a log type, and each key and comparator.
+     *         Filters of the same shape are compiled to the same SQL.
+     */
+    String getShape() {
+        return shape;
+    }
+
+    /**
+     * @return The type of every key that may be filtered on, or null if keys cannot be checked.
+     */
+    private static Map<String, ParameterType> parametersOf(String logType, Map<String, LogDefinition<?>> definitions) {
+        if (definitions == null || definitions.isEmpty()) return null;
+        if (logType != null) {
+            LogDefinition<?> definition = definitions.get(logType);
+            if (definition == null) return null; // Logs of a type that is no longer registered
+            Map<String, ParameterType> parameters = new HashMap<>();
+            for (ParameterDefinition parameter : definition.getFilterableParameters()) {
+                parameters.put(parameter.key(), parameter.type());
+            }
+            return parameters;
+        }
+
+        // Across every type, a key whose types differ is compared as text
+        Map<String, ParameterType> parameters = new HashMap<>();
+        for (LogDefinition<?> definition : definitions.values()) {
+            for (ParameterDefinition parameter : definition.getFilterableParameters()) {
+                parameters.merge(parameter.key(), parameter.type(), (a, b) -> a == b ? a : ParameterType.STRING);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Converts the value to what logs of the parameter's type hold: a Long or Double for numbers,
+     * a Boolean for booleans, otherwise text.
+     */
+    private static Object value(String key, String comparator, Object value, ParameterType type) {
+        if (NUMERIC.contains(comparator)) return number(key, value, ParameterType.DOUBLE);
+        if (!comparator.equals("=") && !comparator.equals("!=")) return String.valueOf(value); // Text matching
+        if (type == null) {
+            if (value instanceof Number || value instanceof Boolean || value instanceof String) return value;
+            return String.valueOf(value);
+        }
+        return switch (type) {
+            case INTEGER, DOUBLE -> number(key, value, type);
+            case BOOLEAN -> {
+                String text = String.valueOf(value).trim();
+                if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("Value of " + key + " must be true or false: " + value);
+                }
+                yield Boolean.parseBoolean(text);
+            }
+            case STRING, UUID -> String.valueOf(value);
+        };
+    }
+
+    /**
+     * @return A Long if the value is a whole number that fits one, else a Double.
+     */
+    private static Object number(String key, Object value, ParameterType type) {
+        String text = String.valueOf(value).trim();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            double number = Double.parseDouble(text);
+            if (Double.isFinite(number)) {
+                if (type == ParameterType.INTEGER && number == Math.rint(number) && Math.abs(number) < 0x1p53) return (long) number;
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Value of " + key + " must be a number: " + value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LogFilter other)) return false;
+        return Objects.equals(logType, other.logType) && conditions.equals(other.conditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(logType, conditions);
+    }
+
+    @Override
+    public String toString() {
+        return "LogFilter{" + "logType=" + logType + ", conditions=" + conditions + '}';
+    }
+}
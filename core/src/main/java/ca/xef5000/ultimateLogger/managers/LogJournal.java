@@ -0,0 +1,414 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, memory-mapped write-ahead journal for captured logs.
+ * <p>
+ * Every log is appended to the active segment before it is queued. Once all logs in a
+ * sealed segment are committed to the database, the segment file is deleted.
+ * <p>
+ * When the database is unreachable, or the in-memory queue is full, the journal switches to
+ * backlog mode: new logs are only written to disk, and the writer replays the segments in
+ * order once the database is back. Logs left over from a crash are replayed the same way on startup.
+ * Since log IDs are assigned at capture time, replaying a log that was already committed is harmless.
+ * <p>
+ * Record layout: {@code int bodyLength | int crc32(body) | long id | long timestamp | short typeLength | type | json}
+ */
+public class LogJournal {
+
+    public enum Durability {
+        /** No journal at all. */
+        NONE,
+        /** Written to the memory map only; survives a server crash but not a power loss. */
+        OS,
+        /** Flushed to disk every few milliseconds by a background thread. */
+        GROUP_COMMIT,
+        /** Flushed to disk after every log. Safest, but slow. */
+        SYNC
+    }
+
+    /** Returned by {@link #append} when the log could not be journaled and has to be queued as-is. */
+    public static final long NOT_JOURNALED = -1;
+    /** Returned by {@link #append} while a backlog is being replayed; the writer will save the log from disk. */
+    public static final long IN_BACKLOG = -2;
+    /** Ticket of logs read back from the journal, which may have been committed before. */
+    public static final long REPLAYED = -3;
+
+    private static final int HEADER_SIZE = 8; // Body length + CRC
+    private static final int FIXED_BODY_SIZE = 8 + 8 + 2; // ID + timestamp + type length
+    private static final int GENERATION_SHIFT = 40;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final UltimateLogger plugin;
+    private final File directory;
+    private final Durability durability;
+    private final int segmentSize;
+    private final long groupCommitMillis;
+    private final LogQueue.Restorer restorer;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile Segment active;
+    private volatile boolean backlog;
+    private volatile boolean dirty;
+    // Bumped whenever a backlog is finished, so tickets from before it are ignored
+    private volatile long generation;
+
+    // Replay progress, only used by the writer thread
+    private volatile boolean resetCursor;
+    private long committedSegment;
+    private int committedOffset;
+    private long readSegment;
+    private int readOffset;
+
+    private ScheduledExecutorService flusher;
+
+    public LogJournal(UltimateLogger plugin, LogQueue.Restorer restorer) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), config.getJournalDirectory());
+        this.durability = config.getJournalDurability();
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, config.getJournalSegmentSizeMb()) * 1024L * 1024L);
+        this.groupCommitMillis = Math.max(1, config.getJournalGroupCommitMillis());
+        this.restorer = restorer;
+    }
+
+    /**
+     * Opens the journal, loading segments left behind by a previous run.
+     * If any exist, the journal starts in backlog mode so they are replayed first.
+     */
+    public synchronized void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String number = file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length());
+                try {
+                    Segment segment = new Segment(Long.parseLong(number), file);
+                    segment.sealed = true;
+                    segment.writePosition = (int) Math.min(file.length(), segmentSize);
+                    segments.put(segment.index, segment);
+                } catch (NumberFormatException e) {
+                    plugin.getLogger().warning("Ignoring unexpected file in the journal directory: " + file.getName());
+                }
+            }
+        }
+
+        if (!segments.isEmpty()) {
+            plugin.getLogger().info("Found " + segments.size() + " journal segment(s) from a previous run. They will be replayed into the database.");
+            backlog = true;
+            resetCursor = true;
+        }
+        active = createSegment(segments.isEmpty() ? 0 : segments.lastKey() + 1);
+
+        if (durability == Durability.GROUP_COMMIT) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "UltimateLogger-Journal");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Appends a log to the active segment.
+     * @return A ticket to pass to {@link #release} once the log is committed,
+     * {@link #IN_BACKLOG} if the writer will pick the log up from disk, or {@link #NOT_JOURNALED}.
+     */
+    public synchronized long append(String logType, long id, long timestamp, String json) {
+        byte[] type = logType.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = FIXED_BODY_SIZE + type.length + payload.length;
+        int recordLength = HEADER_SIZE + bodyLength;
+        if (recordLength > segmentSize || type.length > Short.MAX_VALUE) {
+            return NOT_JOURNALED;
+        }
+
+        try {
+            if (active.writePosition + recordLength > segmentSize) {
+                roll();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not create a new journal segment: " + e.getMessage());
+            return NOT_JOURNALED;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(bodyLength);
+        body.putLong(id).putLong(timestamp).putShort((short) type.length).put(type).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        // Write the body before the length, so a reader never sees a length without its bytes
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.put(position + HEADER_SIZE, body.array());
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, bodyLength);
+        active.writePosition = position + recordLength;
+
+        if (durability == Durability.SYNC) {
+            buffer.force();
+        } else {
+            dirty = true;
+        }
+
+        if (backlog) {
+            return IN_BACKLOG;
+        }
+        active.pending.incrementAndGet();
+        return (generation << GENERATION_SHIFT) | active.index;
+    }
+
+    /**
+     * Marks one log from a segment as committed. Sealed segments are deleted once nothing in them is pending.
+     */
+    public void release(long ticket) {
+        if (ticket < 0 || (ticket >>> GENERATION_SHIFT) != generation || backlog) return;
+        Segment segment = segments.get(ticket & ((1L << GENERATION_SHIFT) - 1));
+        if (segment != null && segment.pending.decrementAndGet() <= 0 && segment.sealed) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * Switches to backlog mode. From now on logs stay on disk until the writer replays them.
+     */
+    public synchronized void enterBacklog() {
+        if (backlog) return;
+        backlog = true;
+        resetCursor = true;
+        plugin.getLogger().warning("Logs are now buffered in the journal until the database catches up.");
+    }
+
+    public boolean isInBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Reads the next logs of the backlog, starting after the last acknowledged one. Writer thread only.
+     */
+    public List<LogManager.LogDataTuple> readBacklog(int maxRecords) {
+        if (resetCursor) {
+            resetCursor = false;
+            committedSegment = segments.isEmpty() ? active.index : segments.firstKey();
+            committedOffset = 0;
+        }
+        readSegment = committedSegment;
+        readOffset = committedOffset;
+
+        List<LogManager.LogDataTuple> tuples = new ArrayList<>();
+        while (tuples.size() < maxRecords) {
+            Map.Entry<Long, Segment> entry = segments.ceilingEntry(readSegment);
+            if (entry == null) break;
+            Segment segment = entry.getValue();
+            if (segment.index != readSegment) {
+                readSegment = segment.index;
+                readOffset = 0;
+            }
+
+            int limit = segment.writePosition;
+            LogManager.LogDataTuple tuple = null;
+            int recordLength = 0;
+            if (readOffset + HEADER_SIZE <= limit) {
+                ByteBuffer view = readView(segment);
+                int bodyLength = view == null ? 0 : view.getInt(readOffset);
+                if (bodyLength >= FIXED_BODY_SIZE && readOffset + HEADER_SIZE + bodyLength <= limit) {
+                    tuple = decode(view, readOffset, bodyLength);
+                    recordLength = HEADER_SIZE + bodyLength;
+                }
+            }
+
+            if (tuple == null) {
+                // End of the data in this segment (or a torn record left by a crash)
+                if (segment.sealed) {
+                    readSegment = segment.index + 1;
+                    readOffset = 0;
+                    continue;
+                }
+                break; // Caught up with the active segment
+            }
+
+            tuples.add(tuple);
+            readOffset += recordLength;
+        }
+        return tuples;
+    }
+
+    /**
+     * Confirms that everything returned by the last {@link #readBacklog} call is committed,
+     * deleting segments that have been fully replayed. Writer thread only.
+     */
+    public void acknowledgeBacklog() {
+        committedSegment = readSegment;
+        committedOffset = readOffset;
+        for (Segment segment : new ArrayList<>(segments.headMap(committedSegment).values())) {
+            if (segment.sealed) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    /**
+     * Leaves backlog mode if every journaled log has been replayed. Writer thread only.
+     * @return true if the journal is back to normal operation.
+     */
+    public synchronized boolean tryFinishBacklog() {
+        if (!backlog) return true;
+        Segment current = active;
+        if (committedSegment != current.index || committedOffset < current.writePosition) {
+            return false; // More logs arrived while we were replaying
+        }
+        generation++;
+        current.pending.set(0);
+        backlog = false;
+        plugin.getLogger().info("Journal backlog replayed, resuming normal operation.");
+        return true;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Flushes the active segment and stops the background flusher.
+     * Segments with uncommitted logs stay on disk and are replayed on the next start.
+     */
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        Segment current = active;
+        if (current == null) return;
+        if (!backlog && current.pending.get() <= 0) {
+            deleteSegment(current); // Everything was committed
+        } else if (current.buffer != null) {
+            current.buffer.force();
+        }
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (!backlog && segment.sealed && segment.pending.get() <= 0) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    private void flush() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            MappedByteBuffer buffer = active.buffer;
+            if (buffer != null) buffer.force();
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Could not flush the log journal: " + e.getMessage());
+        }
+    }
+
+    private void roll() throws IOException {
+        Segment previous = active;
+        if (durability != Durability.OS) {
+            previous.buffer.force();
+        }
+        previous.sealed = true;
+        active = createSegment(previous.index + 1);
+        if (!backlog) {
+            previous.buffer = null; // Re-mapped on demand if a backlog needs to read it
+            if (previous.pending.get() <= 0) {
+                deleteSegment(previous);
+            }
+        }
+    }
+
+    private Segment createSegment(long index) throws IOException {
+        Segment segment = new Segment(index, new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX)));
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.put(index, segment);
+        return segment;
+    }
+
+    private ByteBuffer readView(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer == null) {
+            try (FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentSize));
+                segment.buffer = buffer;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read journal segment " + segment.file.getName() + ": " + e.getMessage());
+                return null;
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    private LogManager.LogDataTuple decode(ByteBuffer view, int offset, int bodyLength) {
+        byte[] body = new byte[bodyLength];
+        view.get(offset + HEADER_SIZE, body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != view.getInt(offset + 4)) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(body);
+        long id = record.getLong();
+        long timestamp = record.getLong();
+        int typeLength = record.getShort();
+        if (typeLength < 0 || FIXED_BODY_SIZE + typeLength > bodyLength) {
+            return null;
+        }
+        String logType = new String(body, FIXED_BODY_SIZE, typeLength, StandardCharsets.UTF_8);
+        String json = new String(body, FIXED_BODY_SIZE + typeLength, bodyLength - FIXED_BODY_SIZE - typeLength, StandardCharsets.UTF_8);
+        return restorer.restore(logType, id, timestamp, json);
+    }
+
+    private void deleteSegment(Segment segment) {
+        if (segments.remove(segment.index) == null) return; // Already deleted
+        segment.buffer = null;
+        if (!segment.file.delete() && segment.file.exists()) {
+            // Mapped files cannot always be deleted right away (e.g. on Windows)
+            segment.file.deleteOnExit();
+        }
+    }
+
+    private static final class Segment {
+        final long index;
+        final File file;
+        final AtomicInteger pending = new AtomicInteger();
+        volatile MappedByteBuffer buffer;
+        volatile int writePosition;
+        volatile boolean sealed;
+
+        Segment(long index, File file) {
+            this.index = index;
+            this.file = file;
+        }
+    }
+}
@@ -2,29 +2,38 @@ package ca.xef5000.ultimateLogger.managers;
 
 import ca.xef5000.ultimateLogger.UltimateLogger;
 import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCounts;
+import ca.xef5000.ultimateLogger.api.LogCursor;
 import ca.xef5000.ultimateLogger.api.LogData;
 import ca.xef5000.ultimateLogger.api.LogDefinition;
 import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+import ca.xef5000.ultimateLogger.api.StorageException;
+import ca.xef5000.ultimateLogger.api.events.AsyncLogBatchSaveEvent;
 import ca.xef5000.ultimateLogger.api.events.LogQueuedEvent;
+import ca.xef5000.ultimateLogger.utils.CircuitBreaker;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventPriority;
-import org.bukkit.event.Listener;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Type;
-import java.sql.*;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -32,67 +41,177 @@ public class LogManager {
 
     private static final Gson GSON = new Gson();
 
+    // Logs read to estimate how many logs a filter with value conditions selects
+    private static final int SAMPLE_SIZE = 500;
+    // In the journal directory, keeps IDs above those of earlier runs
+    private static final String ID_HIGH_WATER_FILE = "id-high-water-mark";
+
     private final UltimateLogger plugin;
-    private final DatabaseManager dbManager;
     private final WebhookManager webhookManager;
 
-    // A thread-safe queue for logs waiting to be saved.
-    private final Queue<LogDataTuple> saveQueue = new ConcurrentLinkedQueue<>();
+    // A bounded, thread-safe queue for logs waiting to be saved.
+    private final LogQueue saveQueue;
+
+    private final PageCache logCache;
 
-    private final Cache<CacheKey, List<LogEntry>> logCache;
+    // The newest logs of each type, null when disabled
+    private final HotTier hotTier;
+
+    // How many logs of a recent sample each filter matched, for estimating filtered counts
+    private final Cache<LogFilter, Sample> samples = CacheBuilder.newBuilder()
+            .maximumSize(100)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
 
     private final Map<String, LogDefinition<?>> logDefinitionMap = new ConcurrentHashMap<>();
 
+    // One Bukkit listener per event class (and cancelled-event handling)
+    private final Map<DispatcherKey, LogEventDispatcher<?>> dispatchers = new ConcurrentHashMap<>();
+
     private final Set<String> disabledLogTypes;
 
     private final Map<String, List<ConfigManager.WebhookConfig>> webhookConfigs;
 
-    private BukkitTask saveTask;
+    private final LogWriter writer;
+
+    // Write-ahead journal for crash safety and database outages, null when disabled
+    private final LogJournal journal;
+
+    // Merges repetitive logs before they are queued, null when disabled
+    private final LogCoalescer coalescer;
+
+    // Sheds logs under load, null when disabled
+    private final AdmissionController admission;
+
+    private final LogIdGenerator idGenerator;
+
+    // Where logs are saved and queried
+    private final StorageBackend backend;
+
+    // Runs cleanup and clears in small chunks
+    private final LogDeleter deleter;
+    // Completes once the storage is open, whether or not that worked
+    private final CompletableFuture<Void> opened = new CompletableFuture<>();
+    private volatile LogDeleter.Job cleanupJob;
 
     public LogManager(UltimateLogger plugin, WebhookManager webhookManager, DatabaseManager dbManager) {
         this.plugin = plugin;
-        this.dbManager = dbManager;
         this.webhookManager = webhookManager;
 
         this.disabledLogTypes = plugin.getConfigManager().getDisabledLogTypes();
         this.webhookConfigs = plugin.getConfigManager().getWebhookConfigs();
+        this.idGenerator = createIdGenerator();
+        this.saveQueue = new LogQueue(plugin, this::restoreTuple);
+        this.journal = openJournal();
+        this.coalescer = plugin.getConfigManager().isCoalescingEnabled() ? new LogCoalescer(plugin, this::enqueue) : null;
+        this.admission = plugin.getConfigManager().isAdmissionEnabled() ? new AdmissionController(plugin, this::getQueueLoad) : null;
+        this.backend = createBackend(dbManager);
+        this.writer = new LogWriter(plugin, saveQueue, journal, backend::isReachable, this::fireBatchEvent, this::saveBatch);
 
         // Build a cache with size and expiry time from config
-        this.logCache = CacheBuilder.newBuilder()
-                .maximumSize(plugin.getConfigManager().getLogCacheMaxSize())
-                .expireAfterAccess(plugin.getConfigManager().getLogCacheExpiryMinutes(), TimeUnit.MINUTES)
-                .build();
+        this.logCache = new PageCache(plugin.getConfigManager().getLogCacheMaxSize(), plugin.getConfigManager().getLogCacheExpiryMinutes());
+        this.hotTier = createHotTier();
+        this.deleter = new LogDeleter(plugin, backend, () -> saveQueue.size() == 0, logCache::invalidateAll);
     }
 
     public void initialize() {
-        createTableIfNotExists();
-        startSaveTask();
+        // Schema migrations can take minutes on a large table, so the storage opens off the main thread.
+        // Logs wait in the save queue or the journal until the writer starts, and reads wait for it too.
+        Thread opener = new Thread(() -> {
+            try {
+                backend.open();
+            } catch (StorageException e) {
+                plugin.getLogger().severe("Could not open the log storage: " + e.getMessage());
+            } finally {
+                writer.start();
+                deleter.start();
+                opened.complete(null);
+            }
+        }, "UltimateLogger-Open");
+        opener.setDaemon(true);
+        opener.start();
+        if (coalescer != null) {
+            coalescer.start();
+        }
         startCleanupTask();
     }
 
     public void shutdown() {
-        // Cancel the existing scheduled task if it's running
-        if (saveTask != null) {
-            saveTask.cancel();
-            saveTask = null;
+        try {
+            opened.get(30, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning("The log storage is still opening; logs that were not journaled will be lost.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+            // Never completed exceptionally
+        }
+        deleter.stop();
+        if (coalescer != null) {
+            coalescer.shutdown(); // Emit open groups while the writer is still running
+        }
+        // The writer saves any remaining logs in the queue before it exits
+        writer.stop(TimeUnit.SECONDS.toMillis(30));
+        saveQueue.close();
+        if (journal != null) {
+            journal.close();
         }
+        idGenerator.close();
+        backend.close();
+    }
 
-        // Process any remaining logs in the queue
-        if (!saveQueue.isEmpty()) {
-            List<LogDataTuple> batch = new ArrayList<>();
-            saveQueue.addAll(batch);
-            if (!batch.isEmpty()) {
-                try {
-                    saveBatch(batch);
-                } catch (Exception e) {
-                    plugin.getLogger().warning("Failed to save final batch of logs during shutdown: " + e.getMessage());
-                }
-            }
+    private StorageBackend createBackend(DatabaseManager dbManager) {
+        String type = plugin.getConfigManager().getDatabaseType();
+        if (type.equals("MEMORY")) {
+            plugin.getLogger().warning("Logs are only kept in memory and will be lost when the server stops.");
+            return new MemoryStorageBackend(plugin.getConfigManager().getMemoryMaxLogs());
+        }
+        if (type.equals("SEGMENTS")) {
+            return new SegmentStorageBackend(plugin, this::parseData);
+        }
+        return new SqlStorageBackend(plugin, dbManager, this::parseData);
+    }
+
+    private HotTier createHotTier() {
+        ConfigManager config = plugin.getConfigManager();
+        if (!config.isHotTierEnabled() || backend instanceof MemoryStorageBackend) return null; // Already in memory
+        if (config.getDatabaseType().equals("MYSQL")) {
+            // Other servers may write to the same database, and their logs would be missing from the first pages
+            plugin.getLogger().warning("The hot tier is not used with MySQL, as other servers may write to the same database.");
+            return null;
+        }
+        // Databases compare text with their own collation, so only the file backends match text like the tier
+        return new HotTier(config.getHotTierLogsPerType(), config.getHotTierMaxMemoryMb() * 1024L * 1024L,
+                !(backend instanceof SqlStorageBackend));
+    }
+
+    private LogIdGenerator createIdGenerator() {
+        ConfigManager config = plugin.getConfigManager();
+        File directory = new File(plugin.getDataFolder(), config.getJournalDirectory());
+        if (!directory.exists() && !directory.mkdirs()) {
+            plugin.getLogger().warning("Could not create " + directory + ", log IDs may repeat if the clock is set back across a restart.");
+            return new LogIdGenerator(config.getLogServerId());
+        }
+        return new LogIdGenerator(config.getLogServerId(), new File(directory, ID_HIGH_WATER_FILE), plugin.getLogger());
+    }
+
+    private LogJournal openJournal() {
+        if (plugin.getConfigManager().getJournalDurability() == LogJournal.Durability.NONE) {
+            return null;
+        }
+        LogJournal journal = new LogJournal(plugin, this::replayTuple);
+        try {
+            journal.open();
+            return journal;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open the log journal, logs will only be kept in memory until saved!");
+            e.printStackTrace();
+            return null;
         }
     }
 
     /**
-     * Dynamically registers a listener for a given LogDefinition.
+     * Registers a LogDefinition. All definitions for the same event class share one listener.
      */
     public <T extends Event> void registerLogDefinition(LogDefinition<T> definition) {
         if (disabledLogTypes.contains(definition.getId())) {
@@ -100,66 +219,111 @@ public class LogManager {
         }
 
         if (definition.getEventClass() != null) {
-            plugin.getServer().getPluginManager().registerEvent(
-                    definition.getEventClass(),
-                    new Listener() {}, // Empty listener object
-                    EventPriority.MONITOR, // Use MONITOR to read event data after other plugins are done
-                    (listener, event) -> {
-                        // Make sure the event is of the correct type and should be logged
-                        if (definition.getEventClass().isInstance(event) && definition.shouldLog((T) event)) {
-                            LogData data = definition.captureData((T) event);
-                            queueLog(definition.getId(), data);
-                        }
-                    },
-                    plugin
-            );
+            getDispatcher(definition.getEventClass(), definition.ignoreCancelled()).add(definition);
         }
 
         logDefinitionMap.put(definition.getId(), definition);
+        backend.registerLogType(definition);
         plugin.getLogger().info("Registered listener for LogDefinition: " + definition.getId());
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends Event> LogEventDispatcher<T> getDispatcher(Class<T> eventClass, boolean ignoreCancelled) {
+        return (LogEventDispatcher<T>) dispatchers.computeIfAbsent(new DispatcherKey(eventClass, ignoreCancelled), key -> {
+            LogEventDispatcher<T> dispatcher = new LogEventDispatcher<>(plugin, eventClass, this::queueLog);
+            plugin.getServer().getPluginManager().registerEvent(
+                    eventClass,
+                    dispatcher,
+                    EventPriority.MONITOR, // Use MONITOR to read event data after other plugins are done
+                    dispatcher,
+                    plugin,
+                    ignoreCancelled
+            );
+            return dispatcher;
+        });
+    }
+
     private void queueLog(String logType, LogData data) {
-        LogQueuedEvent event = new LogQueuedEvent(logType, data);
-        Bukkit.getScheduler().runTask(plugin, () -> {
+        if (admission != null && !admission.admit(logType, data)) {
+            return; // Shed under load
+        }
+
+        // IDs are assigned at capture time so inserts never need generated keys
+        data.setId(idGenerator.nextId());
+        long timestamp = System.currentTimeMillis();
+
+        // Fired inline on the capturing thread, and only if someone is listening
+        if (LogQueuedEvent.getHandlerList().getRegisteredListeners().length > 0) {
+            LogQueuedEvent event = new LogQueuedEvent(logType, data, !Bukkit.isPrimaryThread());
             Bukkit.getPluginManager().callEvent(event);
-        });
-        if (event.isCancelled()) return;
-
-        if (dbManager != null && dbManager.isOperational()) {
-            saveQueue.add(new LogDataTuple(logType, data, logID -> {
-                List<ConfigManager.WebhookConfig> configs = webhookConfigs.get(logType);
-                if (configs != null) {
-                    for (ConfigManager.WebhookConfig config : configs) {
-                        data.setId(logID);
-                        webhookManager.sendWebhook(
-                                config.url(),
-                                logType,
-                                data,
-                                config.conditions()
-                        );
-                    }
-                }
-            }));
+            if (event.isCancelled()) return;
         }
+
+        if (coalescer != null && coalescer.absorb(logType, data, timestamp)) {
+            return; // Saved later as part of a merged log
+        }
+        enqueue(logType, data, timestamp);
     }
 
-    private void startSaveTask() {
-        this.saveTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                // Process the queue in batches to be efficient
-                List<LogDataTuple> batch = new ArrayList<>();
-                int batchSize = plugin.getConfigManager().getLogBatchSize();
-                while (!saveQueue.isEmpty() && batch.size() < batchSize) { // Process up to configured batch size
-                    batch.add(saveQueue.poll());
-                }
+    /**
+     * Journals and queues a log for the writer.
+     */
+    private void enqueue(String logType, LogData data, long timestamp) {
+        // Logs are queued even while the database is down; the writer retries once it is back
+        long ticket = LogJournal.NOT_JOURNALED;
+        if (journal != null) {
+            ticket = journal.append(logType, data.getId(), timestamp, data.toJson());
+            if (ticket == LogJournal.IN_BACKLOG) {
+                return; // The writer replays it from the journal
+            }
+        }
 
-                if (!batch.isEmpty()) {
-                    saveBatch(batch);
+        LogDataTuple tuple = createTuple(logType, data, timestamp, ticket);
+        if (ticket >= 0) {
+            // Already on disk, so a full queue just means the writer catches up from the journal
+            if (!saveQueue.tryOffer(tuple)) {
+                journal.enterBacklog();
+            }
+            writer.onLogQueued();
+        } else if (saveQueue.offer(tuple)) {
+            writer.onLogQueued();
+        }
+    }
+
+    /**
+     * @return How full the save queue is, from 0 to 1. A journal backlog counts as full.
+     */
+    private double getQueueLoad() {
+        if (journal != null && journal.isInBacklog()) return 1;
+        return (double) saveQueue.size() / saveQueue.capacity();
+    }
+
+    private LogDataTuple restoreTuple(String logType, long id, long timestamp, String json) {
+        LogData data = parseData(logType, json);
+        data.setId(id);
+        return createTuple(logType, data, timestamp, LogJournal.NOT_JOURNALED);
+    }
+
+    private LogDataTuple replayTuple(String logType, long id, long timestamp, String json) {
+        LogData data = parseData(logType, json);
+        data.setId(id);
+        return createTuple(logType, data, timestamp, LogJournal.REPLAYED);
+    }
+
+    private LogDataTuple createTuple(String logType, LogData data, long timestamp, long journalTicket) {
+        return new LogDataTuple(logType, data, timestamp, journalTicket, logID -> {
+            List<ConfigManager.WebhookConfig> configs = webhookConfigs.get(logType);
+            if (configs != null) {
+                for (ConfigManager.WebhookConfig config : configs) {
+                    webhookManager.sendWebhook(
+                            config.url(),
+                            logType,
+                            data,
+                            config.conditions()
+                    );
                 }
             }
-        }.runTaskTimerAsynchronously(plugin, plugin.getConfigManager().getLogBatchInterval(), plugin.getConfigManager().getLogBatchInterval()); // Run at configured interval
+        });
     }
 
     private void startCleanupTask() {
@@ -180,297 +344,172 @@ public class LogManager {
     }
 
     /**
-     * Asynchronously deletes all logs that are not archived and have expired.
+     * Deletes all logs that are not archived and have expired, in the background.
      * @return A CompletableFuture that completes when the deletion is done.
      */
     public CompletableFuture<Integer> cleanDatabase() {
-        plugin.getLogger().info("Running log cleanup task...");
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "DELETE FROM ultimate_logs WHERE is_archived = ? AND expires_at < ?";
-            try (Connection conn = dbManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-                pstmt.setBoolean(1, false);
-                pstmt.setLong(2, Instant.now().toEpochMilli());
-                int deletedRows = pstmt.executeUpdate();
-
-                if (deletedRows > 0) {
-                    plugin.getLogger().info("Cleaned up and deleted " + deletedRows + " expired logs.");
-                    logCache.invalidateAll();
-                }
+        LogDeleter.Job previous = cleanupJob;
+        if (previous != null && !previous.getResult().isDone()) {
+            return previous.getResult(); // Still deleting since the last run
+        }
 
-                return deletedRows;
-            } catch (SQLException e) {
-                e.printStackTrace();
-                return 0;
+        plugin.getLogger().info("Running log cleanup task...");
+        LogDeleter.Job job = deleter.submit("log cleanup", progress -> {
+            long now = System.currentTimeMillis();
+            int retentionDays = plugin.getConfigManager().getRetentionPeriodDays();
+            if (hotTier != null && retentionDays > 0) {
+                hotTier.expire(now - TimeUnit.DAYS.toMillis(retentionDays));
+            }
+            return backend.expire(now, progress);
+        }, null);
+        cleanupJob = job;
+        return job.getResult().thenApply(deletedRows -> {
+            if (deletedRows > 0) {
+                plugin.getLogger().info("Cleaned up and deleted " + deletedRows + " expired logs.");
             }
+            return deletedRows;
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            return 0;
         });
     }
 
     /**
-     * Clears logs matching the specified filter and conditions.
+     * Clears logs matching the specified filter and conditions, in chunks in the background.
      * @param filter The log type filter
      * @param conditions Additional filter conditions
-     * @return A CompletableFuture with the number of logs deleted
+     * @param progressListener Called every few seconds with the running job, or null
+     * @return The deletion, which can be cancelled and completes with the number of logs deleted
+     * @throws IllegalArgumentException If a condition cannot be filtered on, see {@link #createFilter}.
      */
-    public CompletableFuture<Integer> clearLogs(String filter, List<FilterCondition> conditions) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Object> params = new ArrayList<>();
-            StringBuilder sqlBuilder = new StringBuilder("DELETE FROM ultimate_logs WHERE ");
-
-            if (filter != null && !filter.isEmpty()) {
-                sqlBuilder.append("log_type = ? ");
-                params.add(filter);
-            } else {
-                sqlBuilder.append("1=1 ");
-            }
-
-            if (conditions != null && !conditions.isEmpty()) {
-                for (FilterCondition condition : conditions) {
-                    String key = condition.key();
-                    String comparator = condition.comparator();
-                    Object value = condition.value();
-
-                    switch (comparator) {
-                        case "=" -> sqlBuilder.append("AND json_extract(data, '$.").append(key).append("') = ? ");
-                        case "!=" -> sqlBuilder.append("AND json_extract(data, '$.").append(key).append("') != ? ");
-                        case ">" -> sqlBuilder.append("AND CAST(json_extract(data, '$.").append(key).append("') AS NUMERIC) > ? ");
-                        case "<" -> sqlBuilder.append("AND CAST(json_extract(data, '$.").append(key).append("') AS NUMERIC) < ? ");
-                        case ">=" -> sqlBuilder.append("AND CAST(json_extract(data, '$.").append(key).append("') AS NUMERIC) >= ? ");
-                        case "<=" -> sqlBuilder.append("AND CAST(json_extract(data, '$.").append(key).append("') AS NUMERIC) <= ? ");
-                        case "startswith" -> {
-                            sqlBuilder.append("AND json_extract(data, '$.").append(key).append("') LIKE ? ");
-                            value = value.toString() + "%";
-                        }
-                        case "endswith" -> {
-                            sqlBuilder.append("AND json_extract(data, '$.").append(key).append("') LIKE ? ");
-                            value = "%" + value.toString();
-                        }
-                        case "contains" -> {
-                            sqlBuilder.append("AND json_extract(data, '$.").append(key).append("') LIKE ? ");
-                            value = "%" + value.toString() + "%";
-                        }
-                        default -> {
-                            continue;
-                        }
-                    }
-                    params.add(value);
+    public LogDeleter.Job clearLogs(String filter, List<FilterCondition> conditions, Consumer<LogDeleter.Job> progressListener) {
+        LogFilter logFilter = createFilter(filter, conditions);
+        List<FilterCondition> filters = logFilter.getConditions();
+
+        LogDeleter.Job job = deleter.submit("clear of " + filter, progress -> {
+            try {
+                return backend.delete(logFilter.getLogType(), filters, progress);
+            } finally {
+                if (hotTier != null) {
+                    hotTier.clear();
                 }
             }
+        }, progressListener);
+        job.getResult().thenAccept(deletedCount -> plugin.getLogger().info("Cleared " + deletedCount + " logs with filter: " +
+                filter + " and " + filters.size() + " conditions."));
+        return job;
+    }
 
-            try (Connection conn = dbManager.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
-
-                // Set parameters
-                for (int i = 0; i < params.size(); i++) {
-                    pstmt.setObject(i + 1, params.get(i));
-                }
+    /**
+     * Checks a filter against the registered log types and puts it in canonical form.
+     * @param filter The log type, or null or blank for every type.
+     * @throws IllegalArgumentException If a condition cannot be filtered on, with a message for the user.
+     */
+    public LogFilter createFilter(String filter, List<FilterCondition> conditions) {
+        return LogFilter.of(filter, conditions, logDefinitionMap);
+    }
 
-                int deletedCount = pstmt.executeUpdate();
+    /**
+     * Lets listeners enrich or skip a batch on the writer thread before it is saved.
+     * @return The logs that should still be saved.
+     */
+    private List<LogDataTuple> fireBatchEvent(List<LogDataTuple> batch) {
+        if (AsyncLogBatchSaveEvent.getHandlerList().getRegisteredListeners().length == 0) {
+            return batch;
+        }
 
-                // Invalidate cache since data has changed
-                logCache.invalidateAll();
+        List<LogEntry> entries = new ArrayList<>(batch.size());
+        Map<LogEntry, LogDataTuple> tuplesByEntry = new IdentityHashMap<>(batch.size());
+        for (LogDataTuple tuple : batch) {
+            LogEntry entry = new LogEntry(tuple.data().getId(), tuple.logType(), Instant.ofEpochMilli(tuple.timestamp()), false, tuple.data());
+            entries.add(entry);
+            tuplesByEntry.put(entry, tuple);
+        }
 
-                plugin.getLogger().info("Cleared " + deletedCount + " logs with filter: " +
-                        filter + " and " + conditions.size() + " conditions.");
+        AsyncLogBatchSaveEvent event = new AsyncLogBatchSaveEvent(entries);
+        Bukkit.getPluginManager().callEvent(event);
+        if (event.isCancelled()) {
+            return new ArrayList<>();
+        }
 
-                return deletedCount;
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Error clearing logs: " + e.getMessage());
-                e.printStackTrace();
-                throw new RuntimeException("Failed to clear logs", e);
-            }
-        });
+        List<LogDataTuple> kept = new ArrayList<>(entries.size());
+        for (LogEntry entry : event.getLogs()) {
+            LogDataTuple tuple = tuplesByEntry.remove(entry);
+            if (tuple != null) kept.add(tuple);
+        }
+        return kept;
     }
 
-    private void saveBatch(List<LogDataTuple> batch) {
-        final String sql = "INSERT INTO ultimate_logs (log_type, timestamp, is_archived, expires_at, data) VALUES (?, ?, ?, ?, ?)";
-
-        long now = Instant.now().toEpochMilli();
+    private boolean saveBatch(List<LogDataTuple> batch) {
         long retentionMillis = TimeUnit.DAYS.toMillis(plugin.getConfigManager().getRetentionPeriodDays());
 
-        try (Connection conn = dbManager.getConnection()) {
-            int successCount = 0;
-
-            for (LogDataTuple tuple : batch) {
-                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                    pstmt.setString(1, tuple.logType());
-                    pstmt.setLong(2, now);
-                    pstmt.setBoolean(3, false);
+        List<LogEntry> logs = new ArrayList<>(batch.size());
+        for (LogDataTuple tuple : batch) {
+            logs.add(new LogEntry(tuple.data().getId(), tuple.logType(), Instant.ofEpochMilli(tuple.timestamp()), false, tuple.data()));
+        }
 
-                    if (retentionMillis > 0) {
-                        pstmt.setLong(4, now + retentionMillis);
-                    } else {
-                        pstmt.setNull(4, Types.BIGINT);
-                    }
+        boolean[] inserted;
+        try {
+            inserted = backend.write(logs, retentionMillis);
+        } catch (StorageException e) {
+            plugin.getLogger().severe(e.getMessage());
+            return false;
+        }
 
-                    pstmt.setString(5, tuple.data().toJson());
-                    pstmt.executeUpdate(); // Execute single update
-
-                    // Get the generated ID
-                    ResultSet rs = pstmt.getGeneratedKeys();
-                    if (rs.next()) {
-                        long id = rs.getLong(1);
-                        Consumer<Long> callback = tuple.onSaveComplete();
-                        if (callback != null) {
-                            callback.accept(id);
-                            successCount++;
-                        }
-                    }
-                }
+        if (hotTier != null) {
+            hotTier.add(logs);
+        }
+        logCache.onAppend(logs);
+
+        // Only notify once the whole batch is safely committed, and not for logs that were already saved
+        int skipped = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            LogDataTuple tuple = batch.get(i);
+            if (!inserted[i]) {
+                // Replayed logs may have been committed before, but new ones should never be
+                if (tuple.journalTicket() != LogJournal.REPLAYED) skipped++;
+                continue;
             }
-
-            logCache.invalidateAll();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not save log batch to the database!");
-            e.printStackTrace();
+            Consumer<Long> callback = tuple.onSaveComplete();
+            if (callback != null) {
+                callback.accept(tuple.data().getId());
+            }
+        }
+        if (skipped > 0) {
+            plugin.getLogger().warning(skipped + " new log(s) were not saved, most likely because logs with the same ID already exist. Was the server clock set back?");
         }
+        return true;
     }
 
     /**
-     * Asynchronously fetches a page of logs. Checks cache first.
+     * Asynchronously fetches the page of logs past the cursor. Checks cache first.
+     * @param cursor {@link LogCursor#FIRST}, or a cursor from a previous {@link LogPage}.
      */
-    public CompletableFuture<List<LogEntry>> getLogsPage(int page, int pageSize, String filter, List<FilterCondition> advancedFilters) {
-        int internalPage = Math.max(0, page - 1);
-        CacheKey key = new CacheKey(internalPage, filter, advancedFilters);
+    public CompletableFuture<LogPage> getLogsPage(LogCursor cursor, int pageSize, String filter, List<FilterCondition> advancedFilters) {
+        LogFilter logFilter;
+        try {
+            logFilter = createFilter(filter, advancedFilters);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        PageCache.Key key = new PageCache.Key(cursor, pageSize, logFilter);
 
-        List<LogEntry> cachedPage = logCache.getIfPresent(key);
+        LogPage cachedPage = logCache.get(key);
         if (cachedPage != null) {
             return CompletableFuture.completedFuture(cachedPage);
         }
 
-        final CompletableFuture<List<LogEntry>> future = new CompletableFuture<>();
+        final CompletableFuture<LogPage> future = new CompletableFuture<>();
 
         new BukkitRunnable() {
             @Override
             public void run() {
-                List<LogEntry> logs = new ArrayList<>();
-                List<Object> params = new ArrayList<>();
-
-                // **FIX 1: Update the SELECT statement to include the new 'is_archived' column**
-                StringBuilder sqlBuilder = new StringBuilder("SELECT id, log_type, timestamp, is_archived, data FROM ultimate_logs ");
-
-                if (filter != null && !filter.trim().isEmpty()) {
-                    sqlBuilder.append("WHERE log_type = ? ");
-                    params.add(filter);
-                } else {
-                    sqlBuilder.append("WHERE 1=1 "); // Start a WHERE clause if there's no type filter
-                }
-
-                if (advancedFilters != null) {
-                    for (FilterCondition condition : advancedFilters) {
-                        String keyName = condition.key();
-                        String comparator = condition.comparator();
-                        Object value = condition.value();
-
-                        // Special handling for timestamp filter (stored in its own column)
-                        if ("timestamp".equalsIgnoreCase(keyName)) {
-                            String cmp = comparator;
-                            if ("between".equalsIgnoreCase(cmp)) {
-                                // Expect value to be a range: long[]{start, end} or List/Collection with two numbers
-                                Long start = null;
-                                Long end = null;
-
-                                if (value instanceof long[] arr && arr.length >= 2) {
-                                    start = arr[0];
-                                    end = arr[1];
-                                } else if (value instanceof Long[] arr2 && arr2.length >= 2) {
-                                    start = arr2[0];
-                                    end = arr2[1];
-                                } else if (value instanceof List<?> list && list.size() >= 2) {
-                                    try { start = Long.parseLong(String.valueOf(list.get(0))); } catch (Exception ignored) {}
-                                    try { end = Long.parseLong(String.valueOf(list.get(1))); } catch (Exception ignored) {}
-                                } else if (value instanceof String s && s.contains(",")) {
-                                    String[] parts = s.split(",");
-                                    if (parts.length >= 2) {
-                                        try { start = Long.parseLong(parts[0].trim()); } catch (Exception ignored) {}
-                                        try { end = Long.parseLong(parts[1].trim()); } catch (Exception ignored) {}
-                                    }
-                                }
-
-                                if (start != null && end != null) {
-                                    long min = Math.min(start, end);
-                                    long max = Math.max(start, end);
-                                    sqlBuilder.append("AND timestamp BETWEEN ? AND ? ");
-                                    params.add(min);
-                                    params.add(max);
-                                }
-                                continue;
-                            }
-
-                            if ("before".equalsIgnoreCase(cmp)) cmp = "<";
-                            if ("after".equalsIgnoreCase(cmp)) cmp = ">";
-                            if (List.of("=", "!=", ">", "<", ">=", "<=").contains(cmp)) {
-                                sqlBuilder.append("AND timestamp " + cmp + " ? ");
-                                // Ensure numeric value
-                                if (value instanceof Number) {
-                                    params.add(((Number) value).longValue());
-                                } else {
-                                    try {
-                                        params.add(Long.parseLong(String.valueOf(value)));
-                                    } catch (NumberFormatException ex) {
-                                        // Skip invalid timestamp value
-                                    }
-                                }
-                            }
-                            continue; // Done with this condition
-                        }
-
-                        // Default: JSON field condition
-                        if (List.of("=", "!=", ">", "<", ">=", "<=").contains(comparator)) {
-                            sqlBuilder.append(String.format("AND json_extract(data, '$.%s') %s ? ", keyName, comparator));
-                            params.add(value);
-                        } else if ("startswith".equalsIgnoreCase(comparator)) {
-                            sqlBuilder.append(String.format("AND json_extract(data, '$.%s') LIKE ? ", keyName));
-                            params.add(value + "%");
-                        } else if ("endswith".equalsIgnoreCase(comparator)) {
-                            sqlBuilder.append(String.format("AND json_extract(data, '$.%s') LIKE ? ", keyName));
-                            params.add("%" + value);
-                        } else if ("contains".equalsIgnoreCase(comparator)) {
-                            sqlBuilder.append(String.format("AND json_extract(data, '$.%s') LIKE ? ", keyName));
-                            params.add("%" + value + "%");
-                        }
-                    }
-                }
-
-                // This part of the query building is fine
-                sqlBuilder.append("ORDER BY id DESC LIMIT ? OFFSET ?");
-                int offset = (page - 1) * pageSize;
-                String finalSql = sqlBuilder.toString().replace("LIMIT ? OFFSET ?", "LIMIT " + pageSize + " OFFSET " + offset);
-                // We revert to string formatting for LIMIT/OFFSET due to JDBC limitations.
-
-                try (Connection conn = dbManager.getConnection(); PreparedStatement pstmt = conn.prepareStatement(finalSql)) {
-                    // Set only the parameters for the WHERE clauses
-                    for (int i = 0; i < params.size(); i++) {
-                        pstmt.setObject(i + 1, params.get(i));
-                    }
-
-                    ResultSet rs = pstmt.executeQuery();
-
-                    while (rs.next()) {
-                        String jsonString = rs.getString("data");
-                        LogData data = new LogData();
-                        try {
-                            Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
-                            Map<String, Object> parsedMap = GSON.fromJson(jsonString, mapType);
-                            if (parsedMap != null) parsedMap.forEach(data::put);
-                        } catch (Exception e) {
-                            data.put("parsing_failed", "true");
-                        }
-
-                        // **FIX 2: Call the new LogEntry constructor with all 5 parameters**
-                        logs.add(new LogEntry(
-                                rs.getLong("id"),
-                                rs.getString("log_type"),
-                                Instant.ofEpochMilli(rs.getLong("timestamp")),
-                                rs.getBoolean("is_archived"), // Provide the new value
-                                data
-                        ));
-                    }
-
-                    logCache.put(key, logs);
-                    future.complete(logs);
-                } catch (SQLException e) {
+                long version = logCache.version();
+                try {
+                    LogPage page = readPage(logFilter.getLogType(), logFilter.getConditions(), cursor, pageSize);
+                    logCache.put(key, page, version);
+                    future.complete(page);
+                } catch (StorageException e) {
                     plugin.getLogger().severe("Failed to load logs from database:");
                     e.printStackTrace();
                     future.completeExceptionally(e);
@@ -481,34 +520,98 @@ public class LogManager {
         return future;
     }
 
-    private void createTableIfNotExists() {
-        boolean isMySql = dbManager.getDataSource().getJdbcUrl().contains("mysql");
-        String sql;
-
-        if (isMySql) {
-            sql = "CREATE TABLE IF NOT EXISTS ultimate_logs (" +
-                    "id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
-                    "log_type VARCHAR(255) NOT NULL, " +
-                    "timestamp BIGINT NOT NULL, " +
-                    "is_archived BOOLEAN NOT NULL DEFAULT FALSE, " +
-                    "expires_at BIGINT, " +
-                    "data JSON NOT NULL);";
-        } else {
-            sql = "CREATE TABLE IF NOT EXISTS ultimate_logs (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "log_type TEXT NOT NULL, " +
-                    "timestamp INTEGER NOT NULL, " +
-                    "is_archived INTEGER NOT NULL DEFAULT 0, " +
-                    "expires_at INTEGER, " +
-                    "data TEXT NOT NULL);";
-        }
-
-        try (Connection conn = dbManager.getConnection(); Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Could not create 'ultimate_logs' table!");
-            e.printStackTrace();
+    private LogPage readPage(String logType, List<FilterCondition> filters, LogCursor cursor, int pageSize) throws StorageException {
+        // One log more than the page tells whether another page follows
+        List<LogEntry> logs = query(logType, filters, cursor, pageSize + 1);
+        boolean more = logs.size() > pageSize;
+        if (more) logs.remove(pageSize);
+
+        if (!cursor.isOlder()) {
+            // Back at the newest logs, which are read as the first page so that it is full
+            if (!more) return readPage(logType, filters, LogCursor.FIRST, pageSize);
+            Collections.reverse(logs);
+            return new LogPage(logs, LogCursor.olderThan(logs.get(logs.size() - 1).getId()), LogCursor.newerThan(logs.get(0).getId()));
+        }
+
+        LogCursor older = more ? LogCursor.olderThan(logs.get(logs.size() - 1).getId()) : null;
+        LogCursor newer = null;
+        if (!cursor.equals(LogCursor.FIRST)) {
+            // An empty page leads back to the page ending with the cursor's log
+            newer = LogCursor.newerThan(logs.isEmpty() ? cursor.id() - 1 : logs.get(0).getId());
+        }
+        return new LogPage(logs, older, newer);
+    }
+
+    /**
+     * @return The backend, after waiting for it to open. Only called off the main thread.
+     */
+    private StorageBackend openedBackend() {
+        opened.join();
+        return backend;
+    }
+
+    private List<LogEntry> query(String logType, List<FilterCondition> filters, LogCursor cursor, int limit) throws StorageException {
+        List<LogEntry> recent = hotTier != null ? hotTier.query(logType, filters, cursor, limit) : null;
+        return new ArrayList<>(recent != null ? recent : openedBackend().query(logType, filters, cursor, limit));
+    }
+
+    /**
+     * Asynchronously counts the logs the filter selects. Without value conditions the count comes from the
+     * backend's counters, exactly unless a time range cuts through a day. With value conditions, the share
+     * of the newest {@value #SAMPLE_SIZE} logs in the time range that match is applied to that count.
+     * @return The count, or null if the backend does not keep counters.
+     */
+    public CompletableFuture<LogTotal> countLogs(String filter, List<FilterCondition> advancedFilters) {
+        LogFilter logFilter;
+        try {
+            logFilter = createFilter(filter, advancedFilters);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
         }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                LogCounts counts = openedBackend().counts();
+                if (counts == null) return null;
+
+                List<FilterCondition> conditions = logFilter.getConditions();
+                long[] range = LogTable.timeRange(conditions);
+                boolean allTime = range[0] == Long.MIN_VALUE && range[1] == Long.MAX_VALUE;
+                double inRange = allTime ? counts.total(logFilter.getLogType()) : counts.estimate(logFilter.getLogType(), range[0], range[1]);
+
+                List<FilterCondition> timeConditions = new ArrayList<>();
+                for (FilterCondition condition : conditions) {
+                    if (condition.key().equals("timestamp") && !condition.comparator().equals("!=")) timeConditions.add(condition);
+                }
+                if (timeConditions.size() == conditions.size()) {
+                    return new LogTotal(Math.round(inRange), allTime);
+                }
+
+                Sample sample = samples.getIfPresent(logFilter);
+                if (sample == null) {
+                    List<LogEntry> logs = query(logFilter.getLogType(), timeConditions, LogCursor.FIRST, SAMPLE_SIZE);
+                    int matched = 0;
+                    for (LogEntry log : logs) {
+                        if (MemoryStorageBackend.matches(log.getData(), log.getTimestamp().toEpochMilli(), conditions)) matched++;
+                    }
+                    sample = new Sample(logs.size(), matched);
+                    samples.put(logFilter, sample);
+                }
+                // A sample smaller than asked for holds every log in the range
+                if (sample.size() < SAMPLE_SIZE) return new LogTotal(sample.matched(), false);
+                return new LogTotal(Math.round(inRange * sample.matched() / sample.size()), false);
+            } catch (StorageException e) {
+                plugin.getLogger().severe("Failed to count logs: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * @return The number of stored logs per type, day and archived flag, or null if the backend does not count them.
+     */
+    public LogCounts getLogCounts() throws StorageException {
+        return openedBackend().counts();
     }
 
     /**
@@ -518,60 +621,29 @@ public class LogManager {
      */
     public CompletableFuture<Optional<LogEntry>> getLogById(long logId) {
         return CompletableFuture.supplyAsync(() -> {
-            // Select all columns for the specific log ID
-            String sql = "SELECT * FROM ultimate_logs WHERE id = ?";
-            try (Connection conn = dbManager.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setLong(1, logId);
-                ResultSet rs = pstmt.executeQuery();
-
-                // Use if, as we only expect one result
-                if (rs.next()) {
-                    // This is the complete parsing logic
-                    String jsonString = rs.getString("data");
-                    LogData data = new LogData();
-                    try {
-                        Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
-                        Map<String, Object> parsedMap = GSON.fromJson(jsonString, mapType);
-                        if (parsedMap != null) parsedMap.forEach(data::put);
-                    } catch (Exception e) {
-                        data.put("parsing_failed", "true");
-                    }
-
-                    // Construct the LogEntry with all 5 required parameters
-                    LogEntry entry = new LogEntry(
-                            rs.getLong("id"),
-                            rs.getString("log_type"),
-                            Instant.ofEpochMilli(rs.getLong("timestamp")),
-                            rs.getBoolean("is_archived"), // Get the new boolean value
-                            data
-                    );
-                    return Optional.of(entry);
-                }
-            } catch (SQLException e) {
+            try {
+                Optional<LogEntry> recent = hotTier != null ? hotTier.get(logId) : Optional.empty();
+                return recent.isPresent() ? recent : openedBackend().get(logId);
+            } catch (StorageException e) {
                 plugin.getLogger().severe("Failed to load log by ID: " + logId);
                 e.printStackTrace();
+                // Return empty if an error occurred
+                return Optional.empty();
             }
-            // Return empty if not found or if an error occurred
-            return Optional.empty();
         });
     }
 
     public CompletableFuture<Void> setLogArchivedStatus(long logId, boolean archived) {
         return CompletableFuture.runAsync(() -> {
-            String sql = "UPDATE ultimate_logs SET is_archived = ?, expires_at = ? WHERE id = ?";
-            try (Connection conn = dbManager.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setBoolean(1, archived);
-                if (archived) {
-                    pstmt.setNull(2, Types.BIGINT); // Archived logs never expire
-                } else {
-                    // Reset the expiration timer from NOW
-                    long retentionMillis = TimeUnit.DAYS.toMillis(plugin.getConfigManager().getRetentionPeriodDays());
-                    pstmt.setLong(2, Instant.now().toEpochMilli() + retentionMillis);
+            try {
+                // Archived logs never expire; unarchived ones expire a full retention period from now
+                long retentionMillis = TimeUnit.DAYS.toMillis(plugin.getConfigManager().getRetentionPeriodDays());
+                openedBackend().setArchived(logId, archived, retentionMillis);
+                if (hotTier != null) {
+                    hotTier.setArchived(logId, archived);
                 }
-                pstmt.setLong(3, logId);
-                pstmt.executeUpdate();
-                logCache.invalidateAll(); // Invalidate cache since data changed
-            } catch (SQLException e) { e.printStackTrace(); }
+                logCache.onChange(logId); // Drop the pages showing the log
+            } catch (StorageException e) { e.printStackTrace(); }
         });
     }
 
@@ -582,13 +654,14 @@ public class LogManager {
      */
     public CompletableFuture<Boolean> deleteLogById(long logId) {
         return CompletableFuture.supplyAsync(() -> {
-            String sql = "DELETE FROM ultimate_logs WHERE id = ?";
-            try (Connection conn = dbManager.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setLong(1, logId);
-                int rowsAffected = pstmt.executeUpdate();
-                logCache.invalidateAll(); // Invalidate cache since data changed
-                return rowsAffected > 0; // Return true if at least one row was deleted
-            } catch (SQLException e) {
+            try {
+                boolean deleted = openedBackend().delete(logId);
+                if (hotTier != null) {
+                    hotTier.delete(logId);
+                }
+                logCache.onChange(logId); // Drop the pages showing the log
+                return deleted;
+            } catch (StorageException e) {
                 plugin.getLogger().severe("Failed to delete log with ID: " + logId);
                 e.printStackTrace();
                 return false;
@@ -596,6 +669,20 @@ public class LogManager {
         });
     }
 
+    private LogData parseData(String logType, String jsonString) {
+        // Parse into the definition's slots when it is known, so numbers get their declared type back
+        LogDefinition<?> definition = logDefinitionMap.get(logType);
+        LogData data = definition != null ? definition.newLogData() : new LogData();
+        try {
+            Type mapType = new TypeToken<Map<String, Object>>() {}.getType();
+            Map<String, Object> parsedMap = GSON.fromJson(jsonString, mapType);
+            if (parsedMap != null) parsedMap.forEach(data::put);
+        } catch (Exception e) {
+            data.put("parsing_failed", "true");
+        }
+        return data;
+    }
+
     public List<String> getDistinctLogTypes() {
         return logDefinitionMap.values().stream()
                 .map(LogDefinition::getId)
@@ -604,13 +691,104 @@ public class LogManager {
     }
 
     public int getSaveQueueSize() {
-        return saveQueue.size();
+        return writer.getPendingCount();
+    }
+
+    public int getWriterBatchSize() {
+        return writer.getBatchSize();
+    }
+
+    public long getLastCommitMillis() {
+        return writer.getLastCommitMillis();
+    }
+
+    public int getSaveQueueCapacity() {
+        return saveQueue.capacity();
+    }
+
+    public long getDroppedLogCount() {
+        return saveQueue.getDroppedCount();
+    }
+
+    public long getSpilledLogCount() {
+        return saveQueue.getSpilledCount();
+    }
+
+    /**
+     * @return The number of logs merged into other logs, or -1 if coalescing is disabled.
+     */
+    public long getCoalescedLogCount() {
+        return coalescer == null ? -1 : coalescer.getMergedCount();
+    }
+
+    /**
+     * @return The number of shed logs per type, empty if load shedding is disabled.
+     */
+    public Map<String, Long> getShedLogCounts() {
+        return admission == null ? Map.of() : admission.getShedCounts();
+    }
+
+    public CircuitBreaker.State getDatabaseState() {
+        return writer.getDatabaseState();
+    }
+
+    /**
+     * @return The number of journal segment files on disk, or -1 if the journal is disabled.
+     */
+    public int getJournalSegmentCount() {
+        return journal == null ? -1 : journal.getSegmentCount();
+    }
+
+    public boolean isReplayingJournal() {
+        return journal != null && journal.isInBacklog();
     }
 
     public long getCacheSize() {
         return logCache.size();
     }
 
+    /**
+     * @return Hits, misses and evictions of the page cache since startup.
+     */
+    public CacheStats getCacheStats() {
+        return logCache.stats();
+    }
+
+    /**
+     * @return The number of cached pages dropped because logs they could show changed.
+     */
+    public long getCacheDroppedPages() {
+        return logCache.getDroppedPages();
+    }
+
+    /**
+     * @return The number of recent logs kept in memory, or -1 if the hot tier is disabled.
+     */
+    public int getHotTierSize() {
+        return hotTier == null ? -1 : hotTier.size();
+    }
+
+    /**
+     * @return The estimated memory used by the hot tier, in bytes.
+     */
+    public long getHotTierBytes() {
+        return hotTier == null ? 0 : hotTier.getBytes();
+    }
+
+    /**
+     * @return The number of page reads answered from the hot tier.
+     */
+    public long getHotTierHits() {
+        return hotTier == null ? 0 : hotTier.getHits();
+    }
+
+    /**
+     * @return The number of page reads that asked the hot tier, answered or not.
+     */
+    public long getHotTierReads() {
+        return hotTier == null ? 0 : hotTier.getHits() + hotTier.getMisses();
+    }
+
     public LogDefinition<?> getLogDefinition(String id) {
         return logDefinitionMap.get(id);
     }
@@ -619,7 +797,15 @@ public class LogManager {
         logCache.invalidateAll();
     }
 
-    private record LogDataTuple(String logType, LogData data, Consumer<Long> onSaveComplete) {}
+    /**
+     * A log waiting to be saved.
+     * @param journalTicket The journal ticket to release once committed, {@link LogJournal#NOT_JOURNALED},
+     * or {@link LogJournal#REPLAYED} for logs read back from the journal.
+     */
+    record LogDataTuple(String logType, LogData data, long timestamp, long journalTicket, Consumer<Long> onSaveComplete) {}
+
+    private record Sample(int size, int matched) {}
+
+    private record DispatcherKey(Class<? extends Event> eventClass, boolean ignoreCancelled) {}
 
-    private record CacheKey(int page, String filter, List<FilterCondition> advancedFilters) {}
 }
@@ -0,0 +1,19 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A page of logs, newest first, with the cursors to the pages around it.
+ * @param older The cursor to the next page of older logs, or null if there are none.
+ * @param newer The cursor to the page of newer logs, or null if this is the first page.
+ */
+public record LogPage(List<LogEntry> logs, @Nullable LogCursor older, @Nullable LogCursor newer) {
+
+    public boolean isFirst() {
+        return newer == null;
+    }
+}
@@ -0,0 +1,282 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.utils.RingBuffer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded queue of logs waiting to be saved. When the ring buffer is full,
+ * the configured {@link OverflowPolicy} decides what happens to new logs.
+ */
+public class LogQueue {
+
+    public enum OverflowPolicy {
+        /** Reject the incoming log. Never blocks. */
+        DROP_NEWEST,
+        /** Evict the oldest queued log to make room for the incoming one. */
+        DROP_OLDEST,
+        /** Only keep a fraction of logs once the queue is nearly full. */
+        SAMPLE,
+        /** Append logs that do not fit to a file and read them back once there is room. */
+        SPILL
+    }
+
+    /**
+     * Rebuilds a queued log from the fields written to the spill file.
+     */
+    @FunctionalInterface
+    public interface Restorer {
+        LogManager.LogDataTuple restore(String logType, long id, long timestamp, String json);
+    }
+
+    // Once the queue is this full, the SAMPLE policy starts thinning out new logs
+    private static final double SAMPLE_THRESHOLD = 0.75;
+    private static final char SPILL_SEPARATOR = '\t';
+
+    private final UltimateLogger plugin;
+    private final RingBuffer<LogManager.LogDataTuple> buffer;
+    private final OverflowPolicy policy;
+    private final int sampleEvery;
+    private final File spillFile;
+    private final Restorer restorer;
+
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder spilledCount = new LongAdder();
+
+    private final Object spillLock = new Object();
+    private FileChannel spillChannel;
+    private BufferedWriter spillWriter;
+    private boolean spillDirty;
+    private volatile boolean hasSpilled;
+
+    public LogQueue(UltimateLogger plugin, Restorer restorer) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.buffer = new RingBuffer<>(config.getLogQueueCapacity());
+        this.policy = config.getLogQueueOverflowPolicy();
+        this.sampleEvery = Math.max(1, config.getLogQueueSampleEvery());
+        this.spillFile = new File(plugin.getDataFolder(), config.getLogQueueSpillFile());
+        this.restorer = restorer;
+        // Pick up anything spilled during the previous run
+        this.hasSpilled = spillFile.exists() && spillFile.length() > 0;
+    }
+
+    /**
+     * Adds a log to the queue, applying the overflow policy if the queue is full.
+     * @return true if the log was queued or spilled, false if it was dropped.
+     */
+    public boolean offer(LogManager.LogDataTuple tuple) {
+        switch (policy) {
+            case SAMPLE -> {
+                if (buffer.size() >= buffer.capacity() * SAMPLE_THRESHOLD
+                        && ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+                    droppedCount.increment();
+                    return false;
+                }
+                if (buffer.offer(tuple)) return true;
+            }
+            case DROP_OLDEST -> {
+                // A few attempts are enough; another producer may grab the freed slot first
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    if (buffer.offer(tuple)) return true;
+                    if (buffer.poll() != null) droppedCount.increment();
+                }
+            }
+            case SPILL -> {
+                if (buffer.offer(tuple)) return true;
+                if (spill(tuple)) return true;
+            }
+            default -> {
+                if (buffer.offer(tuple)) return true;
+            }
+        }
+        droppedCount.increment();
+        return false;
+    }
+
+    /**
+     * Adds a log only if there is room, without applying the overflow policy.
+     * Used for journaled logs, which are replayed from disk instead.
+     */
+    public boolean tryOffer(LogManager.LogDataTuple tuple) {
+        return buffer.offer(tuple);
+    }
+
+    /**
+     * Removes the oldest queued log. When the buffer runs dry, spilled logs are read back first.
+     */
+    public LogManager.LogDataTuple poll() {
+        LogManager.LogDataTuple tuple = buffer.poll();
+        if (tuple == null && hasSpilled) {
+            restoreSpilled();
+            tuple = buffer.poll();
+        }
+        return tuple;
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty() && !hasSpilled;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.sum();
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Writes logs spilled since the last call through to the disk, so a crash does not lose them.
+     * Called by the writer thread each time it wakes up, which ends a burst of spills.
+     */
+    public void syncSpill() {
+        FileChannel channel;
+        synchronized (spillLock) {
+            if (!spillDirty) return;
+            try {
+                spillWriter.flush();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not flush the spill file: " + e.getMessage());
+                return;
+            }
+            spillDirty = false;
+            channel = spillChannel;
+        }
+        // Producers can keep spilling while the disk syncs
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // A restore closed the file, which flushed it
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not sync the spill file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes and closes the spill file. Spilled logs stay on disk for the next start.
+     */
+    public void close() {
+        synchronized (spillLock) {
+            closeSpillWriter();
+        }
+    }
+
+    private boolean spill(LogManager.LogDataTuple tuple) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    spillWriter = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(spillChannel), StandardCharsets.UTF_8));
+                }
+                spillWriter.write(tuple.logType());
+                spillWriter.write(SPILL_SEPARATOR);
+                spillWriter.write(Long.toString(tuple.data().getId()));
+                spillWriter.write(SPILL_SEPARATOR);
+                spillWriter.write(Long.toString(tuple.timestamp()));
+                spillWriter.write(SPILL_SEPARATOR);
+                spillWriter.write(tuple.data().toJson());
+                spillWriter.newLine();
+                spillDirty = true;
+                hasSpilled = true;
+                spilledCount.increment();
+                return true;
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not spill log to " + spillFile.getName() + ": " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void restoreSpilled() {
+        synchronized (spillLock) {
+            if (!hasSpilled) return;
+            closeSpillWriter();
+
+            // Move the file aside so new spills during the replay go to a fresh file
+            File replayFile = new File(spillFile.getPath() + ".replay");
+            try {
+                Files.move(spillFile.toPath(), replayFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not read back spilled logs: " + e.getMessage());
+                return;
+            }
+            hasSpilled = false;
+
+            int restored = 0;
+            try (BufferedReader reader = Files.newBufferedReader(replayFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LogManager.LogDataTuple tuple = parseSpilledLine(line);
+                    if (tuple == null) continue; // Skip torn lines
+                    // Logs that still do not fit go back to the spill file, keeping their order
+                    if (!hasSpilled && buffer.offer(tuple)) {
+                        restored++;
+                    } else if (spill(tuple)) {
+                        spilledCount.decrement(); // It was already counted the first time
+                    } else {
+                        droppedCount.increment();
+                    }
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Error while reading back spilled logs: " + e.getMessage());
+            }
+
+            if (!replayFile.delete()) {
+                plugin.getLogger().warning("Could not delete " + replayFile.getName());
+            }
+            if (restored > 0) {
+                plugin.getLogger().info("Restored " + restored + " spilled logs into the save queue.");
+            }
+        }
+    }
+
+    private LogManager.LogDataTuple parseSpilledLine(String line) {
+        String[] parts = line.split(String.valueOf(SPILL_SEPARATOR), 4);
+        if (parts.length < 4 || parts[0].isEmpty()) return null;
+        try {
+            return restorer.restore(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) return;
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close the spill file: " + e.getMessage());
+        }
+        spillWriter = null;
+        spillChannel = null;
+        spillDirty = false;
+    }
+}
@@ -0,0 +1,751 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogDefinition;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.LogSchema;
+import ca.xef5000.ultimateLogger.api.ParameterType;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * A table logs are stored in. Either the shared {@code ultimate_logs} table, which keeps every value
+ * in its JSON {@code data} column, or a typed table for a single log type with one native column per
+ * filterable parameter. Values a typed table has no column for go to its JSON {@code extra} column.
+ * Player, world and material columns of a typed table hold ids from the {@link LogDictionary}; a player
+ * column also stands for the matching {@code *_name} key, which is kept as the player's last known name.
+ * The shared table's {@code data} column is written with a {@link PayloadCodec}, JSON by default.
+ */
+final class LogTable {
+
+    static final String SHARED_TABLE = "ultimate_logs";
+
+    private static final Gson GSON = new Gson();
+
+    // Table, column and JSON path names are put into SQL as-is, so only plain identifiers are allowed
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z][a-z0-9_]{0,47}");
+    private static final Pattern JSON_KEY = Pattern.compile("[A-Za-z0-9_]+");
+    private static final Set<String> RESERVED = Set.of("id", "log_type", "timestamp", "is_archived", "expires_at", "data", "extra");
+
+    private static final List<String> COMPARATORS = List.of("=", "!=", ">", "<", ">=", "<=");
+
+    // How far an ID's time may be from its log's timestamp
+    static final long ID_TIME_MARGIN_MILLIS = 60_000;
+    // Milliseconds covered by the 41 timestamp bits of an ID
+    private static final long MAX_ID_MILLIS = 1L << 41;
+
+    // MySQL can only index a prefix of TEXT columns
+    private static final int MYSQL_INDEX_PREFIX = 191;
+
+    /**
+     * @param dictionary The dictionary the column holds ids of, or null if it holds the values themselves.
+     * @param nameKey For player columns, the key of the player's name, or null.
+     */
+    private record Column(String key, ParameterType type, LogDictionary.Kind dictionary, String nameKey) {}
+
+    private final String name;
+    private final String logType; // null for the shared table
+    private final LogDictionary dictionary;
+    private final List<Column> columns;
+    private final Map<String, Column> columnsByKey = new LinkedHashMap<>();
+    private final Map<String, Column> columnsByNameKey = new LinkedHashMap<>();
+
+    // Shared table only: the codec new rows are written with (null for JSON), and every codec by ID
+    private final PayloadCodec writeCodec;
+    private final Map<Integer, PayloadCodec> codecs;
+
+    // Only holds logs with generated IDs, so a time range is also an ID range
+    private final boolean timeOrderedIds;
+
+    private LogTable(String name, String logType, LogDictionary dictionary, List<Column> columns,
+                     PayloadCodec writeCodec, Map<Integer, PayloadCodec> codecs, boolean timeOrderedIds) {
+        this.name = name;
+        this.logType = logType;
+        this.dictionary = dictionary;
+        this.columns = columns;
+        this.writeCodec = writeCodec;
+        this.codecs = codecs;
+        this.timeOrderedIds = timeOrderedIds;
+        for (Column column : columns) {
+            columnsByKey.put(column.key(), column);
+            if (column.nameKey() != null) columnsByNameKey.put(column.nameKey(), column);
+        }
+    }
+
+    /**
+     * Describes the shared table, used for every log type that has no typed table.
+     * @param writeCodec The codec new rows are written with, or null for JSON.
+     * @param codecs Every codec rows may have been written with, by ID.
+     */
+    static LogTable shared(LogDictionary dictionary, PayloadCodec writeCodec, Map<Integer, PayloadCodec> codecs) {
+        return new LogTable(SHARED_TABLE, null, dictionary, List.of(), writeCodec, codecs, false);
+    }
+
+    /**
+     * Describes a time partition of the shared table, with the same columns under another name.
+     */
+    LogTable partition(String partitionName) {
+        return new LogTable(partitionName, null, dictionary, List.of(), writeCodec, codecs, true);
+    }
+
+    /**
+     * Describes the typed table for a log definition, with a column for every schema key that is a plain identifier.
+     * @return The table, or null if the log type's ID cannot be used in a table name.
+     */
+    static LogTable typed(LogDefinition<?> definition, LogDictionary dictionary) {
+        if (!IDENTIFIER.matcher(definition.getId()).matches()) return null;
+
+        LogSchema schema = definition.getSchema();
+        List<Column> columns = new ArrayList<>(schema.size());
+        Set<String> nameKeys = new HashSet<>();
+        for (int slot = 0; slot < schema.size(); slot++) {
+            String key = schema.keyAt(slot);
+            if (!IDENTIFIER.matcher(key).matches() || RESERVED.contains(key)) continue;
+
+            LogDictionary.Kind kind = LogDictionary.kindOf(key, schema.typeAt(slot));
+            String nameKey = null;
+            if (kind == LogDictionary.Kind.PLAYER) {
+                // player_uuid pairs with player_name, killer_uuid with killer_name, ...
+                String candidate = key.substring(0, key.length() - "_uuid".length()) + "_name";
+                int nameSlot = schema.slotOf(candidate);
+                if (nameSlot >= 0 && schema.typeAt(nameSlot) == ParameterType.STRING) {
+                    nameKey = candidate;
+                    nameKeys.add(candidate);
+                }
+            }
+            columns.add(new Column(key, schema.typeAt(slot), kind, nameKey));
+        }
+        columns.removeIf(column -> nameKeys.contains(column.key()));
+        return new LogTable(SHARED_TABLE + "_" + definition.getId(), definition.getId(), dictionary, List.copyOf(columns), null, Map.of(), false);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isShared() {
+        return logType == null;
+    }
+
+    /**
+     * @return true if every ID in the table was generated at capture, so it starts with the capture time.
+     */
+    boolean hasTimeOrderedIds() {
+        return timeOrderedIds;
+    }
+
+    /**
+     * @return The log type stored in this table, or null for the shared table.
+     */
+    String getLogType() {
+        return logType;
+    }
+
+    /**
+     * Creates the table and its indexes if needed, and adds columns for parameters added since it was created.
+     */
+    void create(Connection conn, boolean mySql) throws SQLException {
+        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS ").append(name).append(" (")
+                .append(mySql ? "id BIGINT PRIMARY KEY, timestamp BIGINT NOT NULL, is_archived BOOLEAN NOT NULL DEFAULT FALSE, expires_at BIGINT"
+                        : "id INTEGER PRIMARY KEY, timestamp INTEGER NOT NULL, is_archived INTEGER NOT NULL DEFAULT 0, expires_at INTEGER");
+        for (Column column : columns) {
+            sql.append(", ").append(column.key()).append(' ').append(sqlType(column, mySql));
+        }
+        sql.append(", extra ").append(mySql ? "JSON" : "TEXT").append(')');
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql.toString());
+
+            Set<String> existing = getColumnNames(conn);
+            for (Column column : columns) {
+                if (existing.contains(column.key())) continue;
+                stmt.execute("ALTER TABLE " + name + " ADD COLUMN " + column.key() + ' ' + sqlType(column, mySql));
+            }
+
+            List<String> indexes = new ArrayList<>();
+            indexes.add(index("timestamp", "timestamp", mySql));
+            indexes.add(mySql ? index("expiry", "is_archived, expires_at", true)
+                    : index("expiry", "expires_at", false) + " WHERE is_archived = 0");
+            for (Column column : columns) {
+                String indexed = mySql && column.type() == ParameterType.STRING && column.dictionary() == null
+                        ? column.key() + "(" + MYSQL_INDEX_PREFIX + ")" : column.key();
+                indexes.add(index(column.key(), indexed, mySql));
+            }
+            for (String index : indexes) {
+                try {
+                    stmt.execute(index);
+                } catch (SQLException e) {
+                    if (!mySql || e.getErrorCode() != SchemaMigrator.MYSQL_DUPLICATE_KEY_NAME) throw e;
+                }
+            }
+        }
+    }
+
+    private String index(String suffix, String columnList, boolean mySql) {
+        // SQLite index names are global to the database, MySQL ones only to the table
+        return mySql
+                ? "ALTER TABLE " + name + " ADD INDEX idx_" + suffix + " (" + columnList + "), ALGORITHM=INPLACE, LOCK=NONE"
+                : "CREATE INDEX IF NOT EXISTS idx_" + name + "_" + suffix + " ON " + name + " (" + columnList + ")";
+    }
+
+    private Set<String> getColumnNames(Connection conn) throws SQLException {
+        Set<String> names = new HashSet<>();
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, name, null)) {
+            while (rs.next()) {
+                names.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+
+    private static String sqlType(Column column, boolean mySql) {
+        if (column.dictionary() != null) return mySql ? "INT" : "INTEGER";
+        return switch (column.type()) {
+            case INTEGER -> mySql ? "BIGINT" : "INTEGER";
+            case DOUBLE -> mySql ? "DOUBLE" : "REAL";
+            case BOOLEAN -> mySql ? "BOOLEAN" : "INTEGER";
+            case STRING -> "TEXT";
+            case UUID -> mySql ? "BINARY(16)" : "BLOB";
+        };
+    }
+
+    private static int nullType(ParameterType type) {
+        return switch (type) {
+            case INTEGER -> Types.BIGINT;
+            case DOUBLE -> Types.DOUBLE;
+            case BOOLEAN -> Types.BOOLEAN;
+            case STRING -> Types.VARCHAR;
+            case UUID -> Types.BINARY;
+        };
+    }
+
+    /**
+     * @return The columns to select for {@link #read}.
+     */
+    String selectColumns() {
+        if (isShared()) return "id, log_type, timestamp, is_archived, codec, data";
+
+        StringBuilder select = new StringBuilder("id, timestamp, is_archived, extra");
+        for (Column column : columns) {
+            select.append(", ").append(column.key());
+        }
+        return select.toString();
+    }
+
+    /**
+     * @param parser Turns a log type and its JSON values into LogData.
+     */
+    LogEntry read(Connection conn, ResultSet rs, BiFunction<String, String, LogData> parser) throws SQLException {
+        String type = isShared() ? rs.getString("log_type") : logType;
+        int codecId = isShared() ? rs.getInt("codec") : PayloadCodec.JSON_ID;
+        LogData data;
+        if (codecId == PayloadCodec.JSON_ID) {
+            data = parser.apply(type, rs.getString(isShared() ? "data" : "extra"));
+        } else {
+            data = parser.apply(type, null);
+            PayloadCodec codec = codecs.get(codecId);
+            try {
+                if (codec == null) throw new IOException("Unknown payload codec " + codecId);
+                codec.decode(rs.getBytes("data"), data, conn);
+            } catch (IOException e) {
+                data.put("parsing_failed", "true");
+            }
+        }
+
+        for (Column column : columns) {
+            String key = column.key();
+            if (column.dictionary() != null) {
+                int id = rs.getInt(key);
+                String value = rs.wasNull() ? null : dictionary.valueOf(conn, column.dictionary(), id);
+                if (value != null) {
+                    data.put(key, value);
+                    String playerName = column.nameKey() != null ? dictionary.playerName(id) : null;
+                    if (playerName != null) data.put(column.nameKey(), playerName);
+                }
+                continue;
+            }
+            switch (column.type()) {
+                case INTEGER -> {
+                    long value = rs.getLong(key);
+                    if (!rs.wasNull()) data.put(key, value);
+                }
+                case DOUBLE -> {
+                    double value = rs.getDouble(key);
+                    if (!rs.wasNull()) data.put(key, value);
+                }
+                case BOOLEAN -> {
+                    boolean value = rs.getBoolean(key);
+                    if (!rs.wasNull()) data.put(key, value);
+                }
+                case STRING -> {
+                    String value = rs.getString(key);
+                    if (value != null) data.put(key, value);
+                }
+                case UUID -> {
+                    UUID value = fromBytes(rs.getBytes(key));
+                    if (value != null) data.put(key, value.toString());
+                }
+            }
+        }
+
+        data.setId(rs.getLong("id"));
+        return new LogEntry(data.getId(), type, Instant.ofEpochMilli(rs.getLong("timestamp")), rs.getBoolean("is_archived"), data);
+    }
+
+    String insertSql(boolean mySql) {
+        // IDs come from the capture, so a log that was already saved is simply skipped
+        StringBuilder sql = new StringBuilder(mySql ? "INSERT IGNORE" : "INSERT OR IGNORE").append(" INTO ").append(name);
+        if (isShared()) {
+            return sql.append(" (id, log_type, timestamp, is_archived, expires_at, codec, data) VALUES (?, ?, ?, ?, ?, ?, ?)").toString();
+        }
+
+        sql.append(" (id, timestamp, is_archived, expires_at");
+        for (Column column : columns) {
+            sql.append(", ").append(column.key());
+        }
+        sql.append(", extra) VALUES (?, ?, ?, ?");
+        sql.append(", ?".repeat(columns.size()));
+        return sql.append(", ?)").toString();
+    }
+
+    /**
+     * Adds the dictionary values (or, for binary payloads, keys) of the logs that are not in the dictionary
+     * yet. Must be called, in auto-commit mode, before the logs are bound with {@link #bindInsert}.
+     */
+    void prepareDictionary(Connection conn, Collection<LogData> logs) throws SQLException {
+        if (dictionary == null) return;
+
+        Map<LogDictionary.Kind, Map<String, String>> missing = new EnumMap<>(LogDictionary.Kind.class);
+        if (isShared() && writeCodec != null) {
+            for (LogData data : logs) {
+                data.forEach((key, value) -> {
+                    if (dictionary.idOf(LogDictionary.Kind.KEY, key) == null) {
+                        missing.computeIfAbsent(LogDictionary.Kind.KEY, kind -> new HashMap<>()).put(key, null);
+                    }
+                });
+            }
+        }
+        for (LogData data : logs) {
+            for (Column column : columns) {
+                if (column.dictionary() == null) continue;
+                String value = LogDictionary.normalize(column.dictionary(), data.get(column.key()));
+                String playerName = column.nameKey() != null ? data.getString(column.nameKey()) : null;
+                if (value != null && dictionary.isMissing(column.dictionary(), value, playerName)) {
+                    missing.computeIfAbsent(column.dictionary(), kind -> new HashMap<>()).put(value, playerName);
+                }
+            }
+        }
+        dictionary.store(conn, missing);
+    }
+
+    /**
+     * Binds one row for the statement from {@link #insertSql}.
+     * @param expiresAt When the log expires, or null if it never does.
+     */
+    void bindInsert(PreparedStatement pstmt, String type, LogData data, long timestamp, boolean archived, Long expiresAt) throws SQLException {
+        int index = 1;
+        pstmt.setLong(index++, data.getId());
+        if (isShared()) pstmt.setString(index++, type);
+        pstmt.setLong(index++, timestamp);
+        pstmt.setBoolean(index++, archived);
+        if (expiresAt != null) {
+            pstmt.setLong(index++, expiresAt);
+        } else {
+            pstmt.setNull(index++, Types.BIGINT);
+        }
+
+        if (isShared()) {
+            if (writeCodec == null) {
+                pstmt.setInt(index++, PayloadCodec.JSON_ID);
+                pstmt.setString(index, data.toJson());
+            } else {
+                pstmt.setInt(index++, writeCodec.getId());
+                pstmt.setBytes(index, writeCodec.encode(data));
+            }
+            return;
+        }
+
+        // Values without a column, or that do not fit their column's type, are kept as JSON
+        Map<String, Object> extra = new LinkedHashMap<>();
+        Set<String> inDictionary = new HashSet<>();
+        for (Column column : columns) {
+            Object value = data.get(column.key());
+            if (column.dictionary() != null) {
+                Integer id = dictionary.idOf(column.dictionary(), LogDictionary.normalize(column.dictionary(), value));
+                if (id != null) {
+                    pstmt.setInt(index++, id);
+                    if (column.nameKey() != null) inDictionary.add(column.nameKey());
+                } else {
+                    pstmt.setNull(index++, Types.INTEGER);
+                    if (value != null) extra.put(column.key(), value);
+                }
+                continue;
+            }
+
+            Object converted = value != null ? convert(column.type(), value) : null;
+            if (converted != null) {
+                pstmt.setObject(index++, converted);
+            } else {
+                pstmt.setNull(index++, nullType(column.type()));
+                if (value != null) extra.put(column.key(), value);
+            }
+        }
+        data.forEach((key, value) -> {
+            if (!columnsByKey.containsKey(key) && !inDictionary.contains(key)) extra.put(key, value);
+        });
+
+        if (extra.isEmpty()) {
+            pstmt.setNull(index, Types.VARCHAR);
+        } else {
+            pstmt.setString(index, GSON.toJson(extra));
+        }
+    }
+
+    /**
+     * Appends the advanced filter conditions as {@code AND ...} clauses, comparing typed columns natively.
+     * The SQL only depends on the conditions' keys and comparators and on {@link #variant}, so with a null
+     * {@code sql} only the parameters are collected, for statement text that is already known.
+     */
+    void appendConditions(StringBuilder sql, List<Object> params, List<FilterCondition> conditions, boolean mySql) {
+        if (conditions == null) return;
+
+        for (FilterCondition condition : conditions) {
+            String key = condition.key();
+            String comparator = condition.comparator().toLowerCase(Locale.ROOT);
+            Object value = condition.value();
+
+            // Special handling for timestamp filter (stored in its own column)
+            if ("timestamp".equalsIgnoreCase(key)) {
+                appendTimestampCondition(sql, params, comparator, value);
+                continue;
+            }
+
+            Column column = columnsByKey.get(key);
+            Column player = columnsByNameKey.get(key);
+            if (column != null && column.dictionary() != null) {
+                appendDictionaryCondition(sql, params, column, comparator, value);
+            } else if (column != null) {
+                appendColumnCondition(sql, params, column, comparator, value);
+            } else if (player != null) {
+                appendLookup(sql, params, player, "name", comparator, value);
+            } else if (JSON_KEY.matcher(key).matches()) {
+                appendJsonCondition(sql, params, key, comparator, value, mySql);
+            }
+        }
+
+        if (timeOrderedIds) {
+            appendIdBounds(sql, params, timeRange(conditions));
+        }
+    }
+
+    /**
+     * Repeats the time range on the ID, which is what MySQL prunes partitions by. The margin covers IDs
+     * generated a moment before or after the log's timestamp.
+     */
+    private static void appendIdBounds(StringBuilder sql, List<Object> params, long[] range) {
+        if (hasLowerIdBound(range)) {
+            if (sql != null) sql.append("AND id >= ? ");
+            params.add(LogIdGenerator.lowestIdAt(range[0] - ID_TIME_MARGIN_MILLIS));
+        }
+        if (hasUpperIdBound(range)) {
+            if (sql != null) sql.append("AND id < ? ");
+            params.add(LogIdGenerator.lowestIdAt(range[1] + ID_TIME_MARGIN_MILLIS));
+        }
+    }
+
+    private static boolean hasLowerIdBound(long[] range) {
+        return range[0] != Long.MIN_VALUE && range[0] > LogIdGenerator.EPOCH + ID_TIME_MARGIN_MILLIS;
+    }
+
+    private static boolean hasUpperIdBound(long[] range) {
+        return range[1] - LogIdGenerator.EPOCH < MAX_ID_MILLIS - ID_TIME_MARGIN_MILLIS;
+    }
+
+    /**
+     * @return What decides the SQL of {@link #appendConditions} besides the keys and comparators: which
+     *         dictionary values have an id, and which ID bounds apply.
+     */
+    String variant(List<FilterCondition> conditions) {
+        StringBuilder variant = new StringBuilder();
+        for (FilterCondition condition : conditions) {
+            Column column = columnsByKey.get(condition.key());
+            if (column == null || column.dictionary() == null) continue;
+            Integer id = dictionary.idOf(column.dictionary(), LogDictionary.normalize(column.dictionary(), condition.value()));
+            variant.append(id != null ? 'k' : 'u');
+        }
+        if (timeOrderedIds) {
+            long[] range = timeRange(conditions);
+            variant.append(hasLowerIdBound(range) ? 'l' : '-').append(hasUpperIdBound(range) ? 'h' : '-');
+        }
+        return variant.toString();
+    }
+
+    private void appendColumnCondition(StringBuilder sql, List<Object> params, Column column, String comparator, Object value) {
+        if (COMPARATORS.contains(comparator)) {
+            Object converted = convert(column.type(), value);
+            if (sql != null) sql.append("AND ").append(column.key()).append(' ').append(comparator).append(" ? ");
+            params.add(converted != null ? converted : value);
+            return;
+        }
+
+        String pattern = likePattern(comparator, value);
+        if (pattern == null) return;
+        if (column.type() == ParameterType.UUID) {
+            // Stored as 16 bytes, so text matching runs on the hex form
+            if (sql != null) sql.append("AND LOWER(HEX(").append(column.key()).append(")) LIKE ? ");
+            params.add(pattern.replace("-", "").toLowerCase(Locale.ROOT));
+        } else {
+            if (sql != null) sql.append("AND ").append(column.key()).append(" LIKE ? ");
+            params.add(pattern);
+        }
+    }
+
+    private void appendDictionaryCondition(StringBuilder sql, List<Object> params, Column column, String comparator, Object value) {
+        LogDictionary.Kind kind = column.dictionary();
+        String normalized = LogDictionary.normalize(kind, value);
+        Integer id = dictionary.idOf(kind, normalized);
+        if ((comparator.equals("=") || comparator.equals("!=")) && id != null) {
+            // A plain integer comparison on the indexed column
+            if (sql != null) sql.append("AND ").append(column.key()).append(' ').append(comparator).append(" ? ");
+            params.add(id);
+        } else if (kind == LogDictionary.Kind.PLAYER) {
+            Object text = normalized != null ? normalized : value;
+            appendLookup(sql, params, column, "LOWER(HEX(uuid))", comparator, text.toString().replace("-", "").toLowerCase(Locale.ROOT));
+        } else {
+            appendLookup(sql, params, column, "name", comparator, normalized != null ? normalized : value);
+        }
+    }
+
+    /**
+     * Matches the column against dictionary entries, for filters the id cache cannot answer.
+     */
+    private void appendLookup(StringBuilder sql, List<Object> params, Column column, String expression, String comparator, Object value) {
+        String pattern = likePattern(comparator, value);
+        if (pattern == null && !COMPARATORS.contains(comparator)) return;
+        if (sql != null) sql.append("AND ").append(column.key()).append(" IN (SELECT id FROM ").append(column.dictionary().getTable())
+                .append(" WHERE ").append(expression).append(pattern != null ? " LIKE" : " " + comparator).append(" ?) ");
+        params.add(pattern != null ? pattern : value);
+    }
+
+    /**
+     * Compares a value in the JSON column: with {@code ->>} on MySQL, which gives the value as text, and
+     * with {@code json_extract} on SQLite, which gives it with its JSON type.
+     */
+    private void appendJsonCondition(StringBuilder sql, List<Object> params, String key, String comparator, Object value, boolean mySql) {
+        String column = isShared() ? "data" : "extra";
+        String expression = mySql ? column + "->>'$." + key + "'" : "json_extract(" + column + ", '$." + key + "')";
+        if (isShared() && !mySql) {
+            // Rows written with a binary codec are read by a Java function
+            expression = "CASE WHEN codec = " + PayloadCodec.JSON_ID + " THEN " + expression
+                    + " ELSE " + PayloadExtractFunction.NAME + "(codec, data, '" + key + "') END";
+        }
+        if (COMPARATORS.contains(comparator)) {
+            if (comparator.equals("=") || comparator.equals("!=")) {
+                if (sql != null) sql.append("AND ").append(expression).append(' ').append(comparator).append(" ? ");
+                params.add(mySql ? String.valueOf(value) : value);
+            } else {
+                if (sql != null) sql.append("AND CAST(").append(expression).append(mySql ? " AS DECIMAL(65, 10)) " : " AS NUMERIC) ")
+                        .append(comparator).append(" ? ");
+                Object number = convert(ParameterType.DOUBLE, value);
+                params.add(number != null ? number : value);
+            }
+            return;
+        }
+
+        String pattern = likePattern(comparator, value);
+        if (pattern != null) {
+            if (sql != null) sql.append("AND ").append(expression).append(" LIKE ? ");
+            params.add(pattern);
+        }
+    }
+
+    private static void appendTimestampCondition(StringBuilder sql, List<Object> params, String comparator, Object value) {
+        if ("between".equals(comparator)) {
+            long[] range = parseRange(value);
+            if (range != null) {
+                if (sql != null) sql.append("AND timestamp BETWEEN ? AND ? ");
+                params.add(range[0]);
+                params.add(range[1]);
+            }
+            return;
+        }
+
+        if ("before".equals(comparator)) comparator = "<";
+        if ("after".equals(comparator)) comparator = ">";
+        Long millis = parseLong(value);
+        if (COMPARATORS.contains(comparator) && millis != null) { // Skip invalid timestamp values
+            if (sql != null) sql.append("AND timestamp ").append(comparator).append(" ? ");
+            params.add(millis);
+        }
+    }
+
+    /**
+     * @return The inclusive range of timestamps the conditions allow, {Long.MIN_VALUE, Long.MAX_VALUE} if unbounded.
+     */
+    static long[] timeRange(List<FilterCondition> conditions) {
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        if (conditions == null) return new long[]{from, to};
+
+        for (FilterCondition condition : conditions) {
+            if (!"timestamp".equalsIgnoreCase(condition.key())) continue;
+            String comparator = condition.comparator().toLowerCase(Locale.ROOT);
+            if ("between".equals(comparator)) {
+                long[] range = parseRange(condition.value());
+                if (range == null) continue;
+                from = Math.max(from, range[0]);
+                to = Math.min(to, range[1]);
+                continue;
+            }
+
+            Long millis = parseLong(condition.value());
+            if (millis == null) continue;
+            switch (comparator) {
+                case ">", "after" -> from = Math.max(from, millis == Long.MAX_VALUE ? millis : millis + 1);
+                case ">=" -> from = Math.max(from, millis);
+                case "<", "before" -> to = Math.min(to, millis == Long.MIN_VALUE ? millis : millis - 1);
+                case "<=" -> to = Math.min(to, millis);
+                case "=" -> {
+                    from = Math.max(from, millis);
+                    to = Math.min(to, millis);
+                }
+                default -> { }
+            }
+        }
+        return new long[]{from, to};
+    }
+
+    /**
+     * Expects a range as long[]{start, end}, a List with two numbers or "start,end".
+     * @return The ordered range, or null if the value is not one.
+     */
+    static long[] parseRange(Object value) {
+        Long start = null;
+        Long end = null;
+
+        if (value instanceof long[] arr && arr.length >= 2) {
+            start = arr[0];
+            end = arr[1];
+        } else if (value instanceof Long[] arr2 && arr2.length >= 2) {
+            start = arr2[0];
+            end = arr2[1];
+        } else if (value instanceof List<?> list && list.size() >= 2) {
+            start = parseLong(list.get(0));
+            end = parseLong(list.get(1));
+        } else if (value instanceof String s && s.contains(",")) {
+            String[] parts = s.split(",");
+            if (parts.length >= 2) {
+                start = parseLong(parts[0]);
+                end = parseLong(parts[1]);
+            }
+        }
+
+        if (start == null || end == null) return null;
+        return new long[]{Math.min(start, end), Math.max(start, end)};
+    }
+
+    private static String likePattern(String comparator, Object value) {
+        return switch (comparator) {
+            case "startswith" -> value + "%";
+            case "endswith" -> "%" + value;
+            case "contains" -> "%" + value + "%";
+            default -> null;
+        };
+    }
+
+    static Long parseLong(Object value) {
+        if (value instanceof Number number) return number.longValue();
+        try {
+            return Long.parseLong(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a value to what is stored in a column of the given type.
+     * @return The converted value, or null if it does not fit the type.
+     */
+    private static Object convert(ParameterType type, Object value) {
+        switch (type) {
+            case INTEGER -> {
+                if (value instanceof Double d) {
+                    return d == Math.rint(d) && Math.abs(d) < 0x1p53 ? (Object) d.longValue() : null;
+                }
+                if (value instanceof Number number) return number.longValue();
+                return parseLong(value);
+            }
+            case DOUBLE -> {
+                double number;
+                if (value instanceof Number n) {
+                    number = n.doubleValue();
+                } else {
+                    try {
+                        number = Double.parseDouble(String.valueOf(value).trim());
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                return Double.isFinite(number) ? number : null;
+            }
+            case BOOLEAN -> {
+                if (value instanceof Boolean) return value;
+                String text = String.valueOf(value).trim();
+                if (text.equalsIgnoreCase("true")) return true;
+                if (text.equalsIgnoreCase("false")) return false;
+                return null;
+            }
+            case STRING -> {
+                return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof UUID
+                        ? value.toString() : null;
+            }
+            case UUID -> {
+                try {
+                    return toBytes(UUID.fromString(value.toString().trim()));
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
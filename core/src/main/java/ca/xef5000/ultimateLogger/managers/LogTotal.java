@@ -0,0 +1,15 @@
+package ca.xef5000.ultimateLogger.managers;
+
+/**
+ * How many logs a filter selects.
+ * @param exact Whether the count was read from the counters, rather than estimated from a sample.
+ */
+public record LogTotal(long count, boolean exact) {
+
+    /**
+     * @return The number of pages the logs fill, at least one.
+     */
+    public int pages(int pageSize) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (count + pageSize - 1) / pageSize));
+    }
+}
@@ -0,0 +1,319 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.utils.CircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * A dedicated persistence thread that drains the save queue. It wakes up when the
+ * queue reaches its high-water mark or when the maximum latency has elapsed, then
+ * saves batches until the queue is empty. The batch size adapts to how long each
+ * commit takes, growing while commits are fast and shrinking when they are slow.
+ * <p>
+ * If the database cannot be reached, a circuit breaker pauses saving for the retry delay.
+ * With a journal, logs are then buffered on disk and replayed in order once the database is back.
+ */
+public class LogWriter implements Runnable {
+
+    /**
+     * Saves a batch of logs in one transaction.
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        /**
+         * @return true if the whole batch was committed.
+         */
+        boolean save(List<LogManager.LogDataTuple> batch);
+    }
+
+    private static final int MIN_BATCH_SIZE = 10;
+
+    private final UltimateLogger plugin;
+    private final LogQueue queue;
+    private final LogJournal journal;
+    private final BooleanSupplier databaseReachable;
+    private final UnaryOperator<List<LogManager.LogDataTuple>> batchFilter;
+    private final BatchSink sink;
+    private final CircuitBreaker breaker;
+    private final long retryDelayMillis;
+
+    private final int maxBatchSize;
+    private final int highWaterMark;
+    private final long maxLatencyNanos;
+    private final long targetCommitNanos;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile int batchSize;
+    private volatile int inFlight;
+    private volatile long lastCommitNanos;
+    // A failed batch that is retried before anything else
+    private volatile List<LogManager.LogDataTuple> retryBatch;
+
+    /**
+     * @param journal The journal to replay from during outages, or null if disabled.
+     * @param databaseReachable Tells a database outage apart from a batch the database rejects.
+     * @param batchFilter Applied once to every new batch; returns the logs that should still be saved.
+     */
+    public LogWriter(UltimateLogger plugin, LogQueue queue, LogJournal journal, BooleanSupplier databaseReachable,
+                     UnaryOperator<List<LogManager.LogDataTuple>> batchFilter, BatchSink sink) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.queue = queue;
+        this.journal = journal;
+        this.databaseReachable = databaseReachable;
+        this.batchFilter = batchFilter;
+        this.sink = sink;
+        this.retryDelayMillis = TimeUnit.SECONDS.toMillis(Math.max(1, config.getDatabaseRetrySeconds()));
+        this.breaker = new CircuitBreaker(retryDelayMillis);
+        this.maxBatchSize = Math.max(MIN_BATCH_SIZE, config.getLogBatchMaxSize());
+        this.batchSize = Math.min(maxBatchSize, Math.max(MIN_BATCH_SIZE, config.getLogBatchSize()));
+        this.highWaterMark = Math.max(1, config.getLogBatchHighWaterMark());
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getLogBatchMaxLatencyMillis()));
+        this.targetCommitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getLogBatchTargetCommitMillis()));
+
+        this.thread = new Thread(this, "UltimateLogger-Writer");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Called by producers after queueing a log. Wakes the writer early once enough logs are waiting.
+     */
+    public void onLogQueued() {
+        if (queue.size() >= highWaterMark) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the writer after it has saved everything still in the queue.
+     * @param timeoutMillis How long to wait for the final drain.
+     */
+    public void stop(long timeoutMillis) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            plugin.getLogger().warning("The log writer did not finish saving within " + timeoutMillis + "ms; " + getPendingCount() + " logs are still pending.");
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            // Either the latency budget runs out or a producer unparks us at the high-water mark
+            LockSupport.parkNanos(this, maxLatencyNanos);
+            queue.syncSpill();
+            drain();
+        }
+        // Save whatever was queued before we were asked to stop
+        drain();
+    }
+
+    private void drain() {
+        while (breaker.allowRequest()) {
+            boolean moreWork = journal != null && journal.isInBacklog() ? replayStep() : saveStep();
+            if (!moreWork) return;
+        }
+    }
+
+    /**
+     * Saves the next batch from the queue.
+     * @return true if there may be more to save right away.
+     */
+    private boolean saveStep() {
+        List<LogManager.LogDataTuple> batch = nextBatch(false);
+        if (batch.isEmpty()) return !queue.isEmpty(); // Listeners may have skipped a whole batch
+
+        if (commit(batch) || recover(batch)) {
+            release(batch);
+            return true;
+        }
+
+        if (journal != null) {
+            // Everything journaled is replayed from disk, only keep the rest in memory
+            journal.enterBacklog();
+            batch.removeIf(tuple -> tuple.journalTicket() >= 0);
+        }
+        retryBatch = batch;
+        return false;
+    }
+
+    /**
+     * Replays the next chunk of the journal backlog.
+     * @return true if there may be more to save right away.
+     */
+    private boolean replayStep() {
+        // Logs queued before the switch are also in the journal, so only logs that could not be journaled are saved from memory
+        List<LogManager.LogDataTuple> batch = nextBatch(true);
+        if (!batch.isEmpty()) {
+            if (commit(batch) || recover(batch)) return true;
+            retryBatch = batch;
+            return false;
+        }
+
+        List<LogManager.LogDataTuple> chunk = journal.readBacklog(batchSize);
+        if (chunk.isEmpty()) {
+            journal.acknowledgeBacklog();
+            journal.tryFinishBacklog();
+            return true;
+        }
+
+        chunk = filter(chunk);
+        if (chunk.isEmpty()) {
+            journal.acknowledgeBacklog(); // Everything was skipped by listeners
+            return true;
+        }
+
+        if (!commit(chunk) && !recover(chunk)) {
+            return false; // The same chunk is read again after the retry delay
+        }
+        journal.acknowledgeBacklog();
+        return true;
+    }
+
+    /**
+     * @param skipJournaled Discard journaled logs, because they are replayed from disk.
+     */
+    private List<LogManager.LogDataTuple> nextBatch(boolean skipJournaled) {
+        List<LogManager.LogDataTuple> batch = retryBatch;
+        if (batch != null) {
+            retryBatch = null;
+            return batch; // Already filtered
+        }
+
+        int size = batchSize;
+        batch = new ArrayList<>(size);
+        LogManager.LogDataTuple tuple;
+        while (batch.size() < size && (tuple = queue.poll()) != null) {
+            if (skipJournaled && tuple.journalTicket() >= 0) continue;
+            batch.add(tuple);
+        }
+        return filter(batch);
+    }
+
+    private List<LogManager.LogDataTuple> filter(List<LogManager.LogDataTuple> batch) {
+        if (batch.isEmpty()) return batch;
+        List<LogManager.LogDataTuple> kept;
+        try {
+            kept = new ArrayList<>(batchFilter.apply(batch));
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Error while preparing a log batch, saving it unchanged!");
+            e.printStackTrace();
+            return batch;
+        }
+
+        if (journal != null && kept.size() != batch.size()) {
+            // Skipped logs count as done for the journal
+            Set<LogManager.LogDataTuple> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            keptSet.addAll(kept);
+            for (LogManager.LogDataTuple tuple : batch) {
+                if (!keptSet.contains(tuple)) journal.release(tuple.journalTicket());
+            }
+        }
+        return kept;
+    }
+
+    private boolean commit(List<LogManager.LogDataTuple> batch) {
+        inFlight = batch.size();
+        long start = System.nanoTime();
+        boolean saved;
+        try {
+            saved = sink.save(batch);
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Unexpected error while saving a log batch!");
+            e.printStackTrace();
+            saved = false;
+        } finally {
+            inFlight = 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        lastCommitNanos = elapsed;
+        tune(batch.size() == batchSize, elapsed);
+        if (saved) {
+            breaker.recordSuccess();
+        }
+        return saved;
+    }
+
+    /**
+     * Handles a failed batch. If the database still answers, one of the logs is being rejected,
+     * so the logs are saved one by one and the rejected ones are dropped. Otherwise the circuit opens.
+     * @return true if the batch has been dealt with.
+     */
+    private boolean recover(List<LogManager.LogDataTuple> batch) {
+        if (!databaseReachable.getAsBoolean()) {
+            if (breaker.getState() != CircuitBreaker.State.HALF_OPEN) {
+                plugin.getLogger().warning("Could not reach the database. Retrying every " + TimeUnit.MILLISECONDS.toSeconds(retryDelayMillis) + " seconds.");
+            }
+            breaker.recordFailure();
+            return false;
+        }
+
+        if (batch.size() > 1) {
+            for (LogManager.LogDataTuple tuple : batch) {
+                if (!commit(List.of(tuple))) {
+                    plugin.getLogger().severe("The database rejected log " + tuple.data().getId() + " (" + tuple.logType() + "), it will not be saved.");
+                }
+            }
+        } else {
+            plugin.getLogger().severe("The database rejected a log batch, it will not be saved.");
+        }
+        breaker.recordSuccess();
+        return true;
+    }
+
+    private void release(List<LogManager.LogDataTuple> batch) {
+        if (journal == null) return;
+        for (LogManager.LogDataTuple tuple : batch) {
+            journal.release(tuple.journalTicket());
+        }
+    }
+
+    private void tune(boolean batchWasFull, long elapsedNanos) {
+        if (elapsedNanos > targetCommitNanos) {
+            // Commits are too slow, back off quickly
+            batchSize = Math.max(MIN_BATCH_SIZE, batchSize / 2);
+        } else if (batchWasFull && elapsedNanos < targetCommitNanos / 2) {
+            // There is more work waiting and room in the budget, grow gradually
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+        }
+    }
+
+    /**
+     * @return The number of logs still waiting to be saved, including the batch being committed.
+     */
+    public int getPendingCount() {
+        List<LogManager.LogDataTuple> retry = retryBatch;
+        return queue.size() + inFlight + (retry == null ? 0 : retry.size());
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getLastCommitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastCommitNanos);
+    }
+
+    public CircuitBreaker.State getDatabaseState() {
+        return breaker.getState();
+    }
+}
@@ -0,0 +1,411 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCounts;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Keeps logs in memory only, for benchmarks, tests and servers that do not need logs to survive a restart.
+ * Logs are stored column by column in primitive arrays sorted by ID, so pages are read from the end and
+ * lookups by ID are binary searches. Deleted logs are marked and compacted away in bulk. Once the
+ * configured maximum is reached, the oldest logs make room for new ones.
+ */
+public class MemoryStorageBackend implements StorageBackend {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final byte ARCHIVED = 1;
+    private static final byte DELETED = 2;
+
+    private final int maxLogs;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Log types are stored as indexes into this list
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Integer> typeIndexes = new HashMap<>();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] expiries = new long[INITIAL_CAPACITY];
+    private int[] types = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private LogData[] payloads = new LogData[INITIAL_CAPACITY];
+    private int size;
+    private int deletedCount;
+
+    // Logs per type, day and archived flag, updated as logs are stored and deleted
+    private final LogCounter counter = new LogCounter();
+
+    /**
+     * @param maxLogs The most logs kept; older logs are dropped beyond it.
+     */
+    public MemoryStorageBackend(int maxLogs) {
+        this.maxLogs = Math.max(1, maxLogs);
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            payloads = new LogData[INITIAL_CAPACITY];
+            ids = new long[INITIAL_CAPACITY];
+            timestamps = new long[INITIAL_CAPACITY];
+            expiries = new long[INITIAL_CAPACITY];
+            types = new int[INITIAL_CAPACITY];
+            flags = new byte[INITIAL_CAPACITY];
+            size = 0;
+            deletedCount = 0;
+            counter.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] write(List<LogEntry> logs, long retentionMillis) {
+        boolean[] inserted = new boolean[logs.size()];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < logs.size(); i++) {
+                LogEntry log = logs.get(i);
+                if (size == ids.length) grow(); // Before searching, as growing may compact
+                int index = Arrays.binarySearch(ids, 0, size, log.getId());
+                if (index >= 0) {
+                    if ((flags[index] & DELETED) == 0) continue; // Already stored
+                    store(index, log, retentionMillis); // Reuses the slot of a deleted log with this ID
+                    deletedCount--;
+                    inserted[i] = true;
+                    continue;
+                }
+
+                // IDs mostly arrive in order, so this is usually an append
+                int position = -index - 1;
+                shift(position);
+                store(position, log, retentionMillis);
+                size++;
+                inserted[i] = true;
+            }
+
+            if (size - deletedCount > maxLogs) {
+                evictOldest(size - deletedCount - maxLogs);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return inserted;
+    }
+
+    @Override
+    public List<LogEntry> query(String logType, List<FilterCondition> conditions, LogCursor cursor, int limit) {
+        int type = typeIndex(logType);
+        long[] range = LogTable.timeRange(conditions);
+        List<LogEntry> page = new ArrayList<>(Math.min(limit, 64));
+
+        lock.readLock().lock();
+        try {
+            if (logType != null && type < 0) return page; // No logs of this type yet
+
+            // Starts next to the cursor's ID, found by binary search
+            int index = Arrays.binarySearch(ids, 0, size, cursor.id());
+            int start = index >= 0 ? index : -index - 1;
+            int step = cursor.isOlder() ? -1 : 1;
+            for (int i = cursor.isOlder() ? start - 1 : (index >= 0 ? start + 1 : start);
+                 i >= 0 && i < size && page.size() < limit; i += step) {
+                if ((flags[i] & DELETED) != 0) continue;
+                if (type >= 0 && types[i] != type) continue;
+                if (timestamps[i] < range[0] || timestamps[i] > range[1]) continue;
+                if (!matches(payloads[i], timestamps[i], conditions)) continue;
+                page.add(entry(i));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<LogEntry> get(long id) {
+        lock.readLock().lock();
+        try {
+            int index = find(id);
+            return index >= 0 ? Optional.of(entry(index)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(String logType, List<FilterCondition> conditions, IntPredicate progress) {
+        int type = typeIndex(logType);
+        if (logType != null && type < 0) return 0;
+        long[] range = LogTable.timeRange(conditions);
+
+        int deleted = 0;
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if ((flags[i] & DELETED) != 0) continue;
+                if (type >= 0 && types[i] != type) continue;
+                if (timestamps[i] < range[0] || timestamps[i] > range[1]) continue;
+                if (!matches(payloads[i], timestamps[i], conditions)) continue;
+                markDeleted(i);
+                deleted++;
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        progress.test(deleted);
+        return deleted;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            int index = find(id);
+            if (index < 0) return false;
+            markDeleted(index);
+            compactIfSparse();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean setArchived(long id, boolean archived, long retentionMillis) {
+        lock.writeLock().lock();
+        try {
+            int index = find(id);
+            if (index < 0) return false;
+            if (((flags[index] & ARCHIVED) != 0) != archived) {
+                counter.setArchived(typeNames.get(types[index]), timestamps[index], archived);
+            }
+            if (archived) {
+                flags[index] |= ARCHIVED;
+                expiries[index] = NEVER;
+            } else {
+                flags[index] &= ~ARCHIVED;
+                expiries[index] = retentionMillis > 0 ? System.currentTimeMillis() + retentionMillis : NEVER;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int expire(long now, IntPredicate progress) {
+        int deleted = 0;
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (flags[i] == 0 && expiries[i] < now) { // Neither archived nor deleted
+                    markDeleted(i);
+                    deleted++;
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        progress.test(deleted);
+        return deleted;
+    }
+
+    @Override
+    public LogCounts counts() {
+        lock.readLock().lock();
+        try {
+            return counter.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void store(int index, LogEntry log, long retentionMillis) {
+        long timestamp = log.getTimestamp().toEpochMilli();
+        ids[index] = log.getId();
+        timestamps[index] = timestamp;
+        expiries[index] = retentionMillis > 0 && !log.isArchived() ? timestamp + retentionMillis : NEVER;
+        types[index] = typeIndexes.computeIfAbsent(log.getLogType(), name -> {
+            typeNames.add(name);
+            return typeNames.size() - 1;
+        });
+        flags[index] = log.isArchived() ? ARCHIVED : 0;
+        payloads[index] = log.getData();
+        counter.add(log.getLogType(), timestamp, log.isArchived(), 1);
+    }
+
+    private LogEntry entry(int index) {
+        return new LogEntry(ids[index], typeNames.get(types[index]), Instant.ofEpochMilli(timestamps[index]),
+                (flags[index] & ARCHIVED) != 0, payloads[index]);
+    }
+
+    /**
+     * @return The index of the stored, not deleted, log with the ID, or -1.
+     */
+    private int find(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 && (flags[index] & DELETED) == 0 ? index : -1;
+    }
+
+    private int typeIndex(String logType) {
+        if (logType == null) return -1;
+        lock.readLock().lock();
+        try {
+            return typeIndexes.getOrDefault(logType, -1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void markDeleted(int index) {
+        counter.add(typeNames.get(types[index]), timestamps[index], (flags[index] & ARCHIVED) != 0, -1);
+        flags[index] |= DELETED;
+        payloads[index] = null; // Let the values be collected before the next compaction
+        deletedCount++;
+    }
+
+    /**
+     * Opens a gap at the position by moving every later log one place up.
+     */
+    private void shift(int position) {
+        int moved = size - position;
+        if (moved == 0) return;
+        System.arraycopy(ids, position, ids, position + 1, moved);
+        System.arraycopy(timestamps, position, timestamps, position + 1, moved);
+        System.arraycopy(expiries, position, expiries, position + 1, moved);
+        System.arraycopy(types, position, types, position + 1, moved);
+        System.arraycopy(flags, position, flags, position + 1, moved);
+        System.arraycopy(payloads, position, payloads, position + 1, moved);
+    }
+
+    private void grow() {
+        // Compacting may free enough room without growing
+        if (deletedCount > 0) {
+            compact();
+            if (size < ids.length) return;
+        }
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        expiries = Arrays.copyOf(expiries, capacity);
+        types = Arrays.copyOf(types, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    private void evictOldest(int count) {
+        for (int i = 0; i < size && count > 0; i++) {
+            if ((flags[i] & DELETED) != 0) continue;
+            markDeleted(i);
+            count--;
+        }
+        compactIfSparse();
+    }
+
+    private void compactIfSparse() {
+        if (deletedCount > size / 4) compact();
+    }
+
+    /**
+     * Moves every log that is not deleted to the front, keeping the ID order.
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & DELETED) != 0) continue;
+            if (kept != i) {
+                ids[kept] = ids[i];
+                timestamps[kept] = timestamps[i];
+                expiries[kept] = expiries[i];
+                types[kept] = types[i];
+                flags[kept] = flags[i];
+                payloads[kept] = payloads[i];
+            }
+            kept++;
+        }
+        Arrays.fill(payloads, kept, size, null);
+        size = kept;
+        deletedCount = 0;
+    }
+
+    /**
+     * Matches the log's values like the SQL backend: every condition must hold, numbers compare as numbers.
+     * @param timestamp The log's time, for the time conditions that {@link LogTable#timeRange} leaves out.
+     */
+    static boolean matches(LogData data, long timestamp, List<FilterCondition> conditions) {
+        if (conditions == null) return true;
+        for (FilterCondition condition : conditions) {
+            if ("timestamp".equalsIgnoreCase(condition.key())) {
+                if (!matchesTime(timestamp, condition)) return false;
+            } else if (!matches(data.getString(condition.key()), condition)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a time condition that a time range cannot hold, {@code timestamp !=}. Every other time
+     * condition is part of the range from {@link LogTable#timeRange}, so it passes here.
+     */
+    static boolean matchesTime(long timestamp, FilterCondition condition) {
+        if (!"!=".equals(condition.comparator().trim())) return true;
+        Long excluded = LogTable.parseLong(condition.value());
+        return excluded == null || timestamp != excluded;
+    }
+
+    /**
+     * @param actual The log's value as text, or null if it has none.
+     */
+    static boolean matches(String actual, FilterCondition condition) {
+        if (actual == null) return false;
+        String expected = String.valueOf(condition.value());
+        return switch (condition.comparator().toLowerCase(Locale.ROOT)) {
+            case "=" -> actual.equals(expected);
+            case "!=" -> !actual.equals(expected);
+            case ">", "<", ">=", "<=" -> compare(actual, expected, condition.comparator());
+            case "startswith" -> actual.startsWith(expected);
+            case "endswith" -> actual.endsWith(expected);
+            case "contains" -> actual.contains(expected);
+            default -> true; // Unknown comparators are skipped, as in SQL
+        };
+    }
+
+    private static boolean compare(String actual, String expected, String comparator) {
+        try {
+            int result = Double.compare(Double.parseDouble(actual), Double.parseDouble(expected));
+            return switch (comparator) {
+                case ">" -> result > 0;
+                case "<" -> result < 0;
+                case ">=" -> result >= 0;
+                default -> result <= 0;
+            };
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
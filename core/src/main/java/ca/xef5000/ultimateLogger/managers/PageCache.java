@@ -0,0 +1,175 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches pages of logs, and on each change drops only the pages it can affect:
+ * <ul>
+ *     <li>New logs drop the pages whose filter they could match and whose cursor they fall past. Pages
+ *     further back, read past an older cursor, stay valid as logs are appended.</li>
+ *     <li>Archiving or deleting one log drops the pages showing it, found through an index from log ID to pages.</li>
+ * </ul>
+ */
+final class PageCache {
+
+    private static final Set<String> NUMERIC = Set.of(">", "<", ">=", "<=");
+
+    record Key(LogCursor cursor, int pageSize, LogFilter filter) {}
+
+    private final Cache<Key, LogPage> pages;
+    private final Map<Long, Set<Key>> keysById = new ConcurrentHashMap<>();
+
+    // Changed on every invalidation, so a page read while logs changed is not cached
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong droppedPages = new AtomicLong();
+
+    PageCache(long maxSize, long expiryMinutes) {
+        this.pages = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expiryMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .removalListener((RemovalListener<Key, LogPage>) removal -> {
+                    // A replaced page's logs are indexed again by the put
+                    if (removal.getCause() != RemovalCause.REPLACED) unindex(removal.getKey(), removal.getValue());
+                })
+                .build();
+    }
+
+    LogPage get(Key key) {
+        return pages.getIfPresent(key);
+    }
+
+    /**
+     * @return The version to pass to {@link #put}, taken before the page is read.
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Caches the page, unless logs changed since {@code readVersion} was taken.
+     */
+    void put(Key key, LogPage page, long readVersion) {
+        if (version.get() != readVersion) return;
+        pages.put(key, page);
+        for (LogEntry log : page.logs()) {
+            keysById.compute(log.getId(), (id, keys) -> {
+                if (keys == null) keys = ConcurrentHashMap.newKeySet();
+                keys.add(key);
+                return keys;
+            });
+        }
+        // Logs may have changed between the check and the put
+        if (version.get() != readVersion) pages.invalidate(key);
+    }
+
+    /**
+     * Drops the pages the newly written logs could appear in.
+     */
+    void onAppend(List<LogEntry> logs) {
+        if (logs.isEmpty()) return;
+        version.incrementAndGet();
+        if (pages.size() == 0) return;
+
+        Map<String, List<LogEntry>> logsByType = new HashMap<>();
+        for (LogEntry log : logs) {
+            logsByType.computeIfAbsent(log.getLogType(), type -> new ArrayList<>()).add(log);
+        }
+        for (Map.Entry<Key, LogPage> entry : pages.asMap().entrySet()) {
+            String logType = entry.getKey().filter().getLogType();
+            List<LogEntry> candidates = logType == null ? logs : logsByType.getOrDefault(logType, List.of());
+            for (LogEntry log : candidates) {
+                if (affects(log, entry.getKey(), entry.getValue())) {
+                    pages.invalidate(entry.getKey());
+                    droppedPages.incrementAndGet();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the pages showing the log, after it was archived, unarchived or deleted.
+     */
+    void onChange(long logId) {
+        version.incrementAndGet();
+        Set<Key> keys = keysById.remove(logId);
+        if (keys == null) return;
+        pages.invalidateAll(keys);
+        droppedPages.addAndGet(keys.size());
+    }
+
+    void invalidateAll() {
+        version.incrementAndGet();
+        pages.invalidateAll();
+        keysById.clear();
+    }
+
+    long size() {
+        return pages.size();
+    }
+
+    CacheStats stats() {
+        return pages.stats();
+    }
+
+    /**
+     * @return The number of pages dropped because logs they could hold changed, not counting full clears.
+     */
+    long getDroppedPages() {
+        return droppedPages.get();
+    }
+
+    /**
+     * Whether the log could be on the page. Only the log type, time and numeric conditions are checked,
+     * the others are assumed to match as text matching differs between databases.
+     */
+    private static boolean affects(LogEntry log, Key key, LogPage page) {
+        LogCursor cursor = key.cursor();
+        if (!cursor.admits(log.getId())) return false;
+        // A page with more logs past it only changes if the log falls between its ends
+        List<LogEntry> logs = page.logs();
+        if (cursor.isOlder() && page.older() != null && !logs.isEmpty() && log.getId() < logs.get(logs.size() - 1).getId()) {
+            return false;
+        }
+        if (!cursor.isOlder() && page.newer() != null && !logs.isEmpty() && log.getId() > logs.get(0).getId()) {
+            return false;
+        }
+
+        List<FilterCondition> conditions = key.filter().getConditions();
+        long[] range = LogTable.timeRange(conditions);
+        long timestamp = log.getTimestamp().toEpochMilli();
+        if (timestamp < range[0] || timestamp > range[1]) return false;
+        for (FilterCondition condition : conditions) {
+            if ("timestamp".equals(condition.key()) || !NUMERIC.contains(condition.comparator())) continue;
+            if (!MemoryStorageBackend.matches(log.getData().getString(condition.key()), condition)) return false;
+        }
+        return true;
+    }
+
+    private void unindex(Key key, LogPage page) {
+        if (key == null || page == null) return;
+        for (LogEntry log : page.logs()) {
+            keysById.computeIfPresent(log.getId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogData;
+
+import java.io.IOException;
+import java.sql.Connection;
+
+/**
+ * Encodes the values of a log for the {@code data} column of the shared table. Every row records the ID
+ * of the codec it was written with, so rows from different codecs are read side by side. ID 0 is plain
+ * JSON text, which the table writes itself so the database's JSON functions keep working on it.
+ */
+public interface PayloadCodec {
+
+    int JSON_ID = 0;
+
+    /**
+     * @return The ID stored with every row written by this codec. Never reused for another format.
+     */
+    int getId();
+
+    byte[] encode(LogData data);
+
+    /**
+     * Puts every value of the payload into the target.
+     * @param conn The connection the row was read with, for dictionary entries that are not cached.
+     */
+    void decode(byte[] payload, LogData target, Connection conn) throws IOException;
+
+    /**
+     * Reads a single value, for filtering in SQL.
+     * @return The value as {@code json_extract} would return it (a Long, Double or String), or null if absent.
+     */
+    Object extract(byte[] payload, String key) throws IOException;
+}
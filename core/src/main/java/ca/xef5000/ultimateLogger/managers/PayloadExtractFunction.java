@@ -0,0 +1,47 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import org.sqlite.Function;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * The SQLite function {@code ul_extract(codec, data, key)}: reads one value of a binary payload,
+ * so advanced filters also match rows that are not stored as JSON.
+ */
+class PayloadExtractFunction extends Function {
+
+    static final String NAME = "ul_extract";
+
+    private final Map<Integer, PayloadCodec> codecs;
+
+    PayloadExtractFunction(Map<Integer, PayloadCodec> codecs) {
+        this.codecs = codecs;
+    }
+
+    @Override
+    protected void xFunc() throws SQLException {
+        PayloadCodec codec = codecs.get(value_int(0));
+        byte[] payload = value_blob(1);
+        if (codec == null || payload == null) {
+            result();
+            return;
+        }
+
+        try {
+            Object value = codec.extract(payload, value_text(2));
+            if (value instanceof Long number) {
+                result((long) number);
+            } else if (value instanceof Double number) {
+                result((double) number);
+            } else if (value != null) {
+                result(value.toString());
+            } else {
+                result();
+            }
+        } catch (IOException e) {
+            result(); // An unreadable payload matches nothing
+        }
+    }
+}
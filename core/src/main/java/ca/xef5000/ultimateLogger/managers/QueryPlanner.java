@@ -0,0 +1,91 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogCursor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Compiles log filters to SQL in the dialect of the database. The text of a statement only depends on the
+ * table and the filter's {@link LogFilter#getShape() shape}, so it is built once per shape and cached;
+ * each call then only collects the parameters for the filter's values.
+ */
+final class QueryPlanner {
+
+    // Shapes come from players' filters, so the cache is bounded
+    private static final int MAX_STATEMENTS = 512;
+
+    /**
+     * @param sql The statement, or the {@code WHERE} clause for {@link #where}.
+     * @param params The parameters, in order.
+     */
+    record Plan(String sql, List<Object> params) {}
+
+    private final DatabaseManager dbManager;
+    // By table instance, as a table's columns can change while its name stays
+    private final Map<LogTable, Map<String, String>> statements = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    QueryPlanner(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Plans the read of up to {@code limit} logs of the table past the cursor, nearest to it first.
+     * The cursor's ID is the last parameter.
+     */
+    Plan page(LogTable table, LogFilter filter, LogCursor cursor, int limit) {
+        String key = "page " + cursor.direction() + " " + limit + " " + shapeOf(table, filter);
+        // LIMIT is written into the SQL due to JDBC limitations
+        String sql = statement(table, key, () -> "SELECT " + table.selectColumns() + " FROM " + table.getName() + whereText(table, filter)
+                + (cursor.isOlder() ? "AND id < ? ORDER BY id DESC LIMIT " : "AND id > ? ORDER BY id ASC LIMIT ") + limit);
+        List<Object> params = params(table, filter);
+        params.add(cursor.id());
+        return new Plan(sql, params);
+    }
+
+    /**
+     * Plans the {@code WHERE} clause selecting the table's logs that match the filter. It ends with a
+     * space, so more {@code AND} clauses can follow.
+     */
+    Plan where(LogTable table, LogFilter filter) {
+        String sql = statement(table, "where " + shapeOf(table, filter), () -> whereText(table, filter));
+        return new Plan(sql, params(table, filter));
+    }
+
+    private String shapeOf(LogTable table, LogFilter filter) {
+        return filter.getShape() + " " + table.variant(filter.getConditions());
+    }
+
+    private String statement(LogTable table, String key, Supplier<String> builder) {
+        Map<String, String> tableStatements = statements.computeIfAbsent(table, t -> new ConcurrentHashMap<>());
+        String sql = tableStatements.get(key);
+        if (sql == null) {
+            if (size.incrementAndGet() > MAX_STATEMENTS) {
+                statements.clear();
+                size.set(0);
+            }
+            sql = builder.get();
+            tableStatements.put(key, sql);
+        }
+        return sql;
+    }
+
+    private String whereText(LogTable table, LogFilter filter) {
+        StringBuilder sql = new StringBuilder(" WHERE ");
+        sql.append(filter.getLogType() != null && table.isShared() ? "log_type = ? " : "1=1 ");
+        table.appendConditions(sql, new ArrayList<>(), filter.getConditions(), dbManager.isMySql());
+        return sql.toString();
+    }
+
+    private List<Object> params(LogTable table, LogFilter filter) {
+        List<Object> params = new ArrayList<>();
+        if (filter.getLogType() != null && table.isShared()) params.add(filter.getLogType());
+        table.appendConditions(null, params, filter.getConditions(), dbManager.isMySql());
+        return params;
+    }
+}
@@ -0,0 +1,181 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings the database schema up to date by applying numbered migrations in order.
+ * The applied versions are recorded in {@code ultimate_logs_schema_version}, so each
+ * migration runs exactly once per database. New schema changes are added to the end of
+ * {@link #MIGRATIONS} and must never be edited once released.
+ * <p>
+ * Runs off the main thread, as MySQL index builds on a large table can take minutes. MySQL changes
+ * are written as online DDL, so the table stays readable and writable meanwhile.
+ */
+public class SchemaMigrator {
+
+    private static final String VERSION_TABLE = "ultimate_logs_schema_version";
+
+    // MySQL error codes raised when an index or column already exists
+    static final int MYSQL_DUPLICATE_KEY_NAME = 1061;
+    private static final int MYSQL_DUPLICATE_COLUMN_NAME = 1060;
+
+    /**
+     * One schema change, with the statements for each dialect.
+     */
+    private record Migration(int version, String description, List<String> sqlite, List<String> mysql) {}
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create the logs table",
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "log_type TEXT NOT NULL, " +
+                            "timestamp INTEGER NOT NULL, " +
+                            "is_archived INTEGER NOT NULL DEFAULT 0, " +
+                            "expires_at INTEGER, " +
+                            "data TEXT NOT NULL)"),
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs (" +
+                            "id BIGINT PRIMARY KEY AUTO_INCREMENT, " +
+                            "log_type VARCHAR(255) NOT NULL, " +
+                            "timestamp BIGINT NOT NULL, " +
+                            "is_archived BOOLEAN NOT NULL DEFAULT FALSE, " +
+                            "expires_at BIGINT, " +
+                            "data JSON NOT NULL)")),
+            new Migration(2, "Index log pages, timestamps and expiry",
+                    List.of("CREATE INDEX IF NOT EXISTS idx_logs_type_id ON ultimate_logs (log_type, id)",
+                            "CREATE INDEX IF NOT EXISTS idx_logs_timestamp ON ultimate_logs (timestamp)",
+                            // Only non-archived logs ever expire, so archived rows stay out of the index
+                            "CREATE INDEX IF NOT EXISTS idx_logs_expiry ON ultimate_logs (expires_at) WHERE is_archived = 0"),
+                    // MySQL has no partial indexes; is_archived leads instead. INPLACE/NONE keeps the table writable.
+                    List.of("ALTER TABLE ultimate_logs ADD INDEX idx_logs_type_id (log_type, id), ALGORITHM=INPLACE, LOCK=NONE",
+                            "ALTER TABLE ultimate_logs ADD INDEX idx_logs_timestamp (timestamp), ALGORITHM=INPLACE, LOCK=NONE",
+                            "ALTER TABLE ultimate_logs ADD INDEX idx_logs_expiry (is_archived, expires_at), ALGORITHM=INPLACE, LOCK=NONE")),
+            new Migration(3, "Create the player, world and material dictionaries",
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs_dict_players (" +
+                                    "id INTEGER PRIMARY KEY AUTOINCREMENT, uuid BLOB NOT NULL UNIQUE, name TEXT)",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_worlds (" +
+                                    "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE)",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_materials (" +
+                                    "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE)"),
+                    // Binary collation so world names differing only in case stay apart
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs_dict_players (" +
+                                    "id INT PRIMARY KEY AUTO_INCREMENT, uuid BINARY(16) NOT NULL UNIQUE, name VARCHAR(64))",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_worlds (" +
+                                    "id INT PRIMARY KEY AUTO_INCREMENT, name VARCHAR(191) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL UNIQUE)",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_materials (" +
+                                    "id INT PRIMARY KEY AUTO_INCREMENT, name VARCHAR(191) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL UNIQUE)")),
+            new Migration(4, "Record the payload codec of each log",
+                    List.of("ALTER TABLE ultimate_logs ADD COLUMN codec INTEGER NOT NULL DEFAULT 0",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_keys (" +
+                                    "id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL UNIQUE)"),
+                    List.of("ALTER TABLE ultimate_logs ADD COLUMN codec TINYINT NOT NULL DEFAULT 0, ALGORITHM=INPLACE, LOCK=NONE",
+                            "CREATE TABLE IF NOT EXISTS ultimate_logs_dict_keys (" +
+                                    "id INT PRIMARY KEY AUTO_INCREMENT, name VARCHAR(191) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL UNIQUE)")),
+            // Filled from the existing logs by the SQL backend when it finds the table empty
+            new Migration(5, "Create the log counters",
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs_counts (" +
+                            "log_type TEXT NOT NULL, day INTEGER NOT NULL, is_archived INTEGER NOT NULL, log_count INTEGER NOT NULL, " +
+                            "PRIMARY KEY (log_type, day, is_archived)) WITHOUT ROWID"),
+                    List.of("CREATE TABLE IF NOT EXISTS ultimate_logs_counts (" +
+                            "log_type VARCHAR(255) NOT NULL, day INT NOT NULL, is_archived BOOLEAN NOT NULL, log_count BIGINT NOT NULL, " +
+                            "PRIMARY KEY (log_type, day, is_archived))"))
+    );
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+
+    public SchemaMigrator(UltimateLogger plugin, DatabaseManager dbManager) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Applies every migration newer than the database's current version.
+     * @return true if the schema is up to date.
+     */
+    public boolean migrate() {
+        boolean mySql = dbManager.isMySql();
+        try (Connection conn = dbManager.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " (" +
+                        "version INTEGER PRIMARY KEY, " +
+                        "description VARCHAR(255) NOT NULL, " +
+                        "applied_at BIGINT NOT NULL)");
+            }
+
+            int current = getCurrentVersion(conn);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= current) continue;
+                plugin.getLogger().info("Applying database migration " + migration.version() + ": " + migration.description() + "...");
+                long start = System.nanoTime();
+                apply(conn, migration, mySql);
+                plugin.getLogger().info("Applied database migration " + migration.version() + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            }
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not update the database schema!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @return The highest migration this plugin knows about.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+    }
+
+    private int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + VERSION_TABLE)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(Connection conn, Migration migration, boolean mySql) throws SQLException {
+        // SQLite DDL is transactional, so a failed migration leaves nothing behind.
+        // MySQL commits each DDL statement on its own, so they are written to be safe to re-run.
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(mySql);
+        try {
+            List<String> statements = mySql ? migration.mysql() : migration.sqlite();
+            try (Statement stmt = conn.createStatement()) {
+                for (int i = 0; i < statements.size(); i++) {
+                    try {
+                        stmt.execute(statements.get(i));
+                    } catch (SQLException e) {
+                        boolean alreadyDone = e.getErrorCode() == MYSQL_DUPLICATE_KEY_NAME || e.getErrorCode() == MYSQL_DUPLICATE_COLUMN_NAME;
+                        if (!mySql || !alreadyDone) throw e;
+                    }
+                    if (statements.size() > 1) {
+                        plugin.getLogger().info("  Migration " + migration.version() + ": step " + (i + 1) + "/" + statements.size() + " done");
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO " + VERSION_TABLE + " (version, description, applied_at) VALUES (?, ?, ?)")) {
+                pstmt.setInt(1, migration.version());
+                pstmt.setString(2, migration.description());
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.executeUpdate();
+            }
+
+            if (!mySql) conn.commit();
+        } catch (SQLException e) {
+            if (!mySql) conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,840 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCounts;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+import ca.xef5000.ultimateLogger.api.StorageException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+import java.util.zip.CRC32;
+
+/**
+ * Stores logs in append-only, memory-mapped segment files, without any database.
+ * <p>
+ * Each log is one length-prefixed record appended to the active segment. A segment is sealed once it is
+ * full or older than the configured age. Sealed segments are deleted as a whole once every log in them
+ * has expired. If archived logs are left, the segment is rewritten with only those, in the same order,
+ * so its IDs stay sorted and it keeps its place among the other segments.
+ * <p>
+ * For each segment, an index is kept in memory and rebuilt by scanning the files on startup:
+ * <ul>
+ *     <li>a sparse index of (id, timestamp, offset) for every {@value #SPARSE_INTERVAL}th record</li>
+ *     <li>for each log type, the offsets of its records</li>
+ * </ul>
+ * Archiving and deleting a log flip flags in its record header in place.
+ * <p>
+ * Record layout: {@code int bodyLength | int crc32(body) | byte flags | long expiresAt | long id | long timestamp | short typeLength | type | json}
+ */
+public class SegmentStorageBackend implements StorageBackend {
+
+    private static final int SPARSE_INTERVAL = 64;
+
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8; // Body length + CRC + flags + expiry
+    private static final int FIXED_BODY_SIZE = 8 + 8 + 2; // ID + timestamp + type length
+    private static final int FLAGS_OFFSET = 8;
+    private static final int EXPIRES_OFFSET = 9;
+    private static final int ID_OFFSET = HEADER_SIZE;
+    private static final int TIMESTAMP_OFFSET = HEADER_SIZE + 8;
+    private static final int TYPE_OFFSET = HEADER_SIZE + 16;
+
+    private static final byte ARCHIVED = 1;
+    private static final byte DELETED = 2;
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private final UltimateLogger plugin;
+    private final File directory;
+    private final int segmentSize;
+    private final long maxSegmentAgeMillis;
+    private final BiFunction<String, String, LogData> parser;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long maxId = Long.MIN_VALUE;
+
+    // Live logs per type, day and archived flag, rebuilt with the index on startup
+    private final LogCounter counter = new LogCounter();
+
+    /**
+     * @param parser Turns a log type and its JSON values into LogData.
+     */
+    public SegmentStorageBackend(UltimateLogger plugin, BiFunction<String, String, LogData> parser) {
+        ConfigManager config = plugin.getConfigManager();
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), config.getSegmentDirectory());
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, config.getSegmentSizeMb()) * 1024L * 1024L);
+        this.maxSegmentAgeMillis = TimeUnit.HOURS.toMillis(Math.max(1, config.getSegmentMaxAgeHours()));
+        this.parser = parser;
+    }
+
+    /**
+     * Maps the segments left by a previous run and rebuilds their index. Writing continues in the newest one.
+     */
+    @Override
+    public void open() throws StorageException {
+        lock.writeLock().lock();
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new StorageException("Could not create segment directory " + directory);
+            }
+
+            // A rewrite that did not finish; the segment it was made from is still there
+            File[] unfinished = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX + ".tmp"));
+            if (unfinished != null) {
+                for (File file : unfinished) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+
+            File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+            if (files != null) {
+                for (File file : files) {
+                    String number = file.getName().substring(SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length());
+                    try {
+                        Segment segment = new Segment(Long.parseLong(number), file);
+                        map(segment, false);
+                        load(segment);
+                        segment.sealed = true;
+                        segments.put(segment.index, segment);
+                    } catch (NumberFormatException e) {
+                        plugin.getLogger().warning("Ignoring unexpected file in the segment directory: " + file.getName());
+                    }
+                }
+            }
+
+            if (segments.isEmpty()) {
+                active = createSegment(0);
+            } else {
+                active = segments.lastEntry().getValue();
+                active.sealed = false;
+                if (active.capacity < segmentSize) map(active, true); // Room to write again
+                plugin.getLogger().info("Loaded " + segments.size() + " log segment(s).");
+            }
+        } catch (IOException e) {
+            throw new StorageException("Could not open the log segments: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (active != null && active.buffer != null) {
+                active.buffer.force();
+            }
+            for (Segment segment : segments.values()) {
+                segment.buffer = null;
+            }
+            segments.clear();
+            active = null;
+            counter.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] write(List<LogEntry> logs, long retentionMillis) throws StorageException {
+        boolean[] inserted = new boolean[logs.size()];
+        List<Location> appended = new ArrayList<>(logs.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < logs.size(); i++) {
+                LogEntry log = logs.get(i);
+                // IDs only go up, except for logs replayed from the journal
+                if (log.getId() <= maxId && locate(log.getId()) != null) continue;
+
+                byte[] record = encode(log, retentionMillis);
+                if (record == null) {
+                    plugin.getLogger().warning("Log " + log.getId() + " is too large for a segment and was dropped.");
+                    continue;
+                }
+                try {
+                    appended.add(append(record, log.getLogType()));
+                } catch (IOException e) {
+                    // Keep the batch all or nothing: what was already appended is marked deleted
+                    for (Location location : appended) {
+                        markDeleted(location.segment(), location.position());
+                    }
+                    throw new StorageException("Could not write logs to the segment files: " + e.getMessage(), e);
+                }
+                inserted[i] = true;
+            }
+            active.buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return inserted;
+    }
+
+    /**
+     * Pages by ID rather than by file position: logs replayed from the journal can make a segment's IDs
+     * overlap other segments, so the page is the nearest {@code limit} matches over every segment whose
+     * IDs reach past the cursor.
+     */
+    @Override
+    public List<LogEntry> query(String logType, List<FilterCondition> conditions, LogCursor cursor, int limit) {
+        if (limit <= 0) return List.of();
+        long[] range = LogTable.timeRange(conditions);
+        boolean byValue = hasValueConditions(conditions);
+        boolean older = cursor.isOlder();
+        Comparator<LogEntry> order = older ? Comparator.comparingLong(LogEntry::getId).reversed()
+                : Comparator.comparingLong(LogEntry::getId);
+        // The page so far, with the log furthest from the cursor at the head
+        PriorityQueue<LogEntry> page = new PriorityQueue<>(order.reversed());
+
+        lock.readLock().lock();
+        try {
+            List<Segment> candidates = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                if (!segment.overlaps(range)) continue;
+                if (!cursor.admits(older ? segment.minId : segment.maxId)) continue; // Wholly before the cursor
+                candidates.add(segment);
+            }
+            // Segments nearest to the cursor first: by their newest log going older, by their oldest going newer
+            candidates.sort(older ? Comparator.comparingLong((Segment segment) -> segment.maxId).reversed()
+                    : Comparator.comparingLong((Segment segment) -> segment.minId));
+
+            for (Segment segment : candidates) {
+                // The remaining segments start past the last log of a full page, so they cannot make it
+                if (page.size() >= limit && !closer(older, older ? segment.maxId : segment.minId, page.peek().getId())) break;
+
+                Cursor positions = cursor(segment, logType, range, cursor);
+                for (int position; (position = positions.next()) >= 0; ) {
+                    if (!isLive(segment, position, range, conditions)) continue;
+                    long id = segment.buffer.getLong(position + ID_OFFSET);
+                    if (!cursor.admits(id)) continue;
+                    if (page.size() >= limit && !closer(older, id, page.peek().getId())) {
+                        if (segment.sorted) break; // A sorted segment only gets further from the cursor
+                        continue;
+                    }
+                    LogEntry entry = read(segment, position);
+                    if (byValue && !MemoryStorageBackend.matches(entry.getData(), entry.getTimestamp().toEpochMilli(), conditions)) continue;
+                    page.add(entry);
+                    if (page.size() > limit) page.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<LogEntry> logs = new ArrayList<>(page);
+        logs.sort(order);
+        return logs;
+    }
+
+    /**
+     * @return true if the ID is nearer to the cursor than the other one.
+     */
+    private static boolean closer(boolean older, long id, long other) {
+        return older ? id > other : id < other;
+    }
+
+    @Override
+    public Optional<LogEntry> get(long id) {
+        lock.readLock().lock();
+        try {
+            Location location = locate(id);
+            return location != null ? Optional.of(read(location.segment(), location.position())) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks matching logs deleted one segment at a time, so queries can run in between.
+     */
+    @Override
+    public int delete(String logType, List<FilterCondition> conditions, IntPredicate progress) {
+        long[] range = LogTable.timeRange(conditions);
+        boolean byValue = hasValueConditions(conditions);
+
+        int deleted = 0;
+        for (Segment segment : snapshot()) {
+            lock.writeLock().lock();
+            try {
+                if (segments.get(segment.index) != segment || !segment.overlaps(range)) continue;
+                int before = deleted;
+                Cursor cursor = cursor(segment, logType, range, null);
+                for (int position; (position = cursor.next()) >= 0; ) {
+                    if (!isLive(segment, position, range, conditions)) continue;
+                    if (byValue) {
+                        LogEntry entry = read(segment, position);
+                        if (!MemoryStorageBackend.matches(entry.getData(), entry.getTimestamp().toEpochMilli(), conditions)) continue;
+                    }
+                    markDeleted(segment, position);
+                    deleted++;
+                }
+                if (deleted > before) segment.buffer.force();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!progress.test(deleted)) break;
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            Location location = locate(id);
+            if (location == null) return false;
+            markDeleted(location.segment(), location.position());
+            location.segment().buffer.force();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean setArchived(long id, boolean archived, long retentionMillis) {
+        lock.writeLock().lock();
+        try {
+            Location location = locate(id);
+            if (location == null) return false;
+            Segment segment = location.segment();
+            int position = location.position();
+            long expiresAt = archived || retentionMillis <= 0 ? NEVER : System.currentTimeMillis() + retentionMillis;
+            if (((segment.buffer.get(position + FLAGS_OFFSET) & ARCHIVED) != 0) != archived) {
+                counter.setArchived(typeAt(segment, position), segment.buffer.getLong(position + TIMESTAMP_OFFSET), archived);
+                segment.archived += archived ? 1 : -1;
+            }
+            segment.buffer.put(position + FLAGS_OFFSET, archived ? ARCHIVED : 0);
+            segment.buffer.putLong(position + EXPIRES_OFFSET, expiresAt);
+            if (!archived) segment.trackExpiry(expiresAt);
+            segment.buffer.force();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes sealed segments in which every log expired, and marks expired logs deleted in the others.
+     */
+    @Override
+    public int expire(long now, IntPredicate progress) throws StorageException {
+        int deleted = 0;
+        for (Segment segment : snapshot()) {
+            lock.writeLock().lock();
+            try {
+                if (segments.get(segment.index) != segment) continue;
+                // Once only archived logs are left, rewriting the segment would free nothing
+                if (segment.sealed && (segment.live == 0 || (segment.maxExpiresAt < now && segment.count > segment.archived))) {
+                    deleted += drop(segment);
+                } else if (segment.minExpiresAt < now) {
+                    int before = deleted;
+                    for (int position = 0; position < segment.writePosition; position = next(segment, position)) {
+                        if (segment.buffer.get(position + FLAGS_OFFSET) != 0) continue; // Archived or deleted
+                        if (segment.buffer.getLong(position + EXPIRES_OFFSET) >= now) continue;
+                        markDeleted(segment, position);
+                        deleted++;
+                    }
+                    if (deleted > before) segment.buffer.force();
+                }
+            } catch (IOException e) {
+                throw new StorageException("Could not delete log segment " + segment.file.getName() + ": " + e.getMessage(), e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!progress.test(deleted)) break;
+        }
+        return deleted;
+    }
+
+    @Override
+    public LogCounts counts() {
+        lock.readLock().lock();
+        try {
+            return counter.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the segment's file, or rewrites it with only its archived logs if it has any. The new file
+     * replaces the old one atomically, so a crash leaves one or the other.
+     * @return The number of expired logs deleted with it.
+     */
+    private int drop(Segment segment) throws IOException {
+        int expired = 0;
+        ByteArrayOutputStream archived = new ByteArrayOutputStream();
+        for (int position = 0; position < segment.writePosition; position = next(segment, position)) {
+            byte flags = segment.buffer.get(position + FLAGS_OFFSET);
+            if ((flags & DELETED) != 0) continue;
+            if ((flags & ARCHIVED) == 0) {
+                expired++;
+                continue;
+            }
+            byte[] record = new byte[HEADER_SIZE + segment.buffer.getInt(position)];
+            segment.buffer.get(position, record);
+            archived.writeBytes(record);
+        }
+
+        Segment rewritten = null;
+        if (archived.size() > 0) {
+            File temporary = new File(directory, segment.file.getName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer records = ByteBuffer.wrap(archived.toByteArray());
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary.toPath(), segment.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            rewritten = new Segment(segment.index, segment.file);
+        }
+
+        // The archived logs are counted again when the rewritten segment is indexed
+        for (int position = 0; position < segment.writePosition; position = next(segment, position)) {
+            byte flags = segment.buffer.get(position + FLAGS_OFFSET);
+            if ((flags & DELETED) != 0) continue;
+            counter.add(typeAt(segment, position), segment.buffer.getLong(position + TIMESTAMP_OFFSET), (flags & ARCHIVED) != 0, -1);
+        }
+        segments.remove(segment.index);
+        segment.buffer = null;
+
+        if (rewritten != null) {
+            map(rewritten, false);
+            load(rewritten);
+            rewritten.sealed = true;
+            segments.put(rewritten.index, rewritten);
+        } else if (!segment.file.delete() && segment.file.exists()) {
+            // Mapped files cannot always be deleted right away (e.g. on Windows)
+            segment.file.deleteOnExit();
+        }
+        return expired;
+    }
+
+    private Location append(byte[] record, String logType) throws IOException {
+        if (active.writePosition + record.length > active.capacity
+                || (active.count > 0 && System.currentTimeMillis() - active.openedAt > maxSegmentAgeMillis)) {
+            roll();
+        }
+
+        // Write the record before its length, so a crash never leaves a length without its bytes
+        int position = active.writePosition;
+        active.buffer.put(position + 4, record, 4, record.length - 4);
+        active.buffer.putInt(position, record.length - HEADER_SIZE);
+        active.writePosition = position + record.length;
+        index(active, position, logType);
+        return new Location(active, position);
+    }
+
+    private void roll() throws IOException {
+        active.buffer.force();
+        active.sealed = true;
+        active = createSegment(active.index + 1);
+    }
+
+    private Segment createSegment(long index) throws IOException {
+        Segment segment = new Segment(index, new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX)));
+        map(segment, true);
+        segments.put(index, segment);
+        return segment;
+    }
+
+    /**
+     * @param writable Whether logs are appended to the segment, which grows its file to the segment size.
+     */
+    private void map(Segment segment, boolean writable) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.min(Integer.MAX_VALUE, writable ? Math.max(channel.size(), segmentSize) : channel.size());
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            segment.capacity = (int) size;
+        }
+    }
+
+    /**
+     * Indexes every valid record of a segment, stopping at the end of its data or at a torn record.
+     */
+    private void load(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_SIZE <= segment.capacity) {
+            int bodyLength = buffer.getInt(position);
+            if (bodyLength < FIXED_BODY_SIZE || bodyLength > segment.capacity - position - HEADER_SIZE) break;
+
+            byte[] body = new byte[bodyLength];
+            buffer.get(position + HEADER_SIZE, body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            int typeLength = buffer.getShort(position + TYPE_OFFSET);
+            if ((int) crc.getValue() != buffer.getInt(position + 4) || typeLength < 0 || FIXED_BODY_SIZE + typeLength > bodyLength) break;
+
+            index(segment, position, new String(body, FIXED_BODY_SIZE, typeLength, StandardCharsets.UTF_8));
+            position += HEADER_SIZE + bodyLength;
+        }
+        segment.writePosition = position;
+    }
+
+    private void index(Segment segment, int position, String logType) {
+        MappedByteBuffer buffer = segment.buffer;
+        long id = buffer.getLong(position + ID_OFFSET);
+        long timestamp = buffer.getLong(position + TIMESTAMP_OFFSET);
+
+        if (segment.count > 0 && (id < segment.maxId || timestamp < segment.maxTimestamp)) {
+            segment.sorted = false; // Sparse index lookups no longer hold for this segment
+        }
+        if (segment.count % SPARSE_INTERVAL == 0) {
+            segment.sparseIds.add(id);
+            segment.sparseTimestamps.add(timestamp);
+            segment.sparseOffsets.add(position);
+        }
+        segment.postings.computeIfAbsent(logType, type -> new IntList()).add(position);
+        segment.count++;
+        segment.minId = Math.min(segment.minId, id);
+        segment.maxId = Math.max(segment.maxId, id);
+        segment.minTimestamp = Math.min(segment.minTimestamp, timestamp);
+        segment.maxTimestamp = Math.max(segment.maxTimestamp, timestamp);
+        maxId = Math.max(maxId, id);
+
+        byte flags = buffer.get(position + FLAGS_OFFSET);
+        if ((flags & DELETED) == 0) {
+            segment.live++;
+            if ((flags & ARCHIVED) != 0) segment.archived++;
+            counter.add(logType, timestamp, (flags & ARCHIVED) != 0, 1);
+            if ((flags & ARCHIVED) == 0) segment.trackExpiry(buffer.getLong(position + EXPIRES_OFFSET));
+        }
+    }
+
+    /**
+     * @return Where the live log with the ID is stored, or null.
+     */
+    private Location locate(long id) {
+        for (Segment segment : segments.descendingMap().values()) {
+            if (segment.count == 0 || id < segment.minId || id > segment.maxId) continue;
+
+            int position = 0;
+            if (segment.sorted) {
+                int entry = segment.sparseIds.countAtMost(id) - 1;
+                if (entry < 0) continue;
+                position = segment.sparseOffsets.get(entry);
+            }
+            for (; position < segment.writePosition; position = next(segment, position)) {
+                long recordId = segment.buffer.getLong(position + ID_OFFSET);
+                if (recordId == id && (segment.buffer.get(position + FLAGS_OFFSET) & DELETED) == 0) {
+                    return new Location(segment, position);
+                }
+                if (segment.sorted && recordId > id) break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Walks the segment's records of one type, or of every type, away from the log cursor: from newest to
+     * oldest without one. In a sorted segment, the sparse index narrows the walk to the records around the
+     * time range and past the log cursor.
+     */
+    private Cursor cursor(Segment segment, String logType, long[] range, LogCursor logCursor) {
+        Collection<IntList> lists;
+        if (logType == null) {
+            lists = segment.postings.values();
+        } else {
+            IntList list = segment.postings.get(logType);
+            lists = list != null ? List.of(list) : List.of();
+        }
+
+        int from = 0;
+        int to = segment.writePosition;
+        if (segment.sorted) {
+            int first = segment.sparseTimestamps.countBelow(range[0]) - 1;
+            if (first >= 0) from = segment.sparseOffsets.get(first);
+            int last = segment.sparseTimestamps.countAtMost(range[1]);
+            if (last < segment.sparseTimestamps.size()) to = segment.sparseOffsets.get(last);
+
+            if (logCursor != null && logCursor.isOlder()) {
+                int past = segment.sparseIds.countBelow(logCursor.id());
+                if (past < segment.sparseIds.size()) to = Math.min(to, segment.sparseOffsets.get(past));
+            } else if (logCursor != null) {
+                int before = segment.sparseIds.countAtMost(logCursor.id()) - 1;
+                if (before >= 0) from = Math.max(from, segment.sparseOffsets.get(before));
+            }
+        }
+        return new Cursor(lists, from, to, logCursor != null && !logCursor.isOlder());
+    }
+
+    /**
+     * @return true if the record is not deleted and its timestamp meets the time conditions, including
+     *         {@code timestamp !=}, which the range leaves out.
+     */
+    private boolean isLive(Segment segment, int position, long[] range, List<FilterCondition> conditions) {
+        if ((segment.buffer.get(position + FLAGS_OFFSET) & DELETED) != 0) return false;
+        long timestamp = segment.buffer.getLong(position + TIMESTAMP_OFFSET);
+        if (timestamp < range[0] || timestamp > range[1]) return false;
+        for (FilterCondition condition : conditions) {
+            if ("timestamp".equalsIgnoreCase(condition.key()) && !MemoryStorageBackend.matchesTime(timestamp, condition)) return false;
+        }
+        return true;
+    }
+
+    private void markDeleted(Segment segment, int position) {
+        byte flags = segment.buffer.get(position + FLAGS_OFFSET);
+        if ((flags & DELETED) != 0) return;
+        segment.buffer.put(position + FLAGS_OFFSET, (byte) (flags | DELETED));
+        segment.live--;
+        if ((flags & ARCHIVED) != 0) segment.archived--;
+        counter.add(typeAt(segment, position), segment.buffer.getLong(position + TIMESTAMP_OFFSET), (flags & ARCHIVED) != 0, -1);
+    }
+
+    private LogEntry read(Segment segment, int position) {
+        MappedByteBuffer buffer = segment.buffer;
+        int bodyLength = buffer.getInt(position);
+        long id = buffer.getLong(position + ID_OFFSET);
+        long timestamp = buffer.getLong(position + TIMESTAMP_OFFSET);
+        int typeLength = buffer.getShort(position + TYPE_OFFSET);
+
+        byte[] bytes = new byte[bodyLength - FIXED_BODY_SIZE];
+        buffer.get(position + TYPE_OFFSET + 2, bytes);
+        String logType = new String(bytes, 0, typeLength, StandardCharsets.UTF_8);
+        LogData data = parser.apply(logType, new String(bytes, typeLength, bytes.length - typeLength, StandardCharsets.UTF_8));
+        data.setId(id);
+        boolean archived = (buffer.get(position + FLAGS_OFFSET) & ARCHIVED) != 0;
+        return new LogEntry(id, logType, Instant.ofEpochMilli(timestamp), archived, data);
+    }
+
+    private String typeAt(Segment segment, int position) {
+        byte[] type = new byte[segment.buffer.getShort(position + TYPE_OFFSET)];
+        segment.buffer.get(position + TYPE_OFFSET + 2, type);
+        return new String(type, StandardCharsets.UTF_8);
+    }
+
+    private List<Segment> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(segments.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int next(Segment segment, int position) {
+        return position + HEADER_SIZE + segment.buffer.getInt(position);
+    }
+
+    /**
+     * @return The complete record, or null if it cannot fit in a segment.
+     */
+    private byte[] encode(LogEntry log, long retentionMillis) {
+        byte[] type = log.getLogType().getBytes(StandardCharsets.UTF_8);
+        byte[] json = log.getData().toJson().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = FIXED_BODY_SIZE + type.length + json.length;
+        if (type.length > Short.MAX_VALUE || (long) HEADER_SIZE + bodyLength > segmentSize) {
+            return null;
+        }
+
+        long timestamp = log.getTimestamp().toEpochMilli();
+        boolean archived = log.isArchived();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        record.putInt(bodyLength).putInt(0)
+                .put(archived ? ARCHIVED : 0)
+                .putLong(archived || retentionMillis <= 0 ? NEVER : timestamp + retentionMillis)
+                .putLong(log.getId()).putLong(timestamp).putShort((short) type.length).put(type).put(json);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, bodyLength);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static boolean hasValueConditions(List<FilterCondition> conditions) {
+        for (FilterCondition condition : conditions) {
+            if (!"timestamp".equalsIgnoreCase(condition.key())) return true;
+        }
+        return false;
+    }
+
+    private record Location(Segment segment, int position) {
+    }
+
+    private static final class Segment {
+        final long index;
+        final File file;
+        final long openedAt = System.currentTimeMillis();
+        MappedByteBuffer buffer;
+        int capacity;
+        int writePosition;
+        boolean sealed;
+
+        // Whether IDs and timestamps only went up, so the sparse index can be searched
+        boolean sorted = true;
+        final LongList sparseIds = new LongList();
+        final LongList sparseTimestamps = new LongList();
+        final IntList sparseOffsets = new IntList();
+        // Record offsets per log type, in write order
+        final Map<String, IntList> postings = new HashMap<>();
+
+        int count;
+        int live;
+        int archived; // Live logs that are archived
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        // Bounds on when the logs that are neither archived nor deleted expire
+        long minExpiresAt = NEVER;
+        long maxExpiresAt = Long.MIN_VALUE;
+
+        Segment(long index, File file) {
+            this.index = index;
+            this.file = file;
+        }
+
+        boolean overlaps(long[] range) {
+            return count > 0 && maxTimestamp >= range[0] && minTimestamp <= range[1];
+        }
+
+        void trackExpiry(long expiresAt) {
+            minExpiresAt = Math.min(minExpiresAt, expiresAt);
+            maxExpiresAt = Math.max(maxExpiresAt, expiresAt);
+        }
+    }
+
+    /**
+     * Merges the offset lists of a segment from the highest offset down, within [from, to).
+     */
+    private static final class Cursor {
+        private final IntList[] lists;
+        private final int[] positions;
+        private final int from;
+        private final int to;
+        private final boolean ascending;
+
+        Cursor(Collection<IntList> lists, int from, int to, boolean ascending) {
+            this.lists = lists.toArray(new IntList[0]);
+            this.positions = new int[this.lists.length];
+            this.from = from;
+            this.to = to;
+            this.ascending = ascending;
+            for (int i = 0; i < this.lists.length; i++) {
+                positions[i] = ascending ? this.lists[i].countBelow(from) : this.lists[i].countBelow(to) - 1;
+            }
+        }
+
+        /**
+         * @return The next record offset, or -1 when done.
+         */
+        int next() {
+            int best = -1;
+            int bestOffset = -1;
+            for (int i = 0; i < lists.length; i++) {
+                if (positions[i] < 0 || positions[i] >= lists[i].size()) continue;
+                int offset = lists[i].get(positions[i]);
+                boolean closer = ascending ? offset < to && (best < 0 || offset < bestOffset)
+                        : offset >= from && offset > bestOffset;
+                if (closer) {
+                    best = i;
+                    bestOffset = offset;
+                }
+            }
+            if (best < 0) return -1;
+            positions[best] += ascending ? 1 : -1;
+            return bestOffset;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return The number of values lower than the given one. Values must be ascending.
+         */
+        int countBelow(int value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return The number of values lower than the given one. Values must be ascending.
+         */
+        int countBelow(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * @return The number of values lower than or equal to the given one. Values must be ascending.
+         */
+        int countAtMost(long value) {
+            return value == Long.MAX_VALUE ? size : countBelow(value + 1);
+        }
+    }
+}
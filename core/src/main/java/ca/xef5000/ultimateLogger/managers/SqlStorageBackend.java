@@ -0,0 +1,695 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCounts;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogDefinition;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+import ca.xef5000.ultimateLogger.api.StorageException;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Stores logs in SQLite or MySQL through the {@link DatabaseManager}. Logs live in the shared table, or
+ * in their type's table with the {@code TYPED} layout, or in a time partition when partitioning is on.
+ * With the cold tier on, old logs are moved out to files and queries merge them back in.
+ * Large deletions run in ID-range chunks that commit on their own.
+ * <p>
+ * Every write and deletion also updates the {@link CountersTable counters} in the same transaction.
+ */
+public class SqlStorageBackend implements StorageBackend {
+
+    // Pages freed per incremental_vacuum, so one run never holds the writer for long
+    private static final int VACUUM_PAGES = 2048;
+    // IDs looked up per statement, below SQLite's oldest limit of 999 parameters
+    private static final int ID_CHUNK = 500;
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+    private final BiFunction<String, String, LogData> parser;
+    private final int chunkSize;
+    private final QueryPlanner planner;
+    private final CountersTable counters;
+
+    // Player, world, material and key ids, for typed tables and binary payloads
+    private final LogDictionary dictionary;
+
+    private final LogTable sharedTable;
+
+    // One table per log type, null when every log type shares one table
+    private final TypedLogTables typedTables;
+
+    // Day or week partitions of the shared table, null when disabled
+    private final TimePartitions partitions;
+
+    // Files that old logs are moved to, null when disabled
+    private final ColdTier coldTier;
+
+    // Tables that had logs deleted since the last maintenance
+    private final Set<String> touchedTables = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param parser Turns a log type and its JSON values into LogData.
+     */
+    public SqlStorageBackend(UltimateLogger plugin, DatabaseManager dbManager, BiFunction<String, String, LogData> parser) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.parser = parser;
+        this.chunkSize = Math.max(1, plugin.getConfigManager().getDeletionChunkSize());
+        this.planner = new QueryPlanner(dbManager);
+        this.counters = new CountersTable(dbManager);
+        this.dictionary = new LogDictionary(plugin, dbManager);
+        this.sharedTable = createSharedTable();
+        this.typedTables = plugin.getConfigManager().isTypedLayout()
+                ? new TypedLogTables(plugin, dbManager, dictionary, sharedTable, parser) : null;
+        this.partitions = plugin.getConfigManager().isPartitioningEnabled()
+                ? new TimePartitions(plugin, dbManager, sharedTable) : null;
+        this.coldTier = plugin.getConfigManager().isColdTierEnabled()
+                ? new ColdTier(plugin, dbManager, parser, () -> tablesFor(null, Long.MIN_VALUE, Long.MAX_VALUE)) : null;
+    }
+
+    private LogTable createSharedTable() {
+        // Every codec stays readable, whichever one new logs are written with
+        BinaryPayloadCodec binary = new BinaryPayloadCodec(dictionary);
+        DeflatePayloadCodec deflate = new DeflatePayloadCodec(binary, plugin.getConfigManager().getPayloadCompressMinBytes());
+        Map<Integer, PayloadCodec> codecs = Map.of(binary.getId(), binary, deflate.getId(), deflate);
+        dbManager.registerSQLiteFunction(PayloadExtractFunction.NAME, () -> new PayloadExtractFunction(codecs));
+
+        PayloadCodec writeCodec = switch (plugin.getConfigManager().getPayloadCodec()) {
+            case "BINARY" -> binary;
+            case "DEFLATE" -> deflate;
+            default -> null; // JSON
+        };
+        if (writeCodec != null && dbManager.isMySql()) {
+            plugin.getLogger().warning("Binary log payloads need SQLite, logs are saved as JSON instead.");
+            writeCodec = null;
+        }
+        return LogTable.shared(dictionary, writeCodec, codecs);
+    }
+
+    @Override
+    public void open() throws StorageException {
+        if (!new SchemaMigrator(plugin, dbManager).migrate()) {
+            throw new StorageException("The database schema could not be updated");
+        }
+        dictionary.warm();
+        if (partitions != null) {
+            partitions.start(); // Before the writer, so new logs already go to their period
+        }
+        if (typedTables != null) {
+            typedTables.start();
+        }
+        if (coldTier != null) {
+            coldTier.start();
+        }
+        rebuildCountsIfEmpty();
+    }
+
+    /**
+     * Fills the counters from the logs, once after they are created. Counted in one transaction, so logs
+     * moving between tables meanwhile are counted once.
+     */
+    private void rebuildCountsIfEmpty() throws StorageException {
+        try (Connection conn = dbManager.getConnection()) {
+            if (!counters.isEmpty(conn)) return;
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                // Typed tables are only known once their log type registers, so they are found by their extra column
+                Map<String, String> tables = new LinkedHashMap<>();
+                for (LogTable table : tablesFor(null, Long.MIN_VALUE, Long.MAX_VALUE)) {
+                    tables.put(table.getName(), table.getLogType());
+                }
+                DatabaseMetaData metaData = conn.getMetaData();
+                try (ResultSet rs = metaData.getColumns(conn.getCatalog(), null, "%", "extra")) {
+                    String prefix = LogTable.SHARED_TABLE + "_";
+                    while (rs.next()) {
+                        String name = rs.getString("TABLE_NAME");
+                        if (name.startsWith(prefix)) tables.putIfAbsent(name, name.substring(prefix.length()));
+                    }
+                }
+
+                LogCounter counts = new LogCounter();
+                for (Map.Entry<String, String> table : tables.entrySet()) {
+                    counters.tally(conn, table.getKey(), table.getValue(), " WHERE 1=1 ", List.of(), 1, counts);
+                }
+                if (coldTier != null) {
+                    coldTier.tally(counts);
+                }
+                counters.apply(conn, counts);
+                conn.commit();
+                if (!counts.isEmpty()) {
+                    plugin.getLogger().info("Counted " + counts.snapshot().total(null) + " logs for the log counters.");
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Could not count the stored logs: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (coldTier != null) {
+            coldTier.shutdown();
+        }
+        if (typedTables != null) {
+            typedTables.shutdown();
+        }
+        if (partitions != null) {
+            partitions.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isReachable() {
+        return dbManager.isReachable();
+    }
+
+    @Override
+    public void registerLogType(LogDefinition<?> definition) {
+        if (typedTables != null) {
+            typedTables.register(definition);
+        }
+    }
+
+    @Override
+    public boolean[] write(List<LogEntry> logs, long retentionMillis) throws StorageException {
+        boolean mySql = dbManager.isMySql();
+
+        // Each log goes to its type's table, its period or the shared table
+        Map<LogTable, List<Integer>> rowsByTable = new LinkedHashMap<>();
+        for (int i = 0; i < logs.size(); i++) {
+            rowsByTable.computeIfAbsent(tableFor(logs.get(i)), table -> new ArrayList<>()).add(i);
+        }
+        boolean[] inserted = new boolean[logs.size()];
+
+        try (Connection conn = dbManager.getConnection()) {
+            // New players, worlds and materials get their ids before the logs that refer to them
+            for (Map.Entry<LogTable, List<Integer>> entry : rowsByTable.entrySet()) {
+                List<LogData> data = new ArrayList<>(entry.getValue().size());
+                entry.getValue().forEach(row -> data.add(logs.get(row).getData()));
+                entry.getKey().prepareDictionary(conn, data);
+            }
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false); // One transaction (and one fsync) per batch
+            try {
+                for (Map.Entry<LogTable, List<Integer>> entry : rowsByTable.entrySet()) {
+                    LogTable table = entry.getKey();
+                    // Logs saved before, e.g. replayed from the journal, are left out rather than ignored by the
+                    // insert, because batches rewritten into multi-row inserts do not report per-row counts
+                    Set<Long> seen = existingIds(conn, table, logs, entry.getValue());
+                    List<Integer> rows = new ArrayList<>(entry.getValue().size());
+                    for (int row : entry.getValue()) {
+                        if (seen.add(logs.get(row).getId())) rows.add(row);
+                    }
+                    if (rows.isEmpty()) continue;
+                    try (PreparedStatement pstmt = conn.prepareStatement(table.insertSql(mySql))) {
+                        for (int row : rows) {
+                            LogEntry log = logs.get(row);
+                            long timestamp = log.getTimestamp().toEpochMilli();
+                            Long expiresAt = retentionMillis > 0 && !log.isArchived() ? timestamp + retentionMillis : null;
+                            table.bindInsert(pstmt, log.getLogType(), log.getData(), timestamp, log.isArchived(), expiresAt);
+                            pstmt.addBatch();
+                        }
+
+                        int[] updateCounts = pstmt.executeBatch();
+                        for (int i = 0; i < rows.size(); i++) {
+                            // MySQL reports SUCCESS_NO_INFO for rewritten batches, which counts as inserted
+                            inserted[rows.get(i)] = i >= updateCounts.length || updateCounts[i] != 0;
+                        }
+                    }
+                }
+
+                LogCounter added = new LogCounter();
+                for (int i = 0; i < logs.size(); i++) {
+                    LogEntry log = logs.get(i);
+                    if (inserted[i]) added.add(log.getLogType(), log.getTimestamp().toEpochMilli(), log.isArchived(), 1);
+                }
+                counters.apply(conn, added);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Could not save log batch to the database: " + e.getMessage(), e);
+        }
+        return inserted;
+    }
+
+    /**
+     * @return The IDs of the given logs that are already in the table.
+     */
+    private Set<Long> existingIds(Connection conn, LogTable table, List<LogEntry> logs, List<Integer> rows) throws SQLException {
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += ID_CHUNK) {
+            List<Integer> chunk = rows.subList(from, Math.min(rows.size(), from + ID_CHUNK));
+            String sql = "SELECT id FROM " + table.getName() + " WHERE id IN (" + "?, ".repeat(chunk.size() - 1) + "?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setLong(i + 1, logs.get(chunk.get(i)).getId());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<LogEntry> query(String logType, List<FilterCondition> conditions, LogCursor cursor, int limit) throws StorageException {
+        LogFilter filter = filterOf(logType, conditions);
+        long[] range = LogTable.timeRange(filter.getConditions());
+        List<LogTable> tables = tablesFor(filter.getLogType(), range[0], range[1]);
+        List<LogEntry> cold = coldTier != null ? coldTier.query(filter.getLogType(), filter.getConditions(), range, cursor, limit) : List.of();
+        boolean merge = tables.size() > 1 || !cold.isEmpty();
+
+        // Seeks on the primary key, so a deep page reads as few rows as the first one.
+        // With several sources, each returns its nearest limit logs and the page is cut from the merge.
+        Comparator<LogEntry> order = cursor.isOlder() ? Comparator.comparingLong(LogEntry::getId).reversed()
+                : Comparator.comparingLong(LogEntry::getId);
+
+        List<LogEntry> logs = new ArrayList<>(cold);
+        try (Connection conn = dbManager.getReadConnection()) {
+            for (LogTable table : tables) {
+                QueryPlanner.Plan plan = planner.page(table, filter, cursor, limit);
+                try (PreparedStatement pstmt = conn.prepareStatement(plan.sql())) {
+                    bind(pstmt, plan.params());
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            logs.add(table.read(conn, rs, parser));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to load logs from database: " + e.getMessage(), e);
+        }
+
+        if (merge) {
+            logs.sort(order);
+            // A log can be in both the database and the cold tier if the server stopped while it was being moved
+            List<LogEntry> unique = new ArrayList<>(logs.size());
+            for (LogEntry log : logs) {
+                if (unique.isEmpty() || unique.get(unique.size() - 1).getId() != log.getId()) unique.add(log);
+            }
+            logs = new ArrayList<>(unique.subList(0, Math.min(limit, unique.size())));
+        }
+        return logs;
+    }
+
+    @Override
+    public Optional<LogEntry> get(long id) throws StorageException {
+        try (Connection conn = dbManager.getReadConnection()) {
+            for (LogTable table : tablesForId(id)) {
+                String sql = "SELECT " + table.selectColumns() + " FROM " + table.getName() + " WHERE id = ?";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setLong(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        // Use if, as we only expect one result
+                        if (rs.next()) {
+                            return Optional.of(table.read(conn, rs, parser));
+                        }
+                    }
+                }
+            }
+            return coldTier != null ? coldTier.get(id) : Optional.empty();
+        } catch (SQLException | IOException e) {
+            throw new StorageException("Failed to load log by ID: " + id, e);
+        }
+    }
+
+    @Override
+    public int delete(String logType, List<FilterCondition> conditions, IntPredicate progress) throws StorageException {
+        LogFilter filter = filterOf(logType, conditions);
+        long[] range = LogTable.timeRange(filter.getConditions());
+        List<Target> targets = new ArrayList<>();
+        for (LogTable table : tablesFor(filter.getLogType(), range[0], range[1])) {
+            QueryPlanner.Plan where = planner.where(table, filter);
+            targets.add(new Target(table.getName(), table.getLogType(), where.sql(), where.params()));
+        }
+        int deleted = deleteInChunks(targets, progress);
+
+        if (coldTier != null && progress.test(deleted)) {
+            LogCounter removed = new LogCounter();
+            try {
+                deleted += coldTier.delete(filter.getLogType(), filter.getConditions(), removed);
+                counters.apply(removed);
+            } catch (IOException | SQLException e) {
+                throw new StorageException("Could not delete old logs after deleting " + deleted + ": " + e.getMessage(), e);
+            }
+            progress.test(deleted);
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean delete(long id) throws StorageException {
+        try (Connection conn = dbManager.getConnection()) {
+            int rowsAffected = 0;
+            LogCounter removed = new LogCounter();
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (LogTable table : tablesForId(id)) {
+                    counters.tally(conn, table.getName(), table.getLogType(), " WHERE id = ? ", List.of(id), -1, removed);
+                    try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM " + table.getName() + " WHERE id = ?")) {
+                        pstmt.setLong(1, id);
+                        rowsAffected += pstmt.executeUpdate();
+                    }
+                }
+                // Counted on this connection, as SQLite's only writer connection is already held
+                boolean cold = rowsAffected == 0 && coldTier != null && coldTier.delete(id, removed);
+                counters.apply(conn, removed);
+                conn.commit();
+                return rowsAffected > 0 || cold;
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException e) {
+            throw new StorageException("Failed to delete log with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public boolean setArchived(long id, boolean archived, long retentionMillis) throws StorageException {
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (LogTable table : tablesForId(id)) {
+                    // The log moves between archived and not archived counts only if its flag changes
+                    LogCounter moved = new LogCounter();
+                    counters.tally(conn, table.getName(), table.getLogType(), " WHERE id = ? AND is_archived = ? ",
+                            List.of(id, archived ? 0 : 1), -1, moved);
+                    for (Map.Entry<LogCounts.Key, Long> entry : List.copyOf(moved.asMap().entrySet())) {
+                        LogCounts.Key key = entry.getKey();
+                        moved.add(new LogCounts.Key(key.logType(), key.day(), archived), -entry.getValue());
+                    }
+
+                    String sql = "UPDATE " + table.getName() + " SET is_archived = ?, expires_at = ? WHERE id = ?";
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setBoolean(1, archived);
+                        if (archived || retentionMillis <= 0) {
+                            pstmt.setNull(2, Types.BIGINT); // Archived logs never expire
+                        } else {
+                            // Reset the expiration timer from NOW
+                            pstmt.setLong(2, System.currentTimeMillis() + retentionMillis);
+                        }
+                        pstmt.setLong(3, id);
+                        if (pstmt.executeUpdate() > 0) {
+                            counters.apply(conn, moved);
+                            conn.commit();
+                            return true;
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new StorageException("Failed to update log with ID: " + id, e);
+        }
+        return coldTier != null && setColdArchived(id, archived, retentionMillis);
+    }
+
+    /**
+     * Logs in the cold tier are never archived, so archiving one moves it back into the database.
+     */
+    private boolean setColdArchived(long id, boolean archived, long retentionMillis) throws StorageException {
+        try {
+            Optional<LogEntry> log = coldTier.get(id);
+            if (log.isEmpty() || !archived) return log.isPresent();
+            LogEntry entry = log.get();
+            write(List.of(new LogEntry(id, entry.getLogType(), entry.getTimestamp(), true, entry.getData())), retentionMillis);
+            LogCounter removed = new LogCounter();
+            coldTier.delete(id, removed);
+            counters.apply(removed);
+            return true;
+        } catch (IOException | SQLException e) {
+            throw new StorageException("Failed to update log with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public int expire(long now, IntPredicate progress) throws StorageException {
+        if (partitions != null) {
+            long retentionMillis = TimeUnit.DAYS.toMillis(plugin.getConfigManager().getRetentionPeriodDays());
+            try (Connection conn = dbManager.getConnection()) {
+                // MySQL frees a dropped partition right away, SQLite keeps its pages in the file
+                if (partitions.dropExpired(conn, now - retentionMillis, now, counters) > 0 && !dbManager.isMySql()) {
+                    touchedTables.add(sharedTable.getName());
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not drop expired log partitions: " + e.getMessage());
+            }
+        }
+
+        List<Target> targets = new ArrayList<>();
+        for (LogTable table : tablesFor(null, Long.MIN_VALUE, Long.MAX_VALUE)) {
+            // Expired logs in a period are removed when the whole period is dropped
+            if (table.hasTimeOrderedIds()) continue;
+            // A literal is_archived lets SQLite use the partial expiry index
+            targets.add(new Target(table.getName(), table.getLogType(), " WHERE is_archived = 0 AND expires_at < ? ", List.of(now)));
+        }
+        int deleted = deleteInChunks(targets, progress);
+        if (coldTier == null) return deleted;
+
+        LogCounter removed = new LogCounter();
+        deleted += coldTier.expire(now, removed);
+        try {
+            counters.apply(removed);
+        } catch (SQLException e) {
+            throw new StorageException("Could not update the log counters after deleting " + deleted + ": " + e.getMessage(), e);
+        }
+        return deleted;
+    }
+
+    @Override
+    public LogCounts counts() throws StorageException {
+        try {
+            return counters.read();
+        } catch (SQLException e) {
+            throw new StorageException("Could not read the log counters: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean optimize() throws StorageException {
+        List<String> tables = new ArrayList<>(touchedTables);
+        if (tables.isEmpty()) return false;
+
+        try (Connection conn = dbManager.getConnection(); Statement stmt = conn.createStatement()) {
+            if (dbManager.isMySql()) {
+                // Rebuilds the table online, returning the space of deleted rows and refreshing statistics.
+                // One table per call, so the server can get busy again in between.
+                stmt.execute("OPTIMIZE TABLE " + tables.get(0));
+                touchedTables.remove(tables.get(0));
+                return !touchedTables.isEmpty();
+            }
+
+            try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                // Only databases created with incremental auto-vacuum can return pages without a full VACUUM
+                if (rs.next() && rs.getInt(1) == 2) {
+                    stmt.execute("PRAGMA incremental_vacuum(" + VACUUM_PAGES + ")");
+                    try (ResultSet free = stmt.executeQuery("PRAGMA freelist_count")) {
+                        if (free.next() && free.getLong(1) > 0) return true;
+                    }
+                }
+            }
+            for (String table : tables) {
+                stmt.execute("ANALYZE " + table);
+                touchedTables.remove(table);
+            }
+            return false;
+        } catch (SQLException e) {
+            touchedTables.removeAll(tables); // Not retried until more logs are deleted
+            throw new StorageException("Could not run database maintenance: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The logs of one table to delete. The WHERE clause starts with {@code " WHERE "} and may be extended with AND.
+     * @param logType The table's log type, or null if it has a {@code log_type} column.
+     */
+    private record Target(String table, String logType, String where, List<Object> params) {}
+
+    /**
+     * Deletes the targets in chunks of at most {@code chunk-size} logs, each covering an ID range and committed
+     * on its own. A new connection is taken per chunk, so the writer can use it in between.
+     */
+    private int deleteInChunks(List<Target> targets, IntPredicate progress) throws StorageException {
+        int deleted = 0;
+        try {
+            for (Target target : targets) {
+                long lastId = Long.MIN_VALUE;
+                while (true) {
+                    int chunk;
+                    try (Connection conn = dbManager.getConnection()) {
+                        Long upperId = chunkEnd(conn, target, lastId);
+                        if (upperId == null) break;
+                        chunk = deleteChunk(conn, target, lastId, upperId);
+                        lastId = upperId;
+                    }
+
+                    if (chunk > 0) {
+                        deleted += chunk;
+                        touchedTables.add(target.table());
+                    }
+                    if (!progress.test(deleted)) return deleted;
+                }
+            }
+            return deleted;
+        } catch (SQLException e) {
+            throw new StorageException("Could not delete logs after deleting " + deleted + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return The ID of the last matching log of the next chunk, or null if none are left.
+     */
+    private Long chunkEnd(Connection conn, Target target, long lastId) throws SQLException {
+        String sql = "SELECT MAX(id) FROM (SELECT id FROM " + target.table() + target.where()
+                + "AND id > ? ORDER BY id LIMIT " + chunkSize + ") chunk";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = bind(pstmt, target.params());
+            pstmt.setLong(index, lastId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                long id = rs.getLong(1);
+                return rs.wasNull() ? null : id;
+            }
+        }
+    }
+
+    private int deleteChunk(Connection conn, Target target, long lastId, long upperId) throws SQLException {
+        String where = target.where() + "AND id > ? AND id <= ? ";
+        List<Object> params = new ArrayList<>(target.params());
+        params.add(lastId);
+        params.add(upperId);
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM " + target.table() + where)) {
+            LogCounter removed = new LogCounter();
+            counters.tally(conn, target.table(), target.logType(), where, params, -1, removed);
+            bind(pstmt, params);
+            int deleted = pstmt.executeUpdate();
+            counters.apply(conn, removed);
+            conn.commit();
+            return deleted;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * @return The next parameter index.
+     */
+    private static int bind(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        int index = 1;
+        for (Object param : params) {
+            pstmt.setObject(index++, param);
+        }
+        return index;
+    }
+
+    /**
+     * @return The table the new log is saved to: its type's table, its period or the shared one.
+     */
+    private LogTable tableFor(LogEntry log) {
+        LogTable table = typedTables != null ? typedTables.get(log.getLogType()) : null;
+        if (table == null && partitions != null) table = partitions.tableFor(log.getTimestamp().toEpochMilli());
+        return table != null ? table : sharedTable;
+    }
+
+    /**
+     * @param logType The log type, or null for every log type.
+     * @return Every table that may hold logs of the type captured in the inclusive time range.
+     */
+    private List<LogTable> tablesFor(String logType, long from, long to) {
+        List<LogTable> tables = new ArrayList<>();
+        if (typedTables != null) {
+            if (logType == null) {
+                tables.addAll(typedTables.getAll());
+            } else if (typedTables.get(logType) != null) {
+                tables.add(typedTables.get(logType));
+            }
+        }
+        tables.add(sharedTable); // Also holds logs not yet moved to their typed table
+        if (partitions != null) {
+            tables.addAll(partitions.tablesBetween(from, to));
+        }
+        return tables;
+    }
+
+    /**
+     * @return Every table that may hold the log with the ID.
+     */
+    private List<LogTable> tablesForId(long logId) {
+        List<LogTable> tables = new ArrayList<>();
+        if (typedTables != null) {
+            tables.addAll(typedTables.getAll());
+        }
+        tables.add(sharedTable);
+        if (partitions != null) {
+            tables.addAll(partitions.tablesForId(logId));
+        }
+        return tables;
+    }
+
+    /**
+     * Puts the filter in canonical form, which it usually already is when it comes from the LogManager.
+     */
+    private static LogFilter filterOf(String logType, List<FilterCondition> conditions) throws StorageException {
+        try {
+            return LogFilter.of(logType, conditions, null);
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("Invalid filter: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits new logs of the shared table by day or week, so retention drops a whole period instead of
+ * deleting its rows one by one. On MySQL the periods are RANGE partitions of {@code ultimate_logs_recent}
+ * on the log ID, which starts with the capture time. On SQLite each period is a table of its own.
+ * The shared table stays the permanent store: it keeps logs from before partitioning, logs outside every
+ * period, and the archived logs of each period before it is dropped.
+ */
+public class TimePartitions {
+
+    static final String RECENT_TABLE = "ultimate_logs_recent";
+    private static final String PERIOD_TABLE_PREFIX = "ultimate_logs_p";
+    private static final String FUTURE_PARTITION = "pfuture";
+
+    private static final Pattern PERIOD_NAME = Pattern.compile("p(\\d{8})");
+    private static final DateTimeFormatter NAME_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String COLUMNS = "id, log_type, timestamp, is_archived, expires_at, codec, data";
+
+    // Periods are checked hourly, so the next one always exists before it starts
+    private static final long MAINTENANCE_INTERVAL_TICKS = 20L * 60 * 60;
+
+    /**
+     * The logs captured from start (inclusive) to end (exclusive), in epoch millis.
+     */
+    private record Partition(String name, long start, long end, LogTable table) {}
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+    private final LogTable sharedTable;
+    private final LogTable recentTable;
+    private final boolean weekly;
+    private final int ahead;
+
+    // Sorted by start
+    private volatile List<Partition> partitions = List.of();
+    private BukkitTask task;
+
+    public TimePartitions(UltimateLogger plugin, DatabaseManager dbManager, LogTable sharedTable) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.sharedTable = sharedTable;
+        this.recentTable = sharedTable.partition(RECENT_TABLE);
+        this.weekly = plugin.getConfigManager().getPartitionPeriod().equals("WEEK");
+        this.ahead = Math.max(1, plugin.getConfigManager().getPartitionsAhead());
+    }
+
+    /**
+     * Creates the current and upcoming periods, then keeps creating them in the background.
+     */
+    public void start() {
+        maintain();
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                maintain();
+            }
+        }.runTaskTimerAsynchronously(plugin, MAINTENANCE_INTERVAL_TICKS, MAINTENANCE_INTERVAL_TICKS);
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * @return The table logs captured at the time are saved to, or null if no period covers it.
+     */
+    LogTable tableFor(long timestamp) {
+        List<Partition> current = partitions;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Partition partition = current.get(i);
+            if (timestamp >= partition.end()) return null;
+            if (timestamp >= partition.start()) return partition.table();
+        }
+        return null;
+    }
+
+    /**
+     * @return The tables of every period overlapping the inclusive time range.
+     */
+    List<LogTable> tablesBetween(long from, long to) {
+        Set<LogTable> tables = new LinkedHashSet<>();
+        for (Partition partition : partitions) {
+            if (partition.start() <= to && partition.end() > from) tables.add(partition.table());
+        }
+        return new ArrayList<>(tables);
+    }
+
+    /**
+     * @return The tables that may hold the log with the ID.
+     */
+    List<LogTable> tablesForId(long id) {
+        long time = LogIdGenerator.timestampOf(id);
+        return tablesBetween(time - LogTable.ID_TIME_MARGIN_MILLIS, time + LogTable.ID_TIME_MARGIN_MILLIS);
+    }
+
+    /**
+     * Drops every period that ended before the cutoff. Archived logs, and logs whose expiry was reset, are
+     * first copied to the shared table.
+     * @param cutoff Periods ending at or before this time only hold expired logs, apart from those copied.
+     * @param counters Told the logs dropped, with the drop on SQLite and right after it on MySQL.
+     * @return The number of periods dropped.
+     */
+    synchronized int dropExpired(Connection conn, long cutoff, long now, CountersTable counters) throws SQLException {
+        boolean mySql = dbManager.isMySql();
+        int dropped = 0;
+        try {
+            for (Partition partition : partitions) {
+                if (partition.end() > cutoff) break;
+
+                String source = mySql ? RECENT_TABLE + " PARTITION (" + partition.name() + ")" : partition.table().getName();
+                String kept = "is_archived = 1 OR expires_at IS NULL OR expires_at >= ?";
+                String keep = (mySql ? "INSERT IGNORE" : "INSERT OR IGNORE") + " INTO " + sharedTable.getName()
+                        + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM " + source + " WHERE " + kept;
+                String drop = mySql ? "ALTER TABLE " + RECENT_TABLE + " DROP PARTITION " + partition.name()
+                        : "DROP TABLE " + partition.table().getName();
+
+                // SQLite drops the table in the same transaction; MySQL DDL commits on its own, so a failed
+                // drop leaves copies that the next run ignores
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(mySql);
+                try (PreparedStatement copy = conn.prepareStatement(keep); Statement stmt = conn.createStatement()) {
+                    // Copied logs were counted when first written, so only the others leave the counts
+                    LogCounter removed = new LogCounter();
+                    counters.tally(conn, source, null, " WHERE NOT (" + kept + ") ", List.of(now), -1, removed);
+                    copy.setLong(1, now);
+                    int copied = copy.executeUpdate();
+                    stmt.execute(drop);
+                    counters.apply(conn, removed);
+                    if (!mySql) conn.commit();
+                    plugin.getLogger().info("Dropped expired log partition " + partition.name() + ", keeping " + copied + " logs.");
+                } catch (SQLException e) {
+                    if (!mySql) conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+                dropped++;
+            }
+        } finally {
+            if (dropped > 0) partitions = load(conn);
+        }
+        return dropped;
+    }
+
+    /**
+     * Creates every period from now until {@code ahead} periods in the future.
+     */
+    synchronized void maintain() {
+        boolean mySql = dbManager.isMySql();
+        long now = System.currentTimeMillis();
+        long target = periodStart(now);
+        for (int i = 0; i <= ahead; i++) {
+            target = nextBoundary(target);
+        }
+
+        try (Connection conn = dbManager.getConnection()) {
+            if (mySql) createRecentTable(conn);
+            List<Partition> existing = load(conn);
+
+            // Periods missed while the server was off are not created, their logs go to the shared table
+            long next = periodStart(now);
+            if (!existing.isEmpty()) next = Math.max(next, existing.get(existing.size() - 1).end());
+            while (next < target) {
+                long end = nextBoundary(next);
+                createPeriod(conn, next, end, mySql);
+                next = end;
+            }
+
+            partitions = load(conn);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not create the log partitions: " + e.getMessage());
+        }
+    }
+
+    private void createRecentTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Same columns as the shared table. The ID leads the key, as MySQL requires of the partitioning column.
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + RECENT_TABLE + " (" +
+                    "id BIGINT PRIMARY KEY, " +
+                    "log_type VARCHAR(255) NOT NULL, " +
+                    "timestamp BIGINT NOT NULL, " +
+                    "is_archived BOOLEAN NOT NULL DEFAULT FALSE, " +
+                    "expires_at BIGINT, " +
+                    "codec TINYINT NOT NULL DEFAULT 0, " +
+                    "data JSON NOT NULL, " +
+                    "INDEX idx_recent_type_id (log_type, id), " +
+                    "INDEX idx_recent_timestamp (timestamp)) " +
+                    "PARTITION BY RANGE (id) (PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+        }
+    }
+
+    private void createPeriod(Connection conn, long start, long end, boolean mySql) throws SQLException {
+        String name = "p" + NAME_DATE.format(Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC));
+        try (Statement stmt = conn.createStatement()) {
+            if (mySql) {
+                // The last period takes everything below its bound, so periods are only ever added at the end
+                stmt.execute("ALTER TABLE " + RECENT_TABLE + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" +
+                        "PARTITION " + name + " VALUES LESS THAN (" + LogIdGenerator.lowestIdAt(end) + "), " +
+                        "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+                return;
+            }
+
+            String table = PERIOD_TABLE_PREFIX + name.substring(1);
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "log_type TEXT NOT NULL, " +
+                    "timestamp INTEGER NOT NULL, " +
+                    "is_archived INTEGER NOT NULL DEFAULT 0, " +
+                    "expires_at INTEGER, " +
+                    "codec INTEGER NOT NULL DEFAULT 0, " +
+                    "data TEXT NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_type_id ON " + table + " (log_type, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_timestamp ON " + table + " (timestamp)");
+        }
+        plugin.getLogger().info("Created log partition " + name + ".");
+    }
+
+    /**
+     * Reads the existing periods from the database.
+     */
+    private List<Partition> load(Connection conn) throws SQLException {
+        List<Partition> found = new ArrayList<>();
+        if (dbManager.isMySql()) {
+            String sql = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                    "ORDER BY PARTITION_ORDINAL_POSITION";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, RECENT_TABLE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Long start = parseStart(rs.getString(1));
+                        if (start == null) continue; // The future partition
+                        long end = LogIdGenerator.timestampOf(Long.parseLong(rs.getString(2).trim()));
+                        found.add(new Partition(rs.getString(1), start, end, recentTable));
+                    }
+                }
+            }
+            return List.copyOf(found);
+        }
+
+        List<Long> starts = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name LIKE '" + PERIOD_TABLE_PREFIX + "%'")) {
+            while (rs.next()) {
+                Long start = parseStart(rs.getString(1).substring(PERIOD_TABLE_PREFIX.length() - 1));
+                if (start != null) starts.add(start);
+            }
+        }
+        starts.sort(Comparator.naturalOrder());
+
+        // Each period table ends where the next one starts, so changing the period length keeps old tables whole
+        for (int i = 0; i < starts.size(); i++) {
+            long start = starts.get(i);
+            long end = i + 1 < starts.size() ? Math.min(starts.get(i + 1), nextBoundary(start)) : nextBoundary(start);
+            String name = "p" + NAME_DATE.format(Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC));
+            found.add(new Partition(name, start, end, sharedTable.partition(PERIOD_TABLE_PREFIX + name.substring(1))));
+        }
+        return List.copyOf(found);
+    }
+
+    /**
+     * @return The start of the period named like {@code p20260131}, or null if the name is not a period.
+     */
+    private static Long parseStart(String name) {
+        Matcher matcher = PERIOD_NAME.matcher(name);
+        if (!matcher.matches()) return null;
+        return LocalDate.parse(matcher.group(1), NAME_DATE).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private long periodStart(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalDate();
+        if (weekly) date = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return The start of the period after the one containing the time.
+     */
+    private long nextBoundary(long millis) {
+        LocalDate start = Instant.ofEpochMilli(periodStart(millis)).atZone(ZoneOffset.UTC).toLocalDate();
+        return start.plusDays(weekly ? 7 : 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
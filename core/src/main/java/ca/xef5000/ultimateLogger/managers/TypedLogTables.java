@@ -0,0 +1,186 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogDefinition;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps one typed table per log type for the {@code TYPED} storage layout. Tables are created in the
+ * background once their definition is registered; until then, and for log types without a typed
+ * table, logs go to the shared table. The same task moves logs of a typed log type out of the
+ * shared table in small transactions, so existing databases are converted while the server runs.
+ */
+public class TypedLogTables {
+
+    // Time spent moving rows per run, so the writer is never kept off the database for long
+    private static final long MIGRATION_BUDGET_MILLIS = 500;
+
+    private final UltimateLogger plugin;
+    private final DatabaseManager dbManager;
+    private final BiFunction<String, String, LogData> parser;
+    private final int migrationBatchSize;
+    private final LogDictionary dictionary;
+    private final LogTable sharedTable;
+
+    private final Map<String, LogTable> tables = new ConcurrentHashMap<>();
+    private final Queue<LogDefinition<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private BukkitTask task;
+
+    /**
+     * @param parser Turns a log type and its JSON values into LogData.
+     */
+    public TypedLogTables(UltimateLogger plugin, DatabaseManager dbManager, LogDictionary dictionary, LogTable sharedTable,
+                          BiFunction<String, String, LogData> parser) {
+        this.plugin = plugin;
+        this.dbManager = dbManager;
+        this.parser = parser;
+        this.migrationBatchSize = Math.max(1, plugin.getConfigManager().getTypedMigrationBatchSize());
+        this.dictionary = dictionary;
+        this.sharedTable = sharedTable;
+    }
+
+    public void start() {
+        task = new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!running.compareAndSet(false, true)) return; // Previous run still busy
+                try {
+                    createPendingTables();
+                    migrate();
+                } finally {
+                    running.set(false);
+                }
+            }
+        }.runTaskTimerAsynchronously(plugin, 20L, 20L);
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Queues the creation of the definition's table.
+     */
+    public void register(LogDefinition<?> definition) {
+        pending.add(definition);
+    }
+
+    /**
+     * @return The typed table for the log type, or null if it has none (yet).
+     */
+    LogTable get(String logType) {
+        return tables.get(logType);
+    }
+
+    Collection<LogTable> getAll() {
+        return tables.values();
+    }
+
+    private void createPendingTables() {
+        LogDefinition<?> definition;
+        while ((definition = pending.poll()) != null) {
+            LogTable table = LogTable.typed(definition, dictionary);
+            if (table == null) {
+                plugin.getLogger().warning("Log type " + definition.getId() + " cannot have its own table, its logs stay in the shared table.");
+                continue;
+            }
+
+            try (Connection conn = dbManager.getConnection()) {
+                table.create(conn, dbManager.isMySql());
+                tables.put(definition.getId(), table);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not create the log table " + table.getName() + ": " + e.getMessage());
+                pending.add(definition); // Retried on the next run
+                return;
+            }
+        }
+    }
+
+    /**
+     * Moves logs of typed log types from the shared table, one batch per transaction.
+     */
+    private void migrate() {
+        long deadline = System.currentTimeMillis() + MIGRATION_BUDGET_MILLIS;
+        for (LogTable table : tables.values()) {
+            try {
+                while (moveBatch(table) == migrationBatchSize) {
+                    if (System.currentTimeMillis() >= deadline) return; // More next run
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not move logs to " + table.getName() + ": " + e.getMessage());
+                return;
+            }
+            if (System.currentTimeMillis() >= deadline) return;
+        }
+    }
+
+    private int moveBatch(LogTable table) throws SQLException {
+        boolean mySql = dbManager.isMySql();
+        String select = "SELECT " + sharedTable.selectColumns() + ", expires_at FROM " + sharedTable.getName()
+                + " WHERE log_type = ? ORDER BY id LIMIT " + migrationBatchSize;
+
+        try (Connection conn = dbManager.getConnection()) {
+            List<LogRow> rows = new ArrayList<>();
+            try (PreparedStatement query = conn.prepareStatement(select)) {
+                query.setString(1, table.getLogType());
+                try (ResultSet rs = query.executeQuery()) {
+                    while (rs.next()) {
+                        LogEntry entry = sharedTable.read(conn, rs, parser);
+                        long expiresAt = rs.getLong("expires_at");
+                        Long expiry = rs.wasNull() ? null : expiresAt;
+                        rows.add(new LogRow(entry.getData(), entry.getTimestamp().toEpochMilli(), entry.isArchived(), expiry));
+                    }
+                }
+            }
+            if (rows.isEmpty()) return 0;
+
+            List<LogData> logs = new ArrayList<>(rows.size());
+            rows.forEach(row -> logs.add(row.data()));
+            table.prepareDictionary(conn, logs);
+
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(table.insertSql(mySql));
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM " + sharedTable.getName() + " WHERE id = ?")) {
+                for (LogRow row : rows) {
+                    table.bindInsert(insert, table.getLogType(), row.data(), row.timestamp(), row.archived(), row.expiresAt());
+                    insert.addBatch();
+                    delete.setLong(1, row.data().getId());
+                    delete.addBatch();
+                }
+                insert.executeBatch();
+                delete.executeBatch();
+                conn.commit();
+                return rows.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private record LogRow(LogData data, long timestamp, boolean archived, Long expiresAt) {}
+}
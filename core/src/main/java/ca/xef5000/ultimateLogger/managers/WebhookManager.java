@@ -145,14 +145,13 @@ public class WebhookManager {
         String key = condition.key();
         String comparator = condition.comparator();
         String value = condition.value().toString();
-        Object dataValue = data.getData().get(key);
+        // Read straight from the typed slots
+        String dataValueStr = data.getString(key);
 
-        if (dataValue == null) {
+        if (dataValueStr == null) {
             return false;
         }
 
-        String dataValueStr = dataValue.toString();
-
         return switch (comparator) {
             case "=" -> dataValueStr.equals(value);
             case "!=" -> !dataValueStr.equals(value);
@@ -205,13 +204,11 @@ public class WebhookManager {
     private String buildDiscordEmbed(String logType, LogData data) {
         // Build the fields for the embed
         List<Map<String, Object>> fields = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : data.getData().entrySet()) {
-            fields.add(Map.of(
-                    "name", formatKey(entry.getKey()),
-                    "value", "```" + entry.getValue().toString() + "```", // Use code blocks for nice formatting
-                    "inline", true
-            ));
-        }
+        data.forEach((key, value) -> fields.add(Map.of(
+                "name", formatKey(key),
+                "value", "```" + value + "```", // Use code blocks for nice formatting
+                "inline", true
+        )));
 
         long logId = data.getId();
 
@@ -0,0 +1,78 @@
+package ca.xef5000.ultimateLogger.utils;
+
+/**
+ * A bloom filter over strings. {@link #mightContain} never answers false for an added value,
+ * and answers true for other values at roughly the false positive rate it was sized for.
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final int hashCount;
+
+    /**
+     * @param expectedValues Number of distinct values that will be added.
+     * @param falsePositiveRate Wanted rate of false positives, e.g. 0.01.
+     */
+    public BloomFilter(int expectedValues, double falsePositiveRate) {
+        int values = Math.max(1, expectedValues);
+        long bitCount = (long) Math.ceil(-values * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE / 64, Math.max(1, (bitCount + 63) / 64))];
+        this.hashCount = Math.max(1, (int) Math.round((double) bits.length * 64 / values * Math.log(2)));
+    }
+
+    /**
+     * Restores a filter from {@link #toLongArray()} and {@link #getHashCount()}.
+     */
+    public BloomFilter(long[] bits, int hashCount) {
+        this.bits = bits;
+        this.hashCount = Math.max(1, hashCount);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * 64;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * 64;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long[] toLongArray() {
+        return bits;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * FNV-1a over the characters, then the MurmurHash3 finalizer to spread the bits.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+package ca.xef5000.ultimateLogger.utils;
+
+/**
+ * A minimal circuit breaker. After a failure it stays open for the retry delay, then
+ * lets a single attempt through (half-open). A success closes it again.
+ * Only meant to be used by one thread at a time.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final long retryDelayMillis;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    public CircuitBreaker(long retryDelayMillis) {
+        this.retryDelayMillis = Math.max(0, retryDelayMillis);
+    }
+
+    /**
+     * @return true if the protected operation may be attempted now.
+     */
+    public boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= retryDelayMillis) {
+            state = State.HALF_OPEN;
+        }
+        return state != State.OPEN;
+    }
+
+    public void recordSuccess() {
+        state = State.CLOSED;
+    }
+
+    public void recordFailure() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,152 @@
+package ca.xef5000.ultimateLogger.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Generates unique, time-ordered 64-bit log IDs without asking the database.
+ * Layout (most significant bit first):
+ * <pre>
+ * | 1 bit unused | 41 bits milliseconds since EPOCH | 10 bits server id | 12 bits sequence |
+ * </pre>
+ * IDs from one server are strictly increasing, and IDs from different servers sort by time.
+ * The timestamp bits last until the year 2093.
+ * <p>
+ * With a high-water mark file, the generator saves a timestamp ahead of every ID it issues,
+ * and starts above the saved one, so IDs stay unique even if the clock is set back while the server is down.
+ * After a crash, IDs may run up to ten seconds ahead of the clock until it catches up.
+ */
+public class LogIdGenerator {
+
+    /** 2024-01-01T00:00:00Z, the zero point for the timestamp bits. */
+    public static final long EPOCH = 1704067200000L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int SERVER_BITS = 10;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + SERVER_BITS;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    public static final int MAX_SERVER_ID = (1 << SERVER_BITS) - 1;
+
+    // How far ahead of the issued IDs the high-water mark is saved; well within LogTable.ID_TIME_MARGIN_MILLIS
+    private static final long RESERVE_MILLIS = 10_000;
+
+    private final long serverBits;
+    // The last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong state = new AtomicLong();
+
+    private final File highWaterFile;
+    private final Logger logger;
+    // Once IDs reach this time (millis since EPOCH), a new high-water mark is saved
+    private volatile long saveAt = Long.MAX_VALUE;
+
+    public LogIdGenerator(int serverId) {
+        this(serverId, null, null);
+    }
+
+    /**
+     * @param highWaterFile Where the high-water mark is kept, or null to keep nothing on disk.
+     * @param logger Where to report a mark that could not be read or saved.
+     */
+    public LogIdGenerator(int serverId, File highWaterFile, Logger logger) {
+        if (serverId < 0 || serverId > MAX_SERVER_ID) {
+            throw new IllegalArgumentException("Server id must be between 0 and " + MAX_SERVER_ID + ", got " + serverId);
+        }
+        this.serverBits = (long) serverId << SEQUENCE_BITS;
+        this.highWaterFile = highWaterFile;
+        this.logger = logger;
+        if (highWaterFile != null) {
+            // Every ID from earlier runs is below the saved mark
+            long mark = readHighWaterMark();
+            state.set(mark << SEQUENCE_BITS);
+            saveAt = 0; // Saved again with the first ID
+        }
+    }
+
+    /**
+     * Returns the next ID. Lock-free; safe to call from any thread.
+     * If more than 4096 IDs are requested in one millisecond, or the clock goes backwards,
+     * the sequence borrows from the next millisecond so IDs never repeat or go down.
+     */
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH;
+        while (true) {
+            long last = state.get();
+            long next = (last >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                if (millis >= saveAt) {
+                    reserve(millis);
+                }
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT) | serverBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Saves a new high-water mark ahead of the given time, before any ID past the saved one is handed out.
+     */
+    private synchronized void reserve(long millis) {
+        if (millis < saveAt) return; // Another thread saved it first
+        save(millis + RESERVE_MILLIS);
+        // Even if saving failed, so it is not retried for every ID
+        saveAt = millis + RESERVE_MILLIS / 2;
+    }
+
+    /**
+     * Saves the exact high-water mark, so the next run does not start ahead of the clock.
+     * IDs issued afterwards save a new mark as usual.
+     */
+    public synchronized void close() {
+        if (highWaterFile == null) return;
+        long next = (state.get() >>> SEQUENCE_BITS) + 1;
+        save(next);
+        saveAt = next;
+    }
+
+    private void save(long mark) {
+        File temp = new File(highWaterFile.getPath() + ".tmp");
+        try {
+            Files.write(temp.toPath(), Long.toString(mark + EPOCH).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            Files.move(temp.toPath(), highWaterFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Could not save the log ID high-water mark to " + highWaterFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The saved high-water mark in milliseconds since EPOCH, or 0 if there is none.
+     */
+    private long readHighWaterMark() {
+        if (!highWaterFile.exists()) return 0;
+        try {
+            String mark = new String(Files.readAllBytes(highWaterFile.toPath()), StandardCharsets.UTF_8).trim();
+            return Math.max(0, Long.parseLong(mark) - EPOCH);
+        } catch (IOException | NumberFormatException e) {
+            logger.warning("Could not read the log ID high-water mark from " + highWaterFile + ", IDs may repeat if the clock was set back: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return The approximate creation time (epoch millis) encoded in an ID from this generator.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * @return The smallest ID that could have been generated at the given time (epoch millis),
+     * useful as a bound for ID range queries.
+     */
+    public static long lowestIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH) << TIMESTAMP_SHIFT;
+    }
+}
@@ -0,0 +1,96 @@
+package ca.xef5000.ultimateLogger.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free ring buffer with a fixed array of preallocated slots.
+ * Any number of threads may offer and poll concurrently; each slot carries a
+ * sequence number so producers and consumers never step on each other.
+ * The capacity is always rounded up to a power of two.
+ */
+public class RingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong(); // Next position to write
+    private final AtomicLong head = new AtomicLong(); // Next position to read
+
+    public RingBuffer(int requestedCapacity) {
+        int capacity = 1;
+        while (capacity < Math.max(2, requestedCapacity)) {
+            capacity <<= 1;
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Tries to add an element without blocking.
+     * @param element The element to add.
+     * @return false if the buffer is full.
+     */
+    public boolean offer(E element) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (difference < 0) {
+                return false; // The slot has not been consumed yet, so we are full
+            } else {
+                position = tail.get();
+            }
+        }
+        slots[index] = element;
+        sequences.lazySet(index, position + 1); // Publish the slot to consumers
+        return true;
+    }
+
+    /**
+     * Removes and returns the oldest element, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) break;
+            } else if (difference < 0) {
+                return null; // Nothing has been published in this slot yet
+            } else {
+                position = head.get();
+            }
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, position + mask + 1); // Hand the slot back to producers
+        return element;
+    }
+
+    public int size() {
+        // Read head first so a concurrent poll can never make the result negative
+        long currentHead = head.get();
+        long currentTail = tail.get();
+        return (int) Math.max(0, Math.min(currentTail - currentHead, slots.length));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
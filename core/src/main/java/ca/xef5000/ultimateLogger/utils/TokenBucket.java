@@ -0,0 +1,37 @@
+package ca.xef5000.ultimateLogger.utils;
+
+/**
+ * A token bucket rate limiter. Tokens refill continuously at a fixed rate up to the burst size,
+ * and each permitted action takes one token.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratePerSecond Sustained number of actions per second.
+     * @param burst Maximum number of actions allowed at once after an idle period.
+     */
+    public TokenBucket(double ratePerSecond, double burst) {
+        this.tokensPerNano = Math.max(0, ratePerSecond) / 1_000_000_000d;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * @return true if a token was available and has been taken.
+     */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColdSegmentTest {
+
+    private static final long DAY = 1_700_006_400_000L; // Midnight UTC
+    private static final long[] ALL_TIME = {Long.MIN_VALUE, Long.MAX_VALUE};
+    private static final String[] PLAYERS = {"Steve", "Alex", "Notch"};
+
+    @TempDir
+    File directory;
+
+    /**
+     * Logs with gaps between their IDs, repeated and missing values, and one that never expires.
+     */
+    private static List<ColdSegment.Row> rows() {
+        List<ColdSegment.Row> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            long id = 1000 + i * 3L;
+            LogEntry log = i % 2 == 0
+                    ? TestPlugin.log(id, "trade", DAY + i * 1000L, false, "player", PLAYERS[i % 3], "amount", i * (long) i - 100,
+                            "price", i / 2.0, "flying", i % 4 == 0, "items", List.of("DIAMOND", "STONE"))
+                    : TestPlugin.log(id, "trade", DAY + i * 1000L, false, "player", PLAYERS[i % 3], "amount", i * (long) i - 100,
+                            "price", i / 2.0, "flying", false);
+            rows.add(new ColdSegment.Row(log, i == 10 ? Long.MAX_VALUE : DAY + 1_000_000L + i));
+        }
+        return rows;
+    }
+
+    private ColdSegment write() throws IOException {
+        return ColdSegment.write(directory, "trade", DAY, rows(), Set.of("player"));
+    }
+
+    private static File segmentFile(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(ColdSegment.SUFFIX));
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    @Test
+    void logsRoundTripThroughTheFile() throws IOException {
+        write();
+        ColdSegment segment = ColdSegment.load(segmentFile(directory));
+
+        assertEquals("trade", segment.getLogType());
+        assertEquals(1000, segment.getMinId());
+        assertEquals(1147, segment.getMaxId());
+        assertEquals(DAY, segment.getMinTimestamp());
+        assertEquals(Long.MAX_VALUE, segment.getMaxExpiresAt());
+        assertEquals(50, segment.getLiveCount());
+        for (ColdSegment.Row row : rows()) {
+            LogEntry read = segment.get(row.entry().getId(), TestPlugin::parse).orElseThrow();
+            assertEquals(row.entry().getTimestamp(), read.getTimestamp());
+            assertEquals(row.entry().getData().getData(), read.getData().getData());
+        }
+        assertTrue(segment.get(1001, TestPlugin::parse).isEmpty()); // Between two logs
+    }
+
+    @Test
+    void scansStartPastTheCursor() throws IOException {
+        ColdSegment segment = write();
+        List<FilterCondition> steve = List.of(new FilterCondition("player", "=", "Steve"));
+
+        List<LogEntry> older = segment.scan(steve, ALL_TIME, LogCursor.olderThan(1090), 3, TestPlugin::parse);
+        List<LogEntry> newer = segment.scan(steve, ALL_TIME, LogCursor.newerThan(1090), 3, TestPlugin::parse);
+
+        // Steve has every third log, 9 IDs apart
+        assertEquals(List.of(1081L, 1072L, 1063L), older.stream().map(LogEntry::getId).toList());
+        assertEquals(List.of(1099L, 1108L, 1117L), newer.stream().map(LogEntry::getId).toList());
+    }
+
+    @Test
+    void theHeaderRulesOutSegmentsThatCannotMatch() throws IOException {
+        ColdSegment segment = write();
+
+        assertTrue(segment.mightMatch("trade", List.of(new FilterCondition("player", "=", "Alex")), ALL_TIME));
+        assertTrue(segment.mightMatch(null, List.of(new FilterCondition("amount", ">", 2000)), ALL_TIME));
+        assertFalse(segment.mightMatch("chat", List.of(), ALL_TIME));
+        assertFalse(segment.mightMatch(null, List.of(new FilterCondition("player", "=", "Zed")), ALL_TIME));
+        assertFalse(segment.mightMatch(null, List.of(new FilterCondition("amount", ">", 2301)), ALL_TIME));
+        assertFalse(segment.mightMatch(null, List.of(new FilterCondition("missing", "=", "1")), ALL_TIME));
+        assertFalse(segment.mightMatch(null, List.of(), new long[]{DAY + 50_000, Long.MAX_VALUE}));
+        assertTrue(segment.mightMatch(null, List.of(new FilterCondition("timestamp", "!=", DAY)), ALL_TIME));
+    }
+
+    @Test
+    void deletedLogsStayDeletedAfterALoad() throws IOException {
+        write().markDeleted(List.of(1003L, 1006L));
+        ColdSegment segment = ColdSegment.load(segmentFile(directory));
+
+        assertEquals(48, segment.getLiveCount());
+        assertTrue(segment.get(1003, TestPlugin::parse).isEmpty());
+        assertTrue(segment.get(1009, TestPlugin::parse).isPresent());
+        List<Long> ids = segment.matchingIds(List.of(), ALL_TIME);
+        assertEquals(48, ids.size());
+        assertFalse(ids.contains(1006L));
+    }
+
+    @Test
+    void timestampNotEqualLeavesOutThatLog() throws IOException {
+        ColdSegment segment = write();
+        List<FilterCondition> notFirst = List.of(new FilterCondition("timestamp", "!=", DAY));
+
+        List<Long> ids = segment.matchingIds(notFirst, ALL_TIME);
+        assertEquals(49, ids.size());
+        assertFalse(ids.contains(1000L));
+        assertEquals(List.of(1003L), segment.scan(notFirst, ALL_TIME, LogCursor.newerThan(0), 1, TestPlugin::parse)
+                .stream().map(LogEntry::getId).toList());
+
+        ColdSegment single = ColdSegment.write(directory, "trade", DAY, rows().subList(0, 1), Set.of());
+        assertFalse(single.mightMatch(null, notFirst, ALL_TIME));
+    }
+}
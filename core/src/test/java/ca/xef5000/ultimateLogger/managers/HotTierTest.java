@@ -0,0 +1,32 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.utils.LogIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotTierTest {
+
+    @Test
+    void timestampNotEqualLeavesOutThatLog() {
+        HotTier tier = new HotTier(100, 1024 * 1024, false);
+        // IDs from this run, so the tier holds every log above them
+        long base = LogIdGenerator.lowestIdAt(System.currentTimeMillis() + 1_000);
+        List<LogEntry> logs = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            logs.add(TestPlugin.log(base + i, "chat", 1_000 + i, false, "n", (long) i));
+        }
+        tier.add(logs);
+
+        List<LogEntry> page = tier.query("chat", List.of(new FilterCondition("timestamp", "!=", 1_004L)), LogCursor.FIRST, 3);
+
+        assertEquals(List.of(base + 5, base + 3, base + 2), page.stream().map(LogEntry::getId).toList());
+        assertEquals(1, tier.getHits());
+    }
+}
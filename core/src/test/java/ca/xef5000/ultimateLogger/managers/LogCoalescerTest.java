@@ -0,0 +1,119 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.LogData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogCoalescerTest {
+
+    private static final long WINDOW = 120_000; // Start of a one minute window
+
+    @TempDir
+    File dataFolder;
+
+    private final List<LogData> emitted = new ArrayList<>();
+
+    private LogCoalescer coalescer(List<String> keys, int maxGroups) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("logs.coalescing.window-seconds", 60);
+        settings.put("logs.coalescing.max-groups", maxGroups);
+        settings.put("logs.coalescing.types.item_pickup", keys);
+        return new LogCoalescer(TestPlugin.create(dataFolder, settings), (logType, data, timestamp) -> {
+            assertEquals("item_pickup", logType);
+            assertEquals(data.get("first_timestamp"), timestamp);
+            emitted.add(data);
+        });
+    }
+
+    private static LogData pickup(long id, String player, String item, int amount, int x) {
+        LogData data = new LogData()
+                .put("player_uuid", player)
+                .put("item_type", item)
+                .put("item_amount", amount)
+                .put("location_x", x)
+                .put("location_y", 64)
+                .put("location_z", -x);
+        data.setId(id);
+        return data;
+    }
+
+    private LogData emittedFor(String player, String item) {
+        return emitted.stream()
+                .filter(data -> player.equals(data.getString("player_uuid")) && item.equals(data.getString("item_type")))
+                .findFirst().orElseThrow();
+    }
+
+    @Test
+    void logsWithTheSameKeysBecomeOneLogWithSummedAmounts() {
+        LogCoalescer coalescer = coalescer(List.of("player_uuid", "item_type"), 100);
+        assertTrue(coalescer.absorb("item_pickup", pickup(1, "Steve", "DIAMOND", 2, 10), WINDOW + 500));
+        assertTrue(coalescer.absorb("item_pickup", pickup(2, "Steve", "DIAMOND", 3, -4), WINDOW + 100));
+        assertTrue(coalescer.absorb("item_pickup", pickup(3, "Alex", "DIAMOND", 1, 0), WINDOW + 200));
+        assertTrue(coalescer.absorb("item_pickup", pickup(4, "Steve", "DIAMOND", 5, 7), WINDOW + 900));
+        coalescer.shutdown();
+
+        assertEquals(2, emitted.size());
+        assertEquals(2, coalescer.getMergedCount());
+        LogData steve = emittedFor("Steve", "DIAMOND");
+        assertEquals(1, steve.getId());
+        assertEquals(3, steve.getInteger("count"));
+        assertEquals(10, steve.getInteger("item_amount"));
+        assertEquals(WINDOW + 500, steve.get("first_timestamp"));
+        assertEquals(WINDOW + 900, steve.get("last_timestamp"));
+        assertEquals(-4, steve.getInteger("min_x"));
+        assertEquals(10, steve.getInteger("max_x"));
+        assertEquals(64, steve.getInteger("min_y"));
+        assertEquals(-10, steve.getInteger("min_z"));
+        assertNull(steve.get("sample_rate"));
+        assertEquals(1, emittedFor("Alex", "DIAMOND").getInteger("item_amount"));
+    }
+
+    @Test
+    void anAmountThatIsAKeyFieldIsNotSummed() {
+        LogCoalescer coalescer = coalescer(List.of("player_uuid", "item_amount"), 100);
+        coalescer.absorb("item_pickup", pickup(1, "Steve", "DIAMOND", 4, 0), WINDOW);
+        coalescer.absorb("item_pickup", pickup(2, "Steve", "STONE", 4, 0), WINDOW);
+        coalescer.shutdown();
+
+        assertEquals(1, emitted.size());
+        assertEquals(2, emitted.get(0).getInteger("count"));
+        assertEquals(4, emitted.get(0).getInteger("item_amount"));
+    }
+
+    @Test
+    void countOverSampleRateGivesTheLogsBeforeSampling() {
+        LogCoalescer coalescer = coalescer(List.of("player_uuid"), 100);
+        coalescer.absorb("item_pickup", pickup(1, "Steve", "DIAMOND", 1, 0).put("sample_rate", 0.5), WINDOW);
+        coalescer.absorb("item_pickup", pickup(2, "Steve", "DIAMOND", 1, 0).put("sample_rate", 0.25), WINDOW);
+        coalescer.absorb("item_pickup", pickup(3, "Steve", "DIAMOND", 1, 0), WINDOW); // Kept without sampling
+        coalescer.shutdown();
+
+        LogData merged = emitted.get(0);
+        assertEquals(2 + 4 + 1, merged.getInteger("count") / merged.getDouble("sample_rate"), 1e-9);
+    }
+
+    @Test
+    void logsAreLeftAloneOutsideTheirTypeWindowOrGroupLimit() {
+        LogCoalescer coalescer = coalescer(List.of("player_uuid"), 2);
+        assertFalse(coalescer.absorb("chat", pickup(1, "Steve", "DIAMOND", 1, 0), WINDOW));
+        assertTrue(coalescer.absorb("item_pickup", pickup(2, "Steve", "DIAMOND", 1, 0), WINDOW));
+        assertTrue(coalescer.absorb("item_pickup", pickup(3, "Steve", "DIAMOND", 1, 0), WINDOW + 60_000)); // Next window
+        assertFalse(coalescer.absorb("item_pickup", pickup(4, "Alex", "DIAMOND", 1, 0), WINDOW)); // No room for a group
+        assertTrue(coalescer.absorb("item_pickup", pickup(5, "Steve", "DIAMOND", 1, 0), WINDOW)); // Its group is open
+        coalescer.shutdown();
+
+        assertEquals(2, emitted.size());
+        assertEquals(0, coalescer.getOpenGroupCount());
+    }
+}
@@ -0,0 +1,142 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogJournalTest {
+
+    // Large enough that a 1 MB segment holds about 100 logs
+    private static final String PADDING = "x".repeat(10_000);
+
+    @TempDir
+    File dataFolder;
+
+    private final List<LogJournal> opened = new ArrayList<>();
+
+    private LogJournal open() throws IOException {
+        UltimateLogger plugin = TestPlugin.create(dataFolder, Map.of(
+                "logs.journal.durability", "SYNC",
+                "logs.journal.segment-size-mb", 1));
+        LogJournal journal = new LogJournal(plugin, (logType, id, timestamp, json) -> {
+            LogData data = TestPlugin.parse(logType, json);
+            data.setId(id);
+            return new LogManager.LogDataTuple(logType, data, timestamp, -1, null);
+        });
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    @AfterEach
+    void close() {
+        opened.forEach(LogJournal::close);
+    }
+
+    private static long append(LogJournal journal, long id, String padding) {
+        return journal.append("chat", id, 1_000 + id, "{\"n\":" + id + ",\"padding\":\"" + padding + "\"}");
+    }
+
+    /**
+     * Reads the whole backlog in batches, acknowledging each one.
+     */
+    private static List<Long> replay(LogJournal journal, int batchSize) {
+        List<Long> ids = new ArrayList<>();
+        while (true) {
+            List<LogManager.LogDataTuple> batch = journal.readBacklog(batchSize);
+            for (LogManager.LogDataTuple tuple : batch) {
+                assertEquals(1_000 + tuple.data().getId(), tuple.timestamp());
+                assertEquals(tuple.data().getId(), tuple.data().getData().get("n"));
+                ids.add(tuple.data().getId());
+            }
+            journal.acknowledgeBacklog();
+            if (batch.isEmpty()) return ids;
+        }
+    }
+
+    @Test
+    void uncommittedLogsAreReplayedInOrderAfterARestart() throws IOException {
+        LogJournal journal = open();
+        List<Long> tickets = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            tickets.add(append(journal, id, ""));
+        }
+        journal.release(tickets.get(0));
+        journal.release(tickets.get(1));
+        journal.close();
+
+        LogJournal reopened = open();
+        assertTrue(reopened.isInBacklog());
+        // Committed logs share a segment with pending ones, so they are replayed too
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), replay(reopened, 2));
+        assertTrue(reopened.tryFinishBacklog());
+        assertTrue(append(reopened, 6, "") >= 0);
+        reopened.close();
+    }
+
+    @Test
+    void committedLogsLeaveNothingToReplay() throws IOException {
+        LogJournal journal = open();
+        for (long id = 1; id <= 3; id++) {
+            journal.release(append(journal, id, ""));
+        }
+        journal.close();
+
+        assertFalse(open().isInBacklog());
+    }
+
+    @Test
+    void theBacklogSpansSegmentsAndFreesThemOnceReplayed() throws IOException {
+        LogJournal journal = open();
+        journal.enterBacklog();
+        for (long id = 1; id <= 250; id++) {
+            assertEquals(LogJournal.IN_BACKLOG, append(journal, id, PADDING));
+        }
+        assertEquals(3, journal.getSegmentCount());
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, replay(journal, 40));
+        assertEquals(1, journal.getSegmentCount());
+        assertTrue(journal.tryFinishBacklog());
+        assertFalse(journal.isInBacklog());
+    }
+
+    @Test
+    void aCorruptRecordEndsTheReplayOfItsSegment() throws IOException {
+        LogJournal journal = open();
+        for (long id = 1; id <= 3; id++) {
+            append(journal, id, "");
+        }
+        journal.close();
+
+        // Flips the last byte of the second record's JSON
+        File[] files = new File(dataFolder, "journal").listFiles();
+        assertEquals(1, files.length);
+        int firstRecord = 8 + 18 + "chat".length() + "{\"n\":1,\"padding\":\"\"}".length();
+        int secondRecordEnd = 2 * firstRecord - 1;
+        try (RandomAccessFile file = new RandomAccessFile(files[0], "rw")) {
+            file.seek(secondRecordEnd);
+            int last = file.read();
+            file.seek(secondRecordEnd);
+            file.write(last ^ 0xFF);
+        }
+
+        assertEquals(List.of(1L), replay(open(), 10));
+    }
+}
@@ -0,0 +1,91 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogQueueTest {
+
+    @TempDir
+    File dataFolder;
+
+    private LogQueue queue(String policy) {
+        UltimateLogger plugin = TestPlugin.create(dataFolder, Map.of(
+                "logs.queue.capacity", 4,
+                "logs.queue.overflow-policy", policy));
+        return new LogQueue(plugin, (logType, id, timestamp, json) -> tuple(logType, id, timestamp));
+    }
+
+    private static LogManager.LogDataTuple tuple(String logType, long id, long timestamp) {
+        LogData data = new LogData();
+        data.setId(id);
+        return new LogManager.LogDataTuple(logType, data, timestamp, -1, null);
+    }
+
+    @Test
+    void dropNewestRejectsOnceFull() {
+        LogQueue queue = queue("DROP_NEWEST");
+        for (int id = 1; id <= 6; id++) {
+            assertEquals(id <= 4, queue.offer(tuple("test", id, id)));
+        }
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(1, queue.poll().data().getId());
+    }
+
+    @Test
+    void dropOldestKeepsTheNewest() {
+        LogQueue queue = queue("DROP_OLDEST");
+        for (int id = 1; id <= 6; id++) {
+            assertTrue(queue.offer(tuple("test", id, id)));
+        }
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(3, queue.poll().data().getId());
+    }
+
+    @Test
+    void spilledLogsAreSyncedAndComeBackInOrder() throws IOException {
+        LogQueue queue = queue("SPILL");
+        for (int id = 1; id <= 10; id++) {
+            assertTrue(queue.offer(tuple("test", id, id)));
+        }
+        assertEquals(6, queue.getSpilledCount());
+
+        // Written through to the file without closing the queue, so a crash keeps them
+        queue.syncSpill();
+        File spillFile = new File(dataFolder, "queue-spill.log");
+        assertEquals(6, Files.readAllLines(spillFile.toPath()).size());
+
+        for (int id = 1; id <= 10; id++) {
+            assertEquals(id, queue.poll().data().getId());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertFalse(spillFile.exists() && spillFile.length() > 0);
+    }
+
+    @Test
+    void spilledLogsSurviveARestart() {
+        LogQueue queue = queue("SPILL");
+        for (int id = 1; id <= 6; id++) {
+            queue.offer(tuple("test", id, id));
+        }
+        queue.close();
+
+        LogQueue restarted = queue("SPILL");
+        assertFalse(restarted.isEmpty());
+        assertEquals(5, restarted.poll().data().getId());
+        assertEquals(6, restarted.poll().data().getId());
+        assertNull(restarted.poll());
+    }
+}
@@ -0,0 +1,49 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryStorageBackendTest {
+
+    private static MemoryStorageBackend open() {
+        MemoryStorageBackend backend = new MemoryStorageBackend(100);
+        backend.open();
+        List<LogEntry> logs = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            logs.add(TestPlugin.log(id, "chat", 1_000 + id, false, "n", id));
+        }
+        backend.write(logs, 0);
+        return backend;
+    }
+
+    private static List<Long> ids(List<LogEntry> logs) {
+        return logs.stream().map(LogEntry::getId).toList();
+    }
+
+    @Test
+    void timestampNotEqualLeavesOutThatLog() {
+        MemoryStorageBackend backend = open();
+        List<FilterCondition> notThird = List.of(new FilterCondition("timestamp", "!=", 1_003L));
+
+        assertEquals(List.of(5L, 4L, 2L, 1L), ids(backend.query(null, notThird, LogCursor.FIRST, 10)));
+        assertEquals(List.of(5L, 4L, 2L), ids(backend.query(null,
+                List.of(notThird.get(0), new FilterCondition("timestamp", ">=", 1_002L)), LogCursor.FIRST, 10)));
+    }
+
+    @Test
+    void deletingWithTimestampNotEqualKeepsThatLog() {
+        MemoryStorageBackend backend = open();
+
+        assertEquals(4, backend.delete(null, List.of(new FilterCondition("timestamp", "!=", "1003")), deleted -> true));
+        assertTrue(backend.get(3).isPresent());
+        assertEquals(List.of(3L), ids(backend.query(null, List.of(), LogCursor.FIRST, 10)));
+    }
+}
@@ -0,0 +1,136 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCodecTest {
+
+    @TempDir
+    File dataFolder;
+
+    private UltimateLogger plugin;
+    private DatabaseManager dbManager;
+    private LogDictionary dictionary;
+    private BinaryPayloadCodec binary;
+    private DeflatePayloadCodec deflate;
+
+    @BeforeEach
+    void open() {
+        plugin = TestPlugin.create(dataFolder, Map.of());
+        dbManager = new DatabaseManager(plugin, plugin.getConfigManager());
+        assertTrue(new SchemaMigrator(plugin, dbManager).migrate());
+        dictionary = new LogDictionary(plugin, dbManager);
+        binary = new BinaryPayloadCodec(dictionary);
+        deflate = new DeflatePayloadCodec(binary, 32);
+    }
+
+    @AfterEach
+    void close() {
+        dbManager.close();
+    }
+
+    /**
+     * Gives the keys dictionary IDs, as the writer does before saving logs that use them.
+     */
+    private void storeKeys(String... keys) throws SQLException {
+        Map<String, String> entries = new HashMap<>();
+        for (String key : keys) {
+            entries.put(key, null);
+        }
+        try (Connection conn = dbManager.getConnection()) {
+            dictionary.store(conn, Map.of(LogDictionary.Kind.KEY, entries));
+        }
+    }
+
+    private static LogData sample() {
+        return new LogData()
+                .put("player", "Steve")
+                .put("player_uuid", "069a79f4-44e9-4726-a5be-fca90e38aaf5")
+                .put("count", 7L)
+                .put("negative", -300_000_000_000L)
+                .put("health", 19.5)
+                .put("creative", true)
+                .put("flying", false)
+                .put("message", "héllo \"world\"\n")
+                .put("items", List.of("DIAMOND", "STONE"));
+    }
+
+    private LogData decode(PayloadCodec codec, byte[] payload) throws IOException, SQLException {
+        LogData data = new LogData();
+        try (Connection conn = dbManager.getReadConnection()) {
+            codec.decode(payload, data, conn);
+        }
+        return data;
+    }
+
+    @Test
+    void binaryPayloadsRoundTripEveryValueType() throws Exception {
+        storeKeys("player", "count", "creative"); // The other keys are written by name
+        LogData data = sample();
+
+        assertEquals(data.getData(), decode(binary, binary.encode(data)).getData());
+    }
+
+    @Test
+    void deflatePayloadsRoundTripStoredAndCompressed() throws Exception {
+        storeKeys("message");
+        LogData small = new LogData().put("count", 1L);
+        LogData large = new LogData().put("message", "/tpa Steve ".repeat(50)).put("count", 2L);
+
+        byte[] stored = deflate.encode(small);
+        byte[] packed = deflate.encode(large);
+
+        assertEquals(0, stored[0]);
+        assertEquals(1, packed[0]);
+        assertTrue(packed.length < binary.encode(large).length);
+        assertEquals(small.getData(), decode(deflate, stored).getData());
+        assertEquals(large.getData(), decode(deflate, packed).getData());
+    }
+
+    @Test
+    void valuesAreExtractedLikeJsonExtract() throws Exception {
+        storeKeys("count", "creative");
+        for (PayloadCodec codec : List.of(binary, deflate)) {
+            byte[] payload = codec.encode(sample());
+            assertEquals(7L, codec.extract(payload, "count"));
+            assertEquals(1L, codec.extract(payload, "creative"));
+            assertEquals(0L, codec.extract(payload, "flying"));
+            assertEquals("Steve", codec.extract(payload, "player"));
+            assertNull(codec.extract(payload, "missing"));
+        }
+    }
+
+    @Test
+    void keysMissingFromTheCacheAreLoadedFromTheDatabase() throws Exception {
+        storeKeys("player", "count", "creative");
+        byte[] payload = binary.encode(sample());
+
+        // A fresh dictionary, as after a restart, knows none of the keys until it reads them
+        BinaryPayloadCodec restarted = new BinaryPayloadCodec(new LogDictionary(plugin, dbManager));
+        assertEquals(sample().getData(), decode(restarted, payload).getData());
+    }
+
+    @Test
+    void unknownKeyIdsAreAnError() {
+        // Key 999, a long value of 1
+        byte[] payload = {(byte) 0xE7, 0x07, 0, 2};
+        assertThrows(IOException.class, () -> decode(binary, payload));
+    }
+}
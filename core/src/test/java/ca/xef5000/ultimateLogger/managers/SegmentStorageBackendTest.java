@@ -0,0 +1,143 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentStorageBackendTest {
+
+    // Large enough that a 1 MB segment holds about 100 logs
+    private static final String PADDING = "x".repeat(10_000);
+
+    @TempDir
+    File dataFolder;
+
+    private final List<SegmentStorageBackend> opened = new ArrayList<>();
+
+    private SegmentStorageBackend open() throws StorageException {
+        SegmentStorageBackend backend = new SegmentStorageBackend(
+                TestPlugin.create(dataFolder, Map.of("database.segments.segment-size-mb", 1)), TestPlugin::parse);
+        backend.open();
+        opened.add(backend);
+        return backend;
+    }
+
+    @AfterEach
+    void close() {
+        opened.forEach(SegmentStorageBackend::close);
+    }
+
+    private static List<LogEntry> logs(long fromId, long toId, long retentionTimestamp) {
+        List<LogEntry> logs = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            logs.add(TestPlugin.log(id, id % 2 == 0 ? "even" : "odd", retentionTimestamp + id, false, "n", id, "padding", PADDING));
+        }
+        return logs;
+    }
+
+    private static List<Long> pageThrough(SegmentStorageBackend backend, int pageSize) throws StorageException {
+        List<Long> ids = new ArrayList<>();
+        LogCursor cursor = LogCursor.FIRST;
+        while (true) {
+            List<LogEntry> page = backend.query(null, List.of(), cursor, pageSize);
+            page.forEach(log -> ids.add(log.getId()));
+            if (page.size() < pageSize) return ids;
+            cursor = LogCursor.olderThan(page.get(page.size() - 1).getId());
+        }
+    }
+
+    @Test
+    void recordsRoundTripThroughAReopen() throws StorageException {
+        SegmentStorageBackend backend = open();
+        LogEntry log = TestPlugin.log(42, "chat", 1_000, false, "player", "Steve", "count", 7L, "flag", true, "quote", "a\"b\n");
+        assertTrue(backend.write(List.of(log), 0)[0]);
+        assertFalse(backend.write(List.of(log), 0)[0]); // Already stored
+        backend.setArchived(42, true, 0);
+        backend.close();
+
+        SegmentStorageBackend reopened = open();
+        LogEntry read = reopened.get(42).orElseThrow();
+        assertEquals("chat", read.getLogType());
+        assertEquals(1_000, read.getTimestamp().toEpochMilli());
+        assertTrue(read.isArchived());
+        assertEquals(log.getData().toJson(), read.getData().toJson());
+        assertEquals(1, reopened.counts().archived("chat"));
+    }
+
+    @Test
+    void pagesStayInIdOrderAfterReplayedLogs() throws StorageException {
+        SegmentStorageBackend backend = open();
+        backend.write(logs(100, 350, 0), 0);
+        // Replayed from the journal, so older than what the active segment already holds
+        backend.write(logs(10, 40, 0), 0);
+
+        List<Long> ids = pageThrough(backend, 7);
+        assertEquals(251 + 31, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i) < ids.get(i - 1), "Out of order at " + i + ": " + ids);
+        }
+    }
+
+    @Test
+    void droppingASegmentKeepsItsArchivedLogsInPlace() throws StorageException {
+        SegmentStorageBackend backend = open();
+        backend.write(logs(1, 300, 0), 1_000);
+        backend.setArchived(5, true, 0);
+        backend.setArchived(50, true, 0);
+        backend.write(logs(301, 350, 0), 0); // Never expire
+
+        File[] before = new File(dataFolder, "segments").listFiles();
+        int expired = backend.expire(Long.MAX_VALUE - 1, deleted -> true);
+        assertTrue(expired > 0);
+        // Every sealed segment is gone except the first, which only holds the archived logs now
+        File[] after = new File(dataFolder, "segments").listFiles();
+        assertTrue(after.length < before.length);
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 350; id > 300; id--) {
+            expected.add(id);
+        }
+        expected.add(50L);
+        expected.add(5L);
+        List<Long> ids = pageThrough(backend, 3);
+        assertEquals(expected, ids);
+        assertEquals(2, backend.counts().archived(null));
+        assertEquals(expected.size(), backend.counts().total(null));
+
+        // Nothing left to free, so another pass does not rewrite it again
+        assertEquals(0, backend.expire(Long.MAX_VALUE - 1, deleted -> true));
+
+        backend.close();
+        SegmentStorageBackend reopened = open();
+        assertTrue(reopened.get(5).orElseThrow().isArchived());
+        assertEquals(ids, pageThrough(reopened, 3));
+    }
+
+    @Test
+    void timestampNotEqualIsCheckedForEveryLog() throws StorageException {
+        SegmentStorageBackend backend = open();
+        backend.write(logs(1, 20, 0), 0); // Log N was captured at time N
+        FilterCondition notSeventh = new FilterCondition("timestamp", "!=", 7L);
+
+        List<Long> page = backend.query(null, List.of(notSeventh, new FilterCondition("timestamp", "<=", 9L)), LogCursor.FIRST, 10)
+                .stream().map(LogEntry::getId).toList();
+        assertEquals(List.of(9L, 8L, 6L, 5L, 4L, 3L, 2L, 1L), page);
+
+        assertEquals(19, backend.delete(null, List.of(notSeventh), deleted -> true));
+        assertTrue(backend.get(7).isPresent());
+        assertEquals(List.of(7L), pageThrough(backend, 5));
+    }
+}
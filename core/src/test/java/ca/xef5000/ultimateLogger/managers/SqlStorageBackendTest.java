@@ -0,0 +1,143 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.FilterCondition;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class SqlStorageBackendTest {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    File dataFolder;
+
+    private DatabaseManager dbManager;
+    private SqlStorageBackend backend;
+
+    /**
+     * Opens a backend over an SQLite database, with its database manager spied on so tests can act between connections.
+     */
+    private SqlStorageBackend open(Map<String, Object> settings) throws StorageException {
+        UltimateLogger plugin = TestPlugin.create(dataFolder, settings);
+        dbManager = spy(new DatabaseManager(plugin, plugin.getConfigManager()));
+        backend = new SqlStorageBackend(plugin, dbManager, TestPlugin::parse);
+        backend.open();
+        return backend;
+    }
+
+    @AfterEach
+    void close() {
+        if (backend != null) backend.close();
+        if (dbManager != null) dbManager.close();
+    }
+
+    private ColdTier coldTier() throws ReflectiveOperationException {
+        Field field = SqlStorageBackend.class.getDeclaredField("coldTier");
+        field.setAccessible(true);
+        return (ColdTier) field.get(backend);
+    }
+
+    private static List<LogEntry> logs(long fromId, long toId, long timestamp) {
+        List<LogEntry> logs = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            logs.add(TestPlugin.log(id, "chat", timestamp + id, false, "player", "Steve", "n", id));
+        }
+        return logs;
+    }
+
+    private List<Long> pageThrough(int pageSize) throws StorageException {
+        List<Long> ids = new ArrayList<>();
+        LogCursor cursor = LogCursor.FIRST;
+        while (true) {
+            List<LogEntry> page = backend.query(null, List.of(), cursor, pageSize);
+            page.forEach(log -> ids.add(log.getId()));
+            if (page.size() < pageSize) return ids;
+            cursor = LogCursor.olderThan(page.get(page.size() - 1).getId());
+        }
+    }
+
+    @Test
+    void logsArchivedWhileMovingToTheColdTierStayInTheDatabase() throws Exception {
+        open(Map.of("logs.cold-tier.enabled", true, "logs.cold-tier.after-days", 1));
+        backend.write(logs(1, 10, System.currentTimeMillis() - 3 * DAY_MILLIS), 0);
+
+        // Archives log 5 after the cold tier read the old logs, before it deletes them
+        AtomicBoolean armed = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (armed.getAndSet(false)) backend.setArchived(5, true, 0);
+            return invocation.callRealMethod();
+        }).when(dbManager).getConnection();
+        coldTier().compact();
+
+        assertTrue(backend.get(5).orElseThrow().isArchived());
+        assertTrue(coldTier().get(5).isEmpty());
+        assertTrue(coldTier().get(4).isPresent());
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), pageThrough(3));
+        assertEquals(1, backend.counts().archived("chat"));
+        assertEquals(10, backend.counts().total("chat"));
+    }
+
+    @Test
+    void replayedLogsAreNotCountedTwice() throws StorageException {
+        open(Map.of());
+        long now = System.currentTimeMillis();
+        boolean[] first = backend.write(logs(1, 5, now), 0);
+        boolean[] replayed = backend.write(logs(3, 8, now), 0);
+
+        assertArrayEquals(new boolean[]{true, true, true, true, true}, first);
+        assertArrayEquals(new boolean[]{false, false, false, true, true, true}, replayed);
+        assertEquals(8, backend.counts().total("chat"));
+        assertEquals(List.of(8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L), pageThrough(3));
+    }
+
+    @Test
+    void deletingAColdLogUpdatesTheCounters() throws Exception {
+        open(Map.of("logs.cold-tier.enabled", true, "logs.cold-tier.after-days", 1));
+        backend.write(logs(1, 10, System.currentTimeMillis() - 3 * DAY_MILLIS), 0);
+        coldTier().compact();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertTrue(backend.delete(4)));
+        assertFalse(backend.delete(4));
+        assertTrue(backend.get(4).isEmpty());
+        assertEquals(9, backend.counts().total("chat"));
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L, 3L, 2L, 1L), pageThrough(4));
+    }
+
+    @Test
+    void clearingColdLogsWithTimestampNotEqualKeepsThatLog() throws Exception {
+        open(Map.of("logs.cold-tier.enabled", true, "logs.cold-tier.after-days", 1));
+        long timestamp = System.currentTimeMillis() - 3 * DAY_MILLIS;
+        backend.write(logs(1, 10, timestamp), 0);
+        coldTier().compact();
+        List<FilterCondition> notFifth = List.of(new FilterCondition("timestamp", "!=", timestamp + 5));
+
+        assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 4L, 3L, 2L, 1L),
+                backend.query(null, notFifth, LogCursor.FIRST, 20).stream().map(LogEntry::getId).toList());
+        assertEquals(9, backend.delete(null, notFifth, deleted -> true));
+        assertTrue(coldTier().get(5).isPresent());
+        assertEquals(List.of(5L), pageThrough(4));
+        assertEquals(1, backend.counts().total("chat"));
+    }
+}
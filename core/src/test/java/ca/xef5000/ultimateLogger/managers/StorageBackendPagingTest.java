@@ -0,0 +1,135 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogCursor;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import ca.xef5000.ultimateLogger.api.StorageBackend;
+import ca.xef5000.ultimateLogger.api.StorageException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pages through the same logs on every backend, in both directions.
+ */
+class StorageBackendPagingTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long OLD = NOW - TimeUnit.DAYS.toMillis(3);
+
+    enum Kind { MEMORY, SEGMENTS, SQLITE, SQLITE_COLD_TIER }
+
+    @TempDir
+    File dataFolder;
+
+    private StorageBackend backend;
+    private DatabaseManager dbManager;
+
+    /**
+     * Opens a backend holding logs 1 to 200, written out of order. Odd logs are three days old, so
+     * with the cold tier they are moved out of the database and pages mix both.
+     */
+    private StorageBackend open(Kind kind) throws Exception {
+        UltimateLogger plugin = switch (kind) {
+            case SEGMENTS -> TestPlugin.create(dataFolder, Map.of("database.segments.segment-size-mb", 1));
+            case SQLITE_COLD_TIER -> TestPlugin.create(dataFolder, Map.of("logs.cold-tier.enabled", true, "logs.cold-tier.after-days", 1));
+            default -> TestPlugin.create(dataFolder, Map.of());
+        };
+        backend = switch (kind) {
+            case MEMORY -> new MemoryStorageBackend(1000);
+            case SEGMENTS -> new SegmentStorageBackend(plugin, TestPlugin::parse);
+            case SQLITE, SQLITE_COLD_TIER -> {
+                dbManager = new DatabaseManager(plugin, plugin.getConfigManager());
+                yield new SqlStorageBackend(plugin, dbManager, TestPlugin::parse);
+            }
+        };
+        backend.open();
+        backend.write(logs(101, 200), 0);
+        backend.write(logs(1, 100), 0);
+        if (kind == Kind.SQLITE_COLD_TIER) {
+            Field field = SqlStorageBackend.class.getDeclaredField("coldTier");
+            field.setAccessible(true);
+            ((ColdTier) field.get(backend)).compact();
+        }
+        return backend;
+    }
+
+    @AfterEach
+    void close() {
+        if (backend != null) backend.close();
+        if (dbManager != null) dbManager.close();
+    }
+
+    private static List<LogEntry> logs(long fromId, long toId) {
+        List<LogEntry> logs = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            boolean odd = id % 2 != 0;
+            logs.add(TestPlugin.log(id, odd ? "odd" : "even", (odd ? OLD : NOW) + id, false, "n", id));
+        }
+        return logs;
+    }
+
+    private static List<Long> ids(long from, long to, LongPredicate filter) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; from <= to ? id <= to : id >= to; id += from <= to ? 1 : -1) {
+            if (filter.test(id)) ids.add(id);
+        }
+        return ids;
+    }
+
+    private List<Long> pageThrough(String logType, LogCursor first, int pageSize) throws StorageException {
+        List<Long> ids = new ArrayList<>();
+        LogCursor cursor = first;
+        while (true) {
+            List<LogEntry> page = backend.query(logType, List.of(), cursor, pageSize);
+            page.forEach(log -> ids.add(log.getId()));
+            if (page.size() < pageSize) return ids;
+            long last = page.get(page.size() - 1).getId();
+            cursor = first.isOlder() ? LogCursor.olderThan(last) : LogCursor.newerThan(last);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void pagesGoingOlderVisitEveryLogOnceNewestFirst(Kind kind) throws Exception {
+        open(kind);
+        assertEquals(ids(200, 1, id -> true), pageThrough(null, LogCursor.FIRST, 7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void pagesGoingNewerVisitEveryLogOnceOldestFirst(Kind kind) throws Exception {
+        open(kind);
+        assertEquals(ids(1, 200, id -> true), pageThrough(null, LogCursor.newerThan(0), 7));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void pagesOfOneTypeStartAtTheCursor(Kind kind) throws Exception {
+        open(kind);
+        assertEquals(ids(149, 1, id -> id % 2 != 0), pageThrough("odd", LogCursor.olderThan(150), 9));
+        assertEquals(ids(52, 200, id -> id % 2 == 0), pageThrough("even", LogCursor.newerThan(50), 9));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void aPageBackStartsWhereTheNextOneEnded(Kind kind) throws Exception {
+        open(kind);
+        List<LogEntry> second = backend.query(null, List.of(), LogCursor.olderThan(180), 10);
+        List<LogEntry> back = backend.query(null, List.of(), LogCursor.newerThan(second.get(second.size() - 1).getId()), 10);
+
+        assertEquals(ids(179, 170, id -> true), second.stream().map(LogEntry::getId).toList());
+        assertEquals(ids(171, 180, id -> true), back.stream().map(LogEntry::getId).toList());
+    }
+}
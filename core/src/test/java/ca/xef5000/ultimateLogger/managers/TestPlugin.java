@@ -0,0 +1,66 @@
+package ca.xef5000.ultimateLogger.managers;
+
+import ca.xef5000.ultimateLogger.UltimateLogger;
+import ca.xef5000.ultimateLogger.api.LogData;
+import ca.xef5000.ultimateLogger.api.LogEntry;
+import com.google.gson.JsonParser;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A plugin for tests: the plugin class is mocked, since it cannot be constructed outside a server,
+ * but its ConfigManager is real and reads the given settings over the defaults.
+ */
+final class TestPlugin {
+
+    private TestPlugin() {
+    }
+
+    static UltimateLogger create(File dataFolder, Map<String, Object> settings) {
+        YamlConfiguration config = new YamlConfiguration();
+        settings.forEach(config::set);
+
+        UltimateLogger plugin = mock(UltimateLogger.class);
+        when(plugin.getConfig()).thenReturn(config);
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("UltimateLogger"));
+        ConfigManager configManager = new ConfigManager(plugin);
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        return plugin;
+    }
+
+    /**
+     * Parses JSON values the way the log manager does for unknown log types.
+     */
+    static LogData parse(String logType, String json) {
+        LogData data = new LogData();
+        if (json != null) {
+            JsonParser.parseString(json).getAsJsonObject().entrySet().forEach(entry -> {
+                if (entry.getValue().getAsJsonPrimitive().isNumber()) {
+                    data.put(entry.getKey(), entry.getValue().getAsLong());
+                } else if (entry.getValue().getAsJsonPrimitive().isBoolean()) {
+                    data.put(entry.getKey(), entry.getValue().getAsBoolean());
+                } else {
+                    data.put(entry.getKey(), entry.getValue().getAsString());
+                }
+            });
+        }
+        return data;
+    }
+
+    static LogEntry log(long id, String logType, long timestamp, boolean archived, Object... keyValues) {
+        LogData data = new LogData();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            data.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        data.setId(id);
+        return new LogEntry(id, logType, Instant.ofEpochMilli(timestamp), archived, data);
+    }
+}
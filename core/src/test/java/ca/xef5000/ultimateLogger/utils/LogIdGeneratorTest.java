@@ -0,0 +1,74 @@
+package ca.xef5000.ultimateLogger.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogIdGeneratorTest {
+
+    private static final Logger LOGGER = Logger.getAnonymousLogger();
+
+    @TempDir
+    File directory;
+
+    @Test
+    void idsStartAboveTheSavedMark() throws IOException {
+        File file = new File(directory, "id-high-water-mark");
+        // As if the clock was an hour ahead in the last run
+        long mark = System.currentTimeMillis() + 3_600_000;
+        Files.writeString(file.toPath(), Long.toString(mark));
+
+        LogIdGenerator generator = new LogIdGenerator(3, file, LOGGER);
+        long first = generator.nextId();
+
+        assertTrue(first > LogIdGenerator.lowestIdAt(mark));
+        assertTrue(generator.nextId() > first);
+        // The new mark is ahead of the old one
+        assertTrue(Long.parseLong(Files.readString(file.toPath())) > mark);
+    }
+
+    @Test
+    void aRestartNeverRepeatsAnId() {
+        File file = new File(directory, "id-high-water-mark");
+        long last = 0;
+        for (int i = 0; i < 100; i++) {
+            LogIdGenerator generator = new LogIdGenerator(0, file, LOGGER);
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+            if (i % 2 == 0) generator.close(); // Every other run crashes
+        }
+    }
+
+    @Test
+    void aCleanShutdownDoesNotStartTheNextRunAhead() {
+        File file = new File(directory, "id-high-water-mark");
+        LogIdGenerator generator = new LogIdGenerator(0, file, LOGGER);
+        long last = generator.nextId();
+        generator.close();
+
+        long id = new LogIdGenerator(0, file, LOGGER).nextId();
+
+        assertTrue(id > last);
+        assertEquals(System.currentTimeMillis(), LogIdGenerator.timestampOf(id), 1_000);
+    }
+
+    @Test
+    void anUnreadableMarkStartsFromTheClock() throws IOException {
+        File file = new File(directory, "id-high-water-mark");
+        Files.writeString(file.toPath(), "garbage");
+        long before = LogIdGenerator.lowestIdAt(System.currentTimeMillis());
+
+        long id = new LogIdGenerator(0, file, LOGGER).nextId();
+
+        assertTrue(id >= before);
+        assertEquals(LogIdGenerator.timestampOf(before), LogIdGenerator.timestampOf(id), 1_000);
+    }
+}
@@ -20,16 +20,20 @@ public class BlockBreakLogDefinition extends LogDefinition<BlockBreakEvent> {
         return BlockBreakEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(BlockBreakEvent event) {
-        // We can add logic here. For example, don't log if the event was cancelled.
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(BlockBreakEvent event) {
         // Create the LogData payload with relevant information
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("block_type", event.getBlock().getType().toString())
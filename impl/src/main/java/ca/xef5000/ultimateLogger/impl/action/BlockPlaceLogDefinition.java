@@ -19,14 +19,19 @@ public class BlockPlaceLogDefinition extends LogDefinition<BlockPlaceEvent> {
         return BlockPlaceEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(BlockPlaceEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(BlockPlaceEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("block_type", event.getBlock().getType().toString())
@@ -19,14 +19,19 @@ public class BookEditingLogDefinition extends LogDefinition<PlayerEditBookEvent>
         return PlayerEditBookEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerEditBookEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerEditBookEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("is_signing", event.isSigning())
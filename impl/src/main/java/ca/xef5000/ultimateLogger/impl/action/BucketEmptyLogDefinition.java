@@ -19,14 +19,19 @@ public class BucketEmptyLogDefinition extends LogDefinition<PlayerBucketEmptyEve
         return PlayerBucketEmptyEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerBucketEmptyEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerBucketEmptyEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("bucket_type", event.getBucket().toString())
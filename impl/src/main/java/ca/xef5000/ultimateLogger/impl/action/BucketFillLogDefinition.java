@@ -19,14 +19,19 @@ public class BucketFillLogDefinition extends LogDefinition<PlayerBucketFillEvent
         return PlayerBucketFillEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerBucketFillEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerBucketFillEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("bucket_type", event.getItemStack().getType().toString())
@@ -19,14 +19,19 @@ public class GameModeLogDefinition extends LogDefinition<PlayerGameModeChangeEve
         return PlayerGameModeChangeEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerGameModeChangeEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerGameModeChangeEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("old_gamemode", event.getPlayer().getGameMode().toString())
@@ -19,14 +19,19 @@ public class ItemDropLogDefinition extends LogDefinition<PlayerDropItemEvent> {
         return PlayerDropItemEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerDropItemEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerDropItemEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("item_type", event.getItemDrop().getItemStack().getType().toString())
@@ -19,15 +19,20 @@ public class ItemPickupLogDefinition extends LogDefinition<EntityPickupItemEvent
         return EntityPickupItemEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(EntityPickupItemEvent event) {
-        return !event.isCancelled() && event.getEntity() instanceof org.bukkit.entity.Player;
+        return event.getEntity() instanceof org.bukkit.entity.Player;
     }
 
     @Override
     public LogData captureData(EntityPickupItemEvent event) {
         org.bukkit.entity.Player player = (org.bukkit.entity.Player) event.getEntity();
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", player.getUniqueId().toString())
                 .put("player_name", player.getName())
                 .put("item_type", event.getItem().getItemStack().getType().toString())
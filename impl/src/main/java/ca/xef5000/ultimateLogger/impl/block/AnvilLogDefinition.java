@@ -29,7 +29,7 @@ public class AnvilLogDefinition extends LogDefinition<PrepareAnvilEvent> {
         String playerName = event.getViewers().get(0).getName();
         String playerUuid = event.getViewers().get(0).getUniqueId().toString();
         
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", playerUuid)
                 .put("player_name", playerName)
                 .put("input_item", event.getInventory().getItem(0) != null ? 
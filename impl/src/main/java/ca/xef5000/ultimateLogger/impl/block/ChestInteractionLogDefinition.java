@@ -21,10 +21,14 @@ public class ChestInteractionLogDefinition extends LogDefinition<InventoryOpenEv
         return InventoryOpenEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(InventoryOpenEvent event) {
-        return !event.isCancelled() && 
-               event.getPlayer() instanceof org.bukkit.entity.Player &&
+        return event.getPlayer() instanceof org.bukkit.entity.Player &&
                (event.getInventory().getType().toString().contains("CHEST") ||
                 event.getInventory().getType().toString().contains("BARREL") ||
                 event.getInventory().getType().toString().contains("SHULKER"));
@@ -33,7 +37,7 @@ public class ChestInteractionLogDefinition extends LogDefinition<InventoryOpenEv
     @Override
     public LogData captureData(InventoryOpenEvent event) {
         org.bukkit.entity.Player player = (org.bukkit.entity.Player) event.getPlayer();
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", player.getUniqueId().toString())
                 .put("player_name", player.getName())
                 .put("inventory_type", event.getInventory().getType().toString())
@@ -19,14 +19,19 @@ public class EnchantingLogDefinition extends LogDefinition<EnchantItemEvent> {
         return EnchantItemEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(EnchantItemEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(EnchantItemEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getEnchanter().getUniqueId().toString())
                 .put("player_name", event.getEnchanter().getName())
                 .put("item_type", event.getItem().getType().toString())
@@ -26,7 +26,7 @@ public class FurnaceLogDefinition extends LogDefinition<FurnaceExtractEvent> {
 
     @Override
     public LogData captureData(FurnaceExtractEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("item_type", event.getItemType().toString())
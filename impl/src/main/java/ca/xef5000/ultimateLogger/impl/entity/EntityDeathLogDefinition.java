@@ -27,7 +27,7 @@ public class EntityDeathLogDefinition extends LogDefinition<EntityDeathEvent> {
 
     @Override
     public LogData captureData(EntityDeathEvent event) {
-        LogData data = new LogData()
+        LogData data = newLogData()
                 .put("entity_type", event.getEntity().getType().toString())
                 .put("location_world", event.getEntity().getLocation().getWorld().getName())
                 .put("location_x", event.getEntity().getLocation().getBlockX())
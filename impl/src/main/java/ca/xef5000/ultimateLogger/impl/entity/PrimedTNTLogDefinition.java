@@ -29,7 +29,7 @@ public class PrimedTNTLogDefinition extends LogDefinition<EntityExplodeEvent> {
     @Override
     public LogData captureData(EntityExplodeEvent event) {
         TNTPrimed tnt = (TNTPrimed) event.getEntity();
-        LogData data = new LogData()
+        LogData data = newLogData()
                 .put("location_world", event.getLocation().getWorld().getName())
                 .put("location_x", event.getLocation().getBlockX())
                 .put("location_y", event.getLocation().getBlockY())
@@ -27,7 +27,7 @@ public class PlayerChatLogDefinition extends LogDefinition<AsyncChatEvent> {
 
     @Override
     public LogData captureData(AsyncChatEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("message", ((TextComponent) event.message()).content());
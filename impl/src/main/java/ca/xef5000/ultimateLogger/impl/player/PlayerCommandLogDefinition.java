@@ -26,7 +26,7 @@ public class PlayerCommandLogDefinition extends LogDefinition<PlayerCommandPrepr
 
     @Override
     public LogData captureData(PlayerCommandPreprocessEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("command", event.getMessage());
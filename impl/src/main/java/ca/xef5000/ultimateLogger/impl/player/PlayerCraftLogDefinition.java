@@ -19,15 +19,20 @@ public class PlayerCraftLogDefinition extends LogDefinition<CraftItemEvent> {
         return CraftItemEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(CraftItemEvent event) {
-        return !event.isCancelled() && event.getWhoClicked() instanceof org.bukkit.entity.Player;
+        return event.getWhoClicked() instanceof org.bukkit.entity.Player;
     }
 
     @Override
     public LogData captureData(CraftItemEvent event) {
         org.bukkit.entity.Player player = (org.bukkit.entity.Player) event.getWhoClicked();
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", player.getUniqueId().toString())
                 .put("player_name", player.getName())
                 .put("crafted_item", event.getCurrentItem().getType().toString())
@@ -32,7 +32,7 @@ public class PlayerDeathLogDefinition extends LogDefinition<PlayerDeathEvent> {
     @Override
     public LogData captureData(PlayerDeathEvent event) {
         assert event.deathMessage() != null;
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getEntity().getUniqueId().toString())
                 .put("player_name", event.getEntity().getName())
                 .put("death_message", getDeathMessage(event.deathMessage()))
@@ -30,7 +30,7 @@ public class PlayerJoinLogDefinition extends LogDefinition<PlayerJoinEvent> {
     @Override
     public LogData captureData(PlayerJoinEvent event) {
         assert event.joinMessage() != null;
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("join_message", ComponentUtils.extractText(event.joinMessage()))
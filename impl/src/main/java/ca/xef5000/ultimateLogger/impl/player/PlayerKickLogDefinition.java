@@ -28,7 +28,7 @@ public class PlayerKickLogDefinition extends LogDefinition<PlayerKickEvent> {
 
     @Override
     public LogData captureData(PlayerKickEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("kick_reason", ComponentUtils.extractText(event.reason()));
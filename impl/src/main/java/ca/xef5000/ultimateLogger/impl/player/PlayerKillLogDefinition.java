@@ -29,7 +29,7 @@ public class PlayerKillLogDefinition extends LogDefinition<PlayerDeathEvent> {
 
     @Override
     public LogData captureData(PlayerDeathEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("killer_uuid", event.getEntity().getKiller().getUniqueId().toString())
                 .put("killer_name", event.getEntity().getKiller().getName())
                 .put("victim_uuid", event.getEntity().getUniqueId().toString())
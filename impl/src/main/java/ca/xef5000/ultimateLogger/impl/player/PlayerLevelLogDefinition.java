@@ -26,7 +26,7 @@ public class PlayerLevelLogDefinition extends LogDefinition<PlayerLevelChangeEve
 
     @Override
     public LogData captureData(PlayerLevelChangeEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("old_level", event.getOldLevel())
@@ -29,7 +29,7 @@ public class PlayerQuitLogDefinition extends LogDefinition<PlayerQuitEvent> {
     @Override
     public LogData captureData(PlayerQuitEvent event) {
         assert event.quitMessage() != null;
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("quit_message", ComponentUtils.extractText(event.quitMessage()));
@@ -19,14 +19,19 @@ public class PlayerSignLogDefinition extends LogDefinition<SignChangeEvent> {
         return SignChangeEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(SignChangeEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(SignChangeEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("sign_text", String.join("|", event.getLines()))
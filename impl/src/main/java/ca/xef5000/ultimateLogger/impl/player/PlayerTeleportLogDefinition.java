@@ -19,14 +19,19 @@ public class PlayerTeleportLogDefinition extends LogDefinition<PlayerTeleportEve
         return PlayerTeleportEvent.class;
     }
 
+    @Override
+    public boolean ignoreCancelled() {
+        return true;
+    }
+
     @Override
     public boolean shouldLog(PlayerTeleportEvent event) {
-        return !event.isCancelled();
+        return true;
     }
 
     @Override
     public LogData captureData(PlayerTeleportEvent event) {
-        return new LogData()
+        return newLogData()
                 .put("player_uuid", event.getPlayer().getUniqueId().toString())
                 .put("player_name", event.getPlayer().getName())
                 .put("teleport_cause", event.getCause().toString())